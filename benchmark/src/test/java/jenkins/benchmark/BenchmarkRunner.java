@@ -0,0 +1,54 @@
+package jenkins.benchmark;
+
+import org.junit.Test;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the JMH benchmarks of this module.
+ *
+ * <p>
+ * Invoked through {@code mvn -Pbenchmark -pl benchmark test}. The following system properties tune the run:
+ * <ul>
+ * <li>{@code benchmark.include}: regular expression of benchmarks to run, all of them by default.
+ * <li>{@code benchmark.forks}, {@code benchmark.warmupIterations}, {@code benchmark.measurementIterations}:
+ *     the usual JMH knobs, with defaults small enough for a developer machine.
+ * <li>{@code benchmark.param.*}: overrides a {@code @Param}, for example {@code -Dbenchmark.param.items=5000}.
+ * </ul>
+ *
+ * <p>
+ * The {@link GCProfiler} is always attached, so every result comes with {@code gc.alloc.rate.norm},
+ * the bytes allocated per operation. Results are written to {@code target/jmh-report.json}.
+ */
+public class BenchmarkRunner {
+    @Test
+    public void runJmhBenchmarks() throws Exception {
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .include(System.getProperty("benchmark.include", BenchmarkRunner.class.getPackage().getName() + ".*"))
+                .forks(Integer.getInteger("benchmark.forks", 1))
+                .warmupIterations(Integer.getInteger("benchmark.warmupIterations", 3))
+                .warmupTime(TimeValue.seconds(5))
+                .measurementIterations(Integer.getInteger("benchmark.measurementIterations", 5))
+                .measurementTime(TimeValue.seconds(10))
+                .timeUnit(TimeUnit.MICROSECONDS)
+                .addProfiler(GCProfiler.class)
+                .shouldFailOnError(true)
+                .resultFormat(ResultFormatType.JSON)
+                .result(System.getProperty("buildDirectory", "target") + "/jmh-report.json");
+
+        String prefix = "benchmark.param.";
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith(prefix)) {
+                options = options.param(name.substring(prefix.length()), System.getProperty(name).split(","));
+            }
+        }
+
+        new Runner(options.build()).run();
+    }
+}
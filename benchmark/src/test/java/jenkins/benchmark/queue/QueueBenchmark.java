@@ -0,0 +1,129 @@
+package jenkins.benchmark.queue;
+
+import hudson.model.LoadBalancer;
+import hudson.model.Node;
+import hudson.model.Queue;
+import hudson.model.queue.MappingWorksheet;
+import hudson.model.queue.QueueTaskDispatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Benchmarks of the scheduling core on top of {@link QueueState}.
+ *
+ * <p>
+ * All benchmarks sample latency, so results come as percentiles rather than an average.
+ * To get allocations per scheduled item, divide the {@code gc.alloc.rate.norm} of {@link #maintain}
+ * by the {@code items} parameter.
+ */
+@BenchmarkMode(Mode.SampleTime)
+public class QueueBenchmark {
+
+    /**
+     * One full {@link Queue#maintain()} pass. The queue lock is held for the whole call,
+     * so this is also the lock hold time of a maintenance pass.
+     */
+    @Benchmark
+    public void maintain(QueueState s) {
+        s.queue.maintain();
+    }
+
+    /**
+     * Maintenance running back to back while other threads take the queue lock the way
+     * {@code schedule2}, {@code cancel} and friends do.
+     * The {@code lockWait} score is how long those threads wait for the lock.
+     */
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(1)
+    public void maintainUnderContention(QueueState s) {
+        s.queue.maintain();
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(3)
+    public void lockWait(QueueState s) {
+        Queue.withLock(NOOP);
+    }
+
+    /**
+     * What {@code JobOffer.getCauseOfBlockage} costs across every buildable item and executor pair,
+     * that is {@link Node#canTake} followed by the {@link QueueTaskDispatcher} fan-out.
+     */
+    @Benchmark
+    public void dispatcherFanOut(QueueState s, Blackhole bh) {
+        for (Queue.BuildableItem item : s.queue.getBuildableItems()) {
+            for (MappingWorksheet.ExecutorSlot slot : s.slots) {
+                Node node = slot.getExecutor().getOwner().getNode();
+                bh.consume(node.canTake(item));
+                for (QueueTaskDispatcher d : QueueTaskDispatcher.all()) {
+                    bh.consume(d.canTake(node, item));
+                }
+            }
+        }
+    }
+
+    /**
+     * Building the {@link MappingWorksheet} of one item against every executor.
+     */
+    @Benchmark
+    public MappingWorksheet mappingWorksheet(Worksheets w) {
+        return new MappingWorksheet(w.nextItem(), w.state.slots);
+    }
+
+    /**
+     * {@link LoadBalancer#CONSISTENT_HASH} mapping one item on a prebuilt worksheet.
+     */
+    @Benchmark
+    public MappingWorksheet.Mapping consistentHash(Worksheets w) {
+        MappingWorksheet ws = w.nextWorksheet();
+        return LoadBalancer.CONSISTENT_HASH.map(ws.item.task, ws);
+    }
+
+    /**
+     * Worksheets of all queued items, cycled through by the benchmarks.
+     */
+    @State(Scope.Thread)
+    public static class Worksheets {
+        QueueState state;
+        List<Queue.BuildableItem> items;
+        List<MappingWorksheet> worksheets;
+        int next;
+
+        @Setup(Level.Trial)
+        public void setUp(QueueState state) {
+            this.state = state;
+            items = state.queue.getBuildableItems();
+            worksheets = new ArrayList<>(items.size());
+            for (Queue.BuildableItem item : items) {
+                worksheets.add(new MappingWorksheet(item, state.slots));
+            }
+        }
+
+        Queue.BuildableItem nextItem() {
+            return items.get(next++ % items.size());
+        }
+
+        MappingWorksheet nextWorksheet() {
+            return worksheets.get(next++ % worksheets.size());
+        }
+    }
+
+    private static final Runnable NOOP = new Runnable() {
+        @Override
+        public void run() {
+        }
+    };
+}
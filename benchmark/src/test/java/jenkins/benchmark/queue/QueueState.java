@@ -0,0 +1,152 @@
+package jenkins.benchmark.queue;
+
+import hudson.ExtensionList;
+import hudson.model.Computer;
+import hudson.model.Executor;
+import hudson.model.FreeStyleProject;
+import hudson.model.Node;
+import hudson.model.Queue;
+import hudson.model.queue.CauseOfBlockage;
+import hudson.model.queue.MappingWorksheet;
+import hudson.model.queue.QueueTaskDispatcher;
+import hudson.model.queue.WorkUnit;
+import hudson.slaves.DumbSlave;
+import hudson.slaves.JNLPLauncher;
+import org.junit.runner.Description;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A synthetic Jenkins with {@link #items} queued freestyle projects, {@link #nodes} agents spread over
+ * {@link #labels} labels, and {@link #dispatchers} extra {@link QueueTaskDispatcher}s.
+ *
+ * <p>
+ * The agents never connect, so every item stays buildable and each maintenance pass
+ * does the same amount of work: all items are offered to all idle executors and none gets taken.
+ */
+@State(Scope.Benchmark)
+public class QueueState {
+    @Param({"100", "1000"})
+    public int items;
+
+    @Param({"10", "100"})
+    public int nodes;
+
+    @Param({"10"})
+    public int labels;
+
+    @Param({"0", "5"})
+    public int dispatchers;
+
+    @Param({"2"})
+    public int executorsPerNode;
+
+    public JenkinsRule j;
+
+    public Queue queue;
+
+    /**
+     * Every executor in the system, wrapped so that {@link MappingWorksheet} can be built outside of the queue.
+     */
+    public List<MappingWorksheet.ExecutorSlot> slots;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        j = new BenchmarkJenkinsRule();
+        j.before();
+        j.jenkins.setNumExecutors(0);
+        queue = j.jenkins.getQueue();
+
+        for (int i = 0; i < nodes; i++) {
+            DumbSlave agent = new DumbSlave("agent" + i, new File(j.jenkins.getRootDir(), "agent" + i).getPath(), new JNLPLauncher(true));
+            agent.setNumExecutors(executorsPerNode);
+            agent.setLabelString(labelName(i) + " linux");
+            j.jenkins.addNode(agent);
+        }
+
+        ExtensionList<QueueTaskDispatcher> all = ExtensionList.lookup(QueueTaskDispatcher.class);
+        for (int i = 0; i < dispatchers; i++) {
+            all.add(new PermissiveDispatcher());
+        }
+
+        for (int i = 0; i < items; i++) {
+            FreeStyleProject p = j.createFreeStyleProject("job" + i);
+            p.setAssignedLabel(j.jenkins.getLabel(labelName(i) + " && linux"));
+            p.scheduleBuild2(0);
+        }
+        queue.maintain();
+        if (queue.getBuildableItems().size() != items) {
+            throw new IllegalStateException("expected " + items + " buildable items but got " + queue.getBuildableItems());
+        }
+
+        slots = new ArrayList<>();
+        for (Computer c : j.jenkins.getComputers()) {
+            for (Executor e : c.getExecutors()) {
+                slots.add(new Slot(e));
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        j.after();
+    }
+
+    private String labelName(int i) {
+        return "label" + (i % labels);
+    }
+
+    private static class BenchmarkJenkinsRule extends JenkinsRule {
+        BenchmarkJenkinsRule() {
+            testDescription = Description.createSuiteDescription(QueueState.class);
+            timeout = 0; // a trial routinely runs longer than the default test timeout
+        }
+    }
+
+    /**
+     * Stands for the dispatchers plugins install, which are called for every item and executor pair.
+     */
+    private static class PermissiveDispatcher extends QueueTaskDispatcher {
+        @Override
+        public CauseOfBlockage canTake(Node node, Queue.BuildableItem item) {
+            return null;
+        }
+
+        @Override
+        public CauseOfBlockage canRun(Queue.Item item) {
+            return null;
+        }
+    }
+
+    private static class Slot extends MappingWorksheet.ExecutorSlot {
+        private final Executor executor;
+
+        Slot(Executor executor) {
+            this.executor = executor;
+        }
+
+        @Override
+        public Executor getExecutor() {
+            return executor;
+        }
+
+        @Override
+        public boolean isAvailable() {
+            return true;
+        }
+
+        @Override
+        protected void set(WorkUnit p) throws UnsupportedOperationException {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
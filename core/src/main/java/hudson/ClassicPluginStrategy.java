@@ -53,6 +53,8 @@ import org.apache.tools.zip.ZipEntry;
 import org.apache.tools.zip.ZipExtraField;
 import org.apache.tools.zip.ZipOutputStream;
 import org.jenkinsci.bytecode.Transformer;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
 
 import javax.annotation.Nonnull;
 import java.io.Closeable;
@@ -62,14 +64,24 @@ import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.jar.Attributes;
 import java.util.jar.JarFile;
 import java.util.jar.Manifest;
@@ -93,6 +105,11 @@ public class ClassicPluginStrategy implements PluginStrategy {
 
     private PluginManager pluginManager;
 
+    /**
+     * Milliseconds taken to explode each plugin archive, by file name.
+     */
+    private final Map<String, Long> explodeTimes = new ConcurrentHashMap<>();
+
     /**
      * All the plugins eventually delegate this classloader to load core, servlet APIs, and SE runtime.
      */
@@ -169,8 +186,7 @@ public class ClassicPluginStrategy implements PluginStrategy {
             if (archive.isDirectory()) {// already expanded
                 expandDir = archive;
             } else {
-                File f = pluginManager.getWorkDir();
-                expandDir =  new File(f == null ? archive.getParentFile() : f, getBaseName(archive.getName()));
+                expandDir = getExpandDir(archive);
                 explode(archive, expandDir);
             }
 
@@ -452,10 +468,25 @@ public class ClassicPluginStrategy implements PluginStrategy {
         }
     }
 
+    File getExpandDir(File archive) {
+        File f = pluginManager.getWorkDir();
+        return new File(f == null ? archive.getParentFile() : f, getBaseName(archive.getName()));
+    }
+
+    /**
+     * Explodes a plugin archive ahead of {@link #createPluginWrapper}, which then finds it up to date.
+     * Lets {@link PluginManager} explode archives concurrently.
+     */
+    void explode(File archive) throws IOException {
+        if (!isLinked(archive) && archive.isFile()) {
+            explode(archive, getExpandDir(archive));
+        }
+    }
+
     /**
      * Explodes the plugin into a directory, if necessary.
      */
-    private static void explode(File archive, File destDir) throws IOException {
+    private void explode(File archive, File destDir) throws IOException {
         destDir.mkdirs();
 
         // timestamp check
@@ -463,9 +494,28 @@ public class ClassicPluginStrategy implements PluginStrategy {
         if(explodeTime.exists() && explodeTime.lastModified()==archive.lastModified())
             return; // no need to expand
 
+        long start = System.nanoTime();
         // delete the contents so that old files won't interfere with new files
         Util.deleteRecursive(destDir);
 
+        boolean cached = false;
+        if (EXPLODE_CACHE != null) {
+            cached = explodeFromCache(archive, destDir, new File(EXPLODE_CACHE));
+        } else {
+            explodeInto(archive, destDir);
+        }
+
+        try {
+            new FilePath(explodeTime).touch(archive.lastModified());
+        } catch (InterruptedException e) {
+            throw new AssertionError(e); // impossible
+        }
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        explodeTimes.put(archive.getName(), millis);
+        LOGGER.log(Level.FINE, "Exploded {0} in {1}ms{2}", new Object[] {archive, millis, cached ? " from cache" : ""});
+    }
+
+    private static void explodeInto(File archive, File destDir) throws IOException {
         try {
             Project prj = new Project();
             unzipExceptClasses(archive, destDir, prj);
@@ -473,14 +523,94 @@ public class ClassicPluginStrategy implements PluginStrategy {
         } catch (BuildException x) {
             throw new IOException("Failed to expand " + archive,x);
         }
+    }
 
-        try {
-            new FilePath(explodeTime).touch(archive.lastModified());
-        } catch (InterruptedException e) {
-            throw new AssertionError(e); // impossible
+    /**
+     * Explodes an archive into a directory of the cache named after its checksum, unless already there,
+     * and links or copies the result into the destination.
+     *
+     * @return whether the cache had the archive already
+     */
+    private static boolean explodeFromCache(File archive, File destDir, File cache) throws IOException {
+        File entry = new File(cache, digest(archive));
+        // entries are only ever moved into place whole, and never deleted, as another Jenkins may be linking from them
+        boolean hit = entry.isDirectory();
+        if (!hit) {
+            Files.createDirectories(cache.toPath());
+            Path tmp = Files.createTempDirectory(cache.toPath(), entry.getName() + ".tmp");
+            try {
+                explodeInto(archive, tmp.toFile());
+                try {
+                    Files.move(tmp, entry.toPath(), StandardCopyOption.ATOMIC_MOVE);
+                } catch (IOException e) {
+                    if (!entry.isDirectory()) {
+                        throw e;
+                    }
+                    // another Jenkins exploded the same archive meanwhile
+                }
+            } finally {
+                Util.deleteRecursive(tmp.toFile());
+            }
+        }
+        linkTree(entry.toPath(), destDir.toPath());
+        return hit;
+    }
+
+    /**
+     * Recreates a directory tree with hard links to its files, or copies where links are not supported.
+     */
+    private static void linkTree(final Path source, final Path target) throws IOException {
+        Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+            boolean copy;
+
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                Files.createDirectories(target.resolve(source.relativize(dir).toString()));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Path dest = target.resolve(source.relativize(file).toString());
+                if (!copy) {
+                    try {
+                        Files.createLink(dest, file);
+                        return FileVisitResult.CONTINUE;
+                    } catch (IOException | UnsupportedOperationException e) {
+                        LOGGER.log(Level.FINE, "Cannot link " + file + ", copying instead", e);
+                        copy = true;
+                    }
+                }
+                Files.copy(file, dest, StandardCopyOption.COPY_ATTRIBUTES);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static String digest(File archive) throws IOException {
+        try (InputStream in = Files.newInputStream(archive.toPath())) {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            byte[] buf = new byte[8192];
+            int len;
+            while ((len = in.read(buf)) >= 0) {
+                md.update(buf, 0, len);
+            }
+            return Util.toHexString(md.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        } catch (InvalidPathException e) {
+            throw new IOException(e);
         }
     }
 
+    /**
+     * Gets how long exploding each plugin archive took since startup, by archive file name.
+     */
+    @Restricted(NoExternalUse.class)
+    public Map<String, Long> getExplodeTimes() {
+        return Collections.unmodifiableMap(explodeTimes);
+    }
+
     /**
      * Repackage classes directory into a jar file to make it remoting friendly.
      * The remoting layer can cache jar files but not class files.
@@ -562,6 +692,11 @@ public class ClassicPluginStrategy implements PluginStrategy {
          */
         private volatile List<PluginWrapper> transientDependencies;
 
+        /**
+         * Which of {@link #transientDependencies} have which packages.
+         */
+        private volatile PluginPackageIndex.Subset indexedDependencies;
+
         public DependencyClassLoader(ClassLoader parent, File archive, List<Dependency> dependencies) {
             super(parent);
             this._for = archive;
@@ -603,6 +738,17 @@ public class ClassicPluginStrategy implements PluginStrategy {
             return transientDependencies;
         }
 
+        private PluginPackageIndex.Subset getIndexedDependencies() {
+            List<PluginWrapper> dependencies = getTransitiveDependencies();
+            PluginPackageIndex index = pluginManager.getPackageIndex();
+            PluginPackageIndex.Subset s = indexedDependencies;
+            if (s == null || s.getIndex() != index || s.getPlugins() != dependencies) {
+                s = index.subset(dependencies);
+                indexedDependencies = s;
+            }
+            return s;
+        }
+
 //        public List<PluginWrapper> getDependencyPluginWrappers() {
 //            List<PluginWrapper> r = new ArrayList<PluginWrapper>();
 //            for (Dependency d : dependencies) {
@@ -615,7 +761,7 @@ public class ClassicPluginStrategy implements PluginStrategy {
         @Override
         protected Class<?> findClass(String name) throws ClassNotFoundException {
             if (PluginManager.FAST_LOOKUP) {
-                for (PluginWrapper pw : getTransitiveDependencies()) {
+                for (PluginWrapper pw : getIndexedDependencies().candidatesForClass(name)) {
                     try {
                         Class<?> c = ClassLoaderReflectionToolkit._findLoadedClass(pw.classLoader, name);
                         if (c!=null)    return c;
@@ -647,7 +793,7 @@ public class ClassicPluginStrategy implements PluginStrategy {
             HashSet<URL> result = new HashSet<>();
 
             if (PluginManager.FAST_LOOKUP) {
-                    for (PluginWrapper pw : getTransitiveDependencies()) {
+                    for (PluginWrapper pw : getIndexedDependencies().candidates(name)) {
                         Enumeration<URL> urls = ClassLoaderReflectionToolkit._findResources(pw.classLoader, name);
                         while (urls != null && urls.hasMoreElements())
                             result.add(urls.nextElement());
@@ -669,7 +815,7 @@ public class ClassicPluginStrategy implements PluginStrategy {
         @Override
         protected URL findResource(String name) {
             if (PluginManager.FAST_LOOKUP) {
-                    for (PluginWrapper pw : getTransitiveDependencies()) {
+                    for (PluginWrapper pw : getIndexedDependencies().candidates(name)) {
                         URL url = ClassLoaderReflectionToolkit._findResource(pw.classLoader, name);
                         if (url!=null)    return url;
                     }
@@ -706,4 +852,17 @@ public class ClassicPluginStrategy implements PluginStrategy {
 
     public static boolean useAntClassLoader = SystemProperties.getBoolean(ClassicPluginStrategy.class.getName()+".useAntClassLoader");
     public static boolean DISABLE_TRANSFORMER = SystemProperties.getBoolean(ClassicPluginStrategy.class.getName()+".noBytecodeTransformer");
+    /**
+     * Whether {@link PluginManager} explodes plugin archives concurrently before inspecting them.
+     */
+    @Restricted(NoExternalUse.class)
+    public static boolean PARALLEL_EXPLODE = SystemProperties.getBoolean(ClassicPluginStrategy.class.getName()+".parallelExplode", true);
+    /**
+     * Directory where exploded plugins are kept by checksum of their archives, so that they need not be exploded again
+     * after their working copy is lost, such as when a container restarts with a fresh volume.
+     * Several Jenkins instances on the same host may share it.
+     * Files are hard linked from there when possible, so they must not be modified.
+     */
+    @Restricted(NoExternalUse.class)
+    public static /* non-final for Groovy */ String EXPLODE_CACHE = SystemProperties.getString(ClassicPluginStrategy.class.getName()+".explodeCache");
 }
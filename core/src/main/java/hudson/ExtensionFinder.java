@@ -54,6 +54,7 @@ import org.kohsuke.accmod.restrictions.NoExternalUse;
 import org.springframework.util.ClassUtils;
 
 import javax.annotation.PostConstruct;
+import java.io.IOException;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.AnnotatedElement;
 import java.lang.reflect.Field;
@@ -63,11 +64,13 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -260,9 +263,25 @@ public abstract class ExtensionFinder implements ExtensionPoint {
          */
         private Map<Class<? extends Annotation>,GuiceExtensionAnnotation<?>> extensionAnnotations = Maps.newHashMap();
 
+        /**
+         * Bindings of each container by the types they can be found as, in the order {@link Injector#getBindings()} lists them.
+         * Containers never change their bindings, so each is indexed on its first lookup.
+         */
+        private final Map<Injector, Map<Class<?>, List<Binding<?>>>> bindingsByType = new ConcurrentHashMap<>();
+
+        /**
+         * Extensions which resolved the last time Jenkins started with the same core and plugins,
+         * while the initial container is being created; null otherwise.
+         */
+        private ExtensionIndexSnapshot snapshot;
+
         public GuiceFinder() {
             refreshExtensionAnnotations();
 
+            if (ExtensionIndexSnapshot.ENABLED) {
+                snapshot = ExtensionIndexSnapshot.forJenkins(Jenkins.getInstance());
+            }
+
             SezpozModule extensions = new SezpozModule(loadSezpozIndices(Jenkins.getInstance().getPluginManager().uberClassLoader));
 
             List<Module> modules = new ArrayList<>();
@@ -283,11 +302,24 @@ public abstract class ExtensionFinder implements ExtensionPoint {
             try {
                 container = Guice.createInjector(modules);
                 sezpozIndex = extensions.getLoadedIndex();
+                if (snapshot != null && !snapshot.isCurrent()) {
+                    try {
+                        List<String> ids = new ArrayList<>(sezpozIndex.size());
+                        for (IndexItem<?, Object> item : sezpozIndex) {
+                            ids.add(ExtensionIndexSnapshot.id(item));
+                        }
+                        snapshot.save(ids);
+                    } catch (IOException e) {
+                        LOGGER.log(Level.WARNING, "Failed to save the extension index", e);
+                    }
+                }
             } catch (Throwable e) {
                 LOGGER.log(Level.SEVERE, "Failed to create Guice container from all the plugins",e);
                 // failing to load all bindings are disastrous, so recover by creating minimum that works
                 // by just including the core
                 container = Guice.createInjector(new SezpozModule(loadSezpozIndices(Jenkins.class.getClassLoader())));
+            } finally {
+                snapshot = null;
             }
 
             // expose Injector via lookup mechanism for interop with non-Guice clients
@@ -395,15 +427,56 @@ public abstract class ExtensionFinder implements ExtensionPoint {
         }
 
         private <U> void _find(Class<U> type, List<ExtensionComponent<U>> result, Injector container) {
-            for (Entry<Key<?>, Binding<?>> e : container.getBindings().entrySet()) {
-                if (type.isAssignableFrom(e.getKey().getTypeLiteral().getRawType())) {
-                    Annotation a = annotations.get(e.getKey());
-                    Object o = e.getValue().getProvider().get();
-                    if (o!=null) {
-                        GuiceExtensionAnnotation gea = a!=null ? extensionAnnotations.get(a.annotationType()) : null;
-                        result.add(new ExtensionComponent<>(type.cast(o), gea != null ? gea.getOrdinal(a) : 0));
+            for (Binding<?> b : bindingsOf(type, container)) {
+                Annotation a = annotations.get(b.getKey());
+                Object o = b.getProvider().get();
+                if (o!=null) {
+                    GuiceExtensionAnnotation gea = a!=null ? extensionAnnotations.get(a.annotationType()) : null;
+                    result.add(new ExtensionComponent<>(type.cast(o), gea != null ? gea.getOrdinal(a) : 0));
+                }
+            }
+        }
+
+        /**
+         * Lists the bindings of a container whose type is assignable to the given type.
+         */
+        private List<Binding<?>> bindingsOf(Class<?> type, Injector container) {
+            if (type.isArray()) {
+                // array types are assignable to more types than their supertypes, so just look at them all
+                List<Binding<?>> r = new ArrayList<>();
+                for (Entry<Key<?>, Binding<?>> e : container.getBindings().entrySet()) {
+                    if (type.isAssignableFrom(e.getKey().getTypeLiteral().getRawType())) {
+                        r.add(e.getValue());
                     }
                 }
+                return r;
+            }
+            List<Binding<?>> r = bindingsByType.computeIfAbsent(container, GuiceFinder::indexBindings).get(type);
+            return r != null ? r : Collections.emptyList();
+        }
+
+        private static Map<Class<?>, List<Binding<?>>> indexBindings(Injector container) {
+            Map<Class<?>, List<Binding<?>>> r = new HashMap<>();
+            for (Entry<Key<?>, Binding<?>> e : container.getBindings().entrySet()) {
+                Class<?> c = e.getKey().getTypeLiteral().getRawType();
+                Set<Class<?>> types = new LinkedHashSet<>();
+                addSupertypes(c, types);
+                if (!c.isPrimitive()) {
+                    types.add(Object.class);
+                }
+                for (Class<?> t : types) {
+                    r.computeIfAbsent(t, k -> new ArrayList<>()).add(e.getValue());
+                }
+            }
+            return r;
+        }
+
+        private static void addSupertypes(Class<?> c, Set<Class<?>> types) {
+            if (c != null && types.add(c)) {
+                addSupertypes(c.getSuperclass(), types);
+                for (Class<?> i : c.getInterfaces()) {
+                    addSupertypes(i, types);
+                }
             }
         }
 
@@ -521,9 +594,13 @@ public abstract class ExtensionFinder implements ExtensionPoint {
                         if (!isActive(a,e))   continue;
 
                         Scope scope = optional ? QUIET_FAULT_TOLERANT_SCOPE : FAULT_TOLERANT_SCOPE;
+                        // skip the checks if they passed the last time Jenkins started with the same plugins
+                        boolean resolved = snapshot != null && snapshot.isResolved(ExtensionIndexSnapshot.id(item));
                         if (e instanceof Class) {
                             Key key = Key.get((Class)e);
-                            resolve((Class)e);
+                            if (!resolved) {
+                                resolve((Class)e);
+                            }
                             annotations.put(key,a);
                             bind(key).in(scope);
                         } else {
@@ -536,7 +613,9 @@ public abstract class ExtensionFinder implements ExtensionPoint {
                             } else
                                 throw new AssertionError();
 
-                            resolve(extType);
+                            if (!resolved) {
+                                resolve(extType);
+                            }
 
                             // make unique key, because Guice wants that.
                             Key key = Key.get(extType, Names.named(item.className() + "." + item.memberName()));
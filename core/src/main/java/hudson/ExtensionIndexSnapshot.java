@@ -0,0 +1,164 @@
+package hudson;
+
+import jenkins.model.Jenkins;
+import jenkins.util.SystemProperties;
+import net.java.sezpoz.IndexItem;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Remembers which extensions {@link ExtensionFinder.GuiceFinder} could resolve with a given core and set of plugins,
+ * so that the next start with the same versions can bind them without resolving them eagerly again.
+ * Classes their members refer to are then only loaded once the extensions are used.
+ *
+ * <p>
+ * Kept in {@code $JENKINS_HOME/extension-index.bin}, and ignored once the core, any plugin, or the JVM changes,
+ * since classes which linked on one Java version may not on another.
+ * Not used with snapshot versions, as their contents can change without their version changing.
+ *
+ * <p>
+ * Only used when {@link #ENABLED} is set.
+ */
+@Restricted(NoExternalUse.class)
+public final class ExtensionIndexSnapshot {
+    private static final int MAGIC = 0x45585449; // EXTI
+    private static final int VERSION = 1;
+
+    /**
+     * Whether {@link ExtensionFinder.GuiceFinder} uses a snapshot.
+     */
+    public static /* non-final for Groovy */ boolean ENABLED = SystemProperties.getBoolean(ExtensionIndexSnapshot.class.getName() + ".enabled");
+
+    private final File file;
+    private final String key;
+    /** Extensions known to resolve, by {@link #id}; empty unless {@link #current}. */
+    private final Set<String> resolved = new HashSet<>();
+    private boolean current;
+
+    ExtensionIndexSnapshot(@Nonnull File file, @Nonnull String key) {
+        this.file = file;
+        this.key = key;
+        load();
+    }
+
+    /**
+     * Gets the snapshot for the running core and plugins.
+     *
+     * @return null if the versions cannot identify their contents
+     */
+    static @CheckForNull ExtensionIndexSnapshot forJenkins(@Nonnull Jenkins j) {
+        String key = key(Jenkins.VERSION, j.getPluginManager().getPlugins());
+        return key == null ? null : new ExtensionIndexSnapshot(new File(j.getRootDir(), "extension-index.bin"), key);
+    }
+
+    /**
+     * Computes what a snapshot is valid for.
+     *
+     * @return null if some version is a snapshot
+     */
+    static @CheckForNull String key(@CheckForNull String coreVersion, @Nonnull List<PluginWrapper> plugins) {
+        if (coreVersion == null || PluginWrapper.isSnapshot(coreVersion)) {
+            return null;
+        }
+        List<String> versions = new ArrayList<>();
+        for (PluginWrapper p : plugins) {
+            if (!p.isActive()) {
+                continue;
+            }
+            if (PluginWrapper.isSnapshot(p.getVersion())) {
+                return null;
+            }
+            versions.add(p.getShortName() + ':' + p.getVersion());
+        }
+        Collections.sort(versions);
+        String java = System.getProperty("java.specification.version") + '/' + System.getProperty("java.vm.version");
+        return Util.getDigestOf(coreVersion + ';' + java + ';' + String.join(";", versions));
+    }
+
+    /**
+     * Identifies an extension within a snapshot.
+     */
+    static @Nonnull String id(@Nonnull IndexItem<?, ?> item) {
+        return item.memberName() == null ? item.className() : item.className() + '#' + item.memberName();
+    }
+
+    /**
+     * Whether the snapshot was written for the same versions.
+     */
+    boolean isCurrent() {
+        return current;
+    }
+
+    /**
+     * Whether an extension was resolved with the same versions.
+     *
+     * @param id as per {@link #id}
+     */
+    boolean isResolved(@Nonnull String id) {
+        return resolved.contains(id);
+    }
+
+    private void load() {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(file.toPath()))))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Unknown format");
+            }
+            if (!in.readUTF().equals(key)) {
+                LOGGER.fine("Core, plugins, or Java changed, so resolving all extensions");
+                return;
+            }
+            for (int i = in.readInt(); i > 0; i--) {
+                resolved.add(in.readUTF());
+            }
+            current = true;
+        } catch (NoSuchFileException e) {
+            // first start
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Failed to load " + file + ", so resolving all extensions", e);
+            resolved.clear();
+        }
+    }
+
+    /**
+     * Records the extensions which resolved.
+     *
+     * @param ids as per {@link #id}
+     */
+    void save(@Nonnull Collection<String> ids) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(tmp.toPath()))))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(key);
+            out.writeInt(ids.size());
+            for (String id : ids) {
+                out.writeUTF(id);
+            }
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(ExtensionIndexSnapshot.class.getName());
+}
@@ -25,6 +25,7 @@ package hudson;
 
 import com.google.common.collect.Lists;
 import hudson.init.InitMilestone;
+import hudson.init.Initializer;
 import hudson.model.Hudson;
 import jenkins.ExtensionComponentSet;
 import jenkins.model.Jenkins;
@@ -43,11 +44,14 @@ import java.util.Map;
 import java.util.Vector;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import jenkins.util.io.OnMaster;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
 
 /**
  * Retains the known extension instances for the given type 'T'.
@@ -314,7 +318,10 @@ public class ExtensionList<T> extends AbstractList<T> implements OnMaster {
 
         synchronized (getLoadLock()) {
             if(extensions==null) {
+                long start = System.nanoTime();
                 List<ExtensionComponent<T>> r = load();
+                // includes extension lists loaded meanwhile by the constructors of these extensions
+                loadTimes.merge(extensionType, System.nanoTime() - start, Long::sum);
                 r.addAll(legacyInstances);
                 extensions = sort(r);
             }
@@ -466,5 +473,34 @@ public class ExtensionList<T> extends AbstractList<T> implements OnMaster {
         staticLegacyInstances.clear();
     }
 
+    /**
+     * Time spent loading each extension list, in nanoseconds.
+     */
+    private static final Map<Class<?>, Long> loadTimes = new ConcurrentHashMap<>();
+
+    /**
+     * Gets the time spent loading each extension list so far, in nanoseconds,
+     * including the time spent loading other lists its extensions needed.
+     */
+    @Restricted(NoExternalUse.class)
+    public static @Nonnull Map<Class<?>, Long> getLoadTimes() {
+        return Collections.unmodifiableMap(loadTimes);
+    }
+
+    @Initializer(after = InitMilestone.COMPLETED)
+    @Restricted(NoExternalUse.class)
+    public static void logLoadTimes() {
+        if (!LOGGER.isLoggable(Level.FINE)) {
+            return;
+        }
+        List<Map.Entry<Class<?>, Long>> times = new ArrayList<>(loadTimes.entrySet());
+        times.sort(Map.Entry.<Class<?>, Long>comparingByValue().reversed());
+        StringBuilder b = new StringBuilder("Time spent loading extension lists during startup:");
+        for (Map.Entry<Class<?>, Long> e : times) {
+            b.append(String.format("%n  %,8d ms %s", TimeUnit.NANOSECONDS.toMillis(e.getValue()), e.getKey().getName()));
+        }
+        LOGGER.fine(b.toString());
+    }
+
     private static final Logger LOGGER = Logger.getLogger(ExtensionList.class.getName());
 }
@@ -94,6 +94,8 @@ import java.util.Arrays;
 import java.util.Comparator;
 import java.util.EnumSet;
 import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.StringTokenizer;
@@ -107,6 +109,7 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.zip.Deflater;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -775,6 +778,22 @@ public final class FilePath implements Serializable {
             public OutputStream compress(OutputStream out) throws IOException {
                 return new GZIPOutputStream(new BufferedOutputStream(out));
             }
+        },
+        /**
+         * Gzip format with the fastest compression level, for when CPU rather than bandwidth is the bottleneck.
+         * @since TODO
+         */
+        FAST {
+            public InputStream extract(InputStream in) throws IOException {
+                return GZIP.extract(in);
+            }
+            public OutputStream compress(OutputStream out) throws IOException {
+                return new java.util.zip.GZIPOutputStream(new BufferedOutputStream(out), 8192) {
+                    {
+                        def.setLevel(Deflater.BEST_SPEED);
+                    }
+                };
+            }
         };
 
         public abstract InputStream extract(InputStream in) throws IOException;
@@ -2346,6 +2365,10 @@ public final class FilePath implements Serializable {
      * @since 1.532
      */
     public int copyRecursiveTo(final DirScanner scanner, final FilePath target, final String description) throws IOException, InterruptedException {
+        return copyRecursiveTo(scanner, target, description, TarCompression.GZIP);
+    }
+
+    private int copyRecursiveTo(DirScanner scanner, FilePath target, String description, TarCompression compression) throws IOException, InterruptedException {
         if(this.channel==target.channel) {
             // local to local copy.
             return act(new CopyRecursiveLocal(target, scanner));
@@ -2354,8 +2377,8 @@ public final class FilePath implements Serializable {
             // local -> remote copy
             final Pipe pipe = Pipe.createLocalToRemote();
 
-            Future<Void> future = target.actAsync(new ReadToTar(pipe, description));
-            Future<Integer> future2 = actAsync(new WriteToTar(scanner, pipe));
+            Future<Void> future = target.actAsync(new ReadToTar(pipe, description, compression));
+            Future<Integer> future2 = actAsync(new WriteToTar(scanner, pipe, compression));
             try {
                 // JENKINS-9540 in case the reading side failed, report that error first
                 future.get();
@@ -2367,9 +2390,9 @@ public final class FilePath implements Serializable {
             // remote -> local copy
             final Pipe pipe = Pipe.createRemoteToLocal();
 
-            Future<Integer> future = actAsync(new CopyRecursiveRemoteToLocal(pipe, scanner));
+            Future<Integer> future = actAsync(new CopyRecursiveRemoteToLocal(pipe, scanner, compression));
             try {
-                readFromTar(remote + '/' + description,new File(target.remote),TarCompression.GZIP.extract(pipe.getIn()));
+                readFromTar(remote + '/' + description,new File(target.remote),compression.extract(pipe.getIn()));
             } catch (IOException e) {// BuildException or IOException
                 try {
                     future.get(3,TimeUnit.SECONDS);
@@ -2391,6 +2414,262 @@ public final class FilePath implements Serializable {
         }
     }
 
+    /**
+     * Copies files according to a specified scanner to a target node, optionally over several concurrent streams
+     * and skipping files the target already has.
+     * <p>
+     * When copying between machines, files are split by size among up to {@code streams} tar streams sent at the same time,
+     * which helps when a single stream, or compressing it, cannot keep up with the link.
+     * Unchanged files are recognized by having the same size and timestamp (to the second, as preserved by tar),
+     * or failing that the same size and checksum, which is cheaper to compute on both sides than to transfer the file.
+     * @param scanner a way of enumerating some files (must be serializable for possible delivery to remote side)
+     * @param target the destination basedir
+     * @param description a description of the fileset, for logging purposes
+     * @param streams the maximum number of streams to use when copying between machines
+     * @param compression how to compress streams between machines
+     * @param skipUnchanged whether to leave alone files which already exist in the target with the same contents
+     * @return the number of files copied, not counting those skipped
+     * @since TODO
+     */
+    public int copyRecursiveTo(@Nonnull DirScanner scanner, @Nonnull FilePath target, @Nonnull String description, int streams, @Nonnull TarCompression compression, boolean skipUnchanged) throws IOException, InterruptedException {
+        boolean local = this.channel == target.channel;
+        if (!skipUnchanged && (local || streams <= 1)) {
+            return copyRecursiveTo(scanner, target, description, compression);
+        }
+        List<CopyEntry> entries = act(new ListForCopy(scanner));
+        if (skipUnchanged) {
+            entries = withoutUnchanged(entries, target);
+            if (entries.isEmpty()) {
+                return 0;
+            }
+        }
+        if (local || streams <= 1 || entries.size() <= 1) {
+            return copyRecursiveTo(new ExplicitlySpecifiedDirScanner(toScannerMap(entries)), target, description, compression);
+        }
+
+        // balance the streams by size, largest files first, while keeping the original order within each stream
+        List<CopyEntry> bySize = new ArrayList<>(entries);
+        bySize.sort(Comparator.comparingLong((CopyEntry e) -> e.size).reversed());
+        int n = Math.min(streams, entries.size());
+        long[] sizes = new long[n];
+        Map<CopyEntry,Integer> assignment = new HashMap<>();
+        for (CopyEntry e : bySize) {
+            int smallest = 0;
+            for (int i = 1; i < n; i++) {
+                if (sizes[i] < sizes[smallest]) {
+                    smallest = i;
+                }
+            }
+            sizes[smallest] += e.size;
+            assignment.put(e, smallest);
+        }
+        List<List<CopyEntry>> buckets = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            buckets.add(new ArrayList<>());
+        }
+        for (CopyEntry e : entries) {
+            buckets.get(assignment.get(e)).add(e);
+        }
+
+        List<java.util.concurrent.Future<?>> readers = new ArrayList<>();
+        List<java.util.concurrent.Future<Integer>> writers = new ArrayList<>();
+        for (List<CopyEntry> bucket : buckets) {
+            DirScanner subset = new ExplicitlySpecifiedDirScanner(toScannerMap(bucket));
+            if (this.channel == null) {
+                // local -> remote copy
+                Pipe pipe = Pipe.createLocalToRemote();
+                readers.add(target.actAsync(new ReadToTar(pipe, description, compression)));
+                writers.add(actAsync(new WriteToTar(subset, pipe, compression)));
+            } else {
+                // remote -> local copy
+                Pipe pipe = Pipe.createRemoteToLocal();
+                writers.add(actAsync(new CopyRecursiveRemoteToLocal(pipe, subset, compression)));
+                File dir = new File(target.remote);
+                readers.add(threadPoolForRemoting.submit(() -> {
+                    readFromTar(remote + '/' + description, dir, compression.extract(pipe.getIn()));
+                    return null;
+                }));
+            }
+        }
+        return awaitCopies(readers, writers);
+    }
+
+    /**
+     * Waits for concurrent streams, reporting errors of the reading side first as they are usually the more telling.
+     */
+    private int awaitCopies(List<java.util.concurrent.Future<?>> readers, List<java.util.concurrent.Future<Integer>> writers) throws IOException, InterruptedException {
+        IOException failure = null;
+        for (java.util.concurrent.Future<?> reader : readers) {
+            try {
+                reader.get();
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = ioWithCause(e);
+                } else {
+                    failure.addSuppressed(e.getCause());
+                }
+            }
+        }
+        int count = 0;
+        for (java.util.concurrent.Future<Integer> writer : writers) {
+            try {
+                if (failure == null) {
+                    count += writer.get();
+                } else {
+                    writer.get(3, TimeUnit.SECONDS);
+                }
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = ioWithCause(e);
+                } else {
+                    failure.addSuppressed(e.getCause());
+                }
+            } catch (TimeoutException e) {
+                // the writing side is hanging, just report the reading side
+                writer.cancel(true);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return count;
+    }
+
+    private static Map<String,String> toScannerMap(List<CopyEntry> entries) {
+        Map<String,String> files = new LinkedHashMap<>();
+        for (CopyEntry e : entries) {
+            files.put(e.path, e.source);
+        }
+        return files;
+    }
+
+    /**
+     * Filters out regular files with the same size and either timestamp or checksum in the target.
+     */
+    private List<CopyEntry> withoutUnchanged(List<CopyEntry> entries, FilePath target) throws IOException, InterruptedException {
+        Map<String,String> targetDigests = target.act(new CompareForCopy(entries));
+        Map<String,String> candidates = new HashMap<>();
+        for (CopyEntry e : entries) {
+            // null if the timestamp matched, so no checksum is needed
+            if (targetDigests.get(e.path) != null) {
+                candidates.put(e.path, e.source);
+            }
+        }
+        Map<String,String> sourceDigests = candidates.isEmpty() ? Collections.<String,String>emptyMap() : act(new DigestForCopy(candidates));
+        List<CopyEntry> changed = new ArrayList<>();
+        for (CopyEntry e : entries) {
+            String digest = targetDigests.get(e.path);
+            if (digest == null ? !targetDigests.containsKey(e.path) : !digest.equals(sourceDigests.get(e.path))) {
+                changed.add(e);
+            }
+        }
+        LOGGER.log(Level.FINE, "skipping {0} of {1} files already in {2}", new Object[] {entries.size() - changed.size(), entries.size(), target});
+        return changed;
+    }
+
+    /**
+     * A file, directory, or symbolic link to copy.
+     */
+    private static final class CopyEntry implements Serializable {
+        private static final long serialVersionUID = 1L;
+        /** Relative path in the target, as per {@link FileVisitor#visit}. */
+        final String path;
+        /** Relative path in the source, as per {@link ExplicitlySpecifiedDirScanner}. */
+        final String source;
+        /** Whether this is a regular file, as opposed to a directory or symbolic link. */
+        final boolean file;
+        final long size;
+        final long lastModified;
+        CopyEntry(String path, String source, boolean file, long size, long lastModified) {
+            this.path = path;
+            this.source = source;
+            this.file = file;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+    }
+
+    private class ListForCopy extends SecureFileCallable<List<CopyEntry>> {
+        private static final long serialVersionUID = 1L;
+        private final DirScanner scanner;
+        ListForCopy(DirScanner scanner) {
+            this.scanner = scanner;
+        }
+        @Override
+        public List<CopyEntry> invoke(File base, VirtualChannel channel) throws IOException {
+            List<CopyEntry> entries = new ArrayList<>();
+            if (!base.exists()) {
+                return entries;
+            }
+            Path basePath = fileToPath(base);
+            scanner.scan(base, reading(new FileVisitor() {
+                @Override
+                public void visit(File f, String relativePath) throws IOException {
+                    boolean file = f.isFile();
+                    entries.add(new CopyEntry(relativePath.replace(File.separatorChar, '/'), source(f), file, file ? f.length() : 0, f.lastModified()));
+                }
+                @Override
+                public boolean understandsSymlink() {
+                    return true;
+                }
+                @Override
+                public void visitSymlink(File link, String target, String relativePath) throws IOException {
+                    entries.add(new CopyEntry(relativePath.replace(File.separatorChar, '/'), source(link), false, 0, 0));
+                }
+                private String source(File f) {
+                    return basePath.relativize(f.toPath()).toString().replace(File.separatorChar, '/');
+                }
+            }));
+            return entries;
+        }
+    }
+
+    /**
+     * Finds regular files in the target with the expected size.
+     * @return for those which also have the expected timestamp, null; for the others, their checksum
+     */
+    private class CompareForCopy extends SecureFileCallable<Map<String,String>> {
+        private static final long serialVersionUID = 1L;
+        private final List<CopyEntry> entries;
+        CompareForCopy(List<CopyEntry> entries) {
+            this.entries = entries;
+        }
+        @Override
+        public Map<String,String> invoke(File base, VirtualChannel channel) throws IOException {
+            Map<String,String> r = new HashMap<>();
+            for (CopyEntry e : entries) {
+                if (!e.file) {
+                    continue;
+                }
+                File f = new File(base, e.path);
+                if (!f.toPath().normalize().startsWith(base.toPath()) || Files.isSymbolicLink(fileToPath(f))) {
+                    continue;
+                }
+                reading(f);
+                if (f.isFile() && f.length() == e.size) {
+                    r.put(e.path, f.lastModified() / 1000 == e.lastModified / 1000 ? null : Util.getDigestOf(f));
+                }
+            }
+            return r;
+        }
+    }
+
+    private class DigestForCopy extends SecureFileCallable<Map<String,String>> {
+        private static final long serialVersionUID = 1L;
+        private final Map<String,String> files;
+        DigestForCopy(Map<String,String> files) {
+            this.files = files;
+        }
+        @Override
+        public Map<String,String> invoke(File base, VirtualChannel channel) throws IOException {
+            Map<String,String> r = new HashMap<>();
+            for (Map.Entry<String,String> e : files.entrySet()) {
+                r.put(e.getKey(), Util.getDigestOf(reading(new File(base, e.getValue()))));
+            }
+            return r;
+        }
+    }
+
     private IOException ioWithCause(ExecutionException e) {
         Throwable cause = e.getCause();
         if (cause == null) cause = e;
@@ -2470,15 +2749,17 @@ public final class FilePath implements Serializable {
     private class ReadToTar extends SecureFileCallable<Void> {
         private final Pipe pipe;
         private final String description;
-        ReadToTar(Pipe pipe, String description) {
+        private final TarCompression compression;
+        ReadToTar(Pipe pipe, String description, TarCompression compression) {
             this.pipe = pipe;
             this.description = description;
+            this.compression = compression;
         }
         private static final long serialVersionUID = 1L;
         @Override
         public Void invoke(File f, VirtualChannel channel) throws IOException {
             try (InputStream in = pipe.getIn()) {
-                readFromTar(remote + '/' + description, f, TarCompression.GZIP.extract(in));
+                readFromTar(remote + '/' + description, f, compression.extract(in));
                 return null;
             }
         }
@@ -2486,28 +2767,32 @@ public final class FilePath implements Serializable {
     private class WriteToTar extends SecureFileCallable<Integer> {
         private final DirScanner scanner;
         private final Pipe pipe;
-        WriteToTar(DirScanner scanner, Pipe pipe) {
+        private final TarCompression compression;
+        WriteToTar(DirScanner scanner, Pipe pipe, TarCompression compression) {
             this.scanner = scanner;
             this.pipe = pipe;
+            this.compression = compression;
         }
         private static final long serialVersionUID = 1L;
         @Override
         public Integer invoke(File f, VirtualChannel channel) throws IOException, InterruptedException {
-            return writeToTar(new File(remote), scanner, TarCompression.GZIP.compress(pipe.getOut()));
+            return writeToTar(new File(remote), scanner, compression.compress(pipe.getOut()));
         }
     }
     private class CopyRecursiveRemoteToLocal extends SecureFileCallable<Integer> {
         private static final long serialVersionUID = 1L;
         private final Pipe pipe;
         private final DirScanner scanner;
-        CopyRecursiveRemoteToLocal(Pipe pipe, DirScanner scanner) {
+        private final TarCompression compression;
+        CopyRecursiveRemoteToLocal(Pipe pipe, DirScanner scanner, TarCompression compression) {
             this.pipe = pipe;
             this.scanner = scanner;
+            this.compression = compression;
         }
         @Override
         public Integer invoke(File f, VirtualChannel channel) throws IOException {
             try (OutputStream out = pipe.getOut()) {
-                return writeToTar(f, scanner, TarCompression.GZIP.compress(out));
+                return writeToTar(f, scanner, compression.compress(out));
             }
         }
     }
@@ -23,10 +23,13 @@
  */
 package hudson;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import hudson.PluginWrapper.Dependency;
 import hudson.init.InitMilestone;
+import hudson.init.Initializer;
 import hudson.init.InitStrategy;
 import hudson.init.InitializerFinder;
 import hudson.model.AbstractItem;
@@ -132,6 +135,7 @@ import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -143,6 +147,8 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Supplier;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
@@ -424,6 +430,34 @@ public abstract class PluginManager extends AbstractModelObject implements OnMas
 
                             final Map<String,File> inspectedShortNames = new HashMap<>();
 
+                            if (strategy instanceof ClassicPluginStrategy && ClassicPluginStrategy.PARALLEL_EXPLODE) {
+                                // unpacking archives is independent of one another, unlike inspecting them
+                                final ClassicPluginStrategy classic = (ClassicPluginStrategy) strategy;
+                                List<Handle> explosions = new ArrayList<>();
+                                // foo.jpi and foo.hpi explode into the same directory; the first wins, as in isDuplicate
+                                Set<File> expandDirs = new HashSet<>();
+                                for (final File arc : archives) {
+                                    if (!expandDirs.add(classic.getExpandDir(arc))) {
+                                        continue;
+                                    }
+                                    explosions.add(g.notFatal().add("Exploding plugin " + arc, new Executable() {
+                                        public void run(Reactor session1) throws Exception {
+                                            try {
+                                                classic.explode(arc);
+                                            } catch (IOException e) {
+                                                // reported when inspecting the plugin, which tries again
+                                                LOGGER.log(FINE, "Failed to explode " + arc, e);
+                                            }
+                                        }
+                                    }));
+                                }
+                                g.requires(explosions.toArray(new Handle[0])).add("Exploded plugins", new Executable() {
+                                    public void run(Reactor session1) throws Exception {
+                                        LOGGER.log(FINE, "Plugin explosion times: {0}", classic.getExplodeTimes());
+                                    }
+                                });
+                            }
+
                             for( final File arc : archives ) {
                                 g.followedBy().notFatal().attains(PLUGINS_LISTED).add("Inspecting plugin " + arc, new Executable() {
                                     public void run(Reactor session1) throws Exception {
@@ -895,9 +929,7 @@ public abstract class PluginManager extends AbstractModelObject implements OnMas
             plugins.add(p);
             if (p.isActive())
                 activePlugins.add(p);
-            synchronized (((UberClassLoader) uberClassLoader).loaded) {
-                ((UberClassLoader) uberClassLoader).loaded.clear();
-            }
+            ((UberClassLoader) uberClassLoader).clearCache();
 
             // TODO antimodular; perhaps should have a PluginListener to complement ExtensionListListener?
             CustomClassFilter.Contributed.load();
@@ -1979,8 +2011,20 @@ public abstract class PluginManager extends AbstractModelObject implements OnMas
          * Keyed by the generated class name.
          */
         private ConcurrentMap<String, WeakReference<Class>> generatedClasses = new ConcurrentHashMap<>();
-        /** Cache of loaded, or known to be unloadable, classes. */
-        private final Map<String,Class<?>> loaded = new HashMap<>();
+        /** Cache of loaded classes. */
+        private final ConcurrentMap<String,Class<?>> loaded = new ConcurrentHashMap<>();
+        /**
+         * Cache of classes known to be unloadable.
+         * Bounded, since Groovy, XStream and Stapler probe for many names which do not exist.
+         */
+        private final Cache<String,Boolean> missing = CacheBuilder.newBuilder().maximumSize(MAX_MISSING_CLASSES).build();
+        /** Which plugins to ask for which package, covering {@link #activePlugins} as of when it was created. */
+        private volatile PluginPackageIndex index;
+
+        private final LongAdder cacheHits = new LongAdder();
+        private final LongAdder cacheMisses = new LongAdder();
+        private final LongAdder pluginsAsked = new LongAdder();
+        private final LongAdder lookupNanos = new LongAdder();
 
         public UberClassLoader() {
             super(PluginManager.class.getClassLoader());
@@ -1990,6 +2034,24 @@ public abstract class PluginManager extends AbstractModelObject implements OnMas
             generatedClasses.put(className, new WeakReference<>(c));
         }
 
+        /**
+         * Forgets about loaded and missing classes, and which plugins have which packages, after plugins were added.
+         */
+        void clearCache() {
+            loaded.clear();
+            missing.invalidateAll();
+            index = null;
+        }
+
+        PluginPackageIndex getIndex() {
+            PluginPackageIndex i = index;
+            if (i == null || i.getPlugins().size() != activePlugins.size()) {
+                i = new PluginPackageIndex(activePlugins);
+                index = i;
+            }
+            return i;
+        }
+
         @Override
         protected Class<?> findClass(String name) throws ClassNotFoundException {
             WeakReference<Class> wc = generatedClasses.get(name);
@@ -2002,48 +2064,47 @@ public abstract class PluginManager extends AbstractModelObject implements OnMas
             if (name.startsWith("SimpleTemplateScript")) { // cf. groovy.text.SimpleTemplateEngine
                 throw new ClassNotFoundException("ignoring " + name);
             }
-            synchronized (loaded) {
-                if (loaded.containsKey(name)) {
-                    Class<?> c = loaded.get(name);
-                    if (c != null) {
-                        return c;
-                    } else {
-                        throw new ClassNotFoundException("cached miss for " + name);
-                    }
-                }
+            Class<?> c = loaded.get(name);
+            if (c != null) {
+                cacheHits.increment();
+                return c;
             }
-            if (FAST_LOOKUP) {
-                for (PluginWrapper p : activePlugins) {
-                    try {
-                        Class<?> c = ClassLoaderReflectionToolkit._findLoadedClass(p.classLoader, name);
-                        if (c != null) {
-                            synchronized (loaded) {
-                                loaded.put(name, c);
+            if (missing.getIfPresent(name) != null) {
+                cacheHits.increment();
+                throw new ClassNotFoundException("cached miss for " + name);
+            }
+            cacheMisses.increment();
+            long start = System.nanoTime();
+            try {
+                if (FAST_LOOKUP) {
+                    for (PluginWrapper p : getIndex().candidatesForClass(name)) {
+                        pluginsAsked.increment();
+                        try {
+                            c = ClassLoaderReflectionToolkit._findLoadedClass(p.classLoader, name);
+                            if (c == null) {
+                                // calling findClass twice appears to cause LinkageError: duplicate class def
+                                c = ClassLoaderReflectionToolkit._findClass(p.classLoader, name);
                             }
-                            return c;
-                        }
-                        // calling findClass twice appears to cause LinkageError: duplicate class def
-                        c = ClassLoaderReflectionToolkit._findClass(p.classLoader, name);
-                        synchronized (loaded) {
                             loaded.put(name, c);
+                            return c;
+                        } catch (ClassNotFoundException e) {
+                            //not found. try next
                         }
-                        return c;
-                    } catch (ClassNotFoundException e) {
-                        //not found. try next
                     }
-                }
-            } else {
-                for (PluginWrapper p : activePlugins) {
-                    try {
-                        return p.classLoader.loadClass(name);
-                    } catch (ClassNotFoundException e) {
-                        //not found. try next
+                } else {
+                    for (PluginWrapper p : activePlugins) {
+                        pluginsAsked.increment();
+                        try {
+                            return p.classLoader.loadClass(name);
+                        } catch (ClassNotFoundException e) {
+                            //not found. try next
+                        }
                     }
                 }
+            } finally {
+                lookupNanos.add(System.nanoTime() - start);
             }
-            synchronized (loaded) {
-                loaded.put(name, null);
-            }
+            missing.put(name, Boolean.TRUE);
             // not found in any of the classloader. delegate.
             throw new ClassNotFoundException(name);
         }
@@ -2051,7 +2112,7 @@ public abstract class PluginManager extends AbstractModelObject implements OnMas
         @Override
         protected URL findResource(String name) {
             if (FAST_LOOKUP) {
-                    for (PluginWrapper p : activePlugins) {
+                    for (PluginWrapper p : getIndex().candidates(name)) {
                         URL url = ClassLoaderReflectionToolkit._findResource(p.classLoader, name);
                         if(url!=null)
                             return url;
@@ -2070,7 +2131,7 @@ public abstract class PluginManager extends AbstractModelObject implements OnMas
         protected Enumeration<URL> findResources(String name) throws IOException {
             List<URL> resources = new ArrayList<>();
             if (FAST_LOOKUP) {
-                    for (PluginWrapper p : activePlugins) {
+                    for (PluginWrapper p : getIndex().candidates(name)) {
                         resources.addAll(Collections.list(ClassLoaderReflectionToolkit._findResources(p.classLoader, name)));
                     }
             } else {
@@ -2081,6 +2142,22 @@ public abstract class PluginManager extends AbstractModelObject implements OnMas
             return Collections.enumeration(resources);
         }
 
+        /**
+         * Gets statistics about {@link #findClass} so far.
+         *
+         * @return counts of lookups answered from the cache ({@code cacheHits}) or not ({@code cacheMisses}),
+         *      of plugins asked for the latter ({@code pluginsAsked}), and the time spent asking them ({@code lookupMillis})
+         */
+        @Restricted(NoExternalUse.class)
+        public Map<String,Long> getStatistics() {
+            Map<String,Long> r = new LinkedHashMap<>();
+            r.put("cacheHits", cacheHits.sum());
+            r.put("cacheMisses", cacheMisses.sum());
+            r.put("pluginsAsked", pluginsAsked.sum());
+            r.put("lookupMillis", TimeUnit.NANOSECONDS.toMillis(lookupNanos.sum()));
+            return r;
+        }
+
         @Override
         public String toString() {
             // only for debugging purpose
@@ -2089,6 +2166,27 @@ public abstract class PluginManager extends AbstractModelObject implements OnMas
     }
     public static boolean FAST_LOOKUP = !SystemProperties.getBoolean(PluginManager.class.getName()+".noFastLookup");
 
+    /**
+     * Gets which active plugins have which packages, for class loaders spanning several plugins.
+     */
+    @Nonnull PluginPackageIndex getPackageIndex() {
+        return ((UberClassLoader) uberClassLoader).getIndex();
+    }
+
+    /**
+     * How many names of classes no plugin has {@link UberClassLoader} remembers.
+     */
+    private static final int MAX_MISSING_CLASSES = SystemProperties.getInteger(PluginManager.class.getName()+".maxMissingClasses", 10000);
+
+    @Initializer(after = COMPLETED)
+    @Restricted(NoExternalUse.class)
+    public static void logClassLoadingStatistics() {
+        Jenkins j = Jenkins.getInstanceOrNull();
+        if (j != null && j.pluginManager.uberClassLoader instanceof UberClassLoader) {
+            LOGGER.log(FINE, "Plugin class lookups during startup: {0}", ((UberClassLoader) j.pluginManager.uberClassLoader).getStatistics());
+        }
+    }
+
     public static final Permission UPLOAD_PLUGINS = new Permission(Jenkins.PERMISSIONS, "UploadPlugins", Messages._PluginManager_UploadPluginsPermission_Description(),Jenkins.ADMINISTER,PermissionScope.JENKINS);
     public static final Permission CONFIGURE_UPDATECENTER = new Permission(Jenkins.PERMISSIONS, "ConfigureUpdateCenter", Messages._PluginManager_ConfigureUpdateCenterPermission_Description(),Jenkins.ADMINISTER,PermissionScope.JENKINS);
 
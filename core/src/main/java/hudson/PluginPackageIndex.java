@@ -0,0 +1,234 @@
+package hudson;
+
+import jenkins.util.AntClassLoader;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Records which plugins have classes or resources in each package, judging by the contents of their class path,
+ * so that class loaders spanning several plugins need not ask each of them in turn.
+ *
+ * <p>
+ * An index covers a fixed list of plugins and never changes.
+ * If the class path of one of the plugins cannot be listed, every plugin is a candidate for every name.
+ */
+final class PluginPackageIndex {
+    private final List<PluginWrapper> plugins;
+    private final Set<PluginWrapper> covered;
+    /** Plugins by package, as slash-separated names without the trailing slash; null if some plugin could not be listed. */
+    private final @CheckForNull Map<String, List<PluginWrapper>> byPackage;
+
+    PluginPackageIndex(@Nonnull List<PluginWrapper> plugins) {
+        this.plugins = Collections.unmodifiableList(new ArrayList<>(plugins));
+        this.covered = new HashSet<>(plugins);
+        Map<String, List<PluginWrapper>> byPackage = new HashMap<>();
+        for (PluginWrapper p : this.plugins) {
+            Set<String> packages = packagesOf(p.classLoader);
+            if (packages == null) {
+                byPackage = null;
+                break;
+            }
+            for (String pkg : packages) {
+                byPackage.computeIfAbsent(pkg, k -> new ArrayList<>(1)).add(p);
+            }
+        }
+        this.byPackage = byPackage;
+    }
+
+    /**
+     * Gets the plugins this index covers.
+     */
+    @Nonnull List<PluginWrapper> getPlugins() {
+        return plugins;
+    }
+
+    /**
+     * Gets the plugins which may have a class or resource, in the order they were given in.
+     *
+     * @param name a resource name, such as {@code org/example/Foo.class}
+     */
+    @Nonnull List<PluginWrapper> candidates(@Nonnull String name) {
+        if (byPackage == null || name.startsWith("/") || name.contains("//") || name.contains("./")) {
+            // not a plain name, so leave its interpretation to the plugins
+            return plugins;
+        }
+        int slash = name.lastIndexOf('/');
+        List<PluginWrapper> r = byPackage.get(slash < 0 ? "" : name.substring(0, slash));
+        return r != null ? r : Collections.emptyList();
+    }
+
+    /**
+     * Gets the plugins which may have a class, in the order they were given in.
+     */
+    @Nonnull List<PluginWrapper> candidatesForClass(@Nonnull String className) {
+        return candidates(className.replace('.', '/') + ".class");
+    }
+
+    /**
+     * Restricts this index to some of its plugins, such as the dependencies of a plugin.
+     *
+     * @param plugins the plugins to consider, in the order they should be asked
+     */
+    @Nonnull Subset subset(@Nonnull List<PluginWrapper> plugins) {
+        return new Subset(plugins);
+    }
+
+    /**
+     * Part of a {@link PluginPackageIndex}.
+     */
+    final class Subset {
+        private final List<PluginWrapper> plugins;
+        private final Set<PluginWrapper> members;
+        /** Whether the index knows about all of {@link #plugins}. */
+        private final boolean complete;
+
+        private Subset(List<PluginWrapper> plugins) {
+            this.plugins = plugins;
+            this.members = new HashSet<>(plugins);
+            this.complete = byPackage != null && covered.containsAll(members);
+        }
+
+        @Nonnull PluginPackageIndex getIndex() {
+            return PluginPackageIndex.this;
+        }
+
+        /**
+         * Gets the plugins this subset was created from, as given.
+         */
+        @Nonnull List<PluginWrapper> getPlugins() {
+            return plugins;
+        }
+
+        /**
+         * Gets the plugins which may have a class or resource, in the order they were given in.
+         * Only packages split across several plugins need going through them all.
+         *
+         * @param name a resource name, such as {@code org/example/Foo.class}
+         */
+        @Nonnull List<PluginWrapper> candidates(@Nonnull String name) {
+            if (!complete) {
+                return plugins;
+            }
+            List<PluginWrapper> owners = PluginPackageIndex.this.candidates(name);
+            if (owners == PluginPackageIndex.this.plugins) {
+                return plugins;
+            }
+            switch (owners.size()) {
+            case 0:
+                return owners;
+            case 1:
+                return members.contains(owners.get(0)) ? owners : Collections.emptyList();
+            default:
+                List<PluginWrapper> r = new ArrayList<>(owners.size());
+                for (PluginWrapper p : plugins) {
+                    if (owners.contains(p)) {
+                        r.add(p);
+                    }
+                }
+                return r;
+            }
+        }
+
+        /**
+         * Gets the plugins which may have a class, in the order they were given in.
+         */
+        @Nonnull List<PluginWrapper> candidatesForClass(@Nonnull String className) {
+            return candidates(className.replace('.', '/') + ".class");
+        }
+    }
+
+    /** Packages by class loader, remembered along with the class path they were listed from. */
+    private static final Map<ClassLoader, Map.Entry<String, Set<String>>> PACKAGES = new WeakHashMap<>();
+
+    /**
+     * Lists the packages a plugin class loader can load from its own class path.
+     *
+     * @return null if they cannot be known
+     */
+    static @CheckForNull Set<String> packagesOf(ClassLoader loader) {
+        if (!(loader instanceof AntClassLoader)) {
+            return null;
+        }
+        String classpath = ((AntClassLoader) loader).getClasspath();
+        synchronized (PACKAGES) {
+            Map.Entry<String, Set<String>> e = PACKAGES.get(loader);
+            if (e != null && e.getKey().equals(classpath)) {
+                return e.getValue();
+            }
+        }
+        Set<String> packages = new HashSet<>();
+        for (String path : classpath.split(File.pathSeparator)) {
+            if (path.isEmpty()) {
+                continue;
+            }
+            try {
+                list(new File(path), packages);
+            } catch (IOException | RuntimeException x) {
+                LOGGER.log(Level.FINE, "Could not list " + path + ", so asking every plugin", x);
+                return null;
+            }
+        }
+        Set<String> r = Collections.unmodifiableSet(packages);
+        synchronized (PACKAGES) {
+            PACKAGES.put(loader, new AbstractMap.SimpleImmutableEntry<>(classpath, r));
+        }
+        return r;
+    }
+
+    private static void list(File file, Set<String> packages) throws IOException {
+        if (file.isDirectory()) {
+            Path root = file.toPath();
+            try (Stream<Path> paths = Files.walk(root)) {
+                paths.forEach(p -> {
+                    if (!p.equals(root)) {
+                        String name = root.relativize(p).toString().replace(File.separatorChar, '/');
+                        packages.add(packageOf(name));
+                        if (Files.isDirectory(p)) {
+                            packages.add(name);
+                        }
+                    }
+                });
+            }
+        } else if (file.isFile()) {
+            try (ZipFile zip = new ZipFile(file)) {
+                Enumeration<? extends ZipEntry> entries = zip.entries();
+                while (entries.hasMoreElements()) {
+                    String name = entries.nextElement().getName();
+                    packages.add(packageOf(name));
+                    if (name.endsWith("/")) {
+                        // ZipFile.getEntry finds directories without the trailing slash too
+                        packages.add(packageOf(name.substring(0, name.length() - 1)));
+                    }
+                }
+            }
+        }
+        // else nothing to load from
+    }
+
+    private static String packageOf(String name) {
+        int slash = name.lastIndexOf('/');
+        return slash < 0 ? "" : name.substring(0, slash);
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(PluginPackageIndex.class.getName());
+}
@@ -29,7 +29,9 @@ import jenkins.model.Jenkins;
 import hudson.remoting.ObjectInputStreamEx;
 import java.util.concurrent.TimeUnit;
 import jenkins.security.CryptoConfidentialKey;
+import jenkins.util.io.IndexedGzipFile;
 import org.apache.commons.io.output.ByteArrayOutputStream;
+import org.apache.commons.io.output.WriterOutputStream;
 import org.kohsuke.stapler.Stapler;
 import org.kohsuke.stapler.StaplerRequest;
 import org.kohsuke.stapler.StaplerResponse;
@@ -49,6 +51,8 @@ import java.io.Writer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import com.jcraft.jzlib.GZIPInputStream;
 import com.jcraft.jzlib.GZIPOutputStream;
@@ -69,6 +73,10 @@ import org.jenkinsci.remoting.util.AnonymousClassWarnings;
  * The serialized {@link ConsoleAnnotator} is encrypted to avoid malicious clients from instantiating
  * arbitrary {@link ConsoleAnnotator}s.
  *
+ * <p>
+ * A complete log stored as an {@link IndexedGzipFile} is read from the requested offset on,
+ * rather than decompressed from the start at every request.
+ *
  * @param <T>
  *      Context type.
  * @author Kohsuke Kawaguchi
@@ -80,14 +88,38 @@ public class AnnotatedLargeText<T> extends LargeText {
      */
     private T context;
 
+    /**
+     * Random access to the log when it is stored compressed with an index, else null.
+     */
+    private final IndexedGzipFile indexed;
+
     public AnnotatedLargeText(File file, Charset charset, boolean completed, T context) {
         super(file, charset, completed, true);
         this.context = context;
+        this.indexed = completed ? openIndexed(file) : null;
     }
 
     public AnnotatedLargeText(ByteBuffer memory, Charset charset, boolean completed, T context) {
         super(memory, charset, completed);
         this.context = context;
+        this.indexed = null;
+    }
+
+    private static IndexedGzipFile openIndexed(File file) {
+        if (!file.getName().endsWith(".gz")) {
+            return null;
+        }
+        try {
+            return IndexedGzipFile.open(file);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to read the index of " + file + ", reading it from the start", e);
+            return null;
+        }
+    }
+
+    @Override
+    public long length() {
+        return indexed != null ? indexed.length() : super.length();
     }
 
     public void doProgressiveHtml(StaplerRequest req, StaplerResponse rsp) throws IOException {
@@ -145,7 +177,12 @@ public class AnnotatedLargeText<T> extends LargeText {
     public long writeLogTo(long start, Writer w) throws IOException {
         if (isHtml())
             return writeHtmlTo(start, w);
-        else
+        else if (indexed != null) {
+            WriterOutputStream out = new WriterOutputStream(w, charset);
+            long r = indexed.writeTo(start, out);
+            out.flush();
+            return r;
+        } else
             return super.writeLogTo(start,w);
     }
 
@@ -156,7 +193,7 @@ public class AnnotatedLargeText<T> extends LargeText {
     @CheckReturnValue
     @Override
     public long writeLogTo(long start, OutputStream out) throws IOException {
-        return super.writeLogTo(start, new PlainTextConsoleOutputStream(out));
+        return writeRaw(start, new PlainTextConsoleOutputStream(out));
     }
 
     /**
@@ -165,6 +202,13 @@ public class AnnotatedLargeText<T> extends LargeText {
      */
     @CheckReturnValue
     public long writeRawLogTo(long start, OutputStream out) throws IOException {
+        return writeRaw(start, out);
+    }
+
+    private long writeRaw(long start, OutputStream out) throws IOException {
+        if (indexed != null) {
+            return indexed.writeTo(start, out);
+        }
         return super.writeLogTo(start, out);
     }
 
@@ -172,7 +216,7 @@ public class AnnotatedLargeText<T> extends LargeText {
     public long writeHtmlTo(long start, Writer w) throws IOException {
         ConsoleAnnotationOutputStream<T> caw = new ConsoleAnnotationOutputStream<>(
                 w, createAnnotator(Stapler.getCurrentRequest()), context, charset);
-        long r = super.writeLogTo(start,caw);
+        long r = writeRaw(start,caw);
 
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
         Cipher sym = PASSING_ANNOTATOR.encrypt();
@@ -190,4 +234,6 @@ public class AnnotatedLargeText<T> extends LargeText {
      * Used for sending the state of ConsoleAnnotator to the client, because we are deserializing this object later.
      */
     private static final CryptoConfidentialKey PASSING_ANNOTATOR = new CryptoConfidentialKey(AnnotatedLargeText.class,"consoleAnnotator");
+
+    private static final Logger LOGGER = Logger.getLogger(AnnotatedLargeText.class.getName());
 }
@@ -0,0 +1,351 @@
+package hudson.console;
+
+import jenkins.util.io.IndexedGzipFile;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Index of a console log kept in a sidecar file while the log is written,
+ * recording where every {@link #INTERVAL}th line starts and how many {@link ConsoleNote}s precede it.
+ *
+ * <p>
+ * With it, reading a range of lines starts at most {@link #INTERVAL} lines before the range
+ * instead of at the start of the log, and ranges known to have no notes are not searched for them.
+ * Logs stored as an {@link IndexedGzipFile} carry their own line index and do not need this one.
+ */
+@Restricted(NoExternalUse.class)
+public final class ConsoleLineIndex {
+    /**
+     * Lines between two entries of the index.
+     */
+    public static final int INTERVAL = 1024;
+
+    private static final int MAGIC = 0x4a4c4e58;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 12;
+    private static final int ENTRY_SIZE = 16;
+
+    private final int interval;
+    /**
+     * {@code offsets[i]} is where line {@code (i + 1) * interval} starts.
+     */
+    private final long[] offsets;
+    /**
+     * {@code notes[i]} is the number of notes before {@code offsets[i]}.
+     */
+    private final long[] notes;
+
+    private ConsoleLineIndex(int interval, long[] offsets, long[] notes) {
+        this.interval = interval;
+        this.offsets = offsets;
+        this.notes = notes;
+    }
+
+    /**
+     * The sidecar index of the given log.
+     */
+    public static @Nonnull File indexOf(@Nonnull File log) {
+        return new File(log.getParentFile(), log.getName() + "-index");
+    }
+
+    /**
+     * Wraps the stream writing a new log so that the index is written along with it.
+     * The index is written as lines are completed, so it can be used while the log is still growing.
+     */
+    public static @Nonnull OutputStream indexing(@Nonnull OutputStream log, @Nonnull File index) throws IOException {
+        return new IndexingOutputStream(log, index, INTERVAL);
+    }
+
+    /**
+     * Reads the index of a log.
+     *
+     * @return null if there is no usable index
+     */
+    public static @CheckForNull ConsoleLineIndex open(@Nonnull File index) throws IOException {
+        if (!index.isFile()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(index.toPath())))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+            int interval = in.readInt();
+            // the log may still be written to, so ignore a partially written last entry
+            int entries = (int) ((index.length() - HEADER_SIZE) / ENTRY_SIZE);
+            long[] offsets = new long[entries];
+            long[] notes = new long[entries];
+            for (int i = 0; i < entries; i++) {
+                offsets[i] = in.readLong();
+                notes[i] = in.readLong();
+            }
+            return new ConsoleLineIndex(interval, offsets, notes);
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    /**
+     * The last line at or before the given one whose start is recorded.
+     */
+    public long checkpointBefore(long line) {
+        return Math.min(line / interval, offsets.length) * interval;
+    }
+
+    /**
+     * Where a line returned by {@link #checkpointBefore} starts.
+     */
+    public long offsetOf(long checkpoint) {
+        return checkpoint == 0 ? 0 : offsets[(int) (checkpoint / interval) - 1];
+    }
+
+    /**
+     * Whether there may be notes in the lines {@code [from, to)}; false only if the index knows there are none.
+     */
+    public boolean mayHaveNotes(long from, long to) {
+        long before = checkpointBefore(from);
+        int after = (int) ((to + interval - 1) / interval); // first checkpoint at or after the range
+        if (after > offsets.length) {
+            return true; // not indexed yet
+        }
+        return notesBefore(after * (long) interval) != notesBefore(before);
+    }
+
+    private long notesBefore(long checkpoint) {
+        return checkpoint == 0 ? 0 : notes[(int) (checkpoint / interval) - 1];
+    }
+
+    /**
+     * Reads lines {@code [start, start + count)} of a log, counting from 0, without carriage returns and {@link ConsoleNote}s.
+     * A newline ending the log does not start another line.
+     * Uses the index of the log if it has one, be it a {@link ConsoleLineIndex} or an {@link IndexedGzipFile}.
+     */
+    public static @Nonnull List<String> readLines(@Nonnull File log, @Nonnull Charset charset, long start, int count) throws IOException {
+        if (start < 0 || count <= 0) {
+            return Collections.emptyList();
+        }
+        long skip = start;
+        boolean notes = true;
+        InputStream in;
+        if (log.getName().endsWith(".gz")) {
+            IndexedGzipFile indexed = IndexedGzipFile.open(log);
+            long offset = indexed != null ? indexed.offsetOfLine(start) : -1;
+            if (offset >= 0) {
+                in = indexed.openAt(offset);
+                skip = 0;
+            } else if (indexed != null) {
+                return Collections.emptyList(); // beyond the end
+            } else {
+                in = new GZIPInputStream(Files.newInputStream(log.toPath()));
+            }
+        } else {
+            long offset = 0;
+            ConsoleLineIndex index = open(indexOf(log));
+            if (index != null) {
+                long checkpoint = index.checkpointBefore(start);
+                offset = index.offsetOf(checkpoint);
+                if (isLineStart(log, offset)) {
+                    skip = start - checkpoint;
+                    notes = index.mayHaveNotes(start, start + count);
+                } else {
+                    offset = 0; // the index does not match the log
+                }
+            }
+            FileChannel ch = FileChannel.open(log.toPath(), StandardOpenOption.READ);
+            try {
+                ch.position(offset);
+            } catch (IOException e) {
+                ch.close();
+                throw e;
+            }
+            in = Channels.newInputStream(ch);
+        }
+        try (InputStream lines = new BufferedInputStream(in, 8192)) {
+            return read(lines, charset, skip, count, notes);
+        }
+    }
+
+    /**
+     * Counts the lines of a log as {@link #readLines} sees them, using its index if it has one.
+     */
+    public static long countLines(@Nonnull File log) throws IOException {
+        if (log.getName().endsWith(".gz")) {
+            IndexedGzipFile indexed = IndexedGzipFile.open(log);
+            if (indexed != null) {
+                byte[] last = new byte[1];
+                boolean partial = indexed.length() > 0 && indexed.read(indexed.length() - 1, last, 0, 1) == 1 && last[0] != '\n';
+                return indexed.getLineCount() + (partial ? 1 : 0);
+            }
+            try (InputStream in = new GZIPInputStream(Files.newInputStream(log.toPath()))) {
+                return count(in, 0);
+            }
+        }
+        long checkpoint = 0, offset = 0;
+        ConsoleLineIndex index = open(indexOf(log));
+        if (index != null) {
+            checkpoint = index.checkpointBefore(Long.MAX_VALUE);
+            offset = index.offsetOf(checkpoint);
+            if (!isLineStart(log, offset)) {
+                checkpoint = offset = 0;
+            }
+        }
+        try (FileChannel ch = FileChannel.open(log.toPath(), StandardOpenOption.READ)) {
+            ch.position(offset);
+            return count(Channels.newInputStream(ch), checkpoint);
+        }
+    }
+
+    private static boolean isLineStart(File log, long offset) throws IOException {
+        if (offset == 0) {
+            return true;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(log, "r")) {
+            if (offset > raf.length()) {
+                return false;
+            }
+            raf.seek(offset - 1);
+            return raf.read() == '\n';
+        }
+    }
+
+    private static long count(InputStream in, long lines) throws IOException {
+        byte[] buf = new byte[8192];
+        int n;
+        byte last = '\n';
+        while ((n = in.read(buf)) >= 0) {
+            for (int i = 0; i < n; i++) {
+                if (buf[i] == '\n') {
+                    lines++;
+                }
+            }
+            if (n > 0) {
+                last = buf[n - 1];
+            }
+        }
+        return last == '\n' ? lines : lines + 1;
+    }
+
+    private static List<String> read(InputStream in, Charset charset, long skip, int count, boolean notes) throws IOException {
+        List<String> lines = new ArrayList<>(Math.min(count, 1024));
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        boolean pending = false; // whether bytes of an unterminated line were seen
+        int b;
+        while (skip > 0 && (b = in.read()) >= 0) {
+            if (b == '\n') {
+                skip--;
+            }
+        }
+        while (lines.size() < count && (b = in.read()) >= 0) {
+            if (b == '\n') {
+                lines.add(decode(line, charset, notes));
+                line.reset();
+                pending = false;
+            } else {
+                pending = true;
+                if (b != '\r') {
+                    line.write(b);
+                }
+            }
+        }
+        if (pending && lines.size() < count) {
+            lines.add(decode(line, charset, notes));
+        }
+        return lines;
+    }
+
+    private static String decode(ByteArrayOutputStream line, Charset charset, boolean notes) {
+        String s = new String(line.toByteArray(), charset);
+        return notes ? ConsoleNote.removeNotes(s) : s;
+    }
+
+    /**
+     * Passes the log through, appending an entry to the index every {@link #INTERVAL} lines.
+     */
+    private static final class IndexingOutputStream extends FilterOutputStream {
+        private final FileChannel index;
+        private final int interval;
+        private final ByteBuffer entry = ByteBuffer.allocate(ENTRY_SIZE);
+        private long offset;
+        private long lines;
+        private long notes;
+        /**
+         * How many bytes of {@link ConsoleNote#PREAMBLE} were just seen.
+         */
+        private int matched;
+
+        IndexingOutputStream(OutputStream out, File index, int interval) throws IOException {
+            super(out);
+            this.interval = interval;
+            this.index = FileChannel.open(index.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putInt(interval).flip();
+            while (header.hasRemaining()) {
+                this.index.write(header);
+            }
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            scan((byte) b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            for (int i = off; i < off + len; i++) {
+                scan(b[i]);
+            }
+        }
+
+        private void scan(byte b) throws IOException {
+            offset++;
+            if (b == ConsoleNote.PREAMBLE[matched]) {
+                if (++matched == ConsoleNote.PREAMBLE.length) {
+                    notes++;
+                    matched = 0;
+                }
+            } else {
+                matched = b == ConsoleNote.PREAMBLE[0] ? 1 : 0;
+            }
+            if (b == '\n' && ++lines % interval == 0) {
+                entry.clear();
+                entry.putLong(offset).putLong(notes).flip();
+                while (entry.hasRemaining()) {
+                    index.write(entry);
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                index.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,353 @@
+package hudson.console;
+
+import jenkins.util.io.IndexedGzipFile;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+import javax.annotation.Nonnull;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Last lines of a console log, as returned by {@link hudson.model.Run#getLog(int)}.
+ *
+ * <p>
+ * A plain log is read backwards in blocks, so the cost depends on the size of the tail rather than of the log.
+ * So is a {@code .gz} log stored as an {@link IndexedGzipFile}.
+ * Any other {@code .gz} log cannot be read backwards, so it is decompressed once while only the bytes of the last lines are kept.
+ * Lines are split on newline bytes, as suits the ASCII-compatible encodings used for logs.
+ * Carriage returns and {@link ConsoleNote}s are dropped from each line before it is decoded.
+ */
+@Restricted(NoExternalUse.class)
+public final class ConsoleLogTail {
+    private static final int BLOCK_SIZE = 8192;
+
+    private final List<String> lines;
+    private final boolean truncated;
+    private final long truncatedBytes;
+
+    private ConsoleLogTail(List<String> lines, boolean truncated, long truncatedBytes) {
+        this.lines = lines;
+        this.truncated = truncated;
+        this.truncatedBytes = truncatedBytes;
+    }
+
+    /**
+     * The lines, oldest first; the list may be modified by the caller.
+     */
+    public @Nonnull List<String> getLines() {
+        return lines;
+    }
+
+    /**
+     * Whether lines before the first one were left out.
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * Roughly how many bytes were left out, as reported in the truncation marker of {@link hudson.model.Run#getLog(int)}.
+     */
+    public long getTruncated() {
+        return truncatedBytes;
+    }
+
+    /**
+     * Reads up to {@code maxLines} lines from the end of the given log, which may be gzip-compressed if its name ends with {@code .gz}.
+     * If more lines would be needed to reach the start of the log, exactly {@code maxLines} are returned and {@link #isTruncated()} is true.
+     */
+    public static @Nonnull ConsoleLogTail read(@Nonnull File log, @Nonnull Charset charset, int maxLines) throws IOException {
+        int max = maxLines < 0 ? Integer.MAX_VALUE : maxLines;
+        if (max == 0) {
+            return new ConsoleLogTail(new ArrayList<String>(), -1);
+        }
+        if (log.getName().endsWith(".gz")) {
+            IndexedGzipFile indexed = IndexedGzipFile.open(log);
+            if (indexed != null) {
+                return new Scanner(charset, max).scan(new IndexedSource(indexed));
+            }
+            try (InputStream in = new GZIPInputStream(Files.newInputStream(log.toPath()), BLOCK_SIZE)) {
+                return new Scanner(charset, max).scan(TailBuffer.of(in, max));
+            }
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(log, "r")) {
+            final FileChannel ch = raf.getChannel();
+            final long length = ch.size();
+            return new Scanner(charset, max).scan(new Source() {
+                @Override
+                public long start() {
+                    return 0;
+                }
+
+                @Override
+                public long end() {
+                    return length;
+                }
+
+                @Override
+                public void read(long pos, byte[] buf, int len) throws IOException {
+                    ByteBuffer bb = ByteBuffer.wrap(buf, 0, len);
+                    while (bb.hasRemaining()) {
+                        if (ch.read(bb, pos + bb.position()) < 0) {
+                            throw new IOException("Log shrank while reading its tail");
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Bytes {@code [start, end)} of a log, read backwards by {@link Scanner}.
+     */
+    private interface Source {
+        long start();
+        long end();
+        void read(long pos, byte[] buf, int len) throws IOException;
+    }
+
+    private static final class IndexedSource implements Source {
+        private final IndexedGzipFile file;
+
+        IndexedSource(IndexedGzipFile file) {
+            this.file = file;
+        }
+
+        @Override
+        public long start() {
+            return 0;
+        }
+
+        @Override
+        public long end() {
+            return file.length();
+        }
+
+        @Override
+        public void read(long pos, byte[] buf, int len) throws IOException {
+            for (int off = 0; off < len; ) {
+                int n = file.read(pos + off, buf, off, len - off);
+                if (n < 0) {
+                    throw new IOException("Unexpected end of " + file.getFile());
+                }
+                off += n;
+            }
+        }
+    }
+
+    /**
+     * Walks a {@link Source} from its end, building each line right to left in a reused buffer.
+     */
+    private static final class Scanner {
+        private final Charset charset;
+        private final int max;
+        private final boolean stripBytes;
+        private final List<String> newestFirst = new ArrayList<>();
+        private byte[] line = new byte[256];
+        /**
+         * The current line is {@code line[lineStart, line.length)}.
+         */
+        private int lineStart = line.length;
+
+        Scanner(Charset charset, int max) {
+            this.charset = charset;
+            this.max = max;
+            // notes can only be found among the raw bytes if the charset encodes them like ASCII
+            this.stripBytes = Arrays.equals(ConsoleNote.PREAMBLE_STR.getBytes(charset), ConsoleNote.PREAMBLE)
+                    && Arrays.equals(ConsoleNote.POSTAMBLE_STR.getBytes(charset), ConsoleNote.POSTAMBLE);
+        }
+
+        ConsoleLogTail scan(Source src) throws IOException {
+            long last = src.end() - 1;
+            boolean truncated = false;
+            long truncatedBytes = 0;
+            byte[] block = new byte[BLOCK_SIZE];
+            OUTER:
+            for (long blockEnd = src.end(); blockEnd > src.start(); ) {
+                int n = (int) Math.min(block.length, blockEnd - src.start());
+                long blockStart = blockEnd - n;
+                src.read(blockStart, block, n);
+                for (int i = n - 1; i >= 0; i--) {
+                    byte b = block[i];
+                    if (b == '\n') {
+                        long pos = blockStart + i;
+                        if (pos < last) { // a newline ending the log does not start an empty line
+                            emit();
+                            if (newestFirst.size() == max) {
+                                truncated = true;
+                                truncatedBytes = Math.max(pos - 1, 0);
+                                break OUTER;
+                            }
+                        }
+                    } else if (b != '\r') {
+                        prepend(b);
+                    }
+                }
+                blockEnd = blockStart;
+            }
+            if (!truncated) {
+                emit(); // the first line of the log
+            }
+            Collections.reverse(newestFirst);
+            return new ConsoleLogTail(newestFirst, truncated, truncatedBytes);
+        }
+
+        private void prepend(byte b) {
+            if (lineStart == 0) {
+                byte[] bigger = new byte[line.length * 2];
+                System.arraycopy(line, 0, bigger, line.length, line.length);
+                lineStart = line.length;
+                line = bigger;
+            }
+            line[--lineStart] = b;
+        }
+
+        private void emit() {
+            String s;
+            if (stripBytes) {
+                stripNotes();
+                s = new String(line, lineStart, line.length - lineStart, charset);
+            } else {
+                s = ConsoleNote.removeNotes(new String(line, lineStart, line.length - lineStart, charset));
+            }
+            newestFirst.add(s);
+            lineStart = line.length;
+        }
+
+        /**
+         * Drops every {@link ConsoleNote} from the current line in place, by moving the text before it to the right.
+         */
+        private void stripNotes() {
+            while (true) {
+                int pre = ConsoleNote.findPreamble(line, lineStart, line.length - lineStart);
+                if (pre < 0) {
+                    return;
+                }
+                int post = indexOf(line, pre + ConsoleNote.PREAMBLE.length, ConsoleNote.POSTAMBLE);
+                if (post < 0) {
+                    return;
+                }
+                int removed = post + ConsoleNote.POSTAMBLE.length - pre;
+                System.arraycopy(line, lineStart, line, lineStart + removed, pre - lineStart);
+                lineStart += removed;
+            }
+        }
+
+        private static int indexOf(byte[] buf, int from, byte[] what) {
+            OUTER:
+            for (int i = from; i <= buf.length - what.length; i++) {
+                for (int j = 0; j < what.length; j++) {
+                    if (buf[i + j] != what[j]) {
+                        continue OUTER;
+                    }
+                }
+                return i;
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * The part of a stream that can hold its last lines, collected in one forward pass.
+     * Only the bytes from the newline before the oldest line that may still be needed are kept.
+     */
+    private static final class TailBuffer implements Source {
+        private byte[] buf = new byte[BLOCK_SIZE * 4];
+        /**
+         * Offset in the stream of {@code buf[0]}.
+         */
+        private long base;
+        private int size;
+        /**
+         * Offsets of the last newlines, in a ring of at most {@code max + 1} entries.
+         */
+        private long[] newlines = new long[16];
+        private int head, count;
+
+        static TailBuffer of(InputStream in, int max) throws IOException {
+            TailBuffer t = new TailBuffer();
+            byte[] chunk = new byte[BLOCK_SIZE];
+            int n;
+            while ((n = in.read(chunk)) >= 0) {
+                t.append(chunk, n, max);
+            }
+            return t;
+        }
+
+        private void append(byte[] chunk, int n, int max) {
+            long offset = base + size;
+            for (int i = 0; i < n; i++) {
+                if (chunk[i] == '\n') {
+                    addNewline(offset + i, max);
+                }
+            }
+            if (count > max) { // the ring is full, so nothing before its oldest newline can be needed any more
+                discardBefore(newlines[head]);
+            }
+            if (size + n > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, size + n));
+            }
+            System.arraycopy(chunk, 0, buf, size, n);
+            size += n;
+        }
+
+        private void addNewline(long offset, int max) {
+            long limit = (long) max + 1;
+            if (count < limit) {
+                if (count == newlines.length) {
+                    long[] bigger = new long[(int) Math.min(newlines.length * 2L, limit)];
+                    for (int i = 0; i < count; i++) {
+                        bigger[i] = newlines[(head + i) % newlines.length];
+                    }
+                    newlines = bigger;
+                    head = 0;
+                }
+                newlines[(head + count) % newlines.length] = offset;
+                count++;
+            } else {
+                newlines[head] = offset;
+                head = (head + 1) % newlines.length;
+            }
+        }
+
+        private void discardBefore(long offset) {
+            int drop = (int) Math.min(offset - base, size);
+            if (drop <= 0) {
+                return;
+            }
+            // compact lazily, so that each byte is moved a bounded number of times
+            if (drop >= buf.length / 2 || drop == size) {
+                System.arraycopy(buf, drop, buf, 0, size - drop);
+                size -= drop;
+                base += drop;
+            }
+        }
+
+        @Override
+        public long start() {
+            return base;
+        }
+
+        @Override
+        public long end() {
+            return base + size;
+        }
+
+        @Override
+        public void read(long pos, byte[] dst, int len) {
+            System.arraycopy(buf, (int) (pos - base), dst, 0, len);
+        }
+    }
+}
@@ -882,7 +882,7 @@ public abstract class AbstractItem extends Actionable implements Item, HttpDelet
                     return null;
                 }
             });
-            Jenkins.getInstance().rebuildDependencyGraphAsync();
+            rebuildDependencyGraphAsync();
 
             // if everything went well, commit this new version
             out.commit();
@@ -893,6 +893,14 @@ public abstract class AbstractItem extends Actionable implements Item, HttpDelet
         }
     }
 
+    private void rebuildDependencyGraphAsync() {
+        if (this instanceof AbstractProject) {
+            Jenkins.getInstance().rebuildDependencyGraphAsync((AbstractProject<?,?>) this);
+        } else {
+            Jenkins.getInstance().rebuildDependencyGraphAsync();
+        }
+    }
+
     /**
      * Reloads this job from the disk.
      *
@@ -915,7 +923,7 @@ public abstract class AbstractItem extends Actionable implements Item, HttpDelet
                 return null;
             }
         });
-        Jenkins.getInstance().rebuildDependencyGraphAsync();
+        rebuildDependencyGraphAsync();
 
         SaveableListener.fireOnChange(this, getConfigFile());
     }
@@ -916,6 +916,7 @@ public /*transient*/ abstract class Computer extends Actionable implements Acces
         for (Executor executor : executors)
             availableNumbers.remove(executor.getNumber());
 
+        boolean added = false;
         for (Integer number : availableNumbers) {
             /* There may be busy executors with higher index, so only
                fill up until numExecutors is reached.
@@ -924,8 +925,12 @@ public /*transient*/ abstract class Computer extends Actionable implements Acces
             if (executors.size() < numExecutors) {
                 Executor e = new Executor(this, number);
                 executors.add(e);
+                added = true;
             }
         }
+        if (added) {
+            Jenkins.get().getQueue().onExecutorsChanged();
+        }
 
     }
 
@@ -1092,6 +1097,10 @@ public /*transient*/ abstract class Computer extends Actionable implements Acces
                 synchronized (Computer.this) {
                     executors.remove(e);
                     addNewExecutorIfNecessary();
+                    Jenkins jenkins = Jenkins.getInstanceOrNull();
+                    if (jenkins != null) {
+                        jenkins.getQueue().onExecutorsChanged();
+                    }
                     if (!isAlive()) {
                         AbstractCIBase ciBase = Jenkins.getInstanceOrNull();
                         if (ciBase != null) { // TODO confirm safe to assume non-null and use getInstance()
@@ -46,6 +46,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.Stack;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Maintains the build dependencies between {@link AbstractProject}s
@@ -64,6 +65,8 @@ import java.util.Stack;
  * Once built, {@link DependencyGraph} is immutable, and every time
  * there's a change (which is relatively rare), a new instance
  * will be created. This eliminates the need of synchronization.
+ * The new instance can be {@linkplain #build(DependencyGraph, Collection) built from the previous one}
+ * when only a few projects changed.
  *
  * @see Jenkins#getDependencyGraph()
  * @author Kohsuke Kawaguchi
@@ -75,6 +78,16 @@ public class DependencyGraph implements Comparator<AbstractProject> {
 
     private transient Map<Class<?>, Object> computationalData;
 
+    /**
+     * Dependencies added by each project, so that they can be replaced when it changes.
+     * Every project looked at has an entry, even if it added nothing.
+     */
+    private Map<AbstractProject, List<Dependency>> declared = new HashMap<>();
+    private transient AbstractProject declaring;
+
+    private final transient Map<AbstractProject, Set<AbstractProject>> transitiveUpstream = new ConcurrentHashMap<>();
+    private final transient Map<AbstractProject, Set<AbstractProject>> transitiveDownstream = new ConcurrentHashMap<>();
+
     private boolean built;
 
     private Comparator<AbstractProject<?,?>> topologicalOrder;
@@ -92,18 +105,96 @@ public class DependencyGraph implements Comparator<AbstractProject> {
         try {
             this.computationalData = new HashMap<>();
             for( AbstractProject p : Jenkins.getInstance().allItems(AbstractProject.class) )
-                p.buildDependencyGraph(this);
+                declare(p);
 
-            forward = finalize(forward);
-            backward = finalize(backward);
-            topologicalDagSort();
-            this.computationalData = null;
-            built = true;
+            finish();
         } finally {
             SecurityContextHolder.setContext(saveCtx);
         }
     }
 
+    /**
+     * Builds the dependency graph from a previous one, only asking the given projects
+     * to declare their dependencies again.
+     *
+     * <p>
+     * Projects inside the given ones, and projects which did not exist when the previous graph was built, are asked as well.
+     * Dependencies from and to projects which no longer exist are dropped.
+     * Other projects keep the dependencies they declared before, so this is only suitable
+     * when projects were reconfigured, not when they were created or renamed,
+     * as that could change the dependencies other projects declare.
+     *
+     * @param previous
+     *      a graph built by {@link #build()} or by this method
+     * @param changed
+     *      projects whose configuration changed since {@code previous} was built
+     * @since TODO
+     */
+    public void build(DependencyGraph previous, Collection<? extends AbstractProject> changed) {
+        SecurityContext saveCtx = ACL.impersonate(ACL.SYSTEM);
+        try {
+            this.computationalData = new HashMap<>();
+            List<AbstractProject> all = Jenkins.getInstance().allItems(AbstractProject.class);
+            Set<AbstractProject> live = new HashSet<>(all);
+            Set<AbstractProject> redo = new HashSet<>(changed);
+            Set<String> prefixes = new HashSet<>();
+            for (AbstractProject p : redo)
+                prefixes.add(p.getFullName() + '/');
+
+            for (Entry<AbstractProject, List<Dependency>> e : previous.declared.entrySet()) {
+                AbstractProject p = e.getKey();
+                if (p != null && (!live.contains(p) || redo.contains(p) || isInside(p, prefixes)))
+                    continue;
+                List<Dependency> deps = new ArrayList<>();
+                declared.put(p, deps);
+                for (Dependency dep : e.getValue()) {
+                    if (live.contains(dep.getUpstreamProject()) && live.contains(dep.getDownstreamProject())) {
+                        add(forward, dep.getUpstreamProject(), dep);
+                        add(backward, dep.getDownstreamProject(), dep);
+                        deps.add(dep);
+                    }
+                }
+            }
+            for (AbstractProject p : all) {
+                if (!declared.containsKey(p))
+                    declare(p);
+            }
+
+            finish();
+        } finally {
+            SecurityContextHolder.setContext(saveCtx);
+        }
+    }
+
+    private static boolean isInside(AbstractProject p, Set<String> prefixes) {
+        if (prefixes.isEmpty())
+            return false;
+        String name = p.getFullName();
+        for (int i = name.indexOf('/'); i >= 0; i = name.indexOf('/', i + 1)) {
+            if (prefixes.contains(name.substring(0, i + 1)))
+                return true;
+        }
+        return false;
+    }
+
+    private void declare(AbstractProject p) {
+        declared.put(p, new ArrayList<>());
+        declaring = p;
+        try {
+            p.buildDependencyGraph(this);
+        } finally {
+            declaring = null;
+        }
+    }
+
+    private void finish() {
+        forward = finalize(forward);
+        backward = finalize(backward);
+        topologicalDagSort();
+        this.computationalData = null;
+        built = true;
+    }
+
     /**
      *
      *
@@ -152,6 +243,7 @@ public class DependencyGraph implements Comparator<AbstractProject> {
      */
     private DependencyGraph(boolean dummy) {
         forward = backward = Collections.emptyMap();
+        declared = Collections.emptyMap();
         topologicalDagSort();
         built = true;
     }
@@ -245,6 +337,7 @@ public class DependencyGraph implements Comparator<AbstractProject> {
             throw new IllegalStateException();
         add(forward,dep.getUpstreamProject(),dep);
         add(backward, dep.getDownstreamProject(), dep);
+        declared.computeIfAbsent(declaring, k -> new ArrayList<>()).add(dep);
     }
 
     /**
@@ -284,20 +377,10 @@ public class DependencyGraph implements Comparator<AbstractProject> {
      * where the length is greater than 1.
      */
     public boolean hasIndirectDependencies(AbstractProject src, AbstractProject dst) {
-        Set<AbstractProject> visited = new HashSet<>();
-        Stack<AbstractProject> queue = new Stack<>();
-
-        queue.addAll(getDownstream(src));
-        queue.remove(dst);
-
-        while(!queue.isEmpty()) {
-            AbstractProject p = queue.pop();
-            if(p==dst)
+        for (AbstractProject p : getDownstream(src)) {
+            if (p != dst && transitive(transitiveDownstream, forward, p, false).contains(dst))
                 return true;
-            if(visited.add(p))
-                queue.addAll(getDownstream(p));
         }
-
         return false;
     }
 
@@ -305,14 +388,23 @@ public class DependencyGraph implements Comparator<AbstractProject> {
      * Gets all the direct and indirect upstream dependencies of the given project.
      */
     public Set<AbstractProject> getTransitiveUpstream(AbstractProject src) {
-        return getTransitive(backward,src,true);
+        return new HashSet<>(transitive(transitiveUpstream, backward, src, true));
     }
 
     /**
      * Gets all the direct and indirect downstream dependencies of the given project.
      */
     public Set<AbstractProject> getTransitiveDownstream(AbstractProject src) {
-        return getTransitive(forward,src,false);
+        return new HashSet<>(transitive(transitiveDownstream, forward, src, false));
+    }
+
+    /**
+     * Computes transitive dependencies once per project, as the graph does not change once built.
+     */
+    private Set<AbstractProject> transitive(Map<AbstractProject, Set<AbstractProject>> cache, Map<AbstractProject, List<DependencyGroup>> direction, AbstractProject src, boolean up) {
+        if (!built)
+            return getTransitive(direction, src, up);
+        return cache.computeIfAbsent(src, k -> Collections.unmodifiableSet(getTransitive(direction, k, up)));
     }
 
     private Set<AbstractProject> getTransitive(Map<AbstractProject, List<DependencyGroup>> direction, AbstractProject src, boolean up) {
@@ -37,7 +37,6 @@ import hudson.XmlFile;
 import hudson.BulkChange;
 import hudson.Extension;
 import hudson.model.listeners.ItemListener;
-import hudson.model.listeners.SaveableListener;
 import hudson.security.ACL;
 import hudson.security.ACLContext;
 import hudson.util.AtomicFileWriter;
@@ -47,13 +46,23 @@ import hudson.util.PersistedList;
 import hudson.util.RunList;
 import hudson.util.XStream2;
 import java.io.EOFException;
+import jenkins.fingerprints.FileFingerprintStorage;
+import jenkins.fingerprints.FingerprintIndex;
+import jenkins.fingerprints.FingerprintStorage;
+import jenkins.fingerprints.PackedFingerprintStorage;
 import jenkins.model.FingerprintFacet;
 import jenkins.model.Jenkins;
 import jenkins.model.TransientFingerprintFacetFactory;
 import org.apache.commons.lang.StringUtils;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
 import org.kohsuke.stapler.export.Exported;
 import org.kohsuke.stapler.export.ExportedBean;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
@@ -63,11 +72,13 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.TreeMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -881,10 +892,14 @@ public class Fingerprint implements ModelObject, Saveable {
     }
 
     Fingerprint(@CheckForNull BuildPtr original, @Nonnull String fileName, @Nonnull byte[] md5sum) {
+        this(original, fileName, md5sum, new Date());
+    }
+
+    private Fingerprint(@CheckForNull BuildPtr original, @Nonnull String fileName, @Nonnull byte[] md5sum, @Nonnull Date timestamp) {
         this.original = original;
         this.md5sum = md5sum;
         this.fileName = fileName;
-        this.timestamp = new Date();
+        this.timestamp = timestamp;
     }
 
     /**
@@ -1048,6 +1063,19 @@ public class Fingerprint implements ModelObject, Saveable {
         }
     }
 
+    /**
+     * Gets the full names of the jobs this fingerprint refers to, as the owner or in its usages,
+     * whether they still exist or not.
+     */
+    @Restricted(NoExternalUse.class)
+    public synchronized @Nonnull Set<String> getReferencedJobs() {
+        Set<String> r = new HashSet<>(usages.keySet());
+        if (original != null) {
+            r.add(original.name);
+        }
+        return r;
+    }
+
     /**
      * Returns true if any of the builds recorded in this fingerprint
      * is still retained.
@@ -1237,7 +1265,7 @@ public class Fingerprint implements ModelObject, Saveable {
     }
 
     /**
-     * Save the settings to a file.
+     * Save the settings to the {@link FingerprintStorage}.
      * @throws IOException Save error
      */
     public synchronized void save() throws IOException {
@@ -1247,15 +1275,18 @@ public class Fingerprint implements ModelObject, Saveable {
         if(logger.isLoggable(Level.FINE))
             start = System.currentTimeMillis();
 
-        File file = getFingerprintFile(md5sum);
-        save(file);
-        SaveableListener.fireOnChange(this, getConfigFile(file));
+        FingerprintStorage.get().save(this);
+        FingerprintIndex.update(this);
 
         if(logger.isLoggable(Level.FINE))
-            logger.fine("Saving fingerprint "+file+" took "+(System.currentTimeMillis()-start)+"ms");
+            logger.fine("Saving fingerprint "+getHashString()+" took "+(System.currentTimeMillis()-start)+"ms");
     }
 
-    void save(File file) throws IOException {
+    /**
+     * Writes this fingerprint as XML to the given file, as {@link FileFingerprintStorage} does.
+     */
+    @Restricted(NoExternalUse.class)
+    public synchronized void save(File file) throws IOException {
         if (facets.isEmpty()) {
             file.getParentFile().mkdirs();
             // JENKINS-16301: fast path for the common case.
@@ -1308,6 +1339,86 @@ public class Fingerprint implements ModelObject, Saveable {
         }
     }
 
+    /**
+     * Encodes this fingerprint, without its checksum, for {@link PackedFingerprintStorage}.
+     * Like {@link #save(File)}, it has a compact form for the common case of a fingerprint without facets
+     * and falls back to XML otherwise.
+     */
+    @Restricted(NoExternalUse.class)
+    public synchronized @Nonnull byte[] toPacked() throws IOException {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream(128);
+        if (facets.isEmpty()) {
+            DataOutputStream out = new DataOutputStream(buf);
+            out.writeByte(PACKED_BINARY);
+            out.writeLong(timestamp.getTime());
+            out.writeBoolean(original != null);
+            if (original != null) {
+                out.writeUTF(original.name);
+                out.writeInt(original.number);
+            }
+            out.writeUTF(fileName);
+            Map<String,RangeSet> usages = this.usages == null ? Collections.<String,RangeSet>emptyMap() : this.usages;
+            out.writeInt(usages.size());
+            for (Map.Entry<String,RangeSet> e : usages.entrySet()) {
+                out.writeUTF(e.getKey());
+                List<Range> ranges = e.getValue().getRanges();
+                out.writeInt(ranges.size());
+                for (Range r : ranges) {
+                    out.writeInt(r.start);
+                    out.writeInt(r.end);
+                }
+            }
+            out.flush();
+        } else {
+            buf.write(PACKED_XML);
+            XSTREAM.toXMLUTF8(this, buf);
+        }
+        return buf.toByteArray();
+    }
+
+    /**
+     * Decodes a fingerprint encoded by {@link #toPacked}.
+     */
+    @Restricted(NoExternalUse.class)
+    public static @Nonnull Fingerprint fromPacked(@Nonnull byte[] md5sum, @Nonnull byte[] data) throws IOException {
+        if (data.length > 0 && data[0] == PACKED_XML) {
+            Object loaded = XSTREAM.fromXML(new ByteArrayInputStream(data, 1, data.length - 1));
+            if (!(loaded instanceof Fingerprint)) {
+                throw new IOException("Unexpected Fingerprint type. Expected " + Fingerprint.class + " or subclass but got "
+                        + (loaded != null ? loaded.getClass() : "null"));
+            }
+            return initFacets((Fingerprint) loaded);
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        if (in.readByte() != PACKED_BINARY) {
+            throw new IOException("Unknown encoding of fingerprint " + Util.toHexString(md5sum));
+        }
+        Date timestamp = new Date(in.readLong());
+        BuildPtr original = in.readBoolean() ? new BuildPtr(in.readUTF(), in.readInt()) : null;
+        Fingerprint f = new Fingerprint(original, in.readUTF(), md5sum, timestamp);
+        for (int i = in.readInt(); i > 0; i--) {
+            String jobFullName = in.readUTF();
+            int n = in.readInt();
+            List<Range> ranges = new ArrayList<>(n);
+            for (int j = 0; j < n; j++) {
+                ranges.add(new Range(in.readInt(), in.readInt()));
+            }
+            f.usages.put(jobFullName, new RangeSet(ranges));
+        }
+        return f;
+    }
+
+    private static final byte PACKED_BINARY = 1;
+    private static final byte PACKED_XML = '<';
+
+    private static Fingerprint initFacets(Fingerprint f) {
+        if (f.facets==null)
+            f.facets = new PersistedList<>(f);
+        for (FingerprintFacet facet : f.facets)
+            facet._setOwner(f);
+        return f;
+    }
+
     /**
      * Update references to a renamed job in the fingerprint
      */
@@ -1346,23 +1457,31 @@ public class Fingerprint implements ModelObject, Saveable {
     }
 
     /**
-     * Determines the file name from md5sum.
+     * Determines the file name from md5sum, as used by {@link FileFingerprintStorage}.
      */
-    private static @Nonnull File getFingerprintFile(@Nonnull byte[] md5sum) {
+    @Restricted(NoExternalUse.class)
+    public static @Nonnull File getFingerprintFile(@Nonnull byte[] md5sum) {
         assert md5sum.length==16;
         return new File( Jenkins.getInstance().getRootDir(),
             "fingerprints/"+ Util.toHexString(md5sum,0,1)+'/'+Util.toHexString(md5sum,1,1)+'/'+Util.toHexString(md5sum,2,md5sum.length-2)+".xml");
     }
 
     /**
-     * Loads a {@link Fingerprint} from a file in the image.
-     * @return Loaded {@link Fingerprint}. Null if the config file does not exist or
+     * Loads a {@link Fingerprint} from the {@link FingerprintStorage}.
+     * @return Loaded {@link Fingerprint}. Null if it does not exist or is
      * malformed.
      */
     /*package*/ static @CheckForNull Fingerprint load(@Nonnull byte[] md5sum) throws IOException {
-        return load(getFingerprintFile(md5sum));
+        return FingerprintStorage.get().load(Util.toHexString(md5sum));
     }
-    /*package*/ static @CheckForNull Fingerprint load(@Nonnull File file) throws IOException {
+
+    /**
+     * Loads a {@link Fingerprint} from a file in the image, as {@link FileFingerprintStorage} does.
+     * @return Loaded {@link Fingerprint}. Null if the config file does not exist or
+     * malformed.
+     */
+    @Restricted(NoExternalUse.class)
+    public static @CheckForNull Fingerprint load(@Nonnull File file) throws IOException {
         XmlFile configFile = getConfigFile(file);
         if(!configFile.exists())
             return null;
@@ -1380,11 +1499,7 @@ public class Fingerprint implements ModelObject, Saveable {
             Fingerprint f = (Fingerprint) loaded;
             if(logger.isLoggable(Level.FINE))
                 logger.fine("Loading fingerprint "+file+" took "+(System.currentTimeMillis()-start)+"ms");
-            if (f.facets==null)
-                f.facets = new PersistedList<>(f);
-            for (FingerprintFacet facet : f.facets)
-                facet._setOwner(f);
-            return f;
+            return initFacets(f);
         } catch (IOException e) {
             if(file.exists() && file.length()==0) {
                 // Despite the use of AtomicFile, there are reports indicating that people often see
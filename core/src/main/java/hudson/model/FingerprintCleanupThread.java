@@ -26,13 +26,19 @@ package hudson.model;
 import hudson.Extension;
 import hudson.ExtensionList;
 import hudson.Functions;
+import jenkins.fingerprints.FileFingerprintStorage;
+import jenkins.fingerprints.FingerprintIndex;
+import jenkins.fingerprints.FingerprintStorage;
 import jenkins.model.Jenkins;
+import jenkins.util.SystemProperties;
 import org.jenkinsci.Symbol;
 import org.kohsuke.accmod.Restricted;
 import org.kohsuke.accmod.restrictions.NoExternalUse;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
 /**
@@ -69,6 +75,84 @@ public class FingerprintCleanupThread extends AsyncPeriodicWork {
     }
 
     public void execute(TaskListener listener) {
+        if (INCREMENTAL) {
+            FingerprintIndex index = FingerprintIndex.get();
+            if (!index.needsFullScan()) {
+                executeIncrementally(index, listener);
+                return;
+            }
+            listener.getLogger().println("Checking all fingerprints to index them");
+            index.startFullScan();
+            executeFully(listener);
+            index.endFullScan();
+            listener.getLogger().println("Indexed " + index.getReferenceCount() + " references to fingerprints from " + index.getJobCount() + " jobs");
+            return;
+        }
+        executeFully(listener);
+    }
+
+    /**
+     * Looks at the fingerprints queued by {@link FingerprintIndex}, in batches with a pause in between
+     * so as not to compete with builds for I/O.
+     * Fingerprints queued during the pass are left for the next one.
+     */
+    private void executeIncrementally(FingerprintIndex index, TaskListener listener) {
+        long start = System.currentTimeMillis();
+        int queued = index.getDirtyCount();
+        int examined = 0;
+        int numRecords = 0;
+        FingerprintStorage storage = FingerprintStorage.get();
+        while (examined < queued) {
+            List<String> batch = index.pollDirty(Math.min(BATCH_SIZE, queued - examined));
+            if (batch.isEmpty()) {
+                break;
+            }
+            for (String id : batch) {
+                examined++;
+                try {
+                    Fingerprint fp = Jenkins.get()._getFingerprint(id);
+                    if (fp == null) {
+                        index.forget(id);
+                    } else if (!fp.isAlive()) {
+                        listener.getLogger().println("deleting obsolete " + id);
+                        storage.delete(id);
+                        index.forget(id);
+                        numRecords++;
+                    } else {
+                        if (fp.trim()) {
+                            numRecords++;
+                        }
+                        index.record(fp);
+                    }
+                } catch (IOException e) {
+                    Functions.printStackTrace(e, listener.error("Failed to process " + id));
+                }
+            }
+            listener.getLogger().println("Examined " + examined + " of " + queued + " queued fingerprints");
+            if (examined < queued && BATCH_PAUSE > 0) {
+                try {
+                    Thread.sleep(BATCH_PAUSE);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        listener.getLogger().println("Cleaned up " + numRecords + " records in " + (System.currentTimeMillis() - start) + "ms; "
+                + index.getReferenceCount() + " references indexed, " + index.getDirtyCount() + " still queued");
+    }
+
+    /**
+     * Looks at all fingerprints.
+     */
+    public void executeFully(TaskListener listener) {
+        if (FingerprintStorage.isCustomized()) {
+            FingerprintStorage storage = FingerprintStorage.get();
+            if (!(storage instanceof FileFingerprintStorage)) {
+                storage.iterateAndCleanupFingerprints(listener);
+                return;
+            }
+        }
         int numFiles = 0;
 
         File root = new File(getRootDir(), FINGERPRINTS_DIR_NAME);
@@ -115,7 +199,9 @@ public class FingerprintCleanupThread extends AsyncPeriodicWork {
                 // get the fingerprint in the official map so have the changes visible to Jenkins
                 // otherwise the mutation made in FingerprintMap can override our trimming.
                 fp = getFingerprint(fp);
-                return fp.trim();
+                boolean modified = fp.trim();
+                FingerprintIndex.update(fp);
+                return modified;
             }
         } catch (IOException e) {
             Functions.printStackTrace(e, listener.error("Failed to process " + fingerprintFile));
@@ -135,4 +221,23 @@ public class FingerprintCleanupThread extends AsyncPeriodicWork {
         return Jenkins.get().getRootDir();
     }
 
+    /**
+     * Whether to only look at the fingerprints referring to deleted builds and jobs, as tracked by {@link FingerprintIndex},
+     * rather than at all of them every day.
+     * All of them are still looked at on the first run, after an unclean shutdown, and every {@link #FULL_SCAN_INTERVAL}.
+     */
+    public static /* non-final for Groovy */ boolean INCREMENTAL = SystemProperties.getBoolean(FingerprintCleanupThread.class.getName() + ".incremental");
+
+    /**
+     * Milliseconds after which all fingerprints are looked at again when {@link #INCREMENTAL}.
+     */
+    public static /* non-final for Groovy */ long FULL_SCAN_INTERVAL = SystemProperties.getLong(FingerprintCleanupThread.class.getName() + ".fullScanInterval", TimeUnit.DAYS.toMillis(30));
+
+    /**
+     * Number of queued fingerprints looked at before pausing for {@link #BATCH_PAUSE} milliseconds when {@link #INCREMENTAL}.
+     */
+    public static /* non-final for Groovy */ int BATCH_SIZE = SystemProperties.getInteger(FingerprintCleanupThread.class.getName() + ".batchSize", 1000);
+
+    public static /* non-final for Groovy */ long BATCH_PAUSE = SystemProperties.getLong(FingerprintCleanupThread.class.getName() + ".batchPause", 1000L);
+
 }
@@ -25,9 +25,9 @@ package hudson.model;
 
 import hudson.Util;
 import hudson.util.KeyedDataStorage;
+import jenkins.fingerprints.FingerprintStorage;
 import jenkins.model.Jenkins;
 
-import java.io.File;
 import java.io.IOException;
 import java.util.Locale;
 import javax.annotation.CheckForNull;
@@ -50,7 +50,7 @@ public final class FingerprintMap extends KeyedDataStorage<Fingerprint,Fingerpri
      * Returns true if there's some data in the fingerprint database.
      */
     public boolean isReady() {
-        return new File(Jenkins.getInstance().getRootDir(),"fingerprints").exists();
+        return FingerprintStorage.get().isReady();
     }
 
     /**
@@ -72,6 +72,21 @@ public final class FingerprintMap extends KeyedDataStorage<Fingerprint,Fingerpri
         return super.getOrCreate(md5sum, new FingerprintParams(build,fileName));
     }
 
+    /**
+     * Like {@link #getOrCreate(Run, String, String)}, also recording that the given build uses the file.
+     * A new fingerprint is saved once, with the usage, rather than once when created and once when used.
+     *
+     * @param user the build using the file
+     * @since TODO
+     */
+    public @Nonnull Fingerprint getOrCreate(@CheckForNull Run build, @Nonnull String fileName, @Nonnull String md5sum, @Nonnull Run user) throws IOException {
+        Fingerprint fp = super.getOrCreate(md5sum, new FingerprintParams(build, fileName, user));
+        if (!fp.getRangeSet(user.getParent().getFullName()).includes(user.getNumber())) {
+            fp.addFor(user);
+        }
+        return fp;
+    }
+
     @Override
     protected Fingerprint get(String md5sum, boolean createIfNotExist, FingerprintParams createParams) throws IOException {
         // sanity check
@@ -90,7 +105,14 @@ public final class FingerprintMap extends KeyedDataStorage<Fingerprint,Fingerpri
     }
 
     protected @Nonnull Fingerprint create(@Nonnull String md5sum, @Nonnull FingerprintParams createParams) throws IOException {
-        return new Fingerprint(createParams.build, createParams.fileName, toByteArray(md5sum));
+        if (createParams.user == null) {
+            return new Fingerprint(createParams.build, createParams.fileName, toByteArray(md5sum));
+        }
+        Fingerprint fp = new Fingerprint(createParams.build == null ? null : new Fingerprint.BuildPtr(createParams.build),
+                createParams.fileName, toByteArray(md5sum));
+        fp.addWithoutSaving(createParams.user.getParent().getFullName(), createParams.user.getNumber());
+        fp.save();
+        return fp;
     }
 
     protected @CheckForNull Fingerprint load(@Nonnull String key) throws IOException {
@@ -103,10 +125,19 @@ static class FingerprintParams {
      */
     final @CheckForNull Run build;
     final String fileName;
+    /**
+     * Non-null to record a use of the file by this build in the new {@link Fingerprint}.
+     */
+    final @CheckForNull Run user;
 
     public FingerprintParams(@CheckForNull Run build, @Nonnull String fileName) {
+        this(build, fileName, null);
+    }
+
+    FingerprintParams(@CheckForNull Run build, @Nonnull String fileName, @CheckForNull Run user) {
         this.build = build;
         this.fileName = fileName;
+        this.user = user;
 
         assert fileName!=null;
     }
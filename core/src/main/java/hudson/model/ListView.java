@@ -42,6 +42,7 @@ import hudson.views.ViewJobFilter;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
@@ -52,6 +53,7 @@ import javax.annotation.concurrent.GuardedBy;
 import javax.servlet.ServletException;
 import jenkins.model.Jenkins;
 import jenkins.model.ParameterizedJobMixIn;
+import jenkins.util.SystemProperties;
 
 import net.sf.json.JSONObject;
 import org.jenkinsci.Symbol;
@@ -104,6 +106,11 @@ public class ListView extends View implements DirectlyModifiableView {
      */
     private Boolean statusFilter;
 
+    /**
+     * Items named in {@link #jobNames} or matching {@link #includePattern}, if {@link #INDEXED}.
+     */
+    private transient volatile ResolvedItems resolvedItems;
+
     @DataBoundConstructor
     public ListView(String name) {
         super(name);
@@ -195,26 +202,13 @@ public class ListView extends View implements DirectlyModifiableView {
      * true to recurse in ItemGroups
      */
     private List<TopLevelItem> getItems(boolean recurse) {
-        SortedSet<String> names;
-        List<TopLevelItem> items = new ArrayList<>();
-
-        synchronized (this) {
-            names = new TreeSet<>(jobNames);
-        }
-
         ItemGroup<? extends TopLevelItem> parent = getOwner().getItemGroup();
-        List<TopLevelItem> parentItems = new ArrayList<>(parent.getItems());
-        includeItems(parent, parentItems, names);
+        // items from the search index may differ in recursion, so are not kept
+        List<TopLevelItem> candidates = INDEXED && recurse == this.recurse ? getResolvedItems(parent, recurse) : resolveItems(parent, recurse, copyJobNames());
 
+        List<TopLevelItem> items = new ArrayList<>();
         Boolean statusFilter = this.statusFilter; // capture the value to isolate us from concurrent update
-        Iterable<? extends TopLevelItem> candidates;
-        if (recurse) {
-            candidates = parent.getAllItems(TopLevelItem.class);
-        } else {
-            candidates = parent.getItems();
-        }
         for (TopLevelItem item : candidates) {
-            if (!names.contains(item.getRelativeNameFrom(getOwner().getItemGroup()))) continue;
             // Add if no status filter or filter matches enabled/disabled status:
             if(statusFilter == null || !(item instanceof ParameterizedJobMixIn.ParameterizedJob) // TODO or better to call the more generic Job.isBuildable?
                               || ((ParameterizedJobMixIn.ParameterizedJob)item).isDisabled() ^ statusFilter)
@@ -223,17 +217,111 @@ public class ListView extends View implements DirectlyModifiableView {
 
         // check the filters
         Iterable<ViewJobFilter> jobFilters = getJobFilters();
-        List<TopLevelItem> allItems = new ArrayList<>(parentItems);
-        if (recurse) allItems = expand(allItems, new ArrayList<>());
-    	for (ViewJobFilter jobFilter: jobFilters) {
-    		items = jobFilter.filter(items, allItems, this);
-    	}
+        if (jobFilters.iterator().hasNext()) {
+            List<TopLevelItem> allItems = new ArrayList<>(parent.getItems());
+            if (recurse) allItems = expand(allItems, new ArrayList<>());
+            for (ViewJobFilter jobFilter: jobFilters) {
+                items = jobFilter.filter(items, allItems, this);
+            }
+        }
         // for sanity, trim off duplicates
         items = new ArrayList<>(new LinkedHashSet<>(items));
         
         return items;
     }
 
+    private synchronized SortedSet<String> copyJobNames() {
+        return new TreeSet<>(jobNames);
+    }
+
+    /**
+     * Finds the items named in this view or matching its regular expression, in the order of the item group.
+     */
+    private List<TopLevelItem> resolveItems(ItemGroup<? extends TopLevelItem> parent, boolean recurse, SortedSet<String> names) {
+        includeItems(parent, new ArrayList<>(parent.getItems()), names);
+
+        Iterable<? extends TopLevelItem> candidates;
+        if (recurse) {
+            candidates = parent.getAllItems(TopLevelItem.class);
+        } else {
+            candidates = parent.getItems();
+        }
+        List<TopLevelItem> items = new ArrayList<>();
+        for (TopLevelItem item : candidates) {
+            if (names.contains(item.getRelativeNameFrom(parent))) {
+                items.add(item);
+            }
+        }
+        return items;
+    }
+
+    /**
+     * Like {@link #resolveItems} but reusing the result as long as this view and the items in Jenkins are unchanged.
+     * Items are resolved as {@link ACL#SYSTEM}, and only those visible to the current user returned.
+     */
+    private List<TopLevelItem> getResolvedItems(ItemGroup<? extends TopLevelItem> parent, boolean recurse) {
+        long generation = itemsGeneration(parent);
+        ResolvedItems resolved = resolvedItems;
+        boolean current;
+        synchronized (this) {
+            current = resolved != null && resolved.generation == generation && resolved.parent == parent && resolved.recurse == recurse
+                    && Objects.equals(resolved.includeRegex, includeRegex) && resolved.names.equals(jobNames);
+        }
+        if (!current) {
+            SortedSet<String> names = copyJobNames();
+            String includeRegex = this.includeRegex;
+            List<TopLevelItem> items;
+            try (ACLContext acl = ACL.as(ACL.SYSTEM)) {
+                items = resolveItems(parent, recurse, new TreeSet<>(names));
+            }
+            resolved = new ResolvedItems(generation, parent, recurse, includeRegex, names, items);
+            resolvedItems = resolved;
+        }
+        List<TopLevelItem> items = new ArrayList<>(resolved.items.size());
+        for (TopLevelItem item : resolved.items) {
+            if (isVisible(parent, item)) {
+                items.add(item);
+            }
+        }
+        return items;
+    }
+
+    /**
+     * Checks whether the current user could find an item by listing the given group, and the groups in between if recursing.
+     * Also checks that it was not deleted, as {@link ItemListener#onDeleted} is called before it is removed from its group.
+     */
+    private static boolean isVisible(ItemGroup<?> root, Item item) {
+        while (item.hasPermission(Item.READ)) {
+            ItemGroup<?> group = item.getParent();
+            if (group.getItem(item.getName()) != item) {
+                return false;
+            }
+            if (group == root || !(group instanceof Item)) {
+                return true;
+            }
+            item = (Item) group;
+        }
+        return false;
+    }
+
+    private static final class ResolvedItems {
+        final long generation;
+        final ItemGroup<?> parent;
+        final boolean recurse;
+        final String includeRegex;
+        final SortedSet<String> names;
+        final List<TopLevelItem> items;
+
+        ResolvedItems(long generation, ItemGroup<?> parent, boolean recurse, String includeRegex, SortedSet<String> names, List<TopLevelItem> items) {
+            this.generation = generation;
+            this.parent = parent;
+            this.recurse = recurse;
+            this.includeRegex = includeRegex;
+            this.names = names;
+            this.items = items;
+        }
+    }
+
     @Override
     public SearchIndexBuilder makeSearchIndex() {
         SearchIndexBuilder sib = new SearchIndexBuilder().addAllAnnotations(this);
@@ -513,12 +601,77 @@ public class ListView extends View implements DirectlyModifiableView {
         return ListViewColumn.createDefaultInitialColumnList(ListView.class);
     }
 
+    /**
+     * Whether to keep the items of each view between requests, resolving them again only after items are created,
+     * moved, or deleted, or the view is reconfigured, rather than each time.
+     */
+    @Restricted(NoExternalUse.class)
+    public static /* non-final for Groovy */ boolean INDEXED = SystemProperties.getBoolean(ListView.class.getName() + ".indexed");
+
+    /**
+     * Incremented whenever items are added, moved or removed anywhere.
+     */
+    private static final AtomicLong itemsGeneration = new AtomicLong();
+
+    /**
+     * Value of {@link #itemsGeneration} when items were last loaded, making any {@link #resolvedItems} stale.
+     */
+    private static volatile long loadedGeneration;
+
+    /**
+     * Value of {@link #itemsGeneration} when items were last added, moved or removed in or below each group,
+     * making {@link #resolvedItems} of views of that group stale.
+     */
+    private static final Map<ItemGroup<?>, Long> groupGenerations = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private static long itemsGeneration(ItemGroup<?> parent) {
+        Long generation = groupGenerations.get(parent);
+        return generation == null ? loadedGeneration : Math.max(generation, loadedGeneration);
+    }
+
+    /**
+     * Marks views of a group, and of the groups containing it as they may recurse, as stale.
+     */
+    private static void itemsChanged(@CheckForNull ItemGroup<?> group) {
+        long generation = itemsGeneration.incrementAndGet();
+        while (group != null) {
+            groupGenerations.put(group, generation);
+            group = group instanceof Item ? ((Item) group).getParent() : null;
+        }
+    }
+
     @Restricted(NoExternalUse.class)
     @Extension
     public static final class Listener extends ItemListener {
+        @Override
+        public void onCreated(Item item) {
+            itemsChanged(item.getParent());
+        }
+
+        @Override
+        public void onCopied(Item src, Item item) {
+            itemsChanged(item.getParent());
+        }
+
+        @Override
+        public void onLoaded() {
+            loadedGeneration = itemsGeneration.incrementAndGet();
+        }
+
         @Override
         public void onLocationChanged(final Item item, final String oldFullName, final String newFullName) {
             try (ACLContext acl = ACL.as(ACL.SYSTEM)) {
+                itemsChanged(item.getParent());
+                int slash = oldFullName.lastIndexOf('/');
+                if (slash == -1) {
+                    itemsChanged(Jenkins.getInstance());
+                } else {
+                    // gone if it was itself renamed, in which case it was notified first
+                    Item oldParent = Jenkins.getInstance().getItemByFullName(oldFullName.substring(0, slash));
+                    if (oldParent instanceof ItemGroup) {
+                        itemsChanged((ItemGroup<?>) oldParent);
+                    }
+                }
                 locationChanged(oldFullName, newFullName);
             }
         }
@@ -563,6 +716,7 @@ public class ListView extends View implements DirectlyModifiableView {
 
         @Override
         public void onDeleted(final Item item) {
+            itemsChanged(item.getParent());
             try (ACLContext acl = ACL.as(ACL.SYSTEM)) {
                 deleted(item);
             }
@@ -0,0 +1,322 @@
+package hudson.model;
+
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.init.Terminator;
+import hudson.model.listeners.ItemListener;
+import hudson.model.listeners.RunListener;
+import hudson.scm.ChangeLogSet;
+import jenkins.model.Jenkins;
+import jenkins.scm.RunWithSCM;
+import jenkins.util.SystemProperties;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+import javax.annotation.Nonnull;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps track of the last change of each changelog author in each job, so that {@link View.People} does not need to load
+ * every build of every job each time.
+ *
+ * <p>
+ * Authors are recorded as builds complete. A job is scanned in full the first time it is asked for,
+ * and again after deleting a build which was the last change of one of its authors.
+ * The index is written to {@code $JENKINS_HOME/people-index.bin} on shutdown and the file is deleted once read,
+ * so that a crash, which could lose updates, leads to jobs being scanned again.
+ *
+ * <p>
+ * Only used when {@link #ENABLED} is set.
+ */
+@Extension
+@Restricted(NoExternalUse.class)
+public final class PeopleIndex {
+    private static final int MAGIC = 0x50504958; // PPIX
+    private static final int VERSION = 1;
+
+    /**
+     * Whether {@link View.People} and {@link View.AsynchPeople} use this index.
+     */
+    public static /* non-final for Groovy */ boolean ENABLED = SystemProperties.getBoolean(PeopleIndex.class.getName() + ".enabled");
+
+    /** Authors by job full name. */
+    private final Map<String, Authors> jobs = new HashMap<>();
+    private boolean loaded;
+    private final File file;
+
+    public PeopleIndex() {
+        this(new File(Jenkins.get().getRootDir(), "people-index.bin"));
+    }
+
+    PeopleIndex(File file) {
+        this.file = file;
+    }
+
+    public static @Nonnull PeopleIndex get() {
+        return ExtensionList.lookupSingleton(PeopleIndex.class);
+    }
+
+    /**
+     * The last change of each author of a job.
+     */
+    private static final class Authors {
+        /** Whether all builds were looked at, as opposed to only those completed since the index was created. */
+        boolean complete;
+        /** Incremented whenever the job needs to be scanned again, so that a scan already running does not mark it complete. */
+        int version;
+        final Map<String, Change> changes = new HashMap<>();
+
+        void record(String userId, long timestamp, int build) {
+            Change c = changes.get(userId);
+            if (c == null || c.timestamp < timestamp) {
+                changes.put(userId, new Change(timestamp, build));
+            }
+        }
+    }
+
+    private static final class Change {
+        final long timestamp;
+        final int build;
+
+        Change(long timestamp, int build) {
+            this.timestamp = timestamp;
+            this.build = build;
+        }
+    }
+
+    /**
+     * Gets the time of the last change of each author of a job, by user id.
+     */
+    @Nonnull Map<String, Long> getLastChanges(@Nonnull Job<?, ?> job) {
+        String name = job.getFullName();
+        Map<String, Change> changes = null;
+        int version = 0;
+        synchronized (this) {
+            load();
+            Authors a = jobs.get(name);
+            if (a != null) {
+                if (a.complete) {
+                    changes = a.changes;
+                } else {
+                    version = a.version;
+                }
+            }
+            if (changes != null) {
+                return timestamps(changes);
+            }
+        }
+        return scan(job, name, version);
+    }
+
+    private static Map<String, Long> timestamps(Map<String, Change> changes) {
+        Map<String, Long> r = new HashMap<>();
+        for (Map.Entry<String, Change> e : changes.entrySet()) {
+            r.put(e.getKey(), e.getValue().timestamp);
+        }
+        return r;
+    }
+
+    private Map<String, Long> scan(Job<?, ?> job, String name, int version) {
+        Authors scanned = new Authors();
+        for (Run<?, ?> r : job.getBuilds()) {
+            for (String userId : authors(r)) {
+                scanned.record(userId, r.getTimeInMillis(), r.getNumber());
+            }
+        }
+        synchronized (this) {
+            Authors a = jobs.get(name);
+            if (a == null) {
+                a = new Authors();
+                a.version = version;
+                jobs.put(name, a);
+            }
+            if (a.version != version) {
+                // a build was deleted meanwhile, so try again next time
+                return timestamps(scanned.changes);
+            }
+            // keep builds recorded meanwhile
+            for (Map.Entry<String, Change> e : scanned.changes.entrySet()) {
+                a.record(e.getKey(), e.getValue().timestamp, e.getValue().build);
+            }
+            a.complete = true;
+            return timestamps(a.changes);
+        }
+    }
+
+    private static List<String> authors(Run<?, ?> r) {
+        List<String> ids = new ArrayList<>();
+        if (r instanceof RunWithSCM) {
+            for (ChangeLogSet<? extends ChangeLogSet.Entry> c : ((RunWithSCM<?, ?>) r).getChangeSets()) {
+                for (ChangeLogSet.Entry entry : c) {
+                    ids.add(entry.getAuthor().getId());
+                }
+            }
+        }
+        return ids;
+    }
+
+    synchronized void record(@Nonnull Run<?, ?> r, @Nonnull List<String> authors) {
+        load();
+        Authors a = jobs.computeIfAbsent(r.getParent().getFullName(), k -> new Authors());
+        for (String userId : authors) {
+            a.record(userId, r.getTimeInMillis(), r.getNumber());
+        }
+    }
+
+    synchronized void deleted(@Nonnull Run<?, ?> r) {
+        load();
+        Authors a = jobs.get(r.getParent().getFullName());
+        if (a != null) {
+            for (Change c : a.changes.values()) {
+                if (c.build == r.getNumber()) {
+                    // some author's previous change is in an older build
+                    a.changes.clear();
+                    a.complete = false;
+                    a.version++;
+                    break;
+                }
+            }
+        }
+    }
+
+    synchronized void deleted(@Nonnull String fullName) {
+        load();
+        for (Iterator<Map.Entry<String, Authors>> it = jobs.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<String, Authors> e = it.next();
+            if (e.getKey().equals(fullName) || e.getKey().startsWith(fullName + '/')) {
+                e.getValue().version++;
+                it.remove();
+            }
+        }
+    }
+
+    synchronized void moved(@Nonnull String oldFullName, @Nonnull String newFullName) {
+        load();
+        Map<String, Authors> moved = new HashMap<>();
+        for (Iterator<Map.Entry<String, Authors>> it = jobs.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<String, Authors> e = it.next();
+            if (e.getKey().equals(oldFullName) || e.getKey().startsWith(oldFullName + '/')) {
+                moved.put(newFullName + e.getKey().substring(oldFullName.length()), e.getValue());
+                it.remove();
+            }
+        }
+        jobs.putAll(moved);
+    }
+
+    synchronized int getJobCount() {
+        return jobs.size();
+    }
+
+    private void load() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(file.toPath()))))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Unknown format");
+            }
+            for (int i = in.readInt(); i > 0; i--) {
+                String name = in.readUTF();
+                Authors a = new Authors();
+                a.complete = in.readBoolean();
+                for (int j = in.readInt(); j > 0; j--) {
+                    String userId = in.readUTF();
+                    a.changes.put(userId, new Change(in.readLong(), in.readInt()));
+                }
+                jobs.put(name, a);
+            }
+        } catch (NoSuchFileException e) {
+            return;
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Failed to load " + file + ", jobs will be scanned again", e);
+            jobs.clear();
+        }
+        // written again on a clean shutdown only
+        try {
+            Files.deleteIfExists(file.toPath());
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to delete " + file, e);
+        }
+    }
+
+    @Terminator
+    public synchronized void save() throws IOException {
+        if (!loaded) {
+            return;
+        }
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(tmp.toPath()))))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(jobs.size());
+            for (Map.Entry<String, Authors> e : jobs.entrySet()) {
+                out.writeUTF(e.getKey());
+                out.writeBoolean(e.getValue().complete);
+                out.writeInt(e.getValue().changes.size());
+                for (Map.Entry<String, Change> c : e.getValue().changes.entrySet()) {
+                    out.writeUTF(c.getKey());
+                    out.writeLong(c.getValue().timestamp);
+                    out.writeInt(c.getValue().build);
+                }
+            }
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @Extension
+    public static final class RunListenerImpl extends RunListener<Run<?, ?>> {
+        @Override
+        public void onCompleted(Run<?, ?> r, @Nonnull TaskListener listener) {
+            if (ENABLED) {
+                List<String> authors = authors(r);
+                if (!authors.isEmpty()) {
+                    get().record(r, authors);
+                }
+            }
+        }
+
+        @Override
+        public void onDeleted(Run<?, ?> r) {
+            if (ENABLED) {
+                get().deleted(r);
+            }
+        }
+    }
+
+    @Extension
+    public static final class ItemListenerImpl extends ItemListener {
+        @Override
+        public void onDeleted(Item item) {
+            if (ENABLED) {
+                get().deleted(item.getFullName());
+            }
+        }
+
+        @Override
+        public void onLocationChanged(Item item, String oldFullName, String newFullName) {
+            if (ENABLED) {
+                get().moved(oldFullName, newFullName);
+            }
+        }
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(PeopleIndex.class.getName());
+}
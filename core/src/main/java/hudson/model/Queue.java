@@ -43,6 +43,7 @@ import hudson.model.labels.LabelAssignmentAction;
 import hudson.model.queue.AbstractQueueTask;
 import hudson.model.queue.Executables;
 import hudson.model.queue.QueueListener;
+import hudson.model.queue.QueueMetrics;
 import hudson.model.queue.QueueTaskFuture;
 import hudson.model.queue.ScheduleResult;
 import hudson.model.queue.ScheduleResult.Created;
@@ -51,6 +52,7 @@ import hudson.model.queue.FutureImpl;
 import hudson.model.queue.MappingWorksheet;
 import hudson.model.queue.MappingWorksheet.Mapping;
 import hudson.model.queue.QueueSorter;
+import hudson.model.queue.DispatcherVerdicts;
 import hudson.model.queue.QueueTaskDispatcher;
 import hudson.model.queue.Tasks;
 import hudson.model.queue.WorkUnit;
@@ -65,6 +67,8 @@ import hudson.model.queue.CauseOfBlockage.BecauseNodeIsBusy;
 import hudson.model.queue.WorkUnitContext;
 import hudson.security.ACL;
 import hudson.security.AccessControlled;
+import hudson.slaves.ComputerListener;
+import hudson.slaves.OfflineCause;
 import java.nio.file.Files;
 
 import hudson.util.Futures;
@@ -91,8 +95,8 @@ import java.util.Collections;
 import java.util.GregorianCalendar;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
-import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
@@ -114,6 +118,7 @@ import javax.servlet.ServletException;
 import jenkins.model.Jenkins;
 import jenkins.security.QueueItemAuthenticator;
 import jenkins.util.AtmostOneTaskExecutor;
+import jenkins.util.PersistentList;
 import org.acegisecurity.AccessDeniedException;
 import org.acegisecurity.Authentication;
 import org.jenkinsci.bytecode.AdaptField;
@@ -185,7 +190,7 @@ public class Queue extends ResourceController implements Saveable {
      * This consists of {@link Item}s that cannot be run yet
      * because its time has not yet come.
      */
-    private final Set<WaitingItem> waitingList = new TreeSet<>();
+    private final WaitingList waitingList = new WaitingList();
 
     /**
      * {@link Task}s that can be built immediately
@@ -209,7 +214,7 @@ public class Queue extends ResourceController implements Saveable {
      */
     private final ItemList<BuildableItem> pendings = new ItemList<>();
 
-    private transient volatile Snapshot snapshot = new Snapshot(waitingList, blockedProjects, buildables, pendings);
+    private transient volatile Snapshot snapshot = new Snapshot(waitingList.view(), blockedProjects.view(), buildables.view(), pendings.view());
 
     /**
      * Items that left queue would stay here for a while to enable tracking via {@link Item#getId()}.
@@ -267,6 +272,10 @@ public class Queue extends ResourceController implements Saveable {
          * @since 2.37
          */
         public @CheckForNull CauseOfBlockage getCauseOfBlockage(BuildableItem item) {
+            return getCauseOfBlockage(item, null);
+        }
+
+        private @CheckForNull CauseOfBlockage getCauseOfBlockage(BuildableItem item, @CheckForNull DispatcherVerdicts verdicts) {
             Node node = getNode();
             if (node == null) {
                 return CauseOfBlockage.fromMessage(Messages._Queue_node_has_been_removed_from_configuration(executor.getOwner().getDisplayName()));
@@ -275,11 +284,9 @@ public class Queue extends ResourceController implements Saveable {
             if (reason != null) {
                 return reason;
             }
-            for (QueueTaskDispatcher d : QueueTaskDispatcher.all()) {
-                reason = d.canTake(node, item);
-                if (reason != null) {
-                    return reason;
-                }
+            reason = verdicts != null ? verdicts.canTake(node, item) : DispatcherVerdicts.askCanTake(node, item);
+            if (reason != null) {
+                return reason;
             }
             // inlining isAvailable:
             if (workUnit != null) { // unlikely in practice (should not have even found this executor if so)
@@ -320,9 +327,12 @@ public class Queue extends ResourceController implements Saveable {
 
     private volatile transient QueueSorter sorter;
 
+    private transient final QueueMetrics metrics = new QueueMetrics();
+
     private transient final AtmostOneTaskExecutor<Void> maintainerThread = new AtmostOneTaskExecutor<>(new Callable<Void>() {
         @Override
         public Void call() throws Exception {
+            metrics.maintenanceRuns.incrementAndGet();
             maintain();
             return null;
         }
@@ -337,6 +347,47 @@ public class Queue extends ResourceController implements Saveable {
 
     private transient final Condition condition = lock.newCondition();
 
+    /**
+     * Bumped whenever something happens that may change the outcome of {@link #getCauseOfBlockageForItem}:
+     * the queue contents change, executors come and go, a node changes state,
+     * or somebody calls {@link #scheduleMaintenance()}.
+     * Only consulted when {@link #INCREMENTAL_MAINTENANCE} is on.
+     */
+    private transient final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Idle executors found by the last full scan in {@link #maintain()}, kept between passes
+     * when {@link #INCREMENTAL_MAINTENANCE} is on. Null means the next pass has to rescan.
+     */
+    @GuardedBy("lock")
+    private transient Map<Executor, JobOffer> parkedExecutors;
+
+    @GuardedBy("lock")
+    private transient long parkedExecutorsScannedAt;
+
+    /**
+     * {@link System#nanoTime()} at the start of the previous {@link #maintain()} pass.
+     */
+    @GuardedBy("lock")
+    private transient long lastMaintenanceStarted;
+
+    /**
+     * Set by {@link #onExecutorsChanged()} to invalidate {@link #parkedExecutors}.
+     */
+    private transient volatile boolean executorsChanged = true;
+
+    /**
+     * Bumped whenever the answers of {@link QueueTaskDispatcher}s may have changed:
+     * work was handed to an executor, executors or nodes changed, or somebody called {@link #scheduleMaintenance()}.
+     * Only consulted when {@link #PARALLEL_DISPATCH} is on.
+     */
+    private transient final AtomicLong dispatchEpoch = new AtomicLong();
+
+    /**
+     * Dispatcher answers of the current {@link #dispatchEpoch}, when {@link #PARALLEL_DISPATCH} is on.
+     */
+    private transient volatile DispatcherVerdicts dispatcherVerdicts;
+
     public Queue(@Nonnull LoadBalancer loadBalancer) {
         this.loadBalancer =  loadBalancer.sanitize();
         // if all the executors are busy doing something, then the queue won't be maintained in
@@ -357,6 +408,14 @@ public class Queue extends ResourceController implements Saveable {
         return sorter;
     }
 
+    /**
+     * Timings of queue maintenance and of the queue lock.
+     * @since TODO
+     */
+    public QueueMetrics getMetrics() {
+        return metrics;
+    }
+
     public void setSorter(QueueSorter sorter) {
         this.sorter = sorter;
     }
@@ -735,11 +794,15 @@ public class Queue extends ResourceController implements Saveable {
     }
 
     private void updateSnapshot() {
-        Snapshot revised = new Snapshot(waitingList, blockedProjects, buildables, pendings);
+        Snapshot revised = new Snapshot(waitingList.view(), blockedProjects.view(), buildables.view(), pendings.view());
         if (LOGGER.isLoggable(Level.FINEST)) {
             LOGGER.log(Level.FINEST, "{0} → {1}; leftItems={2}", new Object[] {snapshot, revised, leftItems.asMap()});
         }
+        if (INCREMENTAL_MAINTENANCE && !revised.hasSameItemsAs(snapshot)) {
+            generation.incrementAndGet();
+        }
         snapshot = revised;
+        metrics.onSnapshotUpdated(revised.waitingList.size(), revised.blockedProjects.size(), revised.buildables.size(), revised.pendings.size());
     }
 
     public boolean cancel(Item item) {
@@ -1175,9 +1238,73 @@ public class Queue extends ResourceController implements Saveable {
     @WithBridgeMethods(void.class)
     public Future<?> scheduleMaintenance() {
         // LOGGER.info("Scheduling maintenance");
+        // callers tell us that conditions have changed, so blocked items need to be looked at again
+        generation.incrementAndGet();
+        dispatchEpoch.incrementAndGet();
+        metrics.maintenanceRequests.incrementAndGet();
         return maintainerThread.submit();
     }
 
+    /**
+     * Called when executors are added to or removed from a {@link Computer}, or when a node changes state,
+     * so that the next {@link #maintain()} pass rescans the idle executors.
+     */
+    /*package*/ void onExecutorsChanged() {
+        executorsChanged = true;
+        generation.incrementAndGet();
+        dispatchEpoch.incrementAndGet();
+    }
+
+    /**
+     * Asks the {@link QueueTaskDispatcher}s about the items of the current snapshot on a pool of threads,
+     * without holding the lock, so that {@link #maintain()} mostly finds the answers ready.
+     *
+     * @return the answers, or null if {@link #PARALLEL_DISPATCH} is off
+     */
+    @CheckForNull
+    private DispatcherVerdicts precomputeDispatcherVerdicts(Jenkins jenkins) {
+        if (!PARALLEL_DISPATCH) {
+            dispatcherVerdicts = null;
+            return null;
+        }
+        long epoch = dispatchEpoch.get();
+        DispatcherVerdicts verdicts = dispatcherVerdicts;
+        if (verdicts == null || !verdicts.isValid(epoch, PARALLEL_DISPATCH_MAX_AGE)) {
+            verdicts = new DispatcherVerdicts(epoch);
+        }
+        Snapshot s = snapshot;
+        List<Item> items = new ArrayList<>(s.blockedProjects.size() + s.buildables.size());
+        items.addAll(s.blockedProjects);
+        items.addAll(s.buildables);
+        long now = System.currentTimeMillis();
+        for (WaitingItem w : s.waitingList) {
+            if (w.timestamp.getTimeInMillis() > now) {
+                break; // sorted by due time
+            }
+            items.add(w);
+        }
+        verdicts.retainAll(items);
+
+        // only nodes that could take something right now are worth asking about
+        List<Node> nodes = new ArrayList<>();
+        for (Computer c : jenkins.getComputers()) {
+            Node n = c.getNode();
+            if (n != null && c.isOnline() && c.isAcceptingTasks() && c.countIdle() > 0) {
+                nodes.add(n);
+            }
+        }
+        long start = System.nanoTime();
+        try {
+            verdicts.precompute(items, s.buildables, nodes, DispatcherVerdicts.pool());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        metrics.dispatcherPrecompute.recordSince(start);
+        dispatcherVerdicts = verdicts;
+        return verdicts;
+    }
+
     /**
      * Checks if the given item should be prevented from entering into the {@link #buildables} state
      * and instead stay in the {@link #blockedProjects} state.
@@ -1191,11 +1318,10 @@ public class Queue extends ResourceController implements Saveable {
             return causeOfBlockage;
         }
 
-        for (QueueTaskDispatcher d : QueueTaskDispatcher.all()) {
-            causeOfBlockage = d.canRun(i);
-            if (causeOfBlockage != null)
-                return causeOfBlockage;
-        }
+        DispatcherVerdicts verdicts = currentDispatcherVerdicts();
+        causeOfBlockage = verdicts != null ? verdicts.canRun(i) : DispatcherVerdicts.askCanRun(i);
+        if (causeOfBlockage != null)
+            return causeOfBlockage;
 
         if(!(i instanceof BuildableItem)) {
             // Make sure we don't queue two tasks of the same project to be built
@@ -1214,6 +1340,25 @@ public class Queue extends ResourceController implements Saveable {
         return null;
     }
 
+    /**
+     * The answers of {@link #dispatcherVerdicts} if they are still current, else null to ask the dispatchers directly.
+     */
+    @CheckForNull
+    private DispatcherVerdicts currentDispatcherVerdicts() {
+        DispatcherVerdicts verdicts = dispatcherVerdicts;
+        return verdicts != null && verdicts.isValid(dispatchEpoch.get(), PARALLEL_DISPATCH_MAX_AGE) ? verdicts : null;
+    }
+
+    /**
+     * Called once work has been handed to an executor: dispatchers limiting concurrency would now answer differently.
+     */
+    private void onDispatched() {
+        if (PARALLEL_DISPATCH) {
+            // keep caching for the rest of the pass, as the same node is asked about for each of its executors
+            dispatcherVerdicts = new DispatcherVerdicts(dispatchEpoch.incrementAndGet());
+        }
+    }
+
     /**
      *
      * Checks if the given task knows the reasons to be blocked or it needs some unavailable resources
@@ -1374,11 +1519,11 @@ public class Queue extends ResourceController implements Saveable {
      * @since 1.592
      */
     protected void _withLock(Runnable runnable) {
-        lock.lock();
+        long acquired = lockTimed();
         try {
             runnable.run();
         } finally {
-            lock.unlock();
+            unlockTimed(acquired);
         }
     }
 
@@ -1391,10 +1536,11 @@ public class Queue extends ResourceController implements Saveable {
      */
     protected boolean _tryWithLock(Runnable runnable) {
         if (lock.tryLock()) {
+            long acquired = System.nanoTime();
             try {
                 runnable.run();
             } finally {
-                lock.unlock();
+                unlockTimed(acquired);
             }
             return true;
         } else {
@@ -1414,11 +1560,11 @@ public class Queue extends ResourceController implements Saveable {
      * @since 1.592
      */
     protected <V, T extends Throwable> V _withLock(hudson.remoting.Callable<V, T> callable) throws T {
-        lock.lock();
+        long acquired = lockTimed();
         try {
             return callable.call();
         } finally {
-            lock.unlock();
+            unlockTimed(acquired);
         }
     }
 
@@ -1433,14 +1579,38 @@ public class Queue extends ResourceController implements Saveable {
      * @since 1.592
      */
     protected <V> V _withLock(java.util.concurrent.Callable<V> callable) throws Exception {
-        lock.lock();
+        long acquired = lockTimed();
         try {
             return callable.call();
         } finally {
-            lock.unlock();
+            unlockTimed(acquired);
         }
     }
 
+    /**
+     * Takes {@link #lock}, recording the wait in {@link #metrics} unless the lock was already held by this thread.
+     * @return when the lock was obtained, to be passed to {@link #unlockTimed}
+     */
+    private long lockTimed() {
+        long start = System.nanoTime();
+        lock.lock();
+        long acquired = System.nanoTime();
+        if (lock.getHoldCount() == 1) {
+            metrics.lockWait.record(acquired - start);
+        }
+        return acquired;
+    }
+
+    /**
+     * Releases {@link #lock}, recording how long it was held unless this was a nested acquisition.
+     */
+    private void unlockTimed(long acquired) {
+        if (lock.getHoldCount() == 1) {
+            metrics.lockHold.recordSince(acquired);
+        }
+        lock.unlock();
+    }
+
     /**
      * Queue maintenance.
      *
@@ -1458,15 +1628,37 @@ public class Queue extends ResourceController implements Saveable {
         if (jenkins == null) {
             return;
         }
-        lock.lock();
+        precomputeDispatcherVerdicts(jenkins);
+        long acquired = lockTimed();
         try { try {
 
             LOGGER.log(Level.FINE, "Queue maintenance started on {0} with {1}", new Object[] {this, snapshot});
+            if (lastMaintenanceStarted != 0) {
+                metrics.interval.record(acquired - lastMaintenanceStarted);
+            }
+            lastMaintenanceStarted = acquired;
+            long phaseStarted = acquired;
 
             // The executors that are currently waiting for a job to run.
-            Map<Executor, JobOffer> parked = new HashMap<>();
-
-            {// update parked (and identify any pending items whose executor has disappeared)
+            Map<Executor, JobOffer> parked;
+
+            if (INCREMENTAL_MAINTENANCE && parkedExecutors != null && !executorsChanged
+                    && System.currentTimeMillis() - parkedExecutorsScannedAt < INCREMENTAL_MAINTENANCE_MAX_STALENESS) {
+                // no executor came or went since the last full scan, and pending items can only lose their
+                // executor when one goes away; just drop the offers that were taken or interrupted since
+                parked = parkedExecutors;
+                for (Iterator<JobOffer> itr = parked.values().iterator(); itr.hasNext(); ) {
+                    JobOffer j = itr.next();
+                    if (j.workUnit != null || j.executor.isInterrupted() || !j.executor.isParking()) {
+                        itr.remove();
+                    }
+                }
+                LOGGER.log(Level.FINEST, "Reusing {0} parked executors from the previous maintenance", parked.size());
+            } else {// update parked (and identify any pending items whose executor has disappeared)
+                phaseStarted = System.nanoTime();
+                // clear the flag before scanning so that changes made during the scan are picked up next time
+                executorsChanged = false;
+                parked = new HashMap<>();
                 List<BuildableItem> lostPendings = new ArrayList<>(pendings);
                 for (Computer c : jenkins.getComputers()) {
                     for (Executor e : c.getAllExecutors()) {
@@ -1475,6 +1667,7 @@ public class Queue extends ResourceController implements Saveable {
                             // we need to clear lost pendings as we cannot know what work unit was on this executor
                             // while it is interrupted. (All this dancing is a result of Executor extending Thread)
                             lostPendings.clear(); // we'll get them next time around when the flag is cleared.
+                            executorsChanged = true; // and rescan until then
                             LOGGER.log(Level.FINEST,
                                     "Interrupt thread for executor {0} is set and we do not know what work unit was on the executor.",
                                     e.getDisplayName());
@@ -1501,11 +1694,15 @@ public class Queue extends ResourceController implements Saveable {
                     pendings.remove(p);
                     makeBuildable(p); // TODO whatever this is for, the return value is being ignored, so this does nothing at all
                 }
+                parkedExecutorsScannedAt = System.currentTimeMillis();
+                parkedExecutors = INCREMENTAL_MAINTENANCE ? parked : null;
+                metrics.parkedScan.recordSince(phaseStarted);
             }
 
             final QueueSorter s = sorter;
 
             {// blocked -> buildable
+                phaseStarted = System.nanoTime();
                 // copy as we'll mutate the list and we want to process in a potentially different order
                 List<BlockedItem> blockedItems = new ArrayList<>(blockedProjects.values());
                 // if facing a cycle of blocked tasks, ensure we process in the desired sort order
@@ -1516,7 +1713,12 @@ public class Queue extends ResourceController implements Saveable {
                 }
                 for (BlockedItem p : blockedItems) {
                     String taskDisplayName = LOGGER.isLoggable(Level.FINEST) ? p.task.getFullDisplayName() : null;
+                    if (INCREMENTAL_MAINTENANCE && p.isCauseOfBlockageCurrent()) {
+                        LOGGER.log(Level.FINEST, "Nothing changed since blocked item {0} was last checked", taskDisplayName);
+                        continue;
+                    }
                     LOGGER.log(Level.FINEST, "Current blocked item: {0}", taskDisplayName);
+                    long evaluatedGeneration = generation.get();
                     CauseOfBlockage causeOfBlockage = getCauseOfBlockageForItem(p);
                     if (causeOfBlockage == null) {
                         LOGGER.log(Level.FINEST,
@@ -1535,11 +1737,15 @@ public class Queue extends ResourceController implements Saveable {
                         }
                     } else {
                         p.setCauseOfBlockage(causeOfBlockage);
+                        p.evaluatedGeneration = evaluatedGeneration;
+                        p.evaluatedAt = System.currentTimeMillis();
                     }
                 }
+                metrics.blockedToBuildable.recordSince(phaseStarted);
             }
 
             // waitingList -> buildable/blocked
+            phaseStarted = System.nanoTime();
             while (!waitingList.isEmpty()) {
                 WaitingItem top = peek();
 
@@ -1567,8 +1773,10 @@ public class Queue extends ResourceController implements Saveable {
                     new BlockedItem(top, causeOfBlockage).enter(this);
                 }
             }
+            metrics.waitingToBuildable.recordSince(phaseStarted);
 
             if (s != null) {
+                phaseStarted = System.nanoTime();
                 try {
                     s.sortBuildableItems(buildables);
                 } catch (Throwable e) {
@@ -1576,12 +1784,18 @@ public class Queue extends ResourceController implements Saveable {
                     // continue to do our job. We'll complain about it and continue.
                     LOGGER.log(Level.WARNING, "s.sortBuildableItems() threw Throwable: {0}", e);
                 }
+                metrics.sort.recordSince(phaseStarted);
             }
             
             // Ensure that identification of blocked tasks is using the live state: JENKINS-27708 & JENKINS-27871
             updateSnapshot();
-            
+
+            // with incremental maintenance, parked offers are grouped by the labels asking for them,
+            // so that an item is only checked against executors on nodes it could possibly run on
+            Map<Label, List<JobOffer>> offersByLabel = INCREMENTAL_MAINTENANCE ? new HashMap<Label, List<JobOffer>>() : null;
+
             // allocate buildable jobs to executors
+            phaseStarted = System.nanoTime();
             for (BuildableItem p : new ArrayList<>(
                     buildables)) {// copy as we'll mutate the list in the loop
                 // one last check to make sure this build is not blocked.
@@ -1608,10 +1822,16 @@ public class Queue extends ResourceController implements Saveable {
                     }
                 } else {
 
-                    List<JobOffer> candidates = new ArrayList<>(parked.size());
-                    List<CauseOfBlockage> reasons = new ArrayList<>(parked.size());
-                    for (JobOffer j : parked.values()) {
-                        CauseOfBlockage reason = j.getCauseOfBlockage(p);
+                    Collection<JobOffer> offers = offersByLabel != null
+                            ? getOffersFor(p.getAssignedLabel(), parked, offersByLabel)
+                            : parked.values();
+                    List<JobOffer> candidates = new ArrayList<>(offers.size());
+                    List<CauseOfBlockage> reasons = new ArrayList<>(offers.size());
+                    for (JobOffer j : offers) {
+                        if (offersByLabel != null && j.workUnit != null) {
+                            continue; // already handed out earlier in this pass
+                        }
+                        CauseOfBlockage reason = j.getCauseOfBlockage(p, currentDispatcherVerdicts());
                         if (reason == null) {
                             LOGGER.log(Level.FINEST,
                                     "{0} is a potential candidate for task {1}",
@@ -1639,6 +1859,7 @@ public class Queue extends ResourceController implements Saveable {
                     WorkUnitContext wuc = new WorkUnitContext(p);
                     LOGGER.log(Level.FINEST, "Found a matching executor for {0}. Using it.", taskDisplayName);
                     m.execute(wuc);
+                    onDispatched();
 
                     p.leave(this);
                     if (!wuc.getWorkUnits().isEmpty()) {
@@ -1649,23 +1870,44 @@ public class Queue extends ResourceController implements Saveable {
                         LOGGER.log(Level.FINEST, "BuildableItem {0} with empty work units!?", p);
 
                     // Ensure that identification of blocked tasks is using the live state: JENKINS-27708 & JENKINS-27871
-                    // The creation of a snapshot itself should be relatively cheap given the expected rate of
-                    // job execution. You probably would need 100's of jobs starting execution every iteration
-                    // of maintain() before this could even start to become an issue and likely the calculation
-                    // of getCauseOfBlockageForItem(p) will become a bottleneck before updateSnapshot() will. Additionally
-                    // since the snapshot itself only ever has at most one reference originating outside of the stack
-                    // it should remain in the eden space and thus be cheap to GC.
+                    // The creation of a snapshot itself is cheap: the lists it holds are persistent versions that share
+                    // all but O(log n) nodes with the previous snapshot, so even 100's of jobs starting execution in one
+                    // iteration of maintain() do not add up to copying the queue over and over.
                     // See https://jenkins-ci.org/issue/27708?focusedCommentId=225819&page=com.atlassian.jira.plugin.system.issuetabpanels:comment-tabpanel#comment-225819
                     // or https://jenkins-ci.org/issue/27708?focusedCommentId=225906&page=com.atlassian.jira.plugin.system.issuetabpanels:comment-tabpanel#comment-225906
                     // for alternative fixes of this issue.
                     updateSnapshot();
                 }
             }
+            metrics.allocation.recordSince(phaseStarted);
         } finally { updateSnapshot(); } } finally {
-            lock.unlock();
+            metrics.maintenance.recordSince(acquired);
+            unlockTimed(acquired);
         }
     }
 
+    /**
+     * Picks the parked offers on nodes that match the given label, computing the list once per label per pass.
+     */
+    private static Collection<JobOffer> getOffersFor(@CheckForNull Label label, Map<Executor, JobOffer> parked,
+                                                     Map<Label, List<JobOffer>> offersByLabel) {
+        if (label == null) {
+            return parked.values();
+        }
+        List<JobOffer> offers = offersByLabel.get(label);
+        if (offers == null) {
+            offers = new ArrayList<>();
+            for (JobOffer j : parked.values()) {
+                Node n = j.getNode();
+                if (n != null && label.contains(n)) {
+                    offers.add(j);
+                }
+            }
+            offersByLabel.put(label, offers);
+        }
+        return offers;
+    }
+
     /**
      * Tries to make an item ready to build.
      * @param p a proposed buildable item
@@ -1759,6 +2001,7 @@ public class Queue extends ResourceController implements Saveable {
             @Override public void run() {
                 c.startFlyWeightTask(new WorkUnitContext(p).createWorkUnit(p.task));
                 makePending(p);
+                onDispatched();
             }
         };
     }
@@ -2551,6 +2794,12 @@ public class Queue extends ResourceController implements Saveable {
     public final class BlockedItem extends NotWaitingItem {
         private transient CauseOfBlockage causeOfBlockage = null;
 
+        /**
+         * Value of {@link Queue#generation} and the time when {@link #causeOfBlockage} was last computed by {@link #maintain()}.
+         */
+        private transient long evaluatedGeneration = -1;
+        private transient long evaluatedAt;
+
         public BlockedItem(WaitingItem wi) {
             this(wi, null);
         }
@@ -2573,6 +2822,15 @@ public class Queue extends ResourceController implements Saveable {
             this.causeOfBlockage = causeOfBlockage;
         }
 
+        /**
+         * Whether the last computed cause of blockage can be trusted without asking again,
+         * because nothing relevant changed and it is not older than {@link #INCREMENTAL_MAINTENANCE_MAX_STALENESS}.
+         */
+        boolean isCauseOfBlockageCurrent() {
+            return causeOfBlockage != null && evaluatedGeneration == generation.get()
+                    && System.currentTimeMillis() - evaluatedAt < INCREMENTAL_MAINTENANCE_MAX_STALENESS;
+        }
+
         public CauseOfBlockage getCauseOfBlockage() {
             if (causeOfBlockage != null) {
                 return causeOfBlockage;
@@ -2888,10 +3146,148 @@ public class Queue extends ResourceController implements Saveable {
         }
     }
 
+    /**
+     * {@link TreeSet} of {@link WaitingItem}s that remembers its last copy for {@link Snapshot}s until it changes.
+     * Only {@link #add}, {@link #remove} and {@link #clear} are expected to be used to modify it.
+     */
+    private static final class WaitingList extends TreeSet<WaitingItem> {
+        private List<WaitingItem> shared = Collections.emptyList();
+        private boolean changed;
+
+        @Override
+        public boolean add(WaitingItem wi) {
+            boolean r = super.add(wi);
+            changed |= r;
+            return r;
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            boolean r = super.remove(o);
+            changed |= r;
+            return r;
+        }
+
+        @Override
+        public void clear() {
+            super.clear();
+            changed = true;
+        }
+
+        List<WaitingItem> view() {
+            if (changed) {
+                shared = Collections.unmodifiableList(new ArrayList<>(this));
+                changed = false;
+            }
+            return shared;
+        }
+    }
+
     /**
      * {@link ArrayList} of {@link Item} with more convenience methods.
+     *
+     * <p>
+     * Alongside the list itself, a {@link PersistentList} version of it is kept up to date on every
+     * {@link #add(Item)} and {@code remove}, so that {@link #view()} is O(1) and each change is O(log n).
+     * Any other kind of modification, such as sorting, makes the next {@link #view()} rebuild it from scratch.
      */
     private class ItemList<T extends Item> extends ArrayList<T> {
+        private PersistentList<T> shared = PersistentList.empty();
+        /**
+         * Keys of the items in {@link #shared}, which orders them by insertion.
+         */
+        private final Map<T, Long> keys = new IdentityHashMap<>();
+        private long nextKey;
+        /**
+         * {@link #modCount} as of the last change reflected in {@link #shared}.
+         */
+        private int sharedModCount;
+        private boolean dirty;
+
+        private boolean inSync() {
+            return !dirty && modCount == sharedModCount;
+        }
+
+        @Override
+        public boolean add(T t) {
+            boolean track = inSync() && !keys.containsKey(t);
+            super.add(t);
+            if (track) {
+                long key = nextKey++;
+                keys.put(t, key);
+                shared = shared.with(key, t);
+                sharedModCount = modCount;
+            }
+            return true;
+        }
+
+        @Override
+        public void add(int index, T t) {
+            super.add(index, t);
+            dirty = true;
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            boolean track = inSync();
+            boolean r = super.remove(o);
+            if (r && track) {
+                untrack(o);
+            }
+            return r;
+        }
+
+        @Override
+        public T remove(int index) {
+            boolean track = inSync();
+            T t = super.remove(index);
+            if (track) {
+                untrack(t);
+            }
+            return t;
+        }
+
+        private void untrack(Object o) {
+            Long key = keys.remove(o);
+            if (key != null) {
+                shared = shared.without(key);
+                sharedModCount = modCount;
+            }
+        }
+
+        @Override
+        public T set(int index, T t) {
+            dirty = true;
+            return super.set(index, t);
+        }
+
+        @Override
+        public void clear() {
+            super.clear();
+            keys.clear();
+            shared = PersistentList.empty();
+            sharedModCount = modCount;
+            dirty = false;
+        }
+
+        /**
+         * Immutable version of the current content, to be published in a {@link Snapshot}.
+         */
+        PersistentList<T> view() {
+            if (!inSync()) {
+                keys.clear();
+                for (int i = 0; i < size(); i++) {
+                    keys.put(get(i), (long) i);
+                }
+                nextKey = size();
+                shared = PersistentList.of(this);
+                sharedModCount = modCount;
+                // with duplicates the keys cannot track removals, so keep rebuilding until they are gone
+                dirty = keys.size() != size();
+            }
+            return shared;
+        }
+
     	public T get(Task task) {
     		for (T item: this) {
     			if (item.task.equals(task)) {
@@ -2955,18 +3351,47 @@ public class Queue extends ResourceController implements Saveable {
         }
     }
 
+    /**
+     * Consistent view of the queue for readers that do not hold the lock.
+     * The lists are immutable versions handed out by {@link ItemList#view()} and {@link WaitingList#view()}.
+     */
     private static class Snapshot {
-        private final Set<WaitingItem> waitingList;
+        private final List<WaitingItem> waitingList;
         private final List<BlockedItem> blockedProjects;
         private final List<BuildableItem> buildables;
         private final List<BuildableItem> pendings;
 
-        public Snapshot(Set<WaitingItem> waitingList, List<BlockedItem> blockedProjects, List<BuildableItem> buildables,
+        public Snapshot(List<WaitingItem> waitingList, List<BlockedItem> blockedProjects, List<BuildableItem> buildables,
                         List<BuildableItem> pendings) {
-            this.waitingList = new LinkedHashSet<WaitingItem>(waitingList);
-            this.blockedProjects = new ArrayList<BlockedItem>(blockedProjects);
-            this.buildables = new ArrayList<BuildableItem>(buildables);
-            this.pendings = new ArrayList<BuildableItem>(pendings);
+            this.waitingList = waitingList;
+            this.blockedProjects = blockedProjects;
+            this.buildables = buildables;
+            this.pendings = pendings;
+        }
+
+        /**
+         * Checks whether both snapshots hold the very same item instances, ignoring order.
+         */
+        boolean hasSameItemsAs(Snapshot that) {
+            return sameItems(waitingList, that.waitingList) && sameItems(blockedProjects, that.blockedProjects)
+                    && sameItems(buildables, that.buildables) && sameItems(pendings, that.pendings);
+        }
+
+        private static boolean sameItems(Collection<? extends Item> a, Collection<? extends Item> b) {
+            if (a == b) {
+                return true; // the usual case, as unchanged lists hand out the same version
+            }
+            if (a.size() != b.size()) {
+                return false;
+            }
+            Set<Item> ids = Collections.newSetFromMap(new IdentityHashMap<Item, Boolean>());
+            ids.addAll(a);
+            for (Item i : b) {
+                if (!ids.contains(i)) {
+                    return false;
+                }
+            }
+            return true;
         }
 
         @Override
@@ -3034,6 +3459,76 @@ public class Queue extends ResourceController implements Saveable {
         }
     }
 
+    /**
+     * Opt-in mode in which {@link #maintain()} avoids redoing work whose inputs did not change since the previous pass:
+     * idle executors are only rescanned after executors or nodes changed,
+     * buildable items are only offered to executors on nodes matching their label,
+     * and blocked items are only re-evaluated after something that could unblock them happened.
+     */
+    @Restricted(NoExternalUse.class)
+    public static boolean INCREMENTAL_MAINTENANCE = SystemProperties.getBoolean(Queue.class.getName() + ".incrementalMaintenance");
+
+    /**
+     * Upper bound in milliseconds on how long {@link #INCREMENTAL_MAINTENANCE} may reuse a previous result,
+     * as a safety net for state changes that are not signalled through {@link #scheduleMaintenance()}.
+     */
+    @Restricted(NoExternalUse.class)
+    public static long INCREMENTAL_MAINTENANCE_MAX_STALENESS = SystemProperties.getLong(Queue.class.getName() + ".incrementalMaintenance.maxStaleness", 60000L);
+
+    /**
+     * Opt-in: ask the {@link QueueTaskDispatcher}s about queued items on a pool of threads before {@link #maintain()}
+     * takes the lock, and remember their answers until work is handed out or nodes change.
+     * Mainly useful when dispatchers are slow, e.g. throttling or resource locking with many items in the queue.
+     */
+    @Restricted(NoExternalUse.class)
+    public static boolean PARALLEL_DISPATCH = SystemProperties.getBoolean(Queue.class.getName() + ".parallelDispatch");
+
+    /**
+     * Upper bound in milliseconds on how long {@link #PARALLEL_DISPATCH} may reuse an answer of a dispatcher,
+     * for dispatchers whose answers change with time alone.
+     */
+    @Restricted(NoExternalUse.class)
+    public static long PARALLEL_DISPATCH_MAX_AGE = SystemProperties.getLong(Queue.class.getName() + ".parallelDispatch.maxAge", 5000L);
+
+    /**
+     * Lets the queue know about node state changes so that {@link #INCREMENTAL_MAINTENANCE} rescans the executors.
+     */
+    @Extension
+    @Restricted(NoExternalUse.class)
+    public static final class MaintenanceComputerListener extends ComputerListener {
+        @Override
+        public void onOnline(Computer c) {
+            changed();
+        }
+
+        @Override
+        public void onOffline(@Nonnull Computer c, @CheckForNull OfflineCause cause) {
+            changed();
+        }
+
+        @Override
+        public void onTemporarilyOnline(Computer c) {
+            changed();
+        }
+
+        @Override
+        public void onTemporarilyOffline(Computer c, OfflineCause cause) {
+            changed();
+        }
+
+        @Override
+        public void onConfigurationChange() {
+            changed();
+        }
+
+        private void changed() {
+            Jenkins j = Jenkins.getInstanceOrNull();
+            if (j != null) {
+                j.getQueue().onExecutorsChanged();
+            }
+        }
+    }
+
     @CLIResolver
     public static Queue getInstance() {
         return Jenkins.getInstance().getQueue();
@@ -37,8 +37,9 @@ import hudson.ExtensionPoint;
 import hudson.FeedAdapter;
 import hudson.Functions;
 import hudson.console.AnnotatedLargeText;
+import hudson.console.ConsoleLineIndex;
 import hudson.console.ConsoleLogFilter;
-import hudson.console.ConsoleNote;
+import hudson.console.ConsoleLogTail;
 import hudson.console.ModelHyperlinkNote;
 import hudson.console.PlainTextConsoleOutputStream;
 import java.nio.file.Files;
@@ -72,7 +73,6 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.PrintWriter;
-import java.io.RandomAccessFile;
 import java.io.Reader;
 import java.io.Serializable;
 import java.nio.charset.Charset;
@@ -113,14 +113,16 @@ import jenkins.model.StandardArtifactManager;
 import jenkins.model.lazy.BuildReference;
 import jenkins.model.lazy.LazyBuildMixIn;
 import jenkins.security.MasterToSlaveCallable;
+import jenkins.util.Timer;
 import jenkins.util.VirtualFile;
+import jenkins.util.io.IndexedGzipFile;
 import jenkins.util.io.OnMaster;
 import net.sf.json.JSONObject;
 import org.acegisecurity.AccessDeniedException;
 import org.acegisecurity.Authentication;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.jelly.XMLOutput;
-import org.apache.commons.lang.ArrayUtils;
 import org.kohsuke.accmod.Restricted;
 import org.kohsuke.accmod.restrictions.NoExternalUse;
 import org.kohsuke.stapler.HttpResponse;
@@ -1891,16 +1893,61 @@ public abstract class Run <JobT extends Job<JobT,RunT>,RunT extends Run<JobT,Run
                 } catch (IOException x) {
                     LOGGER.log(Level.WARNING, "failed to close log for " + Run.this, x);
                 }
+                if (COMPRESS_LOGS) {
+                    compressLogLater();
+                }
             }
         }
     }
 
+    /**
+     * Replaces the plain log of this completed build by an {@link IndexedGzipFile}, off the build thread.
+     */
+    private void compressLogLater() {
+        final File log = new File(getRootDir(), "log");
+        final File gz = new File(getRootDir(), "log.gz");
+        Timer.get().submit(new Runnable() {
+            @Override
+            public void run() {
+                if (!log.isFile()) {
+                    return;
+                }
+                try {
+                    try (InputStream in = Files.newInputStream(log.toPath())) {
+                        IndexedGzipFile.compress(in, gz, IndexedGzipFile.DEFAULT_BLOCK_SIZE);
+                    }
+                    Files.delete(log.toPath());
+                    // the compressed log has its own line index
+                    Files.deleteIfExists(ConsoleLineIndex.indexOf(log).toPath());
+                } catch (IOException | InvalidPathException x) {
+                    LOGGER.log(Level.WARNING, "failed to compress log of " + Run.this, x);
+                    // keep the plain log only, which getLogFile() prefers anyway
+                    FileUtils.deleteQuietly(gz);
+                    FileUtils.deleteQuietly(IndexedGzipFile.indexOf(gz));
+                }
+            }
+        });
+    }
+
     private OutputStream createLogger() throws IOException {
         // don't do buffering so that what's written to the listener
         // gets reflected to the file immediately, which can then be
         // served to the browser immediately
         try {
-            return Files.newOutputStream(getLogFile().toPath(), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            File log = getLogFile();
+            // the index is only meaningful for a log it has seen from the start
+            boolean fresh = !log.exists() || log.length() == 0;
+            OutputStream out = Files.newOutputStream(log.toPath(), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            File index = ConsoleLineIndex.indexOf(log);
+            if (fresh && INDEX_LOGS) {
+                try {
+                    return ConsoleLineIndex.indexing(out, index);
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "failed to create the line index of " + log, e);
+                }
+            }
+            Files.deleteIfExists(index.toPath());
+            return out;
         } catch (InvalidPathException e) {
             throw new IOException(e);
         }
@@ -2058,50 +2105,42 @@ public abstract class Run <JobT extends Job<JobT,RunT>,RunT extends Run<JobT,Run
             return Collections.emptyList();
         }
 
-        int lines = 0;
-        long filePointer;
-        final List<String> lastLines = new ArrayList<>(Math.min(maxLines, 128));
-        final List<Byte> bytes = new ArrayList<>();
-
-        try (RandomAccessFile fileHandler = new RandomAccessFile(getLogFile(), "r")) {
-            long fileLength = fileHandler.length() - 1;
-
-            for (filePointer = fileLength; filePointer != -1 && maxLines != lines; filePointer--) {
-                fileHandler.seek(filePointer);
-                byte readByte = fileHandler.readByte();
-
-                if (readByte == 0x0A) {
-                    if (filePointer < fileLength) {
-                        lines = lines + 1;
-                        lastLines.add(convertBytesToString(bytes));
-                        bytes.clear();
-                    }
-                } else if (readByte != 0xD) {
-                    bytes.add(readByte);
-                }
-            }
-        }
-
-        if (lines != maxLines) {
-            lastLines.add(convertBytesToString(bytes));
-        }
-
-        Collections.reverse(lastLines);
+        ConsoleLogTail tail = ConsoleLogTail.read(getLogFile(), getCharset(), maxLines);
+        List<String> lastLines = tail.getLines();
 
         // If the log has been truncated, include that information.
         // Use set (replaces the first element) rather than add so that
         // the list doesn't grow beyond the specified maximum number of lines.
-        if (lines == maxLines) {
-            lastLines.set(0, "[...truncated " + Functions.humanReadableByteSize(filePointer)+ "...]");
+        if (tail.isTruncated()) {
+            lastLines.set(0, "[...truncated " + Functions.humanReadableByteSize(tail.getTruncated())+ "...]");
         }
 
-        return ConsoleNote.removeNotes(lastLines);
+        return lastLines;
+    }
+
+    /**
+     * Gets a range of lines of the log, with {@link hudson.console.ConsoleNote}s removed.
+     * Thanks to the line index kept along with the log, the cost depends on the number of lines requested,
+     * not on where they are in the log; so this can also be used to show the lines around one found earlier.
+     *
+     * @param start the first line to return, counting from 0
+     * @param count the maximum number of lines to return
+     * @return the lines, fewer than {@code count} if the log ends before
+     * @throws IOException If there is a problem reading the log file.
+     * @see #getLog(int)
+     * @since TODO
+     */
+    public @Nonnull List<String> getLogLines(long start, int count) throws IOException {
+        return ConsoleLineIndex.readLines(getLogFile(), getCharset(), start, count);
     }
 
-    private String convertBytesToString(List<Byte> bytes) {
-        Collections.reverse(bytes);
-        Byte[] byteArray = bytes.toArray(new Byte[0]);
-        return new String(ArrayUtils.toPrimitive(byteArray), getCharset());
+    /**
+     * Counts the lines of the log, as {@link #getLogLines} sees them.
+     *
+     * @since TODO
+     */
+    public long getLogLineCount() throws IOException {
+        return ConsoleLineIndex.countLines(getLogFile());
     }
 
     public void doBuildStatus( StaplerRequest req, StaplerResponse rsp ) throws IOException {
@@ -2480,6 +2519,19 @@ public abstract class Run <JobT extends Job<JobT,RunT>,RunT extends Run<JobT,Run
 
     private static final Logger LOGGER = Logger.getLogger(Run.class.getName());
 
+    /**
+     * Opt-in: once a build completes, store its log as an {@link IndexedGzipFile},
+     * which takes less disk space yet can still be served from any offset.
+     */
+    @Restricted(NoExternalUse.class)
+    public static boolean COMPRESS_LOGS = SystemProperties.getBoolean(Run.class.getName() + ".compressLogs");
+
+    /**
+     * Whether to keep a {@link ConsoleLineIndex} next to the log of new builds, for {@link #getLogLines}.
+     */
+    @Restricted(NoExternalUse.class)
+    public static boolean INDEX_LOGS = SystemProperties.getBoolean(Run.class.getName() + ".indexLogs", true);
+
     /**
      * Sort by date. Newer ones first. 
      */
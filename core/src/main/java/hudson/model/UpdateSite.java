@@ -44,12 +44,16 @@ import java.net.URI;
 import java.net.URL;
 import java.net.URLEncoder;
 import java.security.GeneralSecurityException;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.UUID;
@@ -224,7 +228,8 @@ public class UpdateSite {
         LOGGER.info("Obtained the latest update center data file for UpdateSource " + id);
         retryWindow = 0;
         getDataFile().write(json);
-        data = new Data(o);
+        Data d = INDEXED_DATA ? loadIndexedData() : null;
+        data = d != null ? d : new Data(o);
         return FormValidation.ok();
     }
 
@@ -318,6 +323,9 @@ public class UpdateSite {
      * @return  null if no data is available.
      */
     public Data getData() {
+        if (data == null && INDEXED_DATA) {
+            data = loadIndexedData();
+        }
         if (data == null) {
             JSONObject o = getJSONObject();
             if (o != null) {
@@ -327,6 +335,28 @@ public class UpdateSite {
         return data;
     }
 
+    /**
+     * Loads the update center data, parsing plugins only when asked for.
+     *
+     * @return null if no data is available, or it could not be indexed
+     */
+    private @CheckForNull Data loadIndexedData() {
+        TextFile df = getDataFile();
+        if (!df.exists()) {
+            return null;
+        }
+        UpdateSiteIndex index = UpdateSiteIndex.of(df.file);
+        if (index == null) {
+            return null;
+        }
+        try {
+            return new Data(index);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Failed to load " + df + " through its index, so parsing it in full", e);
+            return null;
+        }
+    }
+
     /**
      * Gets the raw update center JSON data.
      */
@@ -354,8 +384,12 @@ public class UpdateSite {
         List<Plugin> r = new ArrayList<>();
         Data data = getData();
         if(data==null)     return Collections.emptyList();
-        for (Plugin p : data.plugins.values()) {
-            if(p.getInstalled()==null)
+        PluginManager pm = Jenkins.getInstance().getPluginManager();
+        for (String name : data.plugins.keySet()) {
+            if (pm.getPlugin(name) != null)
+                continue;   // installed, so no need to parse it
+            Plugin p = data.plugins.get(name);
+            if(p!=null && p.getInstalled()==null)
                 r.add(p);
         }
         return r;
@@ -511,7 +545,7 @@ public class UpdateSite {
         /**
          * Plugins in the repository, keyed by their artifact IDs.
          */
-        public final Map<String,Plugin> plugins = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        public final Map<String,Plugin> plugins;
         /**
          * List of warnings (mostly security) published with the update site.
          *
@@ -526,6 +560,17 @@ public class UpdateSite {
         public final String connectionCheckUrl;
 
         Data(JSONObject o) {
+            this(o, null);
+        }
+
+        /**
+         * Reads plugins from the data file as they are asked for.
+         */
+        Data(UpdateSiteIndex index) throws IOException {
+            this(index.getMembers(), index);
+        }
+
+        private Data(JSONObject o, @CheckForNull UpdateSiteIndex index) {
             this.sourceId = Util.intern((String)o.get("id"));
             JSONObject c = o.optJSONObject("core");
             if (c!=null) {
@@ -545,23 +590,194 @@ public class UpdateSite {
                 }
             }
 
-            for(Map.Entry<String,JSONObject> e : (Set<Map.Entry<String,JSONObject>>)o.getJSONObject("plugins").entrySet()) {
-                Plugin p = new Plugin(sourceId, e.getValue());
-                // JENKINS-33308 - include implied dependencies for older plugins that may need them
-                List<PluginWrapper.Dependency> implicitDeps = DetachedPluginsUtil.getImpliedDependencies(p.name, p.requiredCore);
-                if(!implicitDeps.isEmpty()) {
-                    for(PluginWrapper.Dependency dep : implicitDeps) {
-                        if(!p.dependencies.containsKey(dep.shortName)) {
-                            p.dependencies.put(dep.shortName, dep.version);
-                        }
-                    }
+            if (index != null) {
+                plugins = new IndexedPlugins(index);
+            } else {
+                plugins = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+                for(Map.Entry<String,JSONObject> e : (Set<Map.Entry<String,JSONObject>>)o.getJSONObject("plugins").entrySet()) {
+                    plugins.put(Util.intern(e.getKey()), parsePlugin(e.getValue()));
                 }
-                plugins.put(Util.intern(e.getKey()), p);
             }
 
             connectionCheckUrl = (String)o.get("connectionCheckUrl");
         }
 
+        private Plugin parsePlugin(JSONObject o) {
+            Plugin p = new Plugin(sourceId, o);
+            // JENKINS-33308 - include implied dependencies for older plugins that may need them
+            List<PluginWrapper.Dependency> implicitDeps = DetachedPluginsUtil.getImpliedDependencies(p.name, p.requiredCore);
+            if(!implicitDeps.isEmpty()) {
+                for(PluginWrapper.Dependency dep : implicitDeps) {
+                    if(!p.dependencies.containsKey(dep.shortName)) {
+                        p.dependencies.put(dep.shortName, dep.version);
+                    }
+                }
+            }
+            return p;
+        }
+
+        /**
+         * {@link #plugins} parsed from the data file when first asked for.
+         * Plugins which cannot be parsed are logged and dropped.
+         */
+        private final class IndexedPlugins extends AbstractMap<String,Plugin> {
+            private final UpdateSiteIndex index;
+            /** Plugins by artifact ID, null until parsed. */
+            private final Map<String,Plugin> entries = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+            IndexedPlugins(UpdateSiteIndex index) {
+                this.index = index;
+                for (String name : index.getPluginNames()) {
+                    entries.put(Util.intern(name), null);
+                }
+            }
+
+            @Override
+            public synchronized int size() {
+                return entries.size();
+            }
+
+            @Override
+            public synchronized boolean containsKey(Object key) {
+                return entries.containsKey(key);
+            }
+
+            @Override
+            public synchronized Plugin get(Object key) {
+                Plugin p = entries.get(key);
+                if (p != null || !entries.containsKey(key)) {
+                    return p;
+                }
+                try {
+                    p = parsePlugin(index.getPlugin((String) key));
+                } catch (IOException | RuntimeException e) {
+                    if (!index.isCurrent()) {
+                        // replaced meanwhile, so look in the new data
+                        Data d = getData();
+                        return d != null && d != Data.this ? d.plugins.get(key) : null;
+                    }
+                    LOGGER.log(Level.WARNING, "Failed to parse " + key + " from update site " + sourceId, e);
+                    entries.remove(key);
+                    return null;
+                }
+                entries.put((String) key, p);
+                return p;
+            }
+
+            @Override
+            public synchronized Plugin put(String key, Plugin value) {
+                Plugin old = get(key);
+                entries.put(key, value);
+                return old;
+            }
+
+            @Override
+            public synchronized Plugin remove(Object key) {
+                Plugin old = get(key);
+                entries.remove(key);
+                return old;
+            }
+
+            /**
+             * Iterates over the artifact IDs present when called, without parsing the plugins.
+             */
+            private Iterator<String> names() {
+                List<String> names;
+                synchronized (this) {
+                    names = new ArrayList<>(entries.keySet());
+                }
+                Iterator<String> it = names.iterator();
+                return new Iterator<String>() {
+                    private String last;
+
+                    @Override
+                    public boolean hasNext() {
+                        return it.hasNext();
+                    }
+
+                    @Override
+                    public String next() {
+                        return last = it.next();
+                    }
+
+                    @Override
+                    public void remove() {
+                        if (last == null) {
+                            throw new IllegalStateException();
+                        }
+                        IndexedPlugins.this.remove(last);
+                        last = null;
+                    }
+                };
+            }
+
+            @Override
+            public Set<String> keySet() {
+                return new AbstractSet<String>() {
+                    @Override
+                    public Iterator<String> iterator() {
+                        return names();
+                    }
+
+                    @Override
+                    public int size() {
+                        return IndexedPlugins.this.size();
+                    }
+
+                    @Override
+                    public boolean contains(Object o) {
+                        return containsKey(o);
+                    }
+                };
+            }
+
+            @Override
+            public Set<Map.Entry<String,Plugin>> entrySet() {
+                return new AbstractSet<Map.Entry<String,Plugin>>() {
+                    @Override
+                    public Iterator<Map.Entry<String,Plugin>> iterator() {
+                        Iterator<String> names = names();
+                        return new Iterator<Map.Entry<String,Plugin>>() {
+                            private Map.Entry<String,Plugin> next;
+
+                            @Override
+                            public boolean hasNext() {
+                                // skip plugins which failed to parse or were removed meanwhile
+                                while (next == null && names.hasNext()) {
+                                    String name = names.next();
+                                    Plugin p = get(name);
+                                    if (p != null) {
+                                        next = new AbstractMap.SimpleImmutableEntry<>(name, p);
+                                    }
+                                }
+                                return next != null;
+                            }
+
+                            @Override
+                            public Map.Entry<String,Plugin> next() {
+                                if (!hasNext()) {
+                                    throw new NoSuchElementException();
+                                }
+                                Map.Entry<String,Plugin> r = next;
+                                next = null;
+                                return r;
+                            }
+
+                            @Override
+                            public void remove() {
+                                names.remove();
+                            }
+                        };
+                    }
+
+                    @Override
+                    public int size() {
+                        return IndexedPlugins.this.size();
+                    }
+                };
+            }
+        }
+
         /**
          * Returns the set of warnings
          * @return the set of warnings
@@ -1386,4 +1602,10 @@ public class UpdateSite {
     // The name uses UpdateCenter for compatibility reason.
     public static boolean neverUpdate = SystemProperties.getBoolean(UpdateCenter.class.getName()+".never");
 
+    /**
+     * Whether to index the data file and parse plugins from it only when asked for, rather than all at once.
+     */
+    @Restricted(NoExternalUse.class)
+    public static /* non-final for Groovy */ boolean INDEXED_DATA = SystemProperties.getBoolean(UpdateSite.class.getName()+".indexedData");
+
 }
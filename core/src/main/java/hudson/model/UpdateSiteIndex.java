@@ -0,0 +1,438 @@
+package hudson.model;
+
+import net.sf.json.JSONObject;
+import net.sf.json.util.JSONUtils;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Locates the plugins in an update center data file, so that {@link UpdateSite.Data} can parse each plugin
+ * when it is first asked for, instead of parsing the whole file up front.
+ *
+ * <p>
+ * The file is scanned as a stream of bytes, recording where the value of each top-level member and of each plugin starts and ends.
+ * The result is kept next to the data file, as {@code updates/<id>.json.idx}, and is scanned again when the data file changes.
+ * Files which are not strict JSON objects cannot be indexed, and are parsed in full as before.
+ */
+final class UpdateSiteIndex {
+    private static final int MAGIC = 0x55434958; // UCIX
+    private static final int VERSION = 1;
+
+    private final File json;
+    private final long length;
+    private final long lastModified;
+    /** Top-level members other than {@code plugins}, in file order. */
+    private final Map<String, Region> members = new LinkedHashMap<>();
+    /** Plugins by artifact ID. */
+    private final Map<String, Region> plugins = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+    private UpdateSiteIndex(File json, long length, long lastModified) {
+        this.json = json;
+        this.length = length;
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * Where a value is in the data file.
+     */
+    private static final class Region {
+        final long start;
+        final int length;
+
+        Region(long start, long end) throws IOException {
+            if (end - start > Integer.MAX_VALUE) {
+                throw new IOException("Value too long at " + start);
+            }
+            this.start = start;
+            this.length = (int) (end - start);
+        }
+    }
+
+    /**
+     * Gets the index of a data file, reading it from next to the file if still valid, or else scanning the file and saving the result.
+     *
+     * @return null if the file could not be indexed
+     */
+    static @CheckForNull UpdateSiteIndex of(@Nonnull File json) {
+        File file = new File(json.getPath() + ".idx");
+        UpdateSiteIndex index = load(json, file);
+        if (index != null) {
+            return index;
+        }
+        try {
+            index = scan(json);
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Could not index " + json + ", so parsing it in full", e);
+            return null;
+        }
+        try {
+            index.save(file);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to save " + file, e);
+        }
+        return index;
+    }
+
+    /**
+     * Whether the data file is still the one which was indexed.
+     */
+    boolean isCurrent() {
+        return json.length() == length && json.lastModified() == lastModified;
+    }
+
+    /**
+     * Gets the artifact IDs of the plugins, in case-insensitive order.
+     */
+    @Nonnull Set<String> getPluginNames() {
+        return Collections.unmodifiableSet(plugins.keySet());
+    }
+
+    /**
+     * Parses the top-level members of the data file other than {@code plugins}.
+     */
+    @Nonnull JSONObject getMembers() throws IOException {
+        StringBuilder b = new StringBuilder("{");
+        try (RandomAccessFile f = new RandomAccessFile(json, "r")) {
+            for (Map.Entry<String, Region> e : members.entrySet()) {
+                if (b.length() > 1) {
+                    b.append(',');
+                }
+                b.append(JSONUtils.quote(e.getKey())).append(':').append(read(f, e.getValue()));
+            }
+        }
+        return JSONObject.fromObject(b.append('}').toString());
+    }
+
+    /**
+     * Parses a plugin of the data file.
+     *
+     * @return null if there is no such plugin
+     */
+    @CheckForNull JSONObject getPlugin(@Nonnull String name) throws IOException {
+        Region r = plugins.get(name);
+        if (r == null) {
+            return null;
+        }
+        try (RandomAccessFile f = new RandomAccessFile(json, "r")) {
+            return JSONObject.fromObject(read(f, r));
+        }
+    }
+
+    private String read(RandomAccessFile f, Region r) throws IOException {
+        if (!isCurrent()) {
+            throw new IOException(json + " changed since it was indexed");
+        }
+        byte[] bytes = new byte[r.length];
+        f.seek(r.start);
+        f.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static @CheckForNull UpdateSiteIndex load(File json, File file) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Unknown format");
+            }
+            UpdateSiteIndex index = new UpdateSiteIndex(json, in.readLong(), in.readLong());
+            if (!index.isCurrent()) {
+                return null;
+            }
+            for (int i = in.readInt(); i > 0; i--) {
+                index.members.put(in.readUTF(), new Region(in.readLong(), in.readLong()));
+            }
+            for (int i = in.readInt(); i > 0; i--) {
+                index.plugins.put(in.readUTF(), new Region(in.readLong(), in.readLong()));
+            }
+            return index;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Failed to load " + file + ", so indexing " + json + " again", e);
+            return null;
+        }
+    }
+
+    void save(@Nonnull File file) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp.toPath())))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(length);
+            out.writeLong(lastModified);
+            write(out, members);
+            write(out, plugins);
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void write(DataOutputStream out, Map<String, Region> regions) throws IOException {
+        out.writeInt(regions.size());
+        for (Map.Entry<String, Region> e : regions.entrySet()) {
+            out.writeUTF(e.getKey());
+            out.writeLong(e.getValue().start);
+            out.writeLong(e.getValue().start + e.getValue().length);
+        }
+    }
+
+    /**
+     * Indexes a data file.
+     *
+     * @throws IOException if the file could not be read, or is not a JSON object
+     */
+    static @Nonnull UpdateSiteIndex scan(@Nonnull File json) throws IOException {
+        long length = json.length();
+        long lastModified = json.lastModified();
+        UpdateSiteIndex index = new UpdateSiteIndex(json, length, lastModified);
+        try (Scanner s = new Scanner(new BufferedInputStream(Files.newInputStream(json.toPath())))) {
+            s.skipByteOrderMark();
+            s.expect('{');
+            boolean plugins = false;
+            if (s.nextNonSpace() != '}') {
+                s.unread();
+                do {
+                    // duplicates would be merged by a full parse, so leave them to it
+                    String name = s.name();
+                    if (!name.equals("plugins")) {
+                        if (index.members.put(name, s.value()) != null) {
+                            throw s.error("Duplicate " + name);
+                        }
+                        continue;
+                    }
+                    if (plugins) {
+                        throw s.error("Duplicate plugins");
+                    }
+                    plugins = true;
+                    s.expect('{');
+                    if (s.nextNonSpace() != '}') {
+                        s.unread();
+                        do {
+                            String artifactId = s.name();
+                            if (index.plugins.put(artifactId, s.value()) != null) {
+                                throw s.error("Duplicate " + artifactId);
+                            }
+                        } while (s.nextNonSpace() == ',');
+                        s.unread();
+                        s.expect('}');
+                    }
+                } while (s.nextNonSpace() == ',');
+                s.unread();
+                s.expect('}');
+            }
+            if (s.nextNonSpace() != -1) {
+                throw s.error("Trailing content");
+            }
+            if (!plugins) {
+                throw s.error("No plugins");
+            }
+        }
+        if (json.length() != length || json.lastModified() != lastModified) {
+            throw new IOException(json + " changed while being indexed");
+        }
+        return index;
+    }
+
+    /**
+     * Reads JSON structure from a stream of UTF-8 bytes, keeping track of the position.
+     * All structural characters are ASCII, and never occur within the encoding of other characters.
+     */
+    private static final class Scanner implements AutoCloseable {
+        private final InputStream in;
+        /** Position of the next byte to {@link #read}. */
+        private long pos;
+        private int last = -1;
+        private boolean unread;
+
+        Scanner(InputStream in) {
+            this.in = in;
+        }
+
+        int read() throws IOException {
+            if (unread) {
+                unread = false;
+            } else {
+                last = in.read();
+            }
+            if (last != -1) {
+                pos++;
+            }
+            return last;
+        }
+
+        /**
+         * Makes {@link #read} return the last byte again.
+         */
+        void unread() {
+            if (last != -1) {
+                pos--;
+            }
+            unread = true;
+        }
+
+        int nextNonSpace() throws IOException {
+            int b;
+            do {
+                b = read();
+            } while (b == ' ' || b == '\t' || b == '\n' || b == '\r');
+            return b;
+        }
+
+        void skipByteOrderMark() throws IOException {
+            if (read() == 0xEF) {
+                if (read() != 0xBB || read() != 0xBF) {
+                    throw error("Not UTF-8");
+                }
+            } else {
+                unread();
+            }
+        }
+
+        void expect(char c) throws IOException {
+            if (nextNonSpace() != c) {
+                throw error("Expected " + c);
+            }
+        }
+
+        IOException error(String message) {
+            return new IOException(message + " at " + pos);
+        }
+
+        /**
+         * Reads a member name and the colon after it.
+         */
+        String name() throws IOException {
+            expect('"');
+            ByteArrayOutputStream raw = new ByteArrayOutputStream();
+            for (int b = read(); b != '"'; b = read()) {
+                if (b == -1) {
+                    throw new EOFException();
+                }
+                raw.write(b);
+                if (b == '\\') {
+                    raw.write(read());
+                }
+            }
+            expect(':');
+            return unescape(new String(raw.toByteArray(), StandardCharsets.UTF_8));
+        }
+
+        /**
+         * Skips a value, after any white space.
+         */
+        Region value() throws IOException {
+            int b = nextNonSpace();
+            long start = pos - 1;
+            switch (b) {
+            case '{':
+            case '[':
+                int depth = 1;
+                while (depth > 0) {
+                    b = read();
+                    if (b == '{' || b == '[') {
+                        depth++;
+                    } else if (b == '}' || b == ']') {
+                        depth--;
+                    } else if (b == '"') {
+                        skipString();
+                    } else if (b == -1) {
+                        throw new EOFException();
+                    }
+                }
+                break;
+            case '"':
+                skipString();
+                break;
+            case -1:
+                throw new EOFException();
+            default:
+                if (b == ',' || b == '}' || b == ']' || b == ':') {
+                    throw error("Expected a value");
+                }
+                // a number or a literal
+                do {
+                    b = read();
+                } while (b != -1 && b != ',' && b != '}' && b != ']' && b != ' ' && b != '\t' && b != '\n' && b != '\r');
+                unread();
+            }
+            return new Region(start, pos);
+        }
+
+        private void skipString() throws IOException {
+            for (int b = read(); b != '"'; b = read()) {
+                if (b == -1) {
+                    throw new EOFException();
+                }
+                if (b == '\\') {
+                    read();
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    private static String unescape(String s) throws IOException {
+        if (s.indexOf('\\') < 0) {
+            return s;
+        }
+        StringBuilder b = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c != '\\') {
+                b.append(c);
+                continue;
+            }
+            if (++i == s.length()) {
+                throw new IOException("Bad escape in " + s);
+            }
+            c = s.charAt(i);
+            switch (c) {
+            case 'b': b.append('\b'); break;
+            case 'f': b.append('\f'); break;
+            case 'n': b.append('\n'); break;
+            case 'r': b.append('\r'); break;
+            case 't': b.append('\t'); break;
+            case 'u':
+                if (i + 4 >= s.length()) {
+                    throw new IOException("Bad escape in " + s);
+                }
+                try {
+                    b.append((char) Integer.parseInt(s.substring(i + 1, i + 5), 16));
+                } catch (NumberFormatException e) {
+                    throw new IOException("Bad escape in " + s, e);
+                }
+                i += 4;
+                break;
+            default:
+                b.append(c);
+            }
+        }
+        return b.toString();
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(UpdateSiteIndex.class.getName());
+}
@@ -728,6 +728,19 @@ public abstract class View extends AbstractModelObject implements AccessControll
             Map<User,UserInfo> users = new HashMap<>();
             for (Item item : items) {
                 for (Job<?, ?> job : item.getAllJobs()) {
+                    if (PeopleIndex.ENABLED) {
+                        for (Map.Entry<String, Long> e : PeopleIndex.get().getLastChanges(job).entrySet()) {
+                            User user = User.getById(e.getKey(), true);
+                            UserInfo info = users.get(user);
+                            if (info == null)
+                                users.put(user, new UserInfo(user, job, toCalendar(e.getValue())));
+                            else if (info.getLastChange().getTimeInMillis() < e.getValue()) {
+                                info.project = job;
+                                info.lastChange = toCalendar(e.getValue());
+                            }
+                        }
+                        continue;
+                    }
                     RunList<? extends Run<?, ?>> runs = job.getBuilds();
                     for (Run<?, ?> r : runs) {
                         if (r instanceof RunWithSCM) {
@@ -753,6 +766,12 @@ public abstract class View extends AbstractModelObject implements AccessControll
             return users;
         }
 
+        private static Calendar toCalendar(long timestamp) {
+            Calendar c = new GregorianCalendar();
+            c.setTimeInMillis(timestamp);
+            return c;
+        }
+
         private List<UserInfo> toList(Map<User,UserInfo> users) {
             ArrayList<UserInfo> list = new ArrayList<>();
             list.addAll(users.values());
@@ -827,6 +846,30 @@ public abstract class View extends AbstractModelObject implements AccessControll
             int itemCount = 0;
             for (Item item : items) {
                 for (Job<?,?> job : item.getAllJobs()) {
+                    if (PeopleIndex.ENABLED) {
+                        for (Map.Entry<String, Long> e : PeopleIndex.get().getLastChanges(job).entrySet()) {
+                            if (canceled()) {
+                                return;
+                            }
+                            User user = User.getById(e.getKey(), true);
+                            UserInfo info = users.get(user);
+                            if (info == null) {
+                                UserInfo userInfo = new UserInfo(user, job, People.toCalendar(e.getValue()));
+                                userInfo.avatar = UserAvatarResolver.resolveOrNull(user, iconSize);
+                                synchronized (this) {
+                                    users.put(user, userInfo);
+                                    modified.add(user);
+                                }
+                            } else if (info.getLastChange().getTimeInMillis() < e.getValue()) {
+                                synchronized (this) {
+                                    info.project = job;
+                                    info.lastChange = People.toCalendar(e.getValue());
+                                    modified.add(user);
+                                }
+                            }
+                        }
+                        continue;
+                    }
                     RunList<? extends Run<?, ?>> builds = job.getBuilds();
                     int buildCount = 0;
                     for (Run<?, ?> r : builds) {
@@ -0,0 +1,206 @@
+package hudson.model.queue;
+
+import hudson.model.Node;
+import hudson.model.Queue;
+import hudson.model.Queue.BuildableItem;
+import hudson.security.ACL;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.ExceptionCatchingThreadFactory;
+import hudson.util.NamingThreadFactory;
+import jenkins.security.ImpersonatingExecutorService;
+import jenkins.util.ContextResettingExecutorService;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+import javax.annotation.CheckForNull;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Answers of all {@link QueueTaskDispatcher}s, remembered for one epoch of the {@link Queue}.
+ *
+ * <p>
+ * An epoch ends whenever the queue hands work to an executor, an executor goes away, or a node changes,
+ * since that is what dispatchers such as throttling or resource locking base their answers on.
+ * Within an epoch an answer for the same item, and node if any, is reused.
+ * Items are keyed by identity, so an item moving to another stage of the queue is asked again.
+ *
+ * <p>
+ * {@link #precompute} lets the queue ask the dispatchers in parallel, before it takes its lock.
+ */
+@Restricted(NoExternalUse.class)
+public final class DispatcherVerdicts {
+    /**
+     * Stands for a null answer in the maps.
+     */
+    private static final Object OK = new Object();
+
+    private final long epoch;
+    private final long created = System.currentTimeMillis();
+    private final ConcurrentMap<Queue.Item, Object> canRun = new ConcurrentHashMap<>();
+    private final ConcurrentMap<BuildableItem, ConcurrentMap<Node, Object>> canTake = new ConcurrentHashMap<>();
+
+    public DispatcherVerdicts(long epoch) {
+        this.epoch = epoch;
+    }
+
+    public long getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * Whether these answers may still be used at the given epoch.
+     */
+    public boolean isValid(long currentEpoch, long maxAgeMillis) {
+        return epoch == currentEpoch && System.currentTimeMillis() - created < maxAgeMillis;
+    }
+
+    /**
+     * Combined answer of {@link QueueTaskDispatcher#canRun}, asking the dispatchers if needed.
+     */
+    public @CheckForNull CauseOfBlockage canRun(Queue.Item item) {
+        Object v = canRun.get(item);
+        if (v == null) {
+            v = wrap(askCanRun(item));
+            canRun.put(item, v);
+        }
+        return unwrap(v);
+    }
+
+    /**
+     * Combined answer of {@link QueueTaskDispatcher#canTake(Node, BuildableItem)}, asking the dispatchers if needed.
+     */
+    public @CheckForNull CauseOfBlockage canTake(Node node, BuildableItem item) {
+        ConcurrentMap<Node, Object> byNode = canTake.get(item);
+        if (byNode == null) {
+            byNode = new ConcurrentHashMap<>();
+            ConcurrentMap<Node, Object> existing = canTake.putIfAbsent(item, byNode);
+            if (existing != null) {
+                byNode = existing;
+            }
+        }
+        Object v = byNode.get(node);
+        if (v == null) {
+            v = wrap(askCanTake(node, item));
+            byNode.put(node, v);
+        }
+        return unwrap(v);
+    }
+
+    /**
+     * Forgets the answers about items that are no longer in the queue.
+     */
+    public void retainAll(Collection<? extends Queue.Item> items) {
+        // a list would be scanned once per remembered item
+        Set<Queue.Item> keep = Collections.newSetFromMap(new IdentityHashMap<>(items.size() * 2));
+        keep.addAll(items);
+        canRun.keySet().retainAll(keep);
+        canTake.keySet().retainAll(keep);
+    }
+
+    /**
+     * Fills in the missing answers for the given items, and for the given buildable items on the given nodes,
+     * spreading the work over the executor service. Waits for all answers.
+     */
+    public void precompute(Collection<? extends Queue.Item> items, Collection<BuildableItem> buildables,
+                           final Collection<? extends Node> nodes, ExecutorService executor) throws InterruptedException {
+        List<Callable<Void>> tasks = new ArrayList<>(items.size() + buildables.size());
+        for (final Queue.Item item : items) {
+            if (!canRun.containsKey(item)) {
+                tasks.add(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        canRun(item);
+                        return null;
+                    }
+                });
+            }
+        }
+        for (final BuildableItem item : buildables) {
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    for (Node node : nodes) {
+                        if (node.canTake(item) == null) { // otherwise the dispatchers are never asked
+                            canTake(node, item);
+                        }
+                    }
+                    return null;
+                }
+            });
+        }
+        for (Future<Void> f : executor.invokeAll(tasks)) {
+            try {
+                f.get();
+            } catch (ExecutionException e) {
+                // the queue will ask again itself, and report the problem there
+                LOGGER.log(Level.FINE, "Failed to precompute a dispatcher verdict", e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Bounded pool for {@link #precompute}, so that a long queue does not spawn a thread per item.
+     */
+    public static ExecutorService pool() {
+        return PoolHolder.POOL;
+    }
+
+    private static final class PoolHolder {
+        static final ExecutorService POOL = new ContextResettingExecutorService(
+            new ImpersonatingExecutorService(
+                Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+                    new ExceptionCatchingThreadFactory(
+                        new NamingThreadFactory(
+                            new DaemonThreadFactory(), "Queue.dispatcherVerdicts"))), ACL.SYSTEM));
+    }
+
+    /**
+     * Asks every {@link QueueTaskDispatcher#canRun}, stopping at the first veto.
+     */
+    public static @CheckForNull CauseOfBlockage askCanRun(Queue.Item item) {
+        for (QueueTaskDispatcher d : QueueTaskDispatcher.all()) {
+            CauseOfBlockage cause = d.canRun(item);
+            if (cause != null) {
+                return cause;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Asks every {@link QueueTaskDispatcher#canTake(Node, BuildableItem)}, stopping at the first veto.
+     */
+    public static @CheckForNull CauseOfBlockage askCanTake(Node node, BuildableItem item) {
+        for (QueueTaskDispatcher d : QueueTaskDispatcher.all()) {
+            CauseOfBlockage cause = d.canTake(node, item);
+            if (cause != null) {
+                return cause;
+            }
+        }
+        return null;
+    }
+
+    private static Object wrap(@CheckForNull CauseOfBlockage cause) {
+        return cause == null ? OK : cause;
+    }
+
+    private static @CheckForNull CauseOfBlockage unwrap(Object v) {
+        return v == OK ? null : (CauseOfBlockage) v;
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(DispatcherVerdicts.class.getName());
+}
@@ -0,0 +1,231 @@
+package hudson.model.queue;
+
+import hudson.model.Api;
+import hudson.model.LoadBalancer;
+import hudson.model.Queue;
+import jenkins.model.Jenkins;
+import jenkins.util.Histogram;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Instrumentation of {@link Queue#maintain()} and of the queue lock, available at {@code /queue/metrics/api/}.
+ *
+ * <p>
+ * Durations are {@link Histogram}s in microseconds, so that one slow pass among many fast ones stays visible.
+ *
+ * @see Queue#getMetrics()
+ * @since TODO
+ */
+@ExportedBean
+public final class QueueMetrics {
+
+    /**
+     * Whole {@link Queue#maintain()} passes, which hold the queue lock throughout.
+     */
+    @Restricted(NoExternalUse.class)
+    public final Histogram maintenance = new Histogram();
+
+    /**
+     * Rescan of all executors for idle ones, and for pending items whose executor disappeared.
+     */
+    @Restricted(NoExternalUse.class)
+    public final Histogram parkedScan = new Histogram();
+
+    @Restricted(NoExternalUse.class)
+    public final Histogram blockedToBuildable = new Histogram();
+
+    @Restricted(NoExternalUse.class)
+    public final Histogram waitingToBuildable = new Histogram();
+
+    /**
+     * {@link QueueSorter#sortBuildableItems}.
+     */
+    @Restricted(NoExternalUse.class)
+    public final Histogram sort = new Histogram();
+
+    /**
+     * Assignment of buildable items to executors, including the {@link LoadBalancer} calls.
+     */
+    @Restricted(NoExternalUse.class)
+    public final Histogram allocation = new Histogram();
+
+    /**
+     * Asking the {@link QueueTaskDispatcher}s ahead of a pass, outside of the lock, when {@link Queue#PARALLEL_DISPATCH} is on.
+     */
+    @Restricted(NoExternalUse.class)
+    public final Histogram dispatcherPrecompute = new Histogram();
+
+    /**
+     * Time between the start of consecutive passes; its inverse is the maintenance rate.
+     */
+    @Restricted(NoExternalUse.class)
+    public final Histogram interval = new Histogram();
+
+    /**
+     * Time spent waiting for the queue lock, by maintenance and by callers of {@link Queue#withLock}.
+     */
+    @Restricted(NoExternalUse.class)
+    public final Histogram lockWait = new Histogram();
+
+    /**
+     * Time the queue lock is held, by maintenance and by callers of {@link Queue#withLock}.
+     */
+    @Restricted(NoExternalUse.class)
+    public final Histogram lockHold = new Histogram();
+
+    private final AtomicLong snapshotUpdates = new AtomicLong();
+
+    private volatile int waitingItems, blockedItems, buildableItems, pendingItems;
+
+    /**
+     * Calls to {@link Queue#scheduleMaintenance()}.
+     */
+    @Restricted(NoExternalUse.class)
+    public final AtomicLong maintenanceRequests = new AtomicLong();
+
+    /**
+     * Passes actually run on behalf of {@link Queue#scheduleMaintenance()}, after coalescing of concurrent requests.
+     */
+    @Restricted(NoExternalUse.class)
+    public final AtomicLong maintenanceRuns = new AtomicLong();
+
+    @Exported
+    public Histogram getMaintenance() {
+        return maintenance;
+    }
+
+    @Exported
+    public Histogram getParkedScan() {
+        return parkedScan;
+    }
+
+    @Exported
+    public Histogram getBlockedToBuildable() {
+        return blockedToBuildable;
+    }
+
+    @Exported
+    public Histogram getWaitingToBuildable() {
+        return waitingToBuildable;
+    }
+
+    @Exported
+    public Histogram getSort() {
+        return sort;
+    }
+
+    @Exported
+    public Histogram getAllocation() {
+        return allocation;
+    }
+
+    @Exported
+    public Histogram getDispatcherPrecompute() {
+        return dispatcherPrecompute;
+    }
+
+    @Exported
+    public Histogram getInterval() {
+        return interval;
+    }
+
+    @Exported
+    public Histogram getLockWait() {
+        return lockWait;
+    }
+
+    @Exported
+    public Histogram getLockHold() {
+        return lockHold;
+    }
+
+    /**
+     * Number of times the lock-free snapshot read by the UI and API was rebuilt.
+     */
+    @Exported
+    public long getSnapshotUpdates() {
+        return snapshotUpdates.get();
+    }
+
+    /**
+     * Snapshot updates per maintenance pass, on average.
+     */
+    @Exported
+    public double getSnapshotUpdatesPerPass() {
+        long passes = maintenance.getCount();
+        return passes == 0 ? 0 : (double) snapshotUpdates.get() / passes;
+    }
+
+    @Exported
+    public long getMaintenanceRequests() {
+        return maintenanceRequests.get();
+    }
+
+    @Exported
+    public long getMaintenanceRuns() {
+        return maintenanceRuns.get();
+    }
+
+    /**
+     * How many {@link Queue#scheduleMaintenance()} calls were folded into one pass, on average.
+     */
+    @Exported
+    public double getCoalescingRatio() {
+        long runs = maintenanceRuns.get();
+        return runs == 0 ? 0 : (double) maintenanceRequests.get() / runs;
+    }
+
+    @Exported
+    public int getWaitingItems() {
+        return waitingItems;
+    }
+
+    @Exported
+    public int getBlockedItems() {
+        return blockedItems;
+    }
+
+    @Exported
+    public int getBuildableItems() {
+        return buildableItems;
+    }
+
+    @Exported
+    public int getPendingItems() {
+        return pendingItems;
+    }
+
+    /**
+     * Called by {@link Queue} each time it publishes a new snapshot of its items.
+     */
+    @Restricted(NoExternalUse.class)
+    public void onSnapshotUpdated(int waiting, int blocked, int buildable, int pending) {
+        snapshotUpdates.incrementAndGet();
+        waitingItems = waiting;
+        blockedItems = blocked;
+        buildableItems = buildable;
+        pendingItems = pending;
+    }
+
+    /**
+     * Forgets everything recorded so far.
+     */
+    public void reset() {
+        for (Histogram h : new Histogram[] {maintenance, parkedScan, blockedToBuildable, waitingToBuildable, sort, allocation, dispatcherPrecompute, interval, lockWait, lockHold}) {
+            h.reset();
+        }
+        snapshotUpdates.set(0);
+        maintenanceRequests.set(0);
+        maintenanceRuns.set(0);
+    }
+
+    public Api getApi() {
+        Jenkins.get().checkPermission(Jenkins.ADMINISTER);
+        return new Api(this);
+    }
+}
@@ -85,6 +85,11 @@ public abstract class QueueTaskDispatcher implements ExtensionPoint {
      * the decision needs to be made quickly.
      *
      * <p>
+     * When the {@code hudson.model.Queue.parallelDispatch} system property is set, this method may be called
+     * from several threads at once, and its response may be reused until work is handed to an executor,
+     * nodes change, {@link Queue#scheduleMaintenance()} is called, or a few seconds have passed.
+     *
+     * <p>
      * This method is primarily designed to fine-tune where the execution should take place. If the execution
      * shouldn't commence anywhere at all, implementation should use {@link #canRun(Queue.Item)} instead so
      * that Jenkins understands the difference between "this node isn't the right place for this work"
@@ -124,6 +129,10 @@ public abstract class QueueTaskDispatcher implements ExtensionPoint {
      * its state gets re-evaluated. If a {@link QueueTaskDispatcher} wants the blockage condition
      * to be re-evaluated earlier, call {@link Queue#scheduleMaintenance()} to initiate that process.
      *
+     * <p>
+     * As with {@link #canTake(Node, Queue.BuildableItem)}, the {@code hudson.model.Queue.parallelDispatch}
+     * system property lets this method be called from several threads at once and its response be reused for a while.
+     *
      * @return
      *      null to indicate that the item is ready to proceed to the buildable state as far as this
      *      {@link QueueTaskDispatcher} is concerned. Otherwise return an object that indicates why
@@ -127,6 +127,29 @@ public final class CronTabList {
         return new CronTabList(r);
     }
 
+    /**
+     * Computes the first time at or after the given minute matched by any of the tabs, each in its own time zone.
+     *
+     * @return null if no tab is matched within the two years {@link CronTab#ceil(Calendar)} looks ahead
+     */
+    @Restricted(NoExternalUse.class)
+    public synchronized @CheckForNull Calendar ceil(long t) {
+        Calendar nearest = null;
+        for (CronTab tab : tabs) {
+            Calendar cal = tab.getTimeZone() == null ? Calendar.getInstance() : Calendar.getInstance(tab.getTimeZone());
+            cal.setTimeInMillis(t);
+            try {
+                Calendar scheduled = tab.ceil(cal);
+                if (nearest == null || nearest.after(scheduled)) {
+                    nearest = scheduled;
+                }
+            } catch (RareOrImpossibleDateException e) {
+                // this tab is never matched soon enough to matter
+            }
+        }
+        return nearest;
+    }
+
     @Restricted(NoExternalUse.class) // just for form validation
     public @CheckForNull Calendar previous() {
         Calendar nearest = null;
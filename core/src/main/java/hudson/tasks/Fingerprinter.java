@@ -47,7 +47,9 @@ import hudson.model.Result;
 import hudson.model.Run;
 import hudson.model.TaskListener;
 import hudson.remoting.VirtualChannel;
+import hudson.util.DaemonThreadFactory;
 import hudson.util.FormValidation;
+import hudson.util.NamingThreadFactory;
 import hudson.util.PackedMap;
 import hudson.util.RunList;
 import net.sf.json.JSONObject;
@@ -55,6 +57,8 @@ import org.acegisecurity.AccessDeniedException;
 import org.apache.tools.ant.DirectoryScanner;
 import org.apache.tools.ant.types.FileSet;
 import org.jenkinsci.Symbol;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
 import org.kohsuke.stapler.AncestorInPath;
 import org.kohsuke.stapler.DataBoundConstructor;
 import org.kohsuke.stapler.QueryParameter;
@@ -62,8 +66,12 @@ import org.kohsuke.stapler.StaplerRequest;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Serializable;
 import java.lang.ref.WeakReference;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -74,6 +82,10 @@ import java.util.Map.Entry;
 import java.util.Random;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import jenkins.model.RunAction2;
@@ -86,6 +98,14 @@ import jenkins.tasks.SimpleBuildStep;
  */
 public class Fingerprinter extends Recorder implements Serializable, DependencyDeclarer, SimpleBuildStep {
     public static boolean enableFingerprintsInDependencyGraph = SystemProperties.getBoolean(Fingerprinter.class.getName() + ".enableFingerprintsInDependencyGraph");
+
+    /**
+     * Maximum number of files digested at once on the agent.
+     */
+    @Restricted(NoExternalUse.class)
+    public static /* non-final for Groovy */ int DIGEST_THREADS = SystemProperties.getInteger(Fingerprinter.class.getName() + ".digestThreads", 4);
+
+    private static final int DIGEST_BUFFER_SIZE = 64 * 1024;
     
     /**
      * Comma-separated list of files/directories to be fingerprinted.
@@ -135,7 +155,11 @@ public class Fingerprinter extends Recorder implements Serializable, DependencyD
             }
 
             if (enableFingerprintsInDependencyGraph) {
-                Jenkins.getInstance().rebuildDependencyGraphAsync();
+                if (build.getParent() instanceof AbstractProject) {
+                    Jenkins.getInstance().rebuildDependencyGraphAsync((AbstractProject<?,?>) build.getParent());
+                } else {
+                    Jenkins.getInstance().rebuildDependencyGraphAsync();
+                }
             }
         } catch (IOException e) {
             Functions.printStackTrace(e, listener.error(Messages.Fingerprinter_Failed()));
@@ -204,7 +228,7 @@ public class Fingerprinter extends Recorder implements Serializable, DependencyD
 
         Fingerprint addRecord(Run build) throws IOException {
             FingerprintMap map = Jenkins.getInstance().getFingerprintMap();
-            return map.getOrCreate(produced?build:null, fileName, md5sum);
+            return map.getOrCreate(produced?build:null, fileName, md5sum, build);
         }
 
         private static final long serialVersionUID = 1L;
@@ -214,50 +238,105 @@ public class Fingerprinter extends Recorder implements Serializable, DependencyD
 
         private final String targets;
         private final long buildTimestamp;
+        private final int digestThreads;
 
         FindRecords(String targets, long buildTimestamp) {
             this.targets = targets;
             this.buildTimestamp = buildTimestamp;
+            this.digestThreads = DIGEST_THREADS;
         }
 
         @Override
         public List<Record> invoke(File baseDir, VirtualChannel channel) throws IOException {
-            List<Record> results = new ArrayList<>();
-
             FileSet src = Util.createFileSet(baseDir,targets);
 
             DirectoryScanner ds = src.getDirectoryScanner();
-            for( String f : ds.getIncludedFiles() ) {
-                File file = new File(baseDir,f);
-
-                // consider the file to be produced by this build only if the timestamp
-                // is newer than when the build has started.
-                // 2000ms is an error margin since since VFAT only retains timestamp at 2sec precision
-                boolean produced = buildTimestamp <= file.lastModified()+2000;
-
-                try {
-                    results.add(new Record(produced,f,file.getName(),new FilePath(file).digest()));
-                } catch (IOException e) {
-                    throw new IOException(Messages.Fingerprinter_DigestFailed(file),e);
-                } catch (InterruptedException e) {
-                    throw new IOException(Messages.Fingerprinter_Aborted(),e);
+            String[] includedFiles = ds.getIncludedFiles();
+            List<Record> results = new ArrayList<>(includedFiles.length);
+            int threads = Math.min(Math.min(digestThreads, Runtime.getRuntime().availableProcessors()), includedFiles.length);
+            if (threads <= 1) {
+                byte[] buffer = new byte[DIGEST_BUFFER_SIZE];
+                for (String f : includedFiles) {
+                    results.add(toRecord(baseDir, f, buffer));
                 }
+                return results;
             }
 
+            // digesting is mostly I/O bound, so read several files at once
+            ExecutorService executor = Executors.newFixedThreadPool(threads, new NamingThreadFactory(new DaemonThreadFactory(), "Fingerprinter"));
+            try {
+                List<Future<Record>> futures = new ArrayList<>(includedFiles.length);
+                for (String f : includedFiles) {
+                    futures.add(executor.submit(() -> toRecord(baseDir, f, new byte[DIGEST_BUFFER_SIZE])));
+                }
+                for (Future<Record> future : futures) {
+                    results.add(future.get());
+                }
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                throw new IOException(cause);
+            } catch (InterruptedException e) {
+                throw new IOException(Messages.Fingerprinter_Aborted(),e);
+            } finally {
+                executor.shutdownNow();
+            }
             return results;
         }
 
+        private Record toRecord(File baseDir, String f, byte[] buffer) throws IOException {
+            File file = new File(baseDir,f);
+
+            // consider the file to be produced by this build only if the timestamp
+            // is newer than when the build has started.
+            // 2000ms is an error margin since since VFAT only retains timestamp at 2sec precision
+            boolean produced = buildTimestamp <= file.lastModified()+2000;
+
+            try {
+                return new Record(produced,f,file.getName(),digest(file, buffer));
+            } catch (IOException e) {
+                throw new IOException(Messages.Fingerprinter_DigestFailed(file),e);
+            }
+        }
+
+        /**
+         * Same as {@link FilePath#digest()}, reusing the given buffer.
+         */
+        private static String digest(File file, byte[] buffer) throws IOException {
+            MessageDigest md5;
+            try {
+                md5 = MessageDigest.getInstance("MD5");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IOException("MD5 not installed", e);
+            }
+            try (InputStream in = Files.newInputStream(file.toPath())) {
+                int len;
+                while ((len = in.read(buffer)) != -1) {
+                    md5.update(buffer, 0, len);
+                }
+            }
+            return Util.toHexString(md5.digest());
+        }
+
     }
 
     private void record(Run<?,?> build, FilePath ws, TaskListener listener, Map<String,String> record, final String targets) throws IOException, InterruptedException {
+        // files with the same contents share a fingerprint, which only needs to be looked up and saved once
+        Map<String,String> fingerprints = new HashMap<>();
         for (Record r : ws.act(new FindRecords(targets, build.getTimeInMillis()))) {
-            Fingerprint fp = r.addRecord(build);
-            if(fp==null) {
-                listener.error(Messages.Fingerprinter_FailedFor(r.relativePath));
-                continue;
+            String hash = fingerprints.get(r.md5sum);
+            if (hash == null) {
+                Fingerprint fp = r.addRecord(build);
+                if(fp==null) {
+                    listener.error(Messages.Fingerprinter_FailedFor(r.relativePath));
+                    continue;
+                }
+                hash = fp.getHashString();
+                fingerprints.put(r.md5sum, hash);
             }
-            fp.addFor(build);
-            record.put(r.relativePath,fp.getHashString());
+            record.put(r.relativePath,hash);
         }
     }
 
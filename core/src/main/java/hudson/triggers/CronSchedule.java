@@ -0,0 +1,324 @@
+package hudson.triggers;
+
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.XmlFile;
+import hudson.model.Item;
+import hudson.model.ItemGroup;
+import hudson.model.Items;
+import hudson.model.PeriodicWork;
+import hudson.model.Saveable;
+import hudson.model.listeners.ItemListener;
+import hudson.model.listeners.SaveableListener;
+import hudson.security.ACL;
+import jenkins.model.Jenkins;
+import jenkins.model.ParameterizedJobMixIn.ParameterizedJob;
+import jenkins.util.SystemProperties;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * When each {@link Trigger} of each job is next due, so that {@link Trigger.Cron} only visits the jobs due in a given minute
+ * instead of checking every trigger of every job every minute.
+ *
+ * <p>
+ * Entries are kept in a priority queue ordered by their next due minute, as computed by {@link hudson.scheduler.CronTabList#ceil}.
+ * When a job is created, saved, moved or deleted, its entries are invalidated and new ones are added;
+ * invalidated entries are simply skipped when they come up.
+ * The whole schedule is rebuilt from the jobs every {@link #REBUILD_INTERVAL} minutes in case a change went unnoticed,
+ * such as triggers modified in memory without saving the job.
+ *
+ * @see Trigger#EVENT_DRIVEN_CRON
+ */
+@Restricted(NoExternalUse.class)
+public final class CronSchedule {
+    private static final long MIN = TimeUnit.MINUTES.toMillis(1);
+
+    private static final class Entry implements Comparable<Entry> {
+        final ParameterizedJob<?, ?> job;
+        final Trigger<?> trigger;
+        final long generation;
+        final long next;
+
+        Entry(ParameterizedJob<?, ?> job, Trigger<?> trigger, long generation, long next) {
+            this.job = job;
+            this.trigger = trigger;
+            this.generation = generation;
+            this.next = next;
+        }
+
+        @Override
+        public int compareTo(Entry o) {
+            return Long.compare(next, o.next);
+        }
+    }
+
+    /**
+     * Entries of a known job in {@link #queue}; those of other generations are stale.
+     */
+    private static final class JobState {
+        final long generation;
+        int entries;
+
+        JobState(long generation) {
+            this.generation = generation;
+        }
+    }
+
+    private final PriorityQueue<Entry> queue = new PriorityQueue<>();
+    private final Map<ParameterizedJob<?, ?>, JobState> jobs = new IdentityHashMap<>();
+    private long generation;
+    /**
+     * Number of entries in {@link #queue} that are not stale.
+     */
+    private int live;
+    /**
+     * The first minute not fired yet, from which next due minutes are computed; 0 until the first rebuild.
+     */
+    private long horizon;
+    private long lastRebuild;
+
+    /**
+     * Runs the triggers due in the given minute, which must come after the one previously given.
+     */
+    void fire(@Nonnull Calendar cal) {
+        long t = cal.getTimeInMillis();
+        List<Entry> due = new ArrayList<>();
+        synchronized (this) {
+            if (horizon == 0 || t < horizon || t - lastRebuild >= TimeUnit.MINUTES.toMillis(REBUILD_INTERVAL)) {
+                rebuild(t);
+            }
+            while (!queue.isEmpty() && queue.peek().next <= t) {
+                Entry e = queue.poll();
+                JobState state = stateOf(e);
+                if (state != null) {
+                    state.entries--;
+                    live--;
+                    due.add(e);
+                }
+            }
+            horizon = t + MIN;
+        }
+
+        SCMTrigger.DescriptorImpl scmd = Jenkins.getInstance().getDescriptorByType(SCMTrigger.DescriptorImpl.class);
+        Trigger.pollSynchronously(scmd);
+        for (Entry e : due) {
+            if (!(e.trigger instanceof SCMTrigger && scmd.synchronousPolling)) {
+                // checked again as checkTriggers does, in case a tab disagrees with its ceil around time zone changes
+                if (e.trigger.tabs.check(cal)) {
+                    Trigger.runTrigger(e.job, e.trigger);
+                } else {
+                    LOGGER.log(Level.FINER, "did not trigger {0}", e.job);
+                }
+            }
+        }
+
+        synchronized (this) {
+            for (Entry e : due) {
+                JobState state = stateOf(e);
+                if (state != null) { // unless the job changed meanwhile
+                    schedule(e.job, e.trigger, state, horizon);
+                }
+            }
+        }
+    }
+
+    /**
+     * Recomputes the entries of a job, after it was created, saved or moved.
+     */
+    synchronized void update(@Nonnull ParameterizedJob<?, ?> job) {
+        if (horizon == 0) {
+            return; // everything will be computed on the first rebuild
+        }
+        remove(job);
+        add(job, horizon);
+    }
+
+    /**
+     * Forgets a deleted item, or every job within it.
+     */
+    synchronized void removeAll(@Nonnull Item item) {
+        if (item instanceof ParameterizedJob) {
+            remove((ParameterizedJob<?, ?>) item);
+        }
+        if (item instanceof ItemGroup) {
+            for (Iterator<Map.Entry<ParameterizedJob<?, ?>, JobState>> it = jobs.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<ParameterizedJob<?, ?>, JobState> job = it.next();
+                if (isWithin(job.getKey(), item)) {
+                    live -= job.getValue().entries;
+                    it.remove();
+                }
+            }
+            compactIfNeeded();
+        }
+    }
+
+    /**
+     * Forces a rebuild before the next minute is fired, as after items are loaded again from disk.
+     */
+    synchronized void invalidate() {
+        horizon = 0;
+    }
+
+    private void rebuild(long t) {
+        queue.clear();
+        jobs.clear();
+        live = 0;
+        for (ParameterizedJob<?, ?> p : Jenkins.getInstance().allItems(ParameterizedJob.class)) {
+            add(p, t);
+        }
+        lastRebuild = t;
+        LOGGER.log(Level.FINE, "cron schedule rebuilt with {0} entries for {1} jobs", new Object[] {live, jobs.size()});
+    }
+
+    private void add(ParameterizedJob<?, ?> job, long from) {
+        JobState state = new JobState(++generation);
+        jobs.put(job, state);
+        for (Trigger<?> t : job.getTriggers().values()) {
+            if (t != null && t.spec != null && t.tabs != null) {
+                schedule(job, t, state, from);
+            } else {
+                LOGGER.log(Level.WARNING, "The job {0} has a syntactically incorrect config and is missing the cron spec for a trigger", job.getFullName());
+            }
+        }
+    }
+
+    private void remove(ParameterizedJob<?, ?> job) {
+        JobState state = jobs.remove(job);
+        if (state != null) {
+            live -= state.entries;
+            compactIfNeeded();
+        }
+    }
+
+    private void schedule(ParameterizedJob<?, ?> job, Trigger<?> trigger, JobState state, long from) {
+        Calendar next = trigger.tabs.ceil(from);
+        if (next != null) {
+            queue.add(new Entry(job, trigger, state.generation, next.getTimeInMillis()));
+            state.entries++;
+            live++;
+        } else {
+            LOGGER.log(Level.FINE, "{0} of {1} is not due within the next two years", new Object[] {trigger.spec, job});
+        }
+    }
+
+    /**
+     * Stale entries are skipped when they come up, but they must not pile up if jobs are saved over and over.
+     */
+    private void compactIfNeeded() {
+        if (queue.size() <= 2 * live + 1024) {
+            return;
+        }
+        List<Entry> current = new ArrayList<>(live);
+        for (Entry e : queue) {
+            if (stateOf(e) != null) {
+                current.add(e);
+            }
+        }
+        queue.clear();
+        queue.addAll(current);
+    }
+
+    private @CheckForNull JobState stateOf(Entry e) {
+        JobState state = jobs.get(e.job);
+        return state != null && state.generation == e.generation ? state : null;
+    }
+
+    private static boolean isWithin(Item item, Item group) {
+        for (ItemGroup<?> parent = item.getParent(); parent instanceof Item; parent = ((Item) parent).getParent()) {
+            if (parent == group) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static @CheckForNull CronSchedule get() {
+        Trigger.Cron cron = ExtensionList.lookup(PeriodicWork.class).get(Trigger.Cron.class);
+        return cron != null && Trigger.EVENT_DRIVEN_CRON ? cron.schedule : null;
+    }
+
+    @Extension
+    @Restricted(NoExternalUse.class)
+    public static final class ItemListenerImpl extends ItemListener {
+        @Override
+        public void onCreated(Item item) {
+            CronSchedule schedule = get();
+            if (schedule != null) {
+                if (item instanceof ParameterizedJob) {
+                    schedule.update((ParameterizedJob<?, ?>) item);
+                }
+                if (item instanceof ItemGroup) { // as when a folder is copied
+                    for (ParameterizedJob<?, ?> p : Items.allItems(ACL.SYSTEM, (ItemGroup) item, ParameterizedJob.class)) {
+                        schedule.update(p);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void onUpdated(Item item) {
+            CronSchedule schedule = get();
+            if (schedule != null && item instanceof ParameterizedJob) {
+                schedule.update((ParameterizedJob<?, ?>) item);
+            }
+        }
+
+        @Override
+        public void onLocationChanged(Item item, String oldFullName, String newFullName) {
+            // also called for each job within a moved folder
+            onUpdated(item);
+        }
+
+        @Override
+        public void onDeleted(Item item) {
+            CronSchedule schedule = get();
+            if (schedule != null) {
+                schedule.removeAll(item);
+            }
+        }
+
+        @Override
+        public void onLoaded() {
+            CronSchedule schedule = get();
+            if (schedule != null) {
+                schedule.invalidate();
+            }
+        }
+    }
+
+    @Extension
+    @Restricted(NoExternalUse.class)
+    public static final class SaveableListenerImpl extends SaveableListener {
+        @Override
+        public void onChange(Saveable o, XmlFile file) {
+            if (o instanceof ParameterizedJob) {
+                CronSchedule schedule = get();
+                if (schedule != null) {
+                    schedule.update((ParameterizedJob<?, ?>) o);
+                }
+            }
+        }
+    }
+
+    /**
+     * Minutes between two full rebuilds of the schedule.
+     */
+    @Restricted(NoExternalUse.class)
+    public static long REBUILD_INTERVAL = SystemProperties.getLong(CronSchedule.class.getName() + ".rebuildInterval", 60L);
+
+    private static final Logger LOGGER = Logger.getLogger(CronSchedule.class.getName());
+}
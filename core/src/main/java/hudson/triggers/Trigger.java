@@ -63,7 +63,10 @@ import javax.annotation.Nonnull;
 
 import hudson.model.Items;
 import jenkins.model.ParameterizedJobMixIn;
+import jenkins.util.SystemProperties;
 import org.jenkinsci.Symbol;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
 
 /**
  * Triggers a {@link Build}.
@@ -205,6 +208,7 @@ public abstract class Trigger<J extends Item> implements Describable<Trigger<?>>
     @Extension @Symbol("cron")
     public static class Cron extends PeriodicWork {
         private final Calendar cal = new GregorianCalendar();
+        final CronSchedule schedule = new CronSchedule();
 
         public Cron() {
             cal.set(Calendar.SECOND, 0);
@@ -223,7 +227,11 @@ public abstract class Trigger<J extends Item> implements Describable<Trigger<?>>
             while(new Date().getTime() >= cal.getTimeInMillis()) {
                 LOGGER.log(Level.FINE, "cron checking {0}", cal.getTime());
                 try {
-                    checkTriggers(cal);
+                    if (EVENT_DRIVEN_CRON) {
+                        schedule.fire(cal);
+                    } else {
+                        checkTriggers(cal);
+                    }
                 } catch (Throwable e) {
                     LOGGER.log(Level.WARNING,"Cron thread throw an exception",e);
                     // SafeTimerTask.run would also catch this, but be sure to increment cal too.
@@ -239,8 +247,34 @@ public abstract class Trigger<J extends Item> implements Describable<Trigger<?>>
     public static void checkTriggers(final Calendar cal) {
         Jenkins inst = Jenkins.getInstance();
 
-        // Are we using synchronous polling?
         SCMTrigger.DescriptorImpl scmd = inst.getDescriptorByType(SCMTrigger.DescriptorImpl.class);
+        pollSynchronously(scmd);
+
+        // Process all triggers, except SCMTriggers when synchronousPolling is set
+        for (ParameterizedJobMixIn.ParameterizedJob<?, ?> p : inst.allItems(ParameterizedJobMixIn.ParameterizedJob.class)) {
+            for (Trigger t : p.getTriggers().values()) {
+                if (!(t instanceof SCMTrigger && scmd.synchronousPolling)) {
+                    if (t !=null && t.spec != null && t.tabs != null) {
+                        LOGGER.log(Level.FINE, "cron checking {0} with spec ‘{1}’", new Object[]{p, t.spec.trim()});
+
+                        if (t.tabs.check(cal)) {
+                            runTrigger(p, t);
+                        } else {
+                            LOGGER.log(Level.FINER, "did not trigger {0}", p);
+                        }
+                    } else {
+                        LOGGER.log(Level.WARNING, "The job {0} has a syntactically incorrect config and is missing the cron spec for a trigger", p.getFullName());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Submits the {@link SCMTrigger}s of all projects for polling in dependency order, if synchronous polling is enabled.
+     */
+    static void pollSynchronously(SCMTrigger.DescriptorImpl scmd) {
+        // Are we using synchronous polling?
         if (scmd.synchronousPolling) {
             LOGGER.fine("using synchronous polling");
 
@@ -264,34 +298,29 @@ public abstract class Trigger<J extends Item> implements Describable<Trigger<?>>
                 LOGGER.fine("synchronous polling has detected unfinished jobs, will not trigger additional jobs.");
             }
         }
+    }
 
-        // Process all triggers, except SCMTriggers when synchronousPolling is set
-        for (ParameterizedJobMixIn.ParameterizedJob<?, ?> p : inst.allItems(ParameterizedJobMixIn.ParameterizedJob.class)) {
-            for (Trigger t : p.getTriggers().values()) {
-                if (!(t instanceof SCMTrigger && scmd.synchronousPolling)) {
-                    if (t !=null && t.spec != null && t.tabs != null) {
-                        LOGGER.log(Level.FINE, "cron checking {0} with spec ‘{1}’", new Object[]{p, t.spec.trim()});
-
-                        if (t.tabs.check(cal)) {
-                            LOGGER.log(Level.CONFIG, "cron triggered {0}", p);
-                            try {
-                                t.run();
-                            } catch (Throwable e) {
-                                // t.run() is a plugin, and some of them throw RuntimeException and other things.
-                                // don't let that cancel the polling activity. report and move on.
-                                LOGGER.log(Level.WARNING, t.getClass().getName() + ".run() failed for " + p, e);
-                            }
-                        } else {
-                            LOGGER.log(Level.FINER, "did not trigger {0}", p);
-                        }
-                    } else {
-                        LOGGER.log(Level.WARNING, "The job {0} has a syntactically incorrect config and is missing the cron spec for a trigger", p.getFullName());
-                    }
-                }
-            }
+    /**
+     * Runs a trigger whose crontab matched the current minute.
+     */
+    static void runTrigger(ParameterizedJobMixIn.ParameterizedJob<?, ?> p, Trigger<?> t) {
+        LOGGER.log(Level.CONFIG, "cron triggered {0}", p);
+        try {
+            t.run();
+        } catch (Throwable e) {
+            // t.run() is a plugin, and some of them throw RuntimeException and other things.
+            // don't let that cancel the polling activity. report and move on.
+            LOGGER.log(Level.WARNING, t.getClass().getName() + ".run() failed for " + p, e);
         }
     }
 
+    /**
+     * Whether {@link Cron} runs only the triggers due in each minute, as tracked by a {@link CronSchedule},
+     * instead of checking the crontab of every trigger of every job each minute.
+     */
+    @Restricted(NoExternalUse.class)
+    public static boolean EVENT_DRIVEN_CRON = SystemProperties.getBoolean(Trigger.class.getName() + ".eventDrivenCron");
+
     private static final Logger LOGGER = Logger.getLogger(Trigger.class.getName());
 
     /**
@@ -0,0 +1,62 @@
+package jenkins.fingerprints;
+
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.Util;
+import hudson.XmlFile;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.Fingerprint;
+import hudson.model.FingerprintCleanupThread;
+import hudson.model.TaskListener;
+import hudson.model.listeners.SaveableListener;
+import jenkins.model.Jenkins;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.Beta;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Default {@link FingerprintStorage}, keeping each fingerprint in {@code fingerprints/xx/yy/<rest of checksum>.xml}.
+ *
+ * @since TODO
+ */
+@Extension
+@Restricted(Beta.class)
+public class FileFingerprintStorage extends FingerprintStorage {
+
+    @Override
+    public void save(@Nonnull Fingerprint fp) throws IOException {
+        File file = Fingerprint.getFingerprintFile(Util.fromHexString(fp.getHashString()));
+        fp.save(file);
+        SaveableListener.fireOnChange(fp, new XmlFile(Fingerprint.getXStream(), file));
+    }
+
+    @Override
+    public @CheckForNull Fingerprint load(@Nonnull String id) throws IOException {
+        return Fingerprint.load(Fingerprint.getFingerprintFile(Util.fromHexString(id)));
+    }
+
+    @Override
+    public void delete(@Nonnull String id) throws IOException {
+        File file = Fingerprint.getFingerprintFile(Util.fromHexString(id));
+        if (file.exists() && !file.delete()) {
+            throw new IOException("Failed to delete " + file);
+        }
+    }
+
+    @Override
+    public boolean isReady() {
+        return new File(Jenkins.get().getRootDir(), "fingerprints").exists();
+    }
+
+    /**
+     * Walks the tree of files, as {@link FingerprintCleanupThread} always did.
+     */
+    @Override
+    public void iterateAndCleanupFingerprints(@Nonnull TaskListener listener) {
+        ExtensionList.lookup(AsyncPeriodicWork.class).get(FingerprintCleanupThread.class).executeFully(listener);
+    }
+}
@@ -0,0 +1,435 @@
+package jenkins.fingerprints;
+
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.init.Terminator;
+import hudson.model.Fingerprint;
+import hudson.model.FingerprintCleanupThread;
+import hudson.model.Item;
+import hudson.model.ItemGroup;
+import hudson.model.Run;
+import hudson.model.listeners.ItemListener;
+import hudson.model.listeners.RunListener;
+import hudson.tasks.Fingerprinter;
+import jenkins.model.Jenkins;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+import javax.annotation.Nonnull;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps track of the jobs each fingerprint refers to, so that {@link FingerprintCleanupThread} only needs to look at
+ * the fingerprints possibly affected by deleted builds and jobs rather than at all of them.
+ *
+ * <p>
+ * Fingerprints are added to the index when saved or when seen by a full cleanup pass, and are queued for
+ * re-evaluation when a build or job they refer to is deleted.
+ * Only the jobs a fingerprint refers to are recorded, never the other way round, as re-evaluating a fingerprint reads them anyway;
+ * so a job stays listed for a fingerprint which no longer refers to it until the next full pass, which costs an extra look at most.
+ * Ids are kept as two {@code long}s each, as there may be millions of them.
+ * The index is written to {@code $JENKINS_HOME/fingerprints-index.bin} on shutdown and the file is deleted once read,
+ * so that a crash, which could lose updates, leads to a full pass after the next start.
+ *
+ * <p>
+ * Only used when {@link FingerprintCleanupThread#INCREMENTAL} is set.
+ */
+@Extension
+@Restricted(NoExternalUse.class)
+public final class FingerprintIndex {
+    private static final int MAGIC = 0x46504958; // FPIX
+    private static final int VERSION = 2;
+
+    /** Fingerprint ids by job full name. */
+    private final Map<String, IdSet> idsByJob = new HashMap<>();
+    /** Fingerprint ids to re-evaluate, oldest first. */
+    private final LinkedHashSet<Id> dirty = new LinkedHashSet<>();
+    /** When the index was last rebuilt from all fingerprints, or 0 if it never was. */
+    private long lastFullScan;
+    private boolean loaded;
+    private final File file;
+
+    public FingerprintIndex() {
+        this(new File(Jenkins.get().getRootDir(), "fingerprints-index.bin"));
+    }
+
+    FingerprintIndex(File file) {
+        this.file = file;
+    }
+
+    public static @Nonnull FingerprintIndex get() {
+        return ExtensionList.lookupSingleton(FingerprintIndex.class);
+    }
+
+    /**
+     * Indexes a fingerprint after it was saved or checked by a cleanup pass.
+     * Does nothing unless {@link FingerprintCleanupThread#INCREMENTAL} is set.
+     */
+    public static void update(@Nonnull Fingerprint fp) {
+        if (FingerprintCleanupThread.INCREMENTAL) {
+            get().record(fp);
+        }
+    }
+
+    public void record(@Nonnull Fingerprint fp) {
+        record(fp.getHashString(), fp.getReferencedJobs());
+    }
+
+    synchronized void record(@Nonnull String id, @Nonnull Set<String> jobs) {
+        load();
+        Id parsed = Id.parse(id);
+        for (String job : jobs) {
+            idsByJob.computeIfAbsent(job, k -> new IdSet()).add(parsed.hi, parsed.lo);
+        }
+    }
+
+    /**
+     * Stops re-evaluating a deleted fingerprint.
+     * Jobs stay listed for it until the next full pass.
+     */
+    public synchronized void forget(@Nonnull String id) {
+        load();
+        dirty.remove(Id.parse(id));
+    }
+
+    /**
+     * Queues the given fingerprints for re-evaluation.
+     */
+    public synchronized void markDirty(@Nonnull Collection<String> ids) {
+        load();
+        for (String id : ids) {
+            try {
+                dirty.add(Id.parse(id));
+            } catch (IllegalArgumentException e) {
+                LOGGER.log(Level.FINE, "Ignoring malformed fingerprint id {0}", id);
+            }
+        }
+    }
+
+    /**
+     * Queues the fingerprints referring to the given job for re-evaluation.
+     *
+     * @param includeChildren also those referring to jobs inside it, if it is a folder
+     */
+    public synchronized void markJobDirty(@Nonnull String fullName, boolean includeChildren) {
+        markJobDirty(fullName, includeChildren, false);
+    }
+
+    /**
+     * Queues the fingerprints referring to a deleted job for re-evaluation, and drops the job from the index.
+     *
+     * @param includeChildren also those referring to jobs inside it, if it is a folder
+     */
+    public synchronized void jobDeleted(@Nonnull String fullName, boolean includeChildren) {
+        markJobDirty(fullName, includeChildren, true);
+    }
+
+    private void markJobDirty(String fullName, boolean includeChildren, boolean remove) {
+        load();
+        String prefix = fullName + '/';
+        for (Iterator<Map.Entry<String, IdSet>> it = idsByJob.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<String, IdSet> e = it.next();
+            if (e.getKey().equals(fullName) || includeChildren && e.getKey().startsWith(prefix)) {
+                e.getValue().forEach((hi, lo) -> dirty.add(new Id(hi, lo)));
+                if (remove) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Takes up to the given number of fingerprints off the queue of those to re-evaluate.
+     */
+    public synchronized @Nonnull List<String> pollDirty(int max) {
+        load();
+        List<String> r = new ArrayList<>(Math.min(max, dirty.size()));
+        for (Iterator<Id> it = dirty.iterator(); it.hasNext() && r.size() < max; ) {
+            r.add(it.next().toString());
+            it.remove();
+        }
+        return r;
+    }
+
+    public synchronized int getDirtyCount() {
+        return dirty.size();
+    }
+
+    /**
+     * Counts the references from jobs to fingerprints.
+     */
+    public synchronized long getReferenceCount() {
+        long count = 0;
+        for (IdSet ids : idsByJob.values()) {
+            count += ids.size();
+        }
+        return count;
+    }
+
+    public synchronized int getJobCount() {
+        return idsByJob.size();
+    }
+
+    public synchronized long getLastFullScan() {
+        return lastFullScan;
+    }
+
+    /**
+     * Whether all fingerprints need to be looked at, to build the index or to catch up with anything it may have missed.
+     */
+    public synchronized boolean needsFullScan() {
+        load();
+        return lastFullScan == 0 || System.currentTimeMillis() - lastFullScan > FingerprintCleanupThread.FULL_SCAN_INTERVAL;
+    }
+
+    /**
+     * Called before a full pass, which is going to {@link #record} every fingerprint still alive.
+     * Queued fingerprints are kept, as the pass may see them before the deletion that queued them is complete.
+     */
+    public synchronized void startFullScan() {
+        load();
+        idsByJob.clear();
+    }
+
+    public synchronized void endFullScan() {
+        lastFullScan = System.currentTimeMillis();
+    }
+
+    private void load() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(file.toPath()))))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Unknown format");
+            }
+            long lastFullScan = in.readLong();
+            for (int i = in.readInt(); i > 0; i--) {
+                String job = in.readUTF();
+                idsByJob.put(job, IdSet.read(in));
+            }
+            for (int i = in.readInt(); i > 0; i--) {
+                dirty.add(new Id(in.readLong(), in.readLong()));
+            }
+            this.lastFullScan = lastFullScan;
+        } catch (NoSuchFileException e) {
+            return;
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Failed to load " + file + ", fingerprints will all be checked", e);
+            idsByJob.clear();
+            dirty.clear();
+        }
+        // written again on a clean shutdown only
+        try {
+            Files.deleteIfExists(file.toPath());
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to delete " + file, e);
+        }
+    }
+
+    @Terminator
+    public synchronized void save() throws IOException {
+        if (!loaded || lastFullScan == 0) {
+            return;
+        }
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(tmp.toPath()))))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(lastFullScan);
+            out.writeInt(idsByJob.size());
+            for (Map.Entry<String, IdSet> e : idsByJob.entrySet()) {
+                out.writeUTF(e.getKey());
+                e.getValue().write(out);
+            }
+            out.writeInt(dirty.size());
+            for (Id id : dirty) {
+                out.writeLong(id.hi);
+                out.writeLong(id.lo);
+            }
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * A fingerprint id, which is an MD5 checksum in hexadecimal.
+     */
+    static final class Id {
+        final long hi;
+        final long lo;
+
+        Id(long hi, long lo) {
+            this.hi = hi;
+            this.lo = lo;
+        }
+
+        static @Nonnull Id parse(@Nonnull String id) {
+            if (id.length() != 32) {
+                throw new IllegalArgumentException("Not an MD5 checksum: " + id);
+            }
+            return new Id(Long.parseUnsignedLong(id.substring(0, 16), 16), Long.parseUnsignedLong(id.substring(16), 16));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Id && ((Id) o).hi == hi && ((Id) o).lo == lo;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(hi) * 31 + Long.hashCode(lo);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%016x%016x", hi, lo);
+        }
+    }
+
+    /**
+     * A set of ids in one array, with no object per id.
+     * Ids are never removed; the set is dropped along with its job, or rebuilt by a full pass.
+     */
+    static final class IdSet {
+        /** Pairs of longs, with 0, 0 meaning an empty slot. */
+        private long[] slots = new long[2 * 4];
+        private boolean hasZero;
+        private int size;
+
+        interface Visitor {
+            void visit(long hi, long lo);
+        }
+
+        boolean add(long hi, long lo) {
+            if (hi == 0 && lo == 0) {
+                if (hasZero) {
+                    return false;
+                }
+                hasZero = true;
+                size++;
+                return true;
+            }
+            if (insert(slots, hi, lo)) {
+                size++;
+                if (size * 3 > slots.length) { // over 2/3 full
+                    long[] grown = new long[slots.length * 2];
+                    for (int i = 0; i < slots.length; i += 2) {
+                        if (slots[i] != 0 || slots[i + 1] != 0) {
+                            insert(grown, slots[i], slots[i + 1]);
+                        }
+                    }
+                    slots = grown;
+                }
+                return true;
+            }
+            return false;
+        }
+
+        private static boolean insert(long[] slots, long hi, long lo) {
+            int mask = slots.length / 2 - 1;
+            // ids are checksums, so their bits are random enough already
+            for (int i = (int) (lo ^ hi) & mask; ; i = (i + 1) & mask) {
+                long h = slots[2 * i], l = slots[2 * i + 1];
+                if (h == 0 && l == 0) {
+                    slots[2 * i] = hi;
+                    slots[2 * i + 1] = lo;
+                    return true;
+                }
+                if (h == hi && l == lo) {
+                    return false;
+                }
+            }
+        }
+
+        int size() {
+            return size;
+        }
+
+        void write(DataOutput out) throws IOException {
+            out.writeInt(size);
+            if (hasZero) {
+                out.writeLong(0);
+                out.writeLong(0);
+            }
+            for (int i = 0; i < slots.length; i += 2) {
+                if (slots[i] != 0 || slots[i + 1] != 0) {
+                    out.writeLong(slots[i]);
+                    out.writeLong(slots[i + 1]);
+                }
+            }
+        }
+
+        static IdSet read(DataInput in) throws IOException {
+            IdSet ids = new IdSet();
+            for (int i = in.readInt(); i > 0; i--) {
+                ids.add(in.readLong(), in.readLong());
+            }
+            return ids;
+        }
+
+        void forEach(Visitor visitor) {
+            if (hasZero) {
+                visitor.visit(0, 0);
+            }
+            for (int i = 0; i < slots.length; i += 2) {
+                if (slots[i] != 0 || slots[i + 1] != 0) {
+                    visitor.visit(slots[i], slots[i + 1]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Queues the fingerprints recorded by a deleted build, or failing that all those of its job.
+     */
+    @Extension
+    public static final class RunListenerImpl extends RunListener<Run<?, ?>> {
+        @Override
+        public void onDeleted(Run<?, ?> r) {
+            if (!FingerprintCleanupThread.INCREMENTAL) {
+                return;
+            }
+            Fingerprinter.FingerprintAction a = r.getAction(Fingerprinter.FingerprintAction.class);
+            if (a != null) {
+                get().markDirty(a.getRecords().values());
+            } else {
+                get().markJobDirty(r.getParent().getFullName(), false);
+            }
+        }
+    }
+
+    @Extension
+    public static final class ItemListenerImpl extends ItemListener {
+        @Override
+        public void onDeleted(Item item) {
+            if (FingerprintCleanupThread.INCREMENTAL) {
+                get().jobDeleted(item.getFullName(), item instanceof ItemGroup);
+            }
+        }
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(FingerprintIndex.class.getName());
+}
@@ -0,0 +1,126 @@
+package jenkins.fingerprints;
+
+import hudson.ExtensionList;
+import hudson.ExtensionPoint;
+import hudson.Functions;
+import hudson.model.Fingerprint;
+import hudson.model.FingerprintMap;
+import hudson.model.TaskListener;
+import jenkins.model.Jenkins;
+import jenkins.util.SystemProperties;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.Beta;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Persists {@link Fingerprint}s.
+ *
+ * <p>
+ * The storage in use is {@link FileFingerprintStorage}, which keeps one XML file per fingerprint,
+ * unless the system property {@code jenkins.fingerprints.FingerprintStorage.type} names the class of another
+ * implementation, such as {@link PackedFingerprintStorage}.
+ * {@link FingerprintMap} still makes sure that only one {@link Fingerprint} object is in memory per checksum,
+ * so implementations do not need to cache fingerprints.
+ *
+ * <p>
+ * Fingerprints are identified by the lowercase hexadecimal form of their MD5 checksum, as in {@link Fingerprint#getHashString()}.
+ *
+ * @since TODO
+ */
+@Restricted(Beta.class)
+public abstract class FingerprintStorage implements ExtensionPoint {
+
+    /**
+     * Returns the storage in use.
+     */
+    public static @Nonnull FingerprintStorage get() {
+        if (TYPE != null) {
+            for (FingerprintStorage storage : ExtensionList.lookup(FingerprintStorage.class)) {
+                if (storage.getClass().getName().equals(TYPE)) {
+                    return storage;
+                }
+            }
+            if (!warned) {
+                warned = true;
+                LOGGER.log(Level.WARNING, "No fingerprint storage of type {0}, using the default one", TYPE);
+            }
+        }
+        return ExtensionList.lookupSingleton(FileFingerprintStorage.class);
+    }
+
+    /**
+     * Whether a storage other than {@link FileFingerprintStorage} was asked for.
+     */
+    @Restricted(NoExternalUse.class)
+    public static boolean isCustomized() {
+        return TYPE != null && !TYPE.equals(FileFingerprintStorage.class.getName());
+    }
+
+    /**
+     * Saves the given fingerprint, replacing any previous version.
+     */
+    public abstract void save(@Nonnull Fingerprint fp) throws IOException;
+
+    /**
+     * Loads the fingerprint with the given id.
+     *
+     * @return null if there is no such fingerprint, or if it cannot be read at all
+     */
+    public abstract @CheckForNull Fingerprint load(@Nonnull String id) throws IOException;
+
+    /**
+     * Deletes the fingerprint with the given id, if there is one.
+     */
+    public abstract void delete(@Nonnull String id) throws IOException;
+
+    /**
+     * Whether some fingerprints were ever saved.
+     */
+    public abstract boolean isReady();
+
+    /**
+     * Goes through all fingerprints, deleting those no longer referring to any existing build and trimming the others,
+     * typically with {@link #cleanFingerprint}.
+     * Called by {@link hudson.model.FingerprintCleanupThread}.
+     */
+    public abstract void iterateAndCleanupFingerprints(@Nonnull TaskListener listener);
+
+    /**
+     * Deletes the given fingerprint if it is no longer alive, or trims it.
+     *
+     * @return true if the fingerprint was deleted or modified
+     */
+    protected boolean cleanFingerprint(@Nonnull Fingerprint fp, @Nonnull TaskListener listener) {
+        try {
+            if (!fp.isAlive()) {
+                listener.getLogger().println("deleting obsolete " + fp.getHashString());
+                delete(fp.getHashString());
+                return true;
+            }
+            // get the fingerprint in the official map so have the changes visible to Jenkins
+            // otherwise the mutation made in FingerprintMap can override our trimming.
+            Fingerprint current = Jenkins.get()._getFingerprint(fp.getHashString());
+            if (current == null) {
+                return false;
+            }
+            boolean modified = current.trim();
+            FingerprintIndex.update(current);
+            return modified;
+        } catch (IOException e) {
+            Functions.printStackTrace(e, listener.error("Failed to process " + fp.getHashString()));
+            return false;
+        }
+    }
+
+    private static volatile boolean warned;
+
+    private static final String TYPE = SystemProperties.getString(FingerprintStorage.class.getName() + ".type");
+
+    private static final Logger LOGGER = Logger.getLogger(FingerprintStorage.class.getName());
+}
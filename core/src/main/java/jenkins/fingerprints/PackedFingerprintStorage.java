@@ -0,0 +1,234 @@
+package jenkins.fingerprints;
+
+import hudson.Extension;
+import hudson.Util;
+import hudson.init.Terminator;
+import hudson.model.Fingerprint;
+import hudson.model.TaskListener;
+import jenkins.model.Jenkins;
+import jenkins.util.SystemProperties;
+import jenkins.util.Timer;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.Beta;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * {@link FingerprintStorage} keeping all fingerprints in a few large files, using a {@link PackedRecordStore}
+ * in {@code $JENKINS_HOME/fingerprints-packed}.
+ * Fingerprints without facets, the vast majority, are stored in a compact binary form, see {@link Fingerprint#toPacked}.
+ *
+ * <p>
+ * Enabled with {@code -Djenkins.fingerprints.FingerprintStorage.type=jenkins.fingerprints.PackedFingerprintStorage}.
+ * Fingerprints left in the XML files of {@link FileFingerprintStorage} are migrated when first loaded,
+ * and all of them in the background once the storage is opened; each XML file is deleted once its fingerprint is migrated.
+ *
+ * <p>
+ * Unlike {@link FileFingerprintStorage}, saving a fingerprint is not reported to {@link hudson.model.listeners.SaveableListener}s,
+ * as there is no file of its own to report.
+ *
+ * @since TODO
+ */
+@Extension
+@Restricted(Beta.class)
+public class PackedFingerprintStorage extends FingerprintStorage {
+    private static final Pattern LEGACY_DIR = Pattern.compile("[0-9a-f]{2}");
+    private static final Pattern LEGACY_FILE = Pattern.compile("[0-9a-f]{28}\\.xml");
+
+    private PackedRecordStore store;
+    private final AtomicBoolean compacting = new AtomicBoolean();
+
+    private synchronized @Nonnull PackedRecordStore store() throws IOException {
+        if (store == null) {
+            store = PackedRecordStore.open(new File(Jenkins.get().getRootDir(), "fingerprints-packed"), SEGMENT_SIZE);
+            if (getLegacyDir().isDirectory()) {
+                Timer.get().submit(() -> {
+                    try {
+                        int migrated = migrateLegacy();
+                        LOGGER.log(Level.INFO, "Migrated {0} fingerprints from {1}", new Object[] {migrated, getLegacyDir()});
+                    } catch (IOException e) {
+                        LOGGER.log(Level.WARNING, "Failed to migrate fingerprints from " + getLegacyDir(), e);
+                    }
+                });
+            }
+        }
+        return store;
+    }
+
+    @Override
+    public void save(@Nonnull Fingerprint fp) throws IOException {
+        PackedRecordStore store = store();
+        store.put(Util.fromHexString(fp.getHashString()), fp.toPacked());
+        compactIfNeeded(store);
+    }
+
+    @Override
+    public @CheckForNull Fingerprint load(@Nonnull String id) throws IOException {
+        byte[] md5sum = Util.fromHexString(id);
+        PackedRecordStore store = store();
+        byte[] data = store.get(md5sum);
+        if (data == null) {
+            return migrate(md5sum, Fingerprint.getFingerprintFile(md5sum));
+        }
+        try {
+            return Fingerprint.fromPacked(md5sum, data);
+        } catch (IOException | RuntimeException e) {
+            // as for malformed XML files, do not keep a record that cannot be used
+            LOGGER.log(Level.WARNING, "Dropping unreadable fingerprint " + id, e);
+            store.remove(md5sum);
+            return null;
+        }
+    }
+
+    @Override
+    public void delete(@Nonnull String id) throws IOException {
+        byte[] md5sum = Util.fromHexString(id);
+        store().remove(md5sum);
+        File legacy = Fingerprint.getFingerprintFile(md5sum);
+        if (legacy.exists() && !legacy.delete()) {
+            throw new IOException("Failed to delete " + legacy);
+        }
+    }
+
+    @Override
+    public boolean isReady() {
+        try {
+            return store().size() > 0 || getLegacyDir().exists();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to open the fingerprint storage", e);
+            return false;
+        }
+    }
+
+    @Override
+    public void iterateAndCleanupFingerprints(@Nonnull TaskListener listener) {
+        AtomicInteger cleaned = new AtomicInteger();
+        try {
+            PackedRecordStore store = store();
+            migrateLegacy();
+            store.forEachKey(md5sum -> {
+                String id = Util.toHexString(md5sum);
+                try {
+                    Fingerprint fp = load(id);
+                    if (fp != null && cleanFingerprint(fp, listener)) {
+                        cleaned.incrementAndGet();
+                    }
+                } catch (IOException e) {
+                    listener.error("Failed to process " + id + ": " + e);
+                }
+            });
+            if (store.needsCompaction() && compacting.compareAndSet(false, true)) {
+                try {
+                    listener.getLogger().println("Compacted " + store.compact() + " segments");
+                } finally {
+                    compacting.set(false);
+                }
+            }
+        } catch (IOException e) {
+            listener.error("Failed to clean up fingerprints: " + e);
+        }
+        listener.getLogger().println("Cleaned up " + cleaned + " records");
+    }
+
+    /**
+     * Moves the fingerprints of {@link FileFingerprintStorage} into this storage.
+     *
+     * @return the number of fingerprints migrated
+     */
+    @Restricted(NoExternalUse.class)
+    public int migrateLegacy() throws IOException {
+        int migrated = 0;
+        File[] dirs1 = getLegacyDir().listFiles(f -> f.isDirectory() && LEGACY_DIR.matcher(f.getName()).matches());
+        if (dirs1 == null) {
+            return 0;
+        }
+        for (File dir1 : dirs1) {
+            File[] dirs2 = dir1.listFiles(f -> f.isDirectory() && LEGACY_DIR.matcher(f.getName()).matches());
+            if (dirs2 == null) {
+                continue;
+            }
+            for (File dir2 : dirs2) {
+                File[] files = dir2.listFiles(f -> f.isFile() && LEGACY_FILE.matcher(f.getName()).matches());
+                if (files == null) {
+                    continue;
+                }
+                for (File file : files) {
+                    byte[] md5sum = Util.fromHexString(dir1.getName() + dir2.getName() + file.getName().substring(0, 28));
+                    if (migrate(md5sum, file) != null) {
+                        migrated++;
+                    }
+                }
+                dir2.delete(); // if empty
+            }
+            dir1.delete(); // if empty
+        }
+        getLegacyDir().delete(); // if empty
+        return migrated;
+    }
+
+    /**
+     * Moves a fingerprint saved by {@link FileFingerprintStorage} into this storage, unless a newer version was already saved here.
+     *
+     * @return the migrated fingerprint, or the one already here, or null if there is neither
+     */
+    private @CheckForNull Fingerprint migrate(byte[] md5sum, File file) throws IOException {
+        PackedRecordStore store = store();
+        Fingerprint fp = file.isFile() ? Fingerprint.load(file) : null;
+        if (fp == null) {
+            // the file may have been migrated by another thread since the caller last looked here
+            byte[] data = store.get(md5sum);
+            return data != null ? Fingerprint.fromPacked(md5sum, data) : null;
+        }
+        if (!store.putIfAbsent(md5sum, fp.toPacked())) {
+            // saved here meanwhile
+            fp = Fingerprint.fromPacked(md5sum, store.get(md5sum));
+        }
+        if (!file.delete()) {
+            LOGGER.log(Level.WARNING, "Failed to delete migrated fingerprint {0}", file);
+        }
+        return fp;
+    }
+
+    private void compactIfNeeded(PackedRecordStore store) {
+        if (store.needsCompaction() && compacting.compareAndSet(false, true)) {
+            Timer.get().submit(() -> {
+                try {
+                    LOGGER.log(Level.FINE, "Compacted {0} fingerprint segments", store.compact());
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "Failed to compact fingerprints", e);
+                } finally {
+                    compacting.set(false);
+                }
+            });
+        }
+    }
+
+    private static File getLegacyDir() {
+        return new File(Jenkins.get().getRootDir(), "fingerprints");
+    }
+
+    @Terminator
+    public synchronized void close() throws IOException {
+        if (store != null) {
+            store.close();
+            store = null;
+        }
+    }
+
+    /**
+     * Size in bytes above which a new segment file is started.
+     */
+    @Restricted(NoExternalUse.class)
+    public static /* non-final for Groovy */ long SEGMENT_SIZE = SystemProperties.getLong(PackedFingerprintStorage.class.getName() + ".segmentSize", 64L * 1024 * 1024);
+
+    private static final Logger LOGGER = Logger.getLogger(PackedFingerprintStorage.class.getName());
+}
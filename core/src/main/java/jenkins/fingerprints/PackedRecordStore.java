@@ -0,0 +1,648 @@
+package jenkins.fingerprints;
+
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Log-structured store of small records keyed by 16-byte ids, such as MD5 checksums.
+ *
+ * <p>
+ * Records are appended to segment files of bounded size, and an in-memory hash index tells where the latest version
+ * of each record is; removing a record appends a tombstone.
+ * Once superseded records and tombstones make up more than half of the store, {@link #compact} rewrites the live records
+ * of the oldest segments at the end of the log and deletes those segments.
+ * Since segments are only ever compacted oldest first, a tombstone can be dropped along with its segment:
+ * any older version of its record was in an older segment, hence is gone too.
+ *
+ * <p>
+ * Each record carries a checksum. When the store is opened, the index is rebuilt by reading all segments,
+ * and a record left incomplete at the end of the log by a crash is cut off.
+ */
+@Restricted(NoExternalUse.class)
+public final class PackedRecordStore implements Closeable {
+    private static final int MAGIC = 0x4a465052;
+    /**
+     * Magic, key, value length (-1 for a tombstone).
+     */
+    private static final int HEADER_SIZE = 4 + 16 + 4;
+    /**
+     * CRC-32 of the key, length and value.
+     */
+    private static final int TRAILER_SIZE = 4;
+    private static final String SUFFIX = ".seg";
+    /** Appended to the name of a compacted segment before it is deleted. */
+    private static final String OBSOLETE_SUFFIX = ".obsolete";
+
+    private final File dir;
+    private final long segmentSize;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    /** Held while compacting, so that two compactions never pick the same segment. */
+    private final Object compactLock = new Object();
+    private final TreeMap<Integer, Segment> segments = new TreeMap<>();
+    private final Index index = new Index();
+    private Segment active;
+    private long liveBytes, garbageBytes;
+
+    private static final class Segment {
+        final int id;
+        final File file;
+        final FileChannel channel;
+        long size;
+        long garbage;
+
+        Segment(int id, File file) throws IOException {
+            this.id = id;
+            this.file = file;
+            this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+    }
+
+    private PackedRecordStore(File dir, long segmentSize) {
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Opens the store kept in the given directory, creating it if needed.
+     *
+     * @param segmentSize size above which a new segment is started
+     */
+    public static @Nonnull PackedRecordStore open(@Nonnull File dir, long segmentSize) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Failed to create " + dir);
+        }
+        PackedRecordStore store = new PackedRecordStore(dir, segmentSize);
+        try {
+            store.load();
+        } catch (IOException | RuntimeException e) {
+            store.close();
+            throw e;
+        }
+        return store;
+    }
+
+    private void load() throws IOException {
+        File[] obsolete = dir.listFiles((d, name) -> name.endsWith(OBSOLETE_SUFFIX));
+        if (obsolete != null) {
+            for (File f : obsolete) {
+                if (!f.delete()) {
+                    LOGGER.log(Level.WARNING, "Failed to delete {0}", f);
+                }
+            }
+        }
+        File[] files = dir.listFiles((d, name) -> name.matches("[0-9]{8}\\" + SUFFIX));
+        if (files != null) {
+            Arrays.sort(files);
+            for (File f : files) {
+                int id = Integer.parseInt(f.getName().substring(0, 8));
+                Segment s = new Segment(id, f);
+                segments.put(id, s);
+                scan(s, f == files[files.length - 1]);
+            }
+        }
+        if (segments.isEmpty()) {
+            roll();
+        } else {
+            active = segments.lastEntry().getValue();
+        }
+    }
+
+    /**
+     * Reads the records of a segment into the index.
+     *
+     * @param last whether this is the newest segment, whose incomplete tail is cut off
+     */
+    private void scan(Segment s, boolean last) throws IOException {
+        long length = s.channel.size();
+        long pos = 0;
+        s.channel.position(0);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(s.channel), 65536));
+        CRC32 crc = new CRC32();
+        byte[] value = new byte[256];
+        try {
+            while (pos < length) {
+                if (in.readInt() != MAGIC) {
+                    throw new EOFException("bad record header");
+                }
+                long hi = in.readLong(), lo = in.readLong();
+                int len = in.readInt();
+                if (len < -1 || len > length - pos) {
+                    throw new EOFException("bad record length");
+                }
+                if (len > value.length) {
+                    value = new byte[len];
+                }
+                if (len > 0) {
+                    in.readFully(value, 0, len);
+                }
+                int expected = in.readInt();
+                crc.reset();
+                updateCrc(crc, hi, lo, len);
+                if (len > 0) {
+                    crc.update(value, 0, len);
+                }
+                if ((int) crc.getValue() != expected) {
+                    throw new EOFException("bad record checksum");
+                }
+                int size = recordSize(len);
+                if (len >= 0) {
+                    supersede(index.put(hi, lo, location(s.id, pos), size));
+                    liveBytes += size;
+                } else {
+                    supersede(index.remove(hi, lo));
+                    s.garbage += size;
+                    garbageBytes += size;
+                }
+                pos += size;
+            }
+        } catch (EOFException e) {
+            if (last) {
+                LOGGER.log(Level.WARNING, "Truncating {0} at {1} after an incomplete record: {2}", new Object[] {s.file, pos, e.toString()});
+                s.channel.truncate(pos);
+            } else {
+                LOGGER.log(Level.WARNING, "Ignoring the rest of {0} from {1}: {2}", new Object[] {s.file, pos, e.toString()});
+            }
+        }
+        s.size = pos;
+    }
+
+    /**
+     * Accounts for a record that is not live any more.
+     */
+    private void supersede(long previous) {
+        if (previous != 0) {
+            Segment s = segments.get(segmentOf(previous));
+            int size = index.previousSize;
+            if (s != null) {
+                s.garbage += size;
+            }
+            liveBytes -= size;
+            garbageBytes += size;
+        }
+    }
+
+    /**
+     * Reads the latest value of a record.
+     *
+     * @return null if there is no such record
+     */
+    public @CheckForNull byte[] get(@Nonnull byte[] key) throws IOException {
+        long hi = hi(key), lo = lo(key);
+        lock.readLock().lock();
+        try {
+            int slot = index.find(hi, lo);
+            if (slot < 0) {
+                return null;
+            }
+            long loc = index.locs[slot];
+            Segment s = segments.get(segmentOf(loc));
+            int size = index.sizes[slot];
+            ByteBuffer buf = ByteBuffer.allocate(size);
+            while (buf.hasRemaining()) {
+                if (s.channel.read(buf, offsetOf(loc) + buf.position()) < 0) {
+                    throw new IOException("Unexpected end of " + s.file);
+                }
+            }
+            buf.flip();
+            if (buf.getInt() != MAGIC || buf.getLong() != hi || buf.getLong() != lo) {
+                throw new IOException("Index of " + dir + " does not match " + s.file + " at " + offsetOf(loc));
+            }
+            byte[] value = new byte[buf.getInt()];
+            buf.get(value);
+            return value;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Stores a new value for a record.
+     */
+    public void put(@Nonnull byte[] key, @Nonnull byte[] value) throws IOException {
+        lock.writeLock().lock();
+        try {
+            append(hi(key), lo(key), value);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Stores a record unless there is already one with the same key.
+     *
+     * @return false if there was already a record
+     */
+    public boolean putIfAbsent(@Nonnull byte[] key, @Nonnull byte[] value) throws IOException {
+        long hi = hi(key), lo = lo(key);
+        lock.writeLock().lock();
+        try {
+            if (index.find(hi, lo) >= 0) {
+                return false;
+            }
+            append(hi, lo, value);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a record.
+     *
+     * @return false if there was no such record
+     */
+    public boolean remove(@Nonnull byte[] key) throws IOException {
+        long hi = hi(key), lo = lo(key);
+        lock.writeLock().lock();
+        try {
+            if (index.find(hi, lo) < 0) {
+                return false;
+            }
+            append(hi, lo, null);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return index.size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Calls the given action with the key of every record, as of the time of the call.
+     */
+    public void forEachKey(@Nonnull Consumer<byte[]> action) {
+        long[] keys;
+        lock.readLock().lock();
+        try {
+            keys = index.keys();
+        } finally {
+            lock.readLock().unlock();
+        }
+        for (int i = 0; i < keys.length; i += 2) {
+            action.accept(key(keys[i], keys[i + 1]));
+        }
+    }
+
+    /**
+     * Whether superseded records and tombstones make up more than half of the store.
+     */
+    public boolean needsCompaction() {
+        lock.readLock().lock();
+        try {
+            return garbageBytes > Math.max(liveBytes, segmentSize) && segments.size() > 1;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rewrites the live records of the oldest segments at the end of the log until at most a quarter of the store is garbage.
+     * Other operations may go on meanwhile, but concurrent calls to this method wait for each other.
+     *
+     * @return the number of segments deleted
+     */
+    public int compact() throws IOException {
+        synchronized (compactLock) {
+            int compacted = 0;
+            while (true) {
+                Segment oldest;
+                lock.readLock().lock();
+                try {
+                    if (garbageBytes * 3 <= liveBytes || segments.size() < 2) {
+                        return compacted;
+                    }
+                    oldest = segments.firstEntry().getValue();
+                } finally {
+                    lock.readLock().unlock();
+                }
+                compact(oldest);
+                compacted++;
+            }
+        }
+    }
+
+    private void compact(Segment s) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(s.channel.position(0)), 65536));
+        long pos = 0;
+        while (pos < s.size) {
+            in.readInt();
+            long hi = in.readLong(), lo = in.readLong();
+            int len = in.readInt();
+            byte[] value = len > 0 ? new byte[len] : new byte[0];
+            in.readFully(value);
+            in.readInt();
+            if (len >= 0) {
+                lock.writeLock().lock();
+                try {
+                    int slot = index.find(hi, lo);
+                    if (slot >= 0 && index.locs[slot] == location(s.id, pos)) {
+                        append(hi, lo, value);
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+            pos += recordSize(len);
+        }
+        File obsolete = new File(s.file.getPath() + OBSOLETE_SUFFIX);
+        lock.writeLock().lock();
+        try {
+            // the records appended again must be on disk before the only other copy goes
+            active.channel.force(false);
+            // no longer replayed on open even if it cannot be deleted, as tombstones for its records may be compacted away
+            Files.move(s.file.toPath(), obsolete.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            segments.remove(s.id);
+            // every record still live was appended again above, which made it garbage here
+            garbageBytes -= s.garbage;
+            liveBytes -= s.size - s.garbage;
+            s.channel.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (!obsolete.delete()) {
+            LOGGER.log(Level.WARNING, "Failed to delete {0}", obsolete);
+        }
+    }
+
+    private void append(long hi, long lo, @CheckForNull byte[] value) throws IOException {
+        int len = value == null ? -1 : value.length;
+        int size = recordSize(len);
+        if (active.size > 0 && active.size + size > segmentSize) {
+            roll();
+        }
+        ByteBuffer buf = ByteBuffer.allocate(size);
+        buf.putInt(MAGIC).putLong(hi).putLong(lo).putInt(len);
+        if (value != null) {
+            buf.put(value);
+        }
+        CRC32 crc = new CRC32();
+        updateCrc(crc, hi, lo, len);
+        if (value != null) {
+            crc.update(value);
+        }
+        buf.putInt((int) crc.getValue()).flip();
+        long pos = active.size;
+        while (buf.hasRemaining()) {
+            active.channel.write(buf, pos + buf.position());
+        }
+        active.size += size;
+        if (value != null) {
+            supersede(index.put(hi, lo, location(active.id, pos), size));
+            liveBytes += size;
+        } else {
+            supersede(index.remove(hi, lo));
+            active.garbage += size;
+            garbageBytes += size;
+        }
+    }
+
+    private void roll() throws IOException {
+        if (active != null) {
+            active.channel.force(false);
+        }
+        int id = segments.isEmpty() ? 1 : segments.lastKey() + 1;
+        active = new Segment(id, new File(dir, String.format("%08d", id) + SUFFIX));
+        active.channel.truncate(0);
+        segments.put(id, active);
+    }
+
+    /**
+     * Forces the newest segment to disk.
+     */
+    public void flush() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (active != null) {
+                active.channel.force(false);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            IOException failure = null;
+            for (Segment s : segments.values()) {
+                try {
+                    if (s == active) {
+                        s.channel.force(false);
+                    }
+                    s.channel.close();
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+            segments.clear();
+            if (failure != null) {
+                throw failure;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Size of the segment files, of which {@link #getLiveBytes} are taken by live records.
+     */
+    public long getTotalBytes() {
+        lock.readLock().lock();
+        try {
+            return liveBytes + garbageBytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getLiveBytes() {
+        lock.readLock().lock();
+        try {
+            return liveBytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static int recordSize(int len) {
+        return HEADER_SIZE + Math.max(len, 0) + TRAILER_SIZE;
+    }
+
+    private static void updateCrc(CRC32 crc, long hi, long lo, int len) {
+        crc.update(ByteBuffer.allocate(20).putLong(hi).putLong(lo).putInt(len).array());
+    }
+
+    /**
+     * Packs where a record is: segment in the top 24 bits, offset in the low 40.
+     */
+    private static long location(int segment, long offset) {
+        return ((long) segment << 40) | offset;
+    }
+
+    private static int segmentOf(long loc) {
+        return (int) (loc >>> 40);
+    }
+
+    private static long offsetOf(long loc) {
+        return loc & ((1L << 40) - 1);
+    }
+
+    private static long hi(byte[] key) {
+        return ByteBuffer.wrap(key, 0, 8).getLong();
+    }
+
+    private static long lo(byte[] key) {
+        return ByteBuffer.wrap(key, 8, 8).getLong();
+    }
+
+    private static byte[] key(long hi, long lo) {
+        return ByteBuffer.allocate(16).putLong(hi).putLong(lo).array();
+    }
+
+    /**
+     * Open-addressing hash table from keys to record locations and sizes, with linear probing.
+     * Empty slots have a location of 0, which no record has since segments are numbered from 1.
+     */
+    private static final class Index {
+        long[] his = new long[1024], los = new long[1024], locs = new long[1024];
+        int[] sizes = new int[1024];
+        int size;
+        /**
+         * Size of the record whose location was last returned by {@link #put} or {@link #remove}.
+         */
+        int previousSize;
+
+        /**
+         * @return the slot of the key, or -1
+         */
+        int find(long hi, long lo) {
+            int mask = locs.length - 1;
+            for (int i = slot(hi, lo, mask); locs[i] != 0; i = (i + 1) & mask) {
+                if (his[i] == hi && los[i] == lo) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * @return the previous location, or 0
+         */
+        long put(long hi, long lo, long loc, int recordSize) {
+            if ((size + 1) * 4L > locs.length * 3L) {
+                grow();
+            }
+            int mask = locs.length - 1;
+            int i = slot(hi, lo, mask);
+            for (; locs[i] != 0; i = (i + 1) & mask) {
+                if (his[i] == hi && los[i] == lo) {
+                    long previous = locs[i];
+                    previousSize = sizes[i];
+                    locs[i] = loc;
+                    sizes[i] = recordSize;
+                    return previous;
+                }
+            }
+            his[i] = hi;
+            los[i] = lo;
+            locs[i] = loc;
+            sizes[i] = recordSize;
+            size++;
+            return 0;
+        }
+
+        /**
+         * @return the previous location, or 0
+         */
+        long remove(long hi, long lo) {
+            int i = find(hi, lo);
+            if (i < 0) {
+                return 0;
+            }
+            long previous = locs[i];
+            previousSize = sizes[i];
+            // shift back the following entries of the run, so that lookups need no tombstones
+            int mask = locs.length - 1;
+            int hole = i;
+            for (int j = (i + 1) & mask; locs[j] != 0; j = (j + 1) & mask) {
+                int home = slot(his[j], los[j], mask);
+                if (((j - home) & mask) >= ((j - hole) & mask)) {
+                    his[hole] = his[j];
+                    los[hole] = los[j];
+                    locs[hole] = locs[j];
+                    sizes[hole] = sizes[j];
+                    hole = j;
+                }
+            }
+            locs[hole] = 0;
+            size--;
+            return previous;
+        }
+
+        long[] keys() {
+            long[] keys = new long[size * 2];
+            int n = 0;
+            for (int i = 0; i < locs.length; i++) {
+                if (locs[i] != 0) {
+                    keys[n++] = his[i];
+                    keys[n++] = los[i];
+                }
+            }
+            return keys;
+        }
+
+        private void grow() {
+            long[] oldHis = his, oldLos = los, oldLocs = locs;
+            int[] oldSizes = sizes;
+            int capacity = locs.length * 2;
+            his = new long[capacity];
+            los = new long[capacity];
+            locs = new long[capacity];
+            sizes = new int[capacity];
+            size = 0;
+            for (int i = 0; i < oldLocs.length; i++) {
+                if (oldLocs[i] != 0) {
+                    put(oldHis[i], oldLos[i], oldLocs[i], oldSizes[i]);
+                }
+            }
+        }
+
+        private static int slot(long hi, long lo, int mask) {
+            long h = (hi ^ lo) * 0x9E3779B97F4A7C15L;
+            return (int) (h >>> 32) & mask;
+        }
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(PackedRecordStore.class.getName());
+}
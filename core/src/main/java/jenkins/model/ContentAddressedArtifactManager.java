@@ -0,0 +1,439 @@
+package jenkins.model;
+
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.Util;
+import hudson.model.BuildListener;
+import hudson.model.Run;
+import hudson.os.PosixException;
+import hudson.remoting.VirtualChannel;
+import hudson.tasks.Fingerprinter;
+import hudson.util.AtomicFileWriter;
+import hudson.util.IOUtils;
+import jenkins.MasterToSlaveFileCallable;
+import jenkins.util.VirtualFile;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Artifact manager which keeps each distinct file once in {@link ContentAddressedArtifactStore},
+ * and only a manifest of paths and checksums in the build directory.
+ * Files are stored by SHA-256 checksum, computed on the controller; MD5 checksums from the agent,
+ * possibly recorded by {@link Fingerprinter}, only tell which files may not need to be transferred.
+ * Files this job archived last time, as when it archives the same dependencies build after build,
+ * are not transferred from the workspace at all.
+ * @see ContentAddressedArtifactManagerFactory
+ */
+@Restricted(NoExternalUse.class)
+public final class ContentAddressedArtifactManager extends ArtifactManager {
+
+    private static final Logger LOGGER = Logger.getLogger(ContentAddressedArtifactManager.class.getName());
+
+    private transient Run<?,?> build;
+    /** Manifest entries by artifact path, loaded lazily. */
+    private transient TreeMap<String,Entry> manifest;
+
+    public ContentAddressedArtifactManager(Run<?,?> build) {
+        onLoad(build);
+    }
+
+    @Override public void onLoad(Run<?,?> build) {
+        this.build = build;
+    }
+
+    @Override public synchronized void archive(FilePath workspace, Launcher launcher, BuildListener listener, Map<String,String> artifacts) throws IOException, InterruptedException {
+        ContentAddressedArtifactStore store = ContentAddressedArtifactStore.get();
+        Map<String,String> known = new HashMap<>();
+        Fingerprinter.FingerprintAction fingerprints = build.getAction(Fingerprinter.FingerprintAction.class);
+        if (fingerprints != null) {
+            for (Map.Entry<String,String> e : fingerprints.getRecords().entrySet()) {
+                known.put(e.getKey().replace('\\', '/'), e.getValue());
+            }
+        }
+        // a file older than the build cannot have changed since it was fingerprinted; allow for coarse timestamps
+        List<Entry> entries = workspace.act(new Scan(artifacts, known, build.getStartTimeInMillis() - 2000));
+        if (entries.size() < artifacts.size()) {
+            listener.getLogger().println("Skipped archiving " + (artifacts.size() - entries.size()) + " files which are not regular files inside the workspace");
+        }
+        Map<String,String> archived = archivedChecksums();
+        List<String> taken = new ArrayList<>();
+        boolean saved = false;
+        try {
+            Map<String,List<Entry>> missing = new LinkedHashMap<>();
+            for (Entry e : entries) {
+                String sha256 = archived.get(e.md5);
+                if (!missing.containsKey(e.md5) && sha256 != null && store.refIfPresent(sha256, e.size)) {
+                    e.sha256 = sha256;
+                    taken.add(sha256);
+                } else {
+                    missing.computeIfAbsent(e.md5, k -> new ArrayList<>()).add(e);
+                }
+            }
+            if (!missing.isEmpty()) {
+                transfer(store, workspace, missing, taken);
+            }
+            LOGGER.log(Level.FINE, "archived {0} files of {1}, {2} of them new", new Object[] {entries.size(), build, missing.size()});
+            List<Entry> replaced = new ArrayList<>();
+            TreeMap<String,Entry> m = getManifest();
+            for (Entry e : entries) {
+                Entry old = m.put(e.path, e);
+                if (old != null) {
+                    replaced.add(old);
+                }
+            }
+            saveManifest();
+            saved = true;
+            for (Entry e : replaced) {
+                store.unref(e.sha256);
+            }
+        } finally {
+            if (!saved) {
+                manifest = null;
+                for (String sha256 : taken) {
+                    store.unref(sha256);
+                }
+            }
+        }
+    }
+
+    /**
+     * Store checksums of files this build or the last one which did not fail archived, by MD5 checksum.
+     * The agent may report any MD5 checksum it likes, so only contents this job could read anyway
+     * are taken from the store without a transfer; anything else is transferred and checked again.
+     */
+    private Map<String,String> archivedChecksums() throws IOException {
+        Map<String,String> checksums = new HashMap<>();
+        Run<?,?> previous = build.getPreviousNotFailedBuild();
+        if (previous != null) {
+            ArtifactManager am = previous.getArtifactManager();
+            if (am instanceof ContentAddressedArtifactManager) {
+                for (Entry e : ((ContentAddressedArtifactManager) am).getManifest().values()) {
+                    checksums.put(e.md5, e.sha256);
+                }
+            }
+        }
+        for (Entry e : getManifest().values()) {
+            checksums.put(e.md5, e.sha256);
+        }
+        return checksums;
+    }
+
+    /**
+     * Copies files not yet in the store and adds them, checking their checksums again in case they changed meanwhile.
+     * @param missing entries to transfer by checksum
+     * @param taken to which to add the checksums of references taken
+     */
+    private void transfer(ContentAddressedArtifactStore store, FilePath workspace, Map<String,List<Entry>> missing, List<String> taken) throws IOException, InterruptedException {
+        Map<String,String> files = new HashMap<>();
+        for (Map.Entry<String,List<Entry>> e : missing.entrySet()) {
+            files.put(e.getKey(), e.getValue().get(0).wsPath);
+        }
+        File staging = store.createStagingDir();
+        try {
+            workspace.copyRecursiveTo(new FilePath.ExplicitlySpecifiedDirScanner(files), new FilePath(staging), "transfer of " + files.size() + " files");
+            for (Map.Entry<String,List<Entry>> e : missing.entrySet()) {
+                File staged = new File(staging, e.getKey());
+                if (!staged.isFile()) {
+                    throw new FileNotFoundException("failed to transfer " + files.get(e.getKey()));
+                }
+                String md5 = Util.getDigestOf(staged);
+                String sha256 = ContentAddressedArtifactStore.checksum(staged);
+                long size = staged.length();
+                store.add(sha256, staged);
+                taken.add(sha256);
+                for (int i = 1; i < e.getValue().size(); i++) {
+                    store.ref(sha256);
+                    taken.add(sha256);
+                }
+                for (Entry entry : e.getValue()) {
+                    entry.md5 = md5;
+                    entry.sha256 = sha256;
+                    entry.size = size;
+                }
+            }
+        } finally {
+            Util.deleteRecursive(staging);
+        }
+    }
+
+    @Override public synchronized boolean delete() throws IOException, InterruptedException {
+        File file = getManifestFile();
+        TreeMap<String,Entry> m;
+        try {
+            m = getManifest();
+            Files.delete(file.toPath());
+        } catch (NoSuchFileException x) {
+            LOGGER.log(Level.FINE, "no manifest {0} to delete for {1}", new Object[] {file, build});
+            return false;
+        } finally {
+            manifest = null;
+        }
+        LOGGER.log(Level.FINE, "deleting {0} for {1}", new Object[] {file, build});
+        ContentAddressedArtifactStore store = ContentAddressedArtifactStore.get();
+        for (Entry e : m.values()) {
+            store.unref(e.sha256);
+        }
+        return true;
+    }
+
+    @Override public VirtualFile root() {
+        return new ManifestFile(this, "");
+    }
+
+    private File getManifestFile() {
+        return new File(build.getRootDir(), "archive-manifest.txt");
+    }
+
+    /**
+     * Loads the manifest, made of lines of tab-separated store checksum, MD5 checksum, size, timestamp, mode, and path.
+     */
+    private synchronized TreeMap<String,Entry> getManifest() throws IOException {
+        if (manifest == null) {
+            TreeMap<String,Entry> m = new TreeMap<>();
+            if (getManifestFile().isFile()) {
+                try (BufferedReader r = Files.newBufferedReader(getManifestFile().toPath(), StandardCharsets.UTF_8)) {
+                    String line;
+                    while ((line = r.readLine()) != null) {
+                        String[] fields = line.split("\t", 6);
+                        if (fields.length != 6) {
+                            throw new IOException("malformed line in " + getManifestFile() + ": " + line);
+                        }
+                        try {
+                            Entry e = new Entry(fields[5], null, fields[1], Long.parseLong(fields[2]), Long.parseLong(fields[3]), Integer.parseInt(fields[4]));
+                            e.sha256 = fields[0];
+                            m.put(e.path, e);
+                        } catch (NumberFormatException x) {
+                            throw new IOException("malformed line in " + getManifestFile() + ": " + line, x);
+                        }
+                    }
+                }
+            }
+            manifest = m;
+        }
+        return manifest;
+    }
+
+    private void saveManifest() throws IOException {
+        AtomicFileWriter w = new AtomicFileWriter(getManifestFile().toPath(), StandardCharsets.UTF_8);
+        try {
+            for (Entry e : manifest.values()) {
+                w.write(e.sha256 + '\t' + e.md5 + '\t' + e.size + '\t' + e.lastModified + '\t' + e.mode + '\t' + e.path + '\n');
+            }
+            w.commit();
+        } finally {
+            w.abort();
+        }
+    }
+
+    private static final class Entry implements Serializable {
+        private static final long serialVersionUID = 1L;
+        final String path;
+        /** Path within the workspace, which differs from {@link #path} for symbolic links; not saved. */
+        final String wsPath;
+        String md5;
+        /** Checksum in {@link ContentAddressedArtifactStore}, only computed on the controller. */
+        String sha256;
+        long size;
+        final long lastModified;
+        final int mode;
+
+        Entry(String path, String wsPath, String md5, long size, long lastModified, int mode) {
+            this.path = path;
+            this.wsPath = wsPath;
+            this.md5 = md5;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.mode = mode;
+        }
+    }
+
+    /**
+     * Summarizes artifacts in the workspace, reusing checksums from {@link Fingerprinter} where possible.
+     * Symbolic links are resolved, and skipped if they point outside the workspace.
+     */
+    private static final class Scan extends MasterToSlaveFileCallable<ArrayList<Entry>> {
+        private static final long serialVersionUID = 1L;
+        private final Map<String,String> artifacts;
+        private final Map<String,String> known;
+        private final long knownBefore;
+
+        Scan(Map<String,String> artifacts, Map<String,String> known, long knownBefore) {
+            this.artifacts = new HashMap<>(artifacts);
+            this.known = known;
+            this.knownBefore = knownBefore;
+        }
+
+        @Override public ArrayList<Entry> invoke(File ws, VirtualChannel channel) throws IOException, InterruptedException {
+            Path base = ws.toPath().toRealPath();
+            ArrayList<Entry> entries = new ArrayList<>();
+            for (Map.Entry<String,String> a : artifacts.entrySet()) {
+                File f = new File(ws, a.getValue());
+                String wsPath = a.getValue();
+                if (Files.isSymbolicLink(f.toPath())) {
+                    Path real;
+                    try {
+                        real = f.toPath().toRealPath();
+                    } catch (NoSuchFileException x) {
+                        continue;
+                    }
+                    if (!real.startsWith(base)) {
+                        continue;
+                    }
+                    wsPath = base.relativize(real).toString().replace('\\', '/');
+                    f = real.toFile();
+                }
+                if (!f.isFile()) {
+                    continue;
+                }
+                long lastModified = f.lastModified();
+                String md5 = known.get(a.getValue());
+                if (md5 == null || lastModified >= knownBefore) {
+                    md5 = Util.getDigestOf(f);
+                }
+                int mode;
+                try {
+                    mode = IOUtils.mode(f);
+                } catch (PosixException x) {
+                    mode = -1;
+                }
+                entries.add(new Entry(a.getKey(), wsPath, md5, f.length(), lastModified, mode));
+            }
+            return entries;
+        }
+    }
+
+    /**
+     * A file or directory of the manifest; directories are implied by the paths of files.
+     */
+    private static final class ManifestFile extends VirtualFile {
+        private static final long serialVersionUID = 1L;
+        private final transient ContentAddressedArtifactManager manager;
+        private final String path;
+
+        ManifestFile(ContentAddressedArtifactManager manager, String path) {
+            this.manager = manager;
+            this.path = path;
+        }
+
+        private String prefix() {
+            return path.isEmpty() ? "" : path + '/';
+        }
+
+        private @CheckForNull Entry entry() throws IOException {
+            return manager.getManifest().get(path);
+        }
+
+        @Override public @Nonnull String getName() {
+            return path.substring(path.lastIndexOf('/') + 1);
+        }
+
+        @Override public @Nonnull URI toURI() {
+            try {
+                return new URI("artifact", null, '/' + path, null);
+            } catch (URISyntaxException x) {
+                throw new IllegalStateException(x);
+            }
+        }
+
+        @Override public VirtualFile getParent() {
+            return path.isEmpty() ? null : new ManifestFile(manager, path.substring(0, Math.max(0, path.lastIndexOf('/'))));
+        }
+
+        @Override public boolean isDirectory() throws IOException {
+            String prefix = prefix();
+            SortedMap<String,Entry> tail = manager.getManifest().tailMap(prefix);
+            return !tail.isEmpty() && tail.firstKey().startsWith(prefix);
+        }
+
+        @Override public boolean isFile() throws IOException {
+            return entry() != null;
+        }
+
+        @Override public boolean exists() throws IOException {
+            return isFile() || isDirectory();
+        }
+
+        @Override public @Nonnull VirtualFile[] list() throws IOException {
+            String prefix = prefix();
+            TreeSet<String> names = new TreeSet<>();
+            for (String p : manager.getManifest().tailMap(prefix).keySet()) {
+                if (!p.startsWith(prefix)) {
+                    break;
+                }
+                int slash = p.indexOf('/', prefix.length());
+                names.add(slash == -1 ? p.substring(prefix.length()) : p.substring(prefix.length(), slash));
+            }
+            List<VirtualFile> children = new ArrayList<>();
+            for (String name : names) {
+                children.add(child(name));
+            }
+            return children.toArray(new VirtualFile[0]);
+        }
+
+        @Override public @Nonnull VirtualFile child(@Nonnull String name) {
+            return new ManifestFile(manager, prefix() + name);
+        }
+
+        @Override public long length() throws IOException {
+            Entry e = entry();
+            return e != null ? e.size : 0;
+        }
+
+        @Override public long lastModified() throws IOException {
+            Entry e = entry();
+            return e != null ? e.lastModified : 0;
+        }
+
+        @Override public int mode() throws IOException {
+            Entry e = entry();
+            return e != null ? e.mode : -1;
+        }
+
+        @Override public boolean canRead() throws IOException {
+            return exists();
+        }
+
+        @Override public InputStream open() throws IOException {
+            Entry e = entry();
+            if (e == null) {
+                throw new FileNotFoundException(path);
+            }
+            return Files.newInputStream(ContentAddressedArtifactStore.get().file(e.sha256).toPath());
+        }
+
+        @Override public boolean supportIsDescendant() {
+            return true;
+        }
+
+        @Override public boolean isDescendant(String childRelativePath) throws IOException {
+            // only archived files are listed, never anything a symbolic link could lead to
+            return true;
+        }
+    }
+
+}
@@ -0,0 +1,28 @@
+package jenkins.model;
+
+import hudson.Extension;
+import hudson.model.Run;
+import org.jenkinsci.Symbol;
+import org.kohsuke.stapler.DataBoundConstructor;
+
+/**
+ * Stores artifacts in {@link ContentAddressedArtifactStore}, keeping each distinct file once across all builds.
+ * @since TODO
+ */
+public final class ContentAddressedArtifactManagerFactory extends ArtifactManagerFactory {
+
+    @DataBoundConstructor
+    public ContentAddressedArtifactManagerFactory() {}
+
+    @Override public ArtifactManager managerFor(Run<?,?> build) {
+        return new ContentAddressedArtifactManager(build);
+    }
+
+    @Extension @Symbol("contentAddressed")
+    public static final class DescriptorImpl extends ArtifactManagerFactoryDescriptor {
+        @Override public String getDisplayName() {
+            return Messages.ContentAddressedArtifactManagerFactory_DisplayName();
+        }
+    }
+
+}
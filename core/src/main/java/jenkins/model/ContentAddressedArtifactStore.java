@@ -0,0 +1,249 @@
+package jenkins.model;
+
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.Util;
+import hudson.init.Terminator;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+import javax.annotation.Nonnull;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Files kept by {@link ContentAddressedArtifactManager}, stored once per SHA-256 checksum in {@code $JENKINS_HOME/artifact-store}.
+ *
+ * <p>
+ * Each file counts the build manifests referring to it, and is deleted when that drops to zero.
+ * Counts are kept in an append-only journal of changes, {@code refs.log}, rewritten when it grows too long.
+ * Callers add references before writing a manifest and remove them after deleting one,
+ * so that a crash in between can only leave a file behind, never delete one still in use.
+ */
+@Extension
+@Restricted(NoExternalUse.class)
+public final class ContentAddressedArtifactStore {
+    private static final Pattern SHA256 = Pattern.compile("[0-9a-f]{64}");
+
+    private final File dir;
+    private Map<String, Integer> refs;
+    private int journalLength;
+    private Writer journal;
+
+    public ContentAddressedArtifactStore() {
+        this(new File(Jenkins.get().getRootDir(), "artifact-store"));
+    }
+
+    ContentAddressedArtifactStore(File dir) {
+        this.dir = dir;
+    }
+
+    public static @Nonnull ContentAddressedArtifactStore get() {
+        return ExtensionList.lookupSingleton(ContentAddressedArtifactStore.class);
+    }
+
+    /**
+     * Gets the file holding the given contents, whether it exists or not.
+     */
+    public @Nonnull File file(@Nonnull String sha256) {
+        if (!SHA256.matcher(sha256).matches()) {
+            throw new IllegalArgumentException(sha256);
+        }
+        return new File(dir, sha256.substring(0, 2) + '/' + sha256.substring(2));
+    }
+
+    /**
+     * Computes the checksum under which contents are stored.
+     */
+    public static @Nonnull String checksum(@Nonnull File f) throws IOException {
+        try (InputStream in = Files.newInputStream(f.toPath())) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buf = new byte[8192];
+            int len;
+            while ((len = in.read(buf)) >= 0) {
+                digest.update(buf, 0, len);
+            }
+            return Util.toHexString(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Adds a reference to contents if they are already stored.
+     *
+     * @return false if they are not, so must be {@link #add}ed
+     */
+    public synchronized boolean refIfPresent(@Nonnull String sha256, long size) throws IOException {
+        File f = file(sha256);
+        if (!f.isFile() || f.length() != size) {
+            return false;
+        }
+        ref(sha256);
+        return true;
+    }
+
+    /**
+     * Creates a directory to receive files to {@link #add}.
+     */
+    public synchronized @Nonnull File createStagingDir() throws IOException {
+        load(); // cleans up leftovers
+        File tmp = new File(dir, "tmp");
+        Files.createDirectories(tmp.toPath());
+        return Files.createTempDirectory(tmp.toPath(), "staging").toFile();
+    }
+
+    /**
+     * Moves a file into the store, unless the same contents are there already, and adds a reference to it.
+     *
+     * @param sha256 the checksum of the file, which the caller must have verified
+     */
+    public synchronized void add(@Nonnull String sha256, @Nonnull File staged) throws IOException {
+        File f = file(sha256);
+        if (f.isFile() && f.length() == staged.length()) {
+            Files.delete(staged.toPath());
+        } else {
+            // if present at all, damaged, so replaced by contents known to have the right checksum
+            Files.createDirectories(f.getParentFile().toPath());
+            Files.move(staged.toPath(), f.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        ref(sha256);
+    }
+
+    /**
+     * Adds a reference to stored contents.
+     */
+    public synchronized void ref(@Nonnull String sha256) throws IOException {
+        change(sha256, 1);
+    }
+
+    /**
+     * Removes a reference to stored contents, deleting them if it was the last one.
+     */
+    public synchronized void unref(@Nonnull String sha256) throws IOException {
+        if (change(sha256, -1) == 0) {
+            File f = file(sha256);
+            Files.deleteIfExists(f.toPath());
+            File parent = f.getParentFile();
+            String[] kids = parent.list();
+            if (kids != null && kids.length == 0) {
+                parent.delete();
+            }
+        }
+    }
+
+    /**
+     * Gets the number of references to stored contents.
+     */
+    public synchronized int getRefs(@Nonnull String sha256) throws IOException {
+        load();
+        return refs.getOrDefault(sha256, 0);
+    }
+
+    private int change(String sha256, int delta) throws IOException {
+        load();
+        int count = Math.max(0, refs.getOrDefault(sha256, 0) + delta);
+        if (count == 0) {
+            refs.remove(sha256);
+        } else {
+            refs.put(sha256, count);
+        }
+        if (journalLength > 2 * refs.size() + 1000) {
+            rewriteJournal();
+        } else {
+            journal.write(sha256 + ' ' + delta + '\n');
+            journal.flush();
+            journalLength++;
+        }
+        return count;
+    }
+
+    private void load() throws IOException {
+        if (refs != null) {
+            return;
+        }
+        Map<String, Integer> refs = new HashMap<>();
+        int length = 0;
+        try (BufferedReader r = Files.newBufferedReader(getJournalFile().toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                length++;
+                int space = line.indexOf(' ');
+                if (space != 64 || !SHA256.matcher(line.substring(0, space)).matches()) {
+                    LOGGER.log(Level.WARNING, "Ignoring malformed line in {0}: {1}", new Object[] {getJournalFile(), line});
+                    continue;
+                }
+                try {
+                    refs.merge(line.substring(0, space), Integer.parseInt(line.substring(space + 1)), Integer::sum);
+                } catch (NumberFormatException e) {
+                    // torn write of the last line
+                    LOGGER.log(Level.WARNING, "Ignoring malformed line in {0}: {1}", new Object[] {getJournalFile(), line});
+                }
+            }
+        } catch (NoSuchFileException e) {
+            // empty store
+        }
+        refs.values().removeIf(count -> count <= 0);
+        this.refs = refs;
+        this.journalLength = length;
+        if (length > refs.size()) {
+            rewriteJournal();
+        } else {
+            openJournal();
+        }
+        Util.deleteRecursive(new File(dir, "tmp"));
+    }
+
+    private void rewriteJournal() throws IOException {
+        if (journal != null) {
+            journal.close();
+        }
+        File file = getJournalFile();
+        File tmp = new File(file.getPath() + ".tmp");
+        Files.createDirectories(dir.toPath());
+        try (Writer w = Files.newBufferedWriter(tmp.toPath(), StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, Integer> e : refs.entrySet()) {
+                w.write(e.getKey() + ' ' + e.getValue() + '\n');
+            }
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        journalLength = refs.size();
+        openJournal();
+    }
+
+    private void openJournal() throws IOException {
+        Files.createDirectories(dir.toPath());
+        journal = Files.newBufferedWriter(getJournalFile().toPath(), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    @Terminator
+    public synchronized void close() throws IOException {
+        if (journal != null) {
+            journal.close();
+            journal = null;
+            refs = null;
+        }
+    }
+
+    private File getJournalFile() {
+        return new File(dir, "refs.log");
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(ContentAddressedArtifactStore.class.getName());
+}
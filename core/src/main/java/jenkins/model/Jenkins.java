@@ -464,6 +464,18 @@ public class Jenkins extends AbstractCIBase implements DirectlyModifiableTopLeve
 
     private transient volatile DependencyGraph dependencyGraph;
     private final transient AtomicBoolean dependencyGraphDirty = new AtomicBoolean();
+    /**
+     * Whether the next update of {@link #dependencyGraph} must look at all projects.
+     */
+    private final transient AtomicBoolean dependencyGraphFullRebuild = new AtomicBoolean();
+    /**
+     * Projects whose configuration changed since {@link #dependencyGraph} was built.
+     */
+    private final transient Set<AbstractProject<?,?>> dependencyGraphChanges = ConcurrentHashMap.newKeySet();
+    /**
+     * Held while computing {@link #dependencyGraph}, so that updates are applied one after the other.
+     */
+    private final transient Object dependencyGraphLock = new Object();
 
     /**
      * Currently active Views tab bar.
@@ -4625,12 +4637,17 @@ public class Jenkins extends AbstractCIBase implements DirectlyModifiableTopLeve
      * Rebuilds the dependency map.
      */
     public void rebuildDependencyGraph() {
-        DependencyGraph graph = new DependencyGraph();
-        graph.build();
-        // volatile acts a as a memory barrier here and therefore guarantees
-        // that graph is fully build, before it's visible to other threads
-        dependencyGraph = graph;
-        dependencyGraphDirty.set(false);
+        synchronized (dependencyGraphLock) {
+            // changes made from now on will be applied by another update
+            dependencyGraphDirty.set(false);
+            dependencyGraphFullRebuild.set(false);
+            dependencyGraphChanges.clear();
+            DependencyGraph graph = new DependencyGraph();
+            graph.build();
+            // volatile acts a as a memory barrier here and therefore guarantees
+            // that graph is fully build, before it's visible to other threads
+            dependencyGraph = graph;
+        }
     }
 
     /**
@@ -4643,18 +4660,57 @@ public class Jenkins extends AbstractCIBase implements DirectlyModifiableTopLeve
      * @since 1.522
      */
     public Future<DependencyGraph> rebuildDependencyGraphAsync() {
+        dependencyGraphFullRebuild.set(true);
+        return updateDependencyGraphAsync();
+    }
+
+    /**
+     * Updates the dependency map asynchronously after the configuration of a project changed.
+     *
+     * <p>
+     * If {@link #INCREMENTAL_DEPENDENCY_GRAPH} is set, and nothing else requested a full {@link #rebuildDependencyGraphAsync()},
+     * only the changed projects are asked for their dependencies again, see {@link DependencyGraph#build(DependencyGraph, Collection)}.
+     *
+     * @since TODO
+     */
+    public Future<DependencyGraph> rebuildDependencyGraphAsync(@Nonnull AbstractProject<?,?> changed) {
+        dependencyGraphChanges.add(changed);
+        return updateDependencyGraphAsync();
+    }
+
+    private Future<DependencyGraph> updateDependencyGraphAsync() {
         dependencyGraphDirty.set(true);
         return Timer.get().schedule(new java.util.concurrent.Callable<DependencyGraph>() {
             @Override
             public DependencyGraph call() throws Exception {
-                if (dependencyGraphDirty.get()) {
-                    rebuildDependencyGraph();
-                }
+                updateDependencyGraph();
                 return dependencyGraph;
             }
         }, 500, TimeUnit.MILLISECONDS);
     }
 
+    private void updateDependencyGraph() {
+        synchronized (dependencyGraphLock) {
+            if (!dependencyGraphDirty.getAndSet(false)) {
+                return; // already done by an earlier update
+            }
+            boolean full = dependencyGraphFullRebuild.getAndSet(false);
+            List<AbstractProject<?,?>> changed = new ArrayList<>();
+            for (Iterator<AbstractProject<?,?>> it = dependencyGraphChanges.iterator(); it.hasNext(); ) {
+                changed.add(it.next());
+                it.remove();
+            }
+            DependencyGraph previous = dependencyGraph;
+            DependencyGraph graph = new DependencyGraph();
+            if (full || !INCREMENTAL_DEPENDENCY_GRAPH || previous == null) {
+                graph.build();
+            } else {
+                graph.build(previous, changed);
+            }
+            dependencyGraph = graph;
+        }
+    }
+
     public DependencyGraph getDependencyGraph() {
         return dependencyGraph;
     }
@@ -5134,6 +5190,11 @@ public class Jenkins extends AbstractCIBase implements DirectlyModifiableTopLeve
 
     public static boolean PARALLEL_LOAD = Configuration.getBooleanConfigParameter("parallelLoad", true);
     public static boolean KILL_AFTER_LOAD = Configuration.getBooleanConfigParameter("killAfterLoad", false);
+    /**
+     * Whether {@link #rebuildDependencyGraphAsync(AbstractProject)} only looks at the changed projects.
+     */
+    @Restricted(NoExternalUse.class)
+    public static /* non-final for Groovy */ boolean INCREMENTAL_DEPENDENCY_GRAPH = Configuration.getBooleanConfigParameter("incrementalDependencyGraph", false);
     /**
      * @deprecated No longer used.
      */
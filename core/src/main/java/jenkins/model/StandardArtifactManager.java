@@ -31,10 +31,24 @@ import hudson.model.BuildListener;
 import hudson.model.Run;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import javax.annotation.CheckForNull;
+import jenkins.util.SystemProperties;
 import jenkins.util.VirtualFile;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
 
 /**
  * Default artifact manager which transfers files over the remoting channel and stores them inside the build directory.
@@ -58,7 +72,148 @@ public class StandardArtifactManager extends ArtifactManager {
     @Override public void archive(FilePath workspace, Launcher launcher, BuildListener listener, final Map<String,String> artifacts) throws IOException, InterruptedException {
         File dir = getArtifactsDir();
         String description = "transfer of " + artifacts.size() + " files"; // TODO improve when just one file
-        workspace.copyRecursiveTo(new FilePath.ExplicitlySpecifiedDirScanner(artifacts), new FilePath(dir), description);
+        Map<String,String> remaining = artifacts;
+        if (LOCAL_ARCHIVING && !workspace.isRemote()) {
+            remaining = archiveLocally(new File(workspace.getRemote()), dir, artifacts);
+            if (remaining.isEmpty()) {
+                return;
+            }
+        }
+        unlinkExisting(dir, remaining.keySet());
+        workspace.copyRecursiveTo(new FilePath.ExplicitlySpecifiedDirScanner(remaining), new FilePath(dir), description);
+    }
+
+    /**
+     * Archives the regular files of a workspace on this machine.
+     * A file with the same contents as the same artifact of the previous build is hard linked to it;
+     * other files are copied with {@link FileChannel#transferTo}, which lets the OS copy without going through this process.
+     * @return the artifacts left to be archived as usual, such as symbolic links
+     */
+    private Map<String,String> archiveLocally(File workspace, File dir, Map<String,String> artifacts) throws IOException {
+        File previous = getPreviousArtifactsDir();
+        Map<String,String> remaining = new HashMap<>();
+        int linked = 0;
+        for (Map.Entry<String,String> e : artifacts.entrySet()) {
+            Path src = new File(workspace, e.getValue()).toPath();
+            BasicFileAttributes attrs;
+            try {
+                attrs = Files.readAttributes(src, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            } catch (NoSuchFileException x) {
+                remaining.put(e.getKey(), e.getValue());
+                continue;
+            }
+            if (!attrs.isRegularFile()) {
+                remaining.put(e.getKey(), e.getValue());
+                continue;
+            }
+            Path dest = new File(dir, e.getKey()).toPath();
+            Files.createDirectories(dest.getParent());
+            if (previous != null && link(src, attrs, new File(previous, e.getKey()).toPath(), dest)) {
+                linked++;
+            } else {
+                transfer(src, attrs, dest);
+            }
+        }
+        LOG.log(Level.FINE, "archived {0} files of {1} locally, {2} of them linked to {3}", new Object[] {artifacts.size() - remaining.size(), build, linked, previous});
+        return remaining;
+    }
+
+    /**
+     * Deletes files about to be archived again in the same build, rather than writing into them,
+     * as they may be {@linkplain #link linked} to the artifacts of the previous build.
+     */
+    private static void unlinkExisting(File dir, Collection<String> paths) throws IOException {
+        if (!dir.isDirectory()) {
+            return;
+        }
+        for (String path : paths) {
+            Path dest = new File(dir, path).toPath();
+            if (!Files.isDirectory(dest, LinkOption.NOFOLLOW_LINKS)) {
+                Files.deleteIfExists(dest);
+            }
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private @CheckForNull File getPreviousArtifactsDir() {
+        Run<?,?> previous = build.getPreviousBuild();
+        return previous != null && previous.getArtifactManager() instanceof StandardArtifactManager ? previous.getArtifactsDir() : null;
+    }
+
+    /**
+     * Hard links an artifact to the same one of the previous build if they have the same contents.
+     * Artifacts are never modified once archived, and deleting either build leaves the other one intact.
+     */
+    private static boolean link(Path src, BasicFileAttributes attrs, Path previous, Path dest) {
+        try {
+            BasicFileAttributes previousAttrs = Files.readAttributes(previous, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            if (!previousAttrs.isRegularFile() || previousAttrs.size() != attrs.size() || !sameContents(src, previous)) {
+                return false;
+            }
+            Files.deleteIfExists(dest);
+            Files.createLink(dest, previous);
+            return true;
+        } catch (NoSuchFileException x) {
+            return false;
+        } catch (IOException | UnsupportedOperationException | SecurityException x) {
+            LOG.log(Level.FINE, "could not link " + dest + " to " + previous, x);
+            return false;
+        }
+    }
+
+    private static boolean sameContents(Path a, Path b) throws IOException {
+        ByteBuffer bufA = ByteBuffer.allocate(COMPARE_BUFFER_SIZE);
+        ByteBuffer bufB = ByteBuffer.allocate(COMPARE_BUFFER_SIZE);
+        try (FileChannel chA = FileChannel.open(a, StandardOpenOption.READ); FileChannel chB = FileChannel.open(b, StandardOpenOption.READ)) {
+            while (true) {
+                int n = readFully(chA, bufA);
+                if (n != readFully(chB, bufB)) {
+                    return false;
+                }
+                bufA.flip();
+                bufB.flip();
+                if (!bufA.equals(bufB)) {
+                    return false;
+                }
+                if (n < COMPARE_BUFFER_SIZE) {
+                    return true;
+                }
+                bufA.clear();
+                bufB.clear();
+            }
+        }
+    }
+
+    private static int readFully(FileChannel ch, ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining() && ch.read(buf) >= 0) {
+            // keep reading
+        }
+        return buf.position();
+    }
+
+    private static final int COMPARE_BUFFER_SIZE = 64 * 1024;
+
+    private static void transfer(Path src, BasicFileAttributes attrs, Path dest) throws IOException {
+        // archived before in this build, and perhaps linked to the previous build
+        Files.deleteIfExists(dest);
+        try (FileChannel in = FileChannel.open(src, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(dest, StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW)) {
+            long size = in.size();
+            long position = 0;
+            while (position < size) {
+                long n = in.transferTo(position, size - position, out);
+                if (n <= 0) {
+                    break; // truncated meanwhile
+                }
+                position += n;
+            }
+        }
+        Files.setLastModifiedTime(dest, attrs.lastModifiedTime());
+        try {
+            Files.setPosixFilePermissions(dest, Files.getPosixFilePermissions(src));
+        } catch (UnsupportedOperationException x) {
+            // not a POSIX file system
+        }
     }
 
     @Override public final boolean delete() throws IOException, InterruptedException {
@@ -81,4 +236,11 @@ public class StandardArtifactManager extends ArtifactManager {
         return build.getArtifactsDir();
     }
 
+    /**
+     * Whether to archive files from a workspace on the controller without {@link FilePath#copyRecursiveTo},
+     * linking unchanged artifacts to those of the previous build.
+     */
+    @Restricted(NoExternalUse.class)
+    public static /* non-final for Groovy */ boolean LOCAL_ARCHIVING = SystemProperties.getBoolean(StandardArtifactManager.class.getName() + ".localArchiving");
+
 }
@@ -27,9 +27,12 @@ import com.google.common.annotations.VisibleForTesting;
 import hudson.BulkChange;
 import hudson.Util;
 import hudson.XmlFile;
+import hudson.init.Terminator;
 import hudson.model.Saveable;
 import hudson.model.User;
 import hudson.model.listeners.SaveableListener;
+import jenkins.util.SystemProperties;
+import jenkins.util.Timer;
 import org.kohsuke.accmod.Restricted;
 import org.kohsuke.accmod.restrictions.NoExternalUse;
 
@@ -43,7 +46,10 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -57,6 +63,16 @@ public class ApiTokenStats implements Saveable {
      */
     private List<SingleTokenStats> tokenStats;
     
+    /**
+     * The elements of {@link #tokenStats} by id, so that recording a use needs neither a search nor the lock.
+     */
+    private transient Map<String, SingleTokenStats> statsById;
+    
+    /**
+     * Whether a {@link #flush()} is already scheduled.
+     */
+    private transient AtomicBoolean flushScheduled;
+    
     private transient User user;
     
     @VisibleForTesting 
@@ -78,6 +94,9 @@ public class ApiTokenStats implements Saveable {
         } else {
             keepLastUpdatedUnique();
         }
+        this.statsById = new ConcurrentHashMap<>();
+        this.tokenStats.forEach(s -> statsById.put(s.tokenUuid, s));
+        this.flushScheduled = new AtomicBoolean();
     }
     
     /**
@@ -125,46 +144,81 @@ public class ApiTokenStats implements Saveable {
         }
         
         boolean tokenRemoved = tokenStats.removeIf(s -> s.tokenUuid.equals(tokenUuid));
+        statsById.remove(tokenUuid);
         if (tokenRemoved) {
             save();
         }
     }
     
     /**
-     * Will trigger the save
+     * Will trigger the save, at once or within {@link #MAX_STALENESS} milliseconds
      */
-    public synchronized @Nonnull SingleTokenStats updateUsageForId(@Nonnull String tokenUuid) {
+    public @Nonnull SingleTokenStats updateUsageForId(@Nonnull String tokenUuid) {
         if(areStatsDisabled()){
             return new SingleTokenStats(tokenUuid);
         }
         
-        SingleTokenStats stats = findById(tokenUuid)
-                .orElseGet(() -> {
-                    SingleTokenStats result = new SingleTokenStats(tokenUuid);
+        SingleTokenStats stats = statsById.get(tokenUuid);
+        if (stats == null) {
+            synchronized (this) {
+                stats = statsById.computeIfAbsent(tokenUuid, id -> {
+                    SingleTokenStats result = new SingleTokenStats(id);
                     tokenStats.add(result);
                     return result;
                 });
+            }
+        }
         
         stats.notifyUse();
-        save();
+        if (MAX_STALENESS > 0) {
+            saveLater();
+        } else {
+            save();
+        }
         
         return stats;
     }
     
-    public synchronized @Nonnull SingleTokenStats findTokenStatsById(@Nonnull String tokenUuid) {
+    public @Nonnull SingleTokenStats findTokenStatsById(@Nonnull String tokenUuid) {
         if(areStatsDisabled()){
             return new SingleTokenStats(tokenUuid);
         }
         
         // if we create a new empty stats object, no need to add it to the list
-        return findById(tokenUuid)
-                .orElse(new SingleTokenStats(tokenUuid));
+        SingleTokenStats stats = statsById.get(tokenUuid);
+        return stats != null ? stats : new SingleTokenStats(tokenUuid);
     }
     
-    private @Nonnull Optional<SingleTokenStats> findById(@Nonnull String tokenUuid) {
-        return tokenStats.stream()
-                .filter(s -> s.tokenUuid.equals(tokenUuid))
-                .findFirst();
+    /**
+     * Schedules a {@link #flush()} unless one is already pending, so that a burst of uses costs a single write.
+     */
+    private void saveLater() {
+        if (flushScheduled.compareAndSet(false, true)) {
+            PENDING.add(this);
+            Timer.get().schedule(this::flush, MAX_STALENESS, TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    private void flush() {
+        PENDING.remove(this);
+        // uses recorded from now on schedule another flush, uses recorded until now are written below
+        flushScheduled.set(false);
+        File userFolder = getUserFolder();
+        if (userFolder != null && !userFolder.isDirectory()) {
+            return; // the user was deleted meanwhile
+        }
+        save();
+    }
+    
+    /**
+     * Writes the statistics still waiting for their scheduled save.
+     */
+    @Terminator
+    @VisibleForTesting
+    static void flushAll() {
+        for (ApiTokenStats stats : PENDING) {
+            stats.flush();
+        }
     }
     
     /**
@@ -285,6 +339,16 @@ public class ApiTokenStats implements Saveable {
         return new XmlFile(new File(parent, "apiTokenStats.xml"));
     }
     
+    private static final Set<ApiTokenStats> PENDING = ConcurrentHashMap.newKeySet();
+    
+    /**
+     * How long, in milliseconds, the usage statistics may be kept in memory only before they are written,
+     * so that frequent uses of a token are written in batches.
+     * With 0, they are written on each use.
+     */
+    @Restricted(NoExternalUse.class)
+    public static /* non-final for Groovy */ long MAX_STALENESS = SystemProperties.getLong(ApiTokenStats.class.getName() + ".maxStaleness", 0L);
+    
     public static class SingleTokenStats {
         private static Comparator<SingleTokenStats> COMP_BY_LAST_USE_THEN_COUNTER =
                 Comparator.comparing(SingleTokenStats::getLastUseDate, Comparator.nullsFirst(Comparator.naturalOrder()))
@@ -306,7 +370,7 @@ public class ApiTokenStats implements Saveable {
             return this;
         }
         
-        private void notifyUse() {
+        private synchronized void notifyUse() {
             this.useCounter = useCounter == null ? 1 : useCounter + 1;
             this.lastUseDate = new Date();
         }
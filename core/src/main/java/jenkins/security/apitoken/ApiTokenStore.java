@@ -45,6 +45,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
@@ -71,6 +72,11 @@ public class ApiTokenStore {
     
     private List<HashedToken> tokenList;
     
+    /**
+     * Lookup structure for {@link #findMatchingToken}, built on first use and dropped whenever tokens are added or removed.
+     */
+    private transient volatile Index index;
+    
     public ApiTokenStore() {
         this.init();
     }
@@ -95,6 +101,7 @@ public class ApiTokenStore {
     
     private void addToken(HashedToken token) {
         this.tokenList.add(token);
+        this.index = null;
     }
     
     /**
@@ -144,7 +151,9 @@ public class ApiTokenStore {
     
     private void deleteAllLegacyTokens() {
         // normally there is only one, but just in case
-        tokenList.removeIf(HashedToken::isLegacy);
+        if (tokenList.removeIf(HashedToken::isLegacy)) {
+            this.index = null;
+        }
     }
     
     private void addLegacyToken(@Nonnull Secret legacyToken, boolean migrationFromExistingLegacy) {
@@ -215,7 +224,7 @@ public class ApiTokenStore {
      * Search in the store if there is a token with the same secret as the one given
      * @return {@code null} iff there is no matching token
      */
-    public synchronized @CheckForNull HashedToken findMatchingToken(@Nonnull String token) {
+    public @CheckForNull HashedToken findMatchingToken(@Nonnull String token) {
         String plainToken;
         if (isLegacyToken(token)) {
             plainToken = token;
@@ -253,16 +262,30 @@ public class ApiTokenStore {
      * @return {@code null} iff there is no matching token
      */
     private @CheckForNull HashedToken searchMatch(@Nonnull String plainSecret) {
+        Index index = getIndex();
         byte[] hashedBytes = plainSecretToHashBytes(plainSecret);
-        for (HashedToken token : tokenList) {
-            if (token.match(hashedBytes)) {
-                return token;
-            }
+        HashedToken token = index.tokensByHash.get(Util.toHexString(hashedBytes));
+        // looking up the hash of the secret tells nothing about the stored hashes, but still compare in constant time
+        if (token != null && token.match(hashedBytes)) {
+            return token;
         }
         
         return null;
     }
     
+    private @Nonnull Index getIndex() {
+        Index result = index;
+        if (result == null) {
+            synchronized (this) {
+                result = index;
+                if (result == null) {
+                    result = index = new Index(tokenList);
+                }
+            }
+        }
+        return result;
+    }
+    
     /**
      * Remove a token given its identifier. Effectively make it unusable for future connection.
      * 
@@ -274,6 +297,7 @@ public class ApiTokenStore {
             HashedToken token = iterator.next();
             if (token.uuid.equals(tokenUuid)) {
                 iterator.remove();
+                this.index = null;
                 
                 return token;
             }
@@ -298,6 +322,25 @@ public class ApiTokenStore {
         return false;
     }
     
+    /**
+     * The tokens of a store by the hex form of their hash.
+     * Replaced as a whole when tokens are added or removed, and never modified, so it can be read without locking.
+     */
+    private static final class Index {
+        private final Map<String, HashedToken> tokensByHash = new HashMap<>();
+        
+        Index(List<HashedToken> tokens) {
+            for (HashedToken token : tokens) {
+                try {
+                    // normalized, as the hash is looked up by its lowercase hex form
+                    tokensByHash.putIfAbsent(Util.toHexString(Util.fromHexString(token.value.hash)), token);
+                } catch (NumberFormatException e) {
+                    LOGGER.log(Level.INFO, "The API token with name=[{0}] is not in hex-format and so cannot be used", token.name);
+                }
+            }
+        }
+    }
+    
     @Immutable
     private static class HashValue implements Serializable {
 
@@ -0,0 +1,180 @@
+package jenkins.util;
+
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of durations, for instrumentation that needs percentiles rather than averages.
+ *
+ * <p>
+ * Samples are recorded in nanoseconds into power-of-two buckets, so a percentile is only
+ * accurate to a factor of two, which is plenty to tell a 5ms pass from a 5s one.
+ * Everything is reported in microseconds.
+ */
+@ExportedBean
+@Restricted(NoExternalUse.class)
+public final class Histogram {
+    private static final int BUCKETS = 48;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records one sample.
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        counts.incrementAndGet(bucketOf(nanos));
+        count.incrementAndGet();
+        total.addAndGet(nanos);
+        long m;
+        while (nanos > (m = max.get()) && !max.compareAndSet(m, nanos)) {
+            // retry
+        }
+    }
+
+    /**
+     * Records the time elapsed since the given {@link System#nanoTime()}.
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Number of recorded samples.
+     */
+    @Exported
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Sum of all samples, in microseconds.
+     */
+    @Exported
+    public long getTotal() {
+        return toMicros(total.get());
+    }
+
+    /**
+     * Largest sample, in microseconds.
+     */
+    @Exported
+    public long getMax() {
+        return toMicros(max.get());
+    }
+
+    @Exported
+    public long getP50() {
+        return getPercentile(50);
+    }
+
+    @Exported
+    public long getP90() {
+        return getPercentile(90);
+    }
+
+    @Exported
+    public long getP99() {
+        return getPercentile(99);
+    }
+
+    /**
+     * Upper bound in microseconds of the bucket holding the given percentile, or 0 if nothing was recorded.
+     */
+    public long getPercentile(double percentile) {
+        long n = count.get();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(n * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= Math.max(rank, 1)) {
+                return Math.min(toMicros(upperBoundOf(i)), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Non-empty buckets, in increasing order.
+     */
+    @Exported
+    public List<Bucket> getBuckets() {
+        List<Bucket> r = new ArrayList<>();
+        for (int i = 0; i < BUCKETS; i++) {
+            long c = counts.get(i);
+            if (c > 0) {
+                r.add(new Bucket(toMicros(upperBoundOf(i)), c));
+            }
+        }
+        return r;
+    }
+
+    /**
+     * Forgets all samples.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.set(0);
+        total.set(0);
+        max.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return "Histogram[count=" + getCount() + ",p50=" + getP50() + "us,p99=" + getP99() + "us,max=" + getMax() + "us]";
+    }
+
+    private static int bucketOf(long nanos) {
+        return Math.min(64 - Long.numberOfLeadingZeros(nanos), BUCKETS - 1);
+    }
+
+    private static long upperBoundOf(int bucket) {
+        return bucket == 0 ? 0 : 1L << bucket;
+    }
+
+    private static long toMicros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    /**
+     * Samples no longer than {@link #getUpperBound()} microseconds, and longer than the previous bucket.
+     */
+    @ExportedBean(defaultVisibility = 2)
+    public static final class Bucket {
+        private final long upperBound;
+        private final long count;
+
+        Bucket(long upperBound, long count) {
+            this.upperBound = upperBound;
+            this.count = count;
+        }
+
+        @Exported
+        public long getUpperBound() {
+            return upperBound;
+        }
+
+        @Exported
+        public long getCount() {
+            return count;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package jenkins.util;
+
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable list whose elements are ordered by a {@code long} key chosen by the caller,
+ * where adding or removing an element produces a new list in O(log n) that shares
+ * all but O(log n) nodes with the original.
+ *
+ * <p>
+ * This lets a single writer publish a consistent version of a changing collection after every change
+ * without copying it, while any number of readers iterate older versions without locking.
+ * It is a persistent AVL tree: {@link #size()} is O(1), {@link #get(int)} is O(log n) and iteration is O(n).
+ */
+@Restricted(NoExternalUse.class)
+public final class PersistentList<T> extends AbstractList<T> {
+    private static final PersistentList<?> EMPTY = new PersistentList<>(null);
+
+    private final Node<T> root;
+
+    private PersistentList(Node<T> root) {
+        this.root = root;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> PersistentList<T> empty() {
+        return (PersistentList<T>) EMPTY;
+    }
+
+    /**
+     * Builds a balanced list from the given elements, keyed by their index.
+     */
+    public static <T> PersistentList<T> of(List<? extends T> elements) {
+        return new PersistentList<>(build(elements, 0, elements.size()));
+    }
+
+    /**
+     * Returns a list that also contains the given element under the given key, replacing any element with that key.
+     */
+    public PersistentList<T> with(long key, T value) {
+        return new PersistentList<>(insert(root, key, value));
+    }
+
+    /**
+     * Returns a list without the element of the given key, or this list if there is no such element.
+     */
+    public PersistentList<T> without(long key) {
+        Node<T> r = delete(root, key);
+        return r == root ? this : new PersistentList<>(r);
+    }
+
+    @Override
+    public int size() {
+        return size(root);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    @Override
+    public T get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException(index + " of " + size());
+        }
+        Node<T> n = root;
+        while (true) {
+            int left = size(n.left);
+            if (index < left) {
+                n = n.left;
+            } else if (index == left) {
+                return n.value;
+            } else {
+                index -= left + 1;
+                n = n.right;
+            }
+        }
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private final Deque<Node<T>> stack = new ArrayDeque<>();
+            {
+                pushLeft(root);
+            }
+
+            private void pushLeft(Node<T> n) {
+                for (; n != null; n = n.left) {
+                    stack.push(n);
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return !stack.isEmpty();
+            }
+
+            @Override
+            public T next() {
+                if (stack.isEmpty()) {
+                    throw new NoSuchElementException();
+                }
+                Node<T> n = stack.pop();
+                pushLeft(n.right);
+                return n.value;
+            }
+        };
+    }
+
+    private static final class Node<T> {
+        final long key;
+        final T value;
+        final Node<T> left, right;
+        final int height, size;
+
+        Node(long key, T value, Node<T> left, Node<T> right) {
+            this.key = key;
+            this.value = value;
+            this.left = left;
+            this.right = right;
+            this.height = Math.max(height(left), height(right)) + 1;
+            this.size = size(left) + size(right) + 1;
+        }
+    }
+
+    private static int height(Node<?> n) {
+        return n == null ? 0 : n.height;
+    }
+
+    private static int size(Node<?> n) {
+        return n == null ? 0 : n.size;
+    }
+
+    private static <T> Node<T> build(List<? extends T> elements, int from, int to) {
+        if (from >= to) {
+            return null;
+        }
+        int mid = (from + to) >>> 1;
+        return new Node<T>(mid, elements.get(mid), build(elements, from, mid), build(elements, mid + 1, to));
+    }
+
+    private static <T> Node<T> insert(Node<T> n, long key, T value) {
+        if (n == null) {
+            return new Node<>(key, value, null, null);
+        }
+        if (key < n.key) {
+            return balance(n.key, n.value, insert(n.left, key, value), n.right);
+        } else if (key > n.key) {
+            return balance(n.key, n.value, n.left, insert(n.right, key, value));
+        } else {
+            return new Node<>(key, value, n.left, n.right);
+        }
+    }
+
+    private static <T> Node<T> delete(Node<T> n, long key) {
+        if (n == null) {
+            return null;
+        }
+        if (key < n.key) {
+            Node<T> l = delete(n.left, key);
+            return l == n.left ? n : balance(n.key, n.value, l, n.right);
+        } else if (key > n.key) {
+            Node<T> r = delete(n.right, key);
+            return r == n.right ? n : balance(n.key, n.value, n.left, r);
+        } else if (n.left == null) {
+            return n.right;
+        } else if (n.right == null) {
+            return n.left;
+        } else {
+            Node<T> min = n.right;
+            while (min.left != null) {
+                min = min.left;
+            }
+            return balance(min.key, min.value, n.left, delete(n.right, min.key));
+        }
+    }
+
+    private static <T> Node<T> balance(long key, T value, Node<T> l, Node<T> r) {
+        int diff = height(l) - height(r);
+        if (diff > 1) {
+            if (height(l.left) >= height(l.right)) {
+                return new Node<>(l.key, l.value, l.left, new Node<>(key, value, l.right, r));
+            } else {
+                return new Node<>(l.right.key, l.right.value,
+                        new Node<>(l.key, l.value, l.left, l.right.left),
+                        new Node<>(key, value, l.right.right, r));
+            }
+        } else if (diff < -1) {
+            if (height(r.right) >= height(r.left)) {
+                return new Node<>(r.key, r.value, new Node<>(key, value, l, r.left), r.right);
+            } else {
+                return new Node<>(r.left.key, r.left.value,
+                        new Node<>(key, value, l, r.left.left),
+                        new Node<>(r.key, r.value, r.left.right, r.right));
+            }
+        }
+        return new Node<>(key, value, l, r);
+    }
+}
@@ -0,0 +1,293 @@
+package jenkins.util.io;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A gzip file made of independently compressed members holding a fixed number of uncompressed bytes each,
+ * together with an index in a sidecar file telling where each member starts and how many lines precede it.
+ *
+ * <p>
+ * Since consecutive gzip members simply concatenate, any gzip reader still sees the whole content.
+ * With the index, reading from an arbitrary byte offset or line costs decompressing at most one member
+ * before the requested data, instead of everything from the start of the file.
+ */
+@Restricted(NoExternalUse.class)
+public final class IndexedGzipFile {
+    /**
+     * Uncompressed bytes per member; small enough to make seeking cheap, large enough to compress well.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+
+    private static final int MAGIC = 0x4a474958;
+    private static final int VERSION = 1;
+
+    private final File file;
+    /**
+     * Uncompressed offset where each member starts.
+     */
+    private final long[] offsets;
+    /**
+     * Position in {@link #file} where each member starts, plus the size of the file at the end.
+     */
+    private final long[] positions;
+    /**
+     * Number of newlines before each member.
+     */
+    private final long[] lines;
+    private final long length;
+    private final long lineCount;
+
+    private int cachedBlock = -1;
+    private byte[] cachedData;
+
+    private IndexedGzipFile(File file, long[] offsets, long[] positions, long[] lines, long length, long lineCount) {
+        this.file = file;
+        this.offsets = offsets;
+        this.positions = positions;
+        this.lines = lines;
+        this.length = length;
+        this.lineCount = lineCount;
+    }
+
+    /**
+     * The sidecar index of the given gzip file.
+     */
+    public static @Nonnull File indexOf(@Nonnull File gz) {
+        return new File(gz.getPath() + ".idx");
+    }
+
+    /**
+     * Opens a file written by {@link #compress}.
+     *
+     * @return null if the file has no index, or one that does not match it
+     */
+    public static @CheckForNull IndexedGzipFile open(@Nonnull File gz) throws IOException {
+        File idx = indexOf(gz);
+        if (!idx.isFile() || !gz.isFile()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(idx.toPath())))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+            long size = in.readLong();
+            if (size != gz.length()) {
+                return null; // replaced or rewritten by something else
+            }
+            long length = in.readLong();
+            long lineCount = in.readLong();
+            int blocks = in.readInt();
+            long[] offsets = new long[blocks];
+            long[] positions = new long[blocks + 1];
+            long[] lines = new long[blocks];
+            for (int i = 0; i < blocks; i++) {
+                offsets[i] = in.readLong();
+                positions[i] = in.readLong();
+                lines[i] = in.readLong();
+            }
+            positions[blocks] = size;
+            return new IndexedGzipFile(gz, offsets, positions, lines, length, lineCount);
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes the content of the stream as an indexed gzip file, with its index.
+     * Both files are written aside and moved into place, the index first,
+     * so that readers see either the old file or the complete new one.
+     */
+    public static void compress(@Nonnull InputStream in, @Nonnull File gz, int blockSize) throws IOException {
+        File tmp = new File(gz.getPath() + ".tmp");
+        File tmpIdx = new File(indexOf(gz).getPath() + ".tmp");
+        List<long[]> blocks = new ArrayList<>();
+        long length = 0, lineCount = 0;
+        long size;
+        try (CountingOutputStream out = new CountingOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp.toPath())))) {
+            byte[] buf = new byte[blockSize];
+            int n;
+            // an empty input still gets one empty member, as an empty file is not valid gzip
+            while ((n = IOUtils.read(in, buf)) > 0 || blocks.isEmpty()) {
+                blocks.add(new long[] {length, out.getByteCount(), lineCount});
+                try (GZIPOutputStream gzip = new GZIPOutputStream(new CloseShieldOutputStream(out))) {
+                    gzip.write(buf, 0, n);
+                }
+                for (int i = 0; i < n; i++) {
+                    if (buf[i] == '\n') {
+                        lineCount++;
+                    }
+                }
+                length += n;
+                if (n < blockSize) {
+                    break;
+                }
+            }
+            out.flush();
+            size = out.getByteCount();
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpIdx.toPath())))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(size);
+            out.writeLong(length);
+            out.writeLong(lineCount);
+            out.writeInt(blocks.size());
+            for (long[] b : blocks) {
+                out.writeLong(b[0]);
+                out.writeLong(b[1]);
+                out.writeLong(b[2]);
+            }
+        }
+        Files.move(tmpIdx.toPath(), indexOf(gz).toPath(), StandardCopyOption.REPLACE_EXISTING);
+        Files.move(tmp.toPath(), gz.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    public @Nonnull File getFile() {
+        return file;
+    }
+
+    /**
+     * Size of the uncompressed content.
+     */
+    public long length() {
+        return length;
+    }
+
+    /**
+     * Number of newlines in the uncompressed content.
+     */
+    public long getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * Streams the uncompressed content from the given offset to the end.
+     */
+    public @Nonnull InputStream openAt(long offset) throws IOException {
+        if (offset >= length) {
+            return new ByteArrayInputStream(new byte[0]);
+        }
+        int b = blockOf(Math.max(offset, 0));
+        final RandomAccessFile raf = new RandomAccessFile(file, "r");
+        InputStream in;
+        try {
+            FileChannel ch = raf.getChannel();
+            ch.position(positions[b]);
+            in = new GZIPInputStream(new BufferedInputStream(Channels.newInputStream(ch)), 8192);
+            IOUtils.skipFully(in, Math.max(offset, 0) - offsets[b]);
+        } catch (IOException | RuntimeException e) {
+            raf.close();
+            throw e;
+        }
+        return in; // closing it closes the channel, hence the file
+    }
+
+    /**
+     * Copies the uncompressed content from the given offset to the end.
+     *
+     * @return the offset of the end
+     */
+    public long writeTo(long offset, @Nonnull OutputStream out) throws IOException {
+        try (InputStream in = openAt(offset)) {
+            return Math.max(offset, 0) + IOUtils.copyLarge(in, out);
+        }
+    }
+
+    /**
+     * Reads uncompressed bytes at the given offset, stopping at the end of a member.
+     *
+     * @return the number of bytes read, or -1 at the end of the content
+     */
+    public int read(long offset, byte[] buf, int off, int len) throws IOException {
+        if (offset >= length) {
+            return -1;
+        }
+        int b = blockOf(offset);
+        byte[] data = block(b);
+        int start = (int) (offset - offsets[b]);
+        int n = Math.min(len, data.length - start);
+        System.arraycopy(data, start, buf, off, n);
+        return n;
+    }
+
+    /**
+     * Offset at which the given line starts, counting from 0.
+     *
+     * @return -1 if the content has fewer lines
+     */
+    public long offsetOfLine(long line) throws IOException {
+        if (line <= 0) {
+            return line == 0 ? 0 : -1;
+        }
+        long newline = line - 1; // the line starts after this newline, counting from 0
+        if (newline >= lineCount) {
+            return -1;
+        }
+        int b = Arrays.binarySearch(lines, newline);
+        if (b < 0) {
+            b = -b - 2;
+        } else {
+            while (b + 1 < lines.length && lines[b + 1] == newline) {
+                b++; // skip members without newlines
+            }
+        }
+        byte[] data = block(b);
+        long seen = lines[b];
+        for (int i = 0; i < data.length; i++) {
+            if (data[i] == '\n' && seen++ == newline) {
+                return offsets[b] + i + 1;
+            }
+        }
+        throw new IOException("Index of " + file + " does not match its content");
+    }
+
+    private int blockOf(long offset) {
+        int b = Arrays.binarySearch(offsets, offset);
+        return b < 0 ? -b - 2 : b;
+    }
+
+    private synchronized byte[] block(int b) throws IOException {
+        if (b != cachedBlock) {
+            int size = (int) ((b + 1 < offsets.length ? offsets[b + 1] : length) - offsets[b]);
+            byte[] compressed = new byte[(int) (positions[b + 1] - positions[b])];
+            try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+                raf.seek(positions[b]);
+                raf.readFully(compressed);
+            }
+            byte[] data = new byte[size];
+            try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+                IOUtils.readFully(in, data);
+            }
+            cachedData = data;
+            cachedBlock = b;
+        }
+        return cachedData;
+    }
+}
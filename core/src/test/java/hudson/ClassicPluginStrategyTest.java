@@ -26,9 +26,19 @@ package hudson;
 import hudson.util.VersionNumber;
 import jenkins.plugins.DetachedPluginsUtil;
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
 import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 import static jenkins.plugins.DetachedPluginsUtil.DetachedPlugin;
 
@@ -37,6 +47,9 @@ import static jenkins.plugins.DetachedPluginsUtil.DetachedPlugin;
  */
 public class ClassicPluginStrategyTest {
 
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
     @Test
     public void test_getDetachedPlugins() {
         List<DetachedPlugin> list = DetachedPluginsUtil.getDetachedPlugins(new VersionNumber("1.296"));
@@ -58,6 +71,48 @@ public class ClassicPluginStrategyTest {
         Assert.assertNull(findPlugin("subversion", list));
     }
 
+    @Test
+    public void explodeFromCache() throws Exception {
+        File archive = tmp.newFile("sample.jpi");
+        try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(archive))) {
+            zos.putNextEntry(new ZipEntry("META-INF/MANIFEST.MF"));
+            zos.write("Manifest-Version: 1.0\nShort-Name: sample\n".getBytes("UTF-8"));
+            zos.putNextEntry(new ZipEntry("WEB-INF/lib/sample.jar"));
+            zos.write(new byte[] {1, 2, 3});
+            zos.putNextEntry(new ZipEntry("index.jelly"));
+            zos.write("<div/>".getBytes("UTF-8"));
+        }
+        File cache = tmp.newFolder("cache");
+        File work = tmp.newFolder("work");
+        PluginManager pm = mock(PluginManager.class);
+        when(pm.getWorkDir()).thenReturn(work);
+        ClassicPluginStrategy strategy = new ClassicPluginStrategy(pm);
+
+        String old = ClassicPluginStrategy.EXPLODE_CACHE;
+        ClassicPluginStrategy.EXPLODE_CACHE = cache.getPath();
+        try {
+            strategy.explode(archive);
+            File exploded = new File(work, "sample");
+            Assert.assertEquals("<div/>", new String(Files.readAllBytes(new File(exploded, "index.jelly").toPath()), "UTF-8"));
+            Assert.assertTrue(new File(exploded, ".timestamp2").isFile());
+            File[] entries = cache.listFiles();
+            Assert.assertEquals(1, entries.length);
+            Assert.assertTrue(new File(entries[0], "WEB-INF/lib/sample.jar").isFile());
+            Assert.assertFalse(new File(entries[0], ".timestamp2").exists());
+            Assert.assertTrue(strategy.getExplodeTimes().containsKey("sample.jpi"));
+
+            // as after a restart with a fresh volume
+            Util.deleteRecursive(exploded);
+            Files.delete(new File(entries[0], "index.jelly").toPath());
+            Files.write(new File(entries[0], "index.jelly").toPath(), "<p/>".getBytes("UTF-8"));
+            strategy.explode(archive);
+            Assert.assertEquals("<p/>", new String(Files.readAllBytes(new File(exploded, "index.jelly").toPath()), "UTF-8"));
+            Assert.assertArrayEquals(new byte[] {1, 2, 3}, Files.readAllBytes(new File(exploded, "WEB-INF/lib/sample.jar").toPath()));
+        } finally {
+            ClassicPluginStrategy.EXPLODE_CACHE = old;
+        }
+    }
+
     private DetachedPlugin findPlugin(String shortName, List<DetachedPlugin> list) {
         for (DetachedPlugin detachedPlugin : list) {
             if (detachedPlugin.getShortName().equals(shortName)) {
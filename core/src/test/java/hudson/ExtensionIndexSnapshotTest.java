@@ -0,0 +1,78 @@
+package hudson;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ExtensionIndexSnapshotTest {
+
+    @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test public void key() {
+        String key = ExtensionIndexSnapshot.key("2.172", Arrays.asList(plugin("b", "1.0", true), plugin("a", "2.0", true), plugin("c", "1.0-SNAPSHOT", false)));
+        assertEquals(key, ExtensionIndexSnapshot.key("2.172", Arrays.asList(plugin("a", "2.0", true), plugin("b", "1.0", true))));
+        assertNotEquals(key, ExtensionIndexSnapshot.key("2.172", Arrays.asList(plugin("a", "2.1", true), plugin("b", "1.0", true))));
+        assertNotEquals(key, ExtensionIndexSnapshot.key("2.173", Arrays.asList(plugin("a", "2.0", true), plugin("b", "1.0", true))));
+        assertNull(ExtensionIndexSnapshot.key("2.173-SNAPSHOT", Collections.emptyList()));
+        assertNull(ExtensionIndexSnapshot.key("2.172", Collections.singletonList(plugin("c", "1.0-SNAPSHOT (private-abcdef-user)", true))));
+    }
+
+    @Test public void keyDependsOnJava() {
+        String vmVersion = System.getProperty("java.vm.version");
+        String key = ExtensionIndexSnapshot.key("2.172", Collections.singletonList(plugin("a", "2.0", true)));
+        try {
+            System.setProperty("java.vm.version", vmVersion + "-other");
+            assertNotEquals(key, ExtensionIndexSnapshot.key("2.172", Collections.singletonList(plugin("a", "2.0", true))));
+        } finally {
+            System.setProperty("java.vm.version", vmVersion);
+        }
+    }
+
+    @Test public void saveAndLoad() throws Exception {
+        File file = new File(tmp.getRoot(), "extension-index.bin");
+        ExtensionIndexSnapshot snapshot = new ExtensionIndexSnapshot(file, "one");
+        assertFalse(snapshot.isCurrent());
+        assertFalse(snapshot.isResolved("org.example.Foo"));
+        snapshot.save(Arrays.asList("org.example.Foo", "org.example.Bar#baz"));
+
+        snapshot = new ExtensionIndexSnapshot(file, "one");
+        assertTrue(snapshot.isCurrent());
+        assertTrue(snapshot.isResolved("org.example.Foo"));
+        assertTrue(snapshot.isResolved("org.example.Bar#baz"));
+        assertFalse(snapshot.isResolved("org.example.Bar"));
+
+        snapshot = new ExtensionIndexSnapshot(file, "two");
+        assertFalse(snapshot.isCurrent());
+        assertFalse(snapshot.isResolved("org.example.Foo"));
+    }
+
+    @Test public void corrupt() throws Exception {
+        File file = tmp.newFile("extension-index.bin");
+        Files.write(file.toPath(), "garbage".getBytes(StandardCharsets.US_ASCII));
+        ExtensionIndexSnapshot snapshot = new ExtensionIndexSnapshot(file, "one");
+        assertFalse(snapshot.isCurrent());
+        assertFalse(snapshot.isResolved("garbage"));
+    }
+
+    private static PluginWrapper plugin(String name, String version, boolean active) {
+        PluginWrapper p = mock(PluginWrapper.class);
+        when(p.getShortName()).thenReturn(name);
+        when(p.getVersion()).thenReturn(version);
+        when(p.isActive()).thenReturn(active);
+        return p;
+    }
+
+}
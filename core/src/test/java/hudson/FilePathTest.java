@@ -28,10 +28,12 @@ import hudson.model.TaskListener;
 import hudson.os.PosixAPI;
 import hudson.os.WindowsUtil;
 import hudson.remoting.VirtualChannel;
+import hudson.util.DirScanner;
 import hudson.util.NullStream;
 import hudson.util.StreamTaskListener;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.output.NullOutputStream;
+import org.apache.commons.lang.StringUtils;
 import org.apache.tools.ant.Project;
 import org.apache.tools.ant.taskdefs.Chmod;
 import org.junit.Ignore;
@@ -234,6 +236,28 @@ public class FilePathTest {
             }
     }
 
+    @Test public void parallelCopyRecursiveTo() throws Exception {
+        File src = temp.newFolder("src");
+        File dst = temp.newFolder("dst");
+        for (int i = 0; i < 20; i++) {
+            FileUtils.write(new File(src, "d" + (i % 3) + "/f" + i), "content " + i + StringUtils.repeat(".", i * 100), StandardCharsets.UTF_8);
+        }
+        FilePath remoteSrc = new FilePath(channels.french, src.getPath());
+        assertEquals(20, remoteSrc.copyRecursiveTo(new DirScanner.Glob("**", null), new FilePath(dst), "all", 4, TarCompression.FAST, true));
+        for (int i = 0; i < 20; i++) {
+            assertEquals("content " + i + StringUtils.repeat(".", i * 100), FileUtils.readFileToString(new File(dst, "d" + (i % 3) + "/f" + i), StandardCharsets.UTF_8));
+        }
+        assertEquals("nothing changed", 0, remoteSrc.copyRecursiveTo(new DirScanner.Glob("**", null), new FilePath(dst), "all", 4, TarCompression.NONE, true));
+
+        FileUtils.write(new File(src, "d1/f1"), "changed", StandardCharsets.UTF_8);
+        File touched = new File(src, "d2/f2");
+        assertTrue(touched.setLastModified(touched.lastModified() - 10000));
+        FilePath remoteDst = new FilePath(channels.british, dst.getPath());
+        assertEquals("only the changed file", 1, new FilePath(src).copyRecursiveTo(new DirScanner.Glob("**", null), remoteDst, "all", 3, TarCompression.GZIP, true));
+        assertEquals("changed", FileUtils.readFileToString(new File(dst, "d1/f1"), StandardCharsets.UTF_8));
+        assertEquals(20, new FilePath(src).copyRecursiveTo(new DirScanner.Glob("**", null), remoteDst, "all", 3, TarCompression.GZIP, false));
+    }
+
     @Issue("JENKINS-4039")
     @Test public void archiveBug() throws Exception {
             FilePath d = new FilePath(channels.french, temp.getRoot().getPath());
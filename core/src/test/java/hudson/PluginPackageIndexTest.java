@@ -0,0 +1,92 @@
+package hudson;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import jenkins.util.AntWithFindResourceClassLoader;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PluginPackageIndexTest {
+
+    @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test public void candidates() throws Exception {
+        PluginWrapper one = plugin("one", jar("one.jar", "org/one/One.class", "shared/", "shared/index.jelly", "root.txt"));
+        File dir = tmp.newFolder("two");
+        new File(dir, "shared/deeper").mkdirs();
+        new File(dir, "shared/Two.class").createNewFile();
+        PluginWrapper two = plugin("two", dir, jar("two.jar", "org/two/Two.class"));
+        PluginPackageIndex index = new PluginPackageIndex(Arrays.asList(one, two));
+
+        assertEquals(Collections.singletonList(one), index.candidatesForClass("org.one.One"));
+        assertEquals(Collections.singletonList(one), index.candidatesForClass("org.one.Missing$Inner"));
+        assertEquals(Collections.singletonList(two), index.candidatesForClass("org.two.Two"));
+        assertEquals(Collections.emptyList(), index.candidatesForClass("org.three.Three"));
+        assertEquals(Arrays.asList(one, two), index.candidates("shared/index.jelly"));
+        assertEquals(Arrays.asList(one, two), index.candidates("shared"));
+        assertEquals(Collections.singletonList(two), index.candidates("shared/deeper/"));
+        assertEquals(Arrays.asList(one, two), index.candidates("root.txt"));
+        assertEquals(Arrays.asList(one, two), index.candidates("org/three/../one/One.class"));
+    }
+
+    @Test public void subset() throws Exception {
+        PluginWrapper one = plugin("one", jar("one.jar", "org/one/One.class", "shared/One.class"));
+        PluginWrapper two = plugin("two", jar("two.jar", "org/two/Two.class", "shared/Two.class"));
+        PluginWrapper three = plugin("three", jar("three.jar", "org/three/Three.class", "shared/Three.class"));
+        PluginPackageIndex index = new PluginPackageIndex(Arrays.asList(one, two, three));
+        PluginPackageIndex.Subset subset = index.subset(Arrays.asList(three, one));
+
+        assertEquals(Collections.singletonList(one), subset.candidatesForClass("org.one.One"));
+        assertEquals(Collections.emptyList(), subset.candidatesForClass("org.two.Two"));
+        assertEquals(Collections.emptyList(), subset.candidatesForClass("org.four.Four"));
+        assertEquals(Arrays.asList(three, one), subset.candidatesForClass("shared.Two"));
+
+        PluginWrapper four = plugin("four", jar("four.jar", "org/four/Four.class"));
+        assertEquals(Arrays.asList(one, four), index.subset(Arrays.asList(one, four)).candidatesForClass("org.two.Two"));
+    }
+
+    @Test public void unknownClassLoader() throws Exception {
+        PluginWrapper one = plugin("one", jar("one.jar", "org/one/One.class"));
+        PluginWrapper other = plugin("other", new ClassLoader() {});
+        PluginPackageIndex index = new PluginPackageIndex(Arrays.asList(one, other));
+        assertEquals(Arrays.asList(one, other), index.candidatesForClass("org.two.Two"));
+    }
+
+    private File jar(String name, String... entries) throws Exception {
+        File jar = new File(tmp.getRoot(), name);
+        try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(jar))) {
+            for (String entry : entries) {
+                zos.putNextEntry(new ZipEntry(entry));
+                zos.closeEntry();
+            }
+        }
+        return jar;
+    }
+
+    private PluginWrapper plugin(String name, File... path) throws Exception {
+        AntWithFindResourceClassLoader loader = new AntWithFindResourceClassLoader(getClass().getClassLoader(), true);
+        loader.addPathFiles(Arrays.asList(path));
+        return plugin(name, loader);
+    }
+
+    private PluginWrapper plugin(String name, ClassLoader loader) {
+        Manifest manifest = mock(Manifest.class);
+        Attributes attributes = new Attributes();
+        attributes.put(new Attributes.Name("Short-Name"), name);
+        when(manifest.getMainAttributes()).thenReturn(attributes);
+        return new PluginWrapper(mock(PluginManager.class), new File(tmp.getRoot(), name + ".jpi"), manifest, null, loader,
+                new File(tmp.getRoot(), name + ".jpi.disabled"), Collections.emptyList(), Collections.emptyList());
+    }
+
+}
@@ -0,0 +1,92 @@
+package hudson.console;
+
+import jenkins.util.io.IndexedGzipFile;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ConsoleLineIndexTest {
+
+    @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void rangesMatchTheLog() throws Exception {
+        Random r = new Random(8);
+        List<String> expected = new ArrayList<>();
+        File log = new File(tmp.newFolder(), "log");
+        try (OutputStream out = ConsoleLineIndex.indexing(Files.newOutputStream(log.toPath()), ConsoleLineIndex.indexOf(log))) {
+            for (int i = 0; i < 5000; i++) {
+                String line = "line " + i;
+                if (i > 3000 && r.nextInt(50) == 0) {
+                    // notes only in the later part, written in pieces
+                    byte[] note = (ConsoleNote.PREAMBLE_STR + "bm90ZQ==" + ConsoleNote.POSTAMBLE_STR).getBytes(StandardCharsets.UTF_8);
+                    out.write(note, 0, 3);
+                    out.write(note, 3, note.length - 3);
+                }
+                out.write((line + (r.nextBoolean() ? "\r\n" : "\n")).getBytes(StandardCharsets.UTF_8));
+                expected.add(line);
+            }
+            out.write("unterminated".getBytes(StandardCharsets.UTF_8));
+            expected.add("unterminated");
+        }
+
+        ConsoleLineIndex index = ConsoleLineIndex.open(ConsoleLineIndex.indexOf(log));
+        assertNotNull(index);
+        assertEquals(4096, index.checkpointBefore(4500));
+        assertEquals(4 * 1024, index.checkpointBefore(Long.MAX_VALUE));
+        assertFalse(index.mayHaveNotes(100, 200));
+        assertTrue(index.mayHaveNotes(3100, 3200));
+        assertTrue(index.mayHaveNotes(4900, 4950)); // after the last entry
+
+        File gz = new File(log.getParentFile(), "log.gz");
+        IndexedGzipFile.compress(new ByteArrayInputStream(Files.readAllBytes(log.toPath())), gz, 10000);
+        for (File f : new File[] {log, gz}) {
+            assertEquals(expected.size(), ConsoleLineIndex.countLines(f));
+            for (int i = 0; i < 30; i++) {
+                int start = r.nextInt(expected.size() + 10);
+                int count = r.nextInt(3000);
+                assertEquals(expected.subList(Math.min(start, expected.size()), Math.min(start + count, expected.size())),
+                        ConsoleLineIndex.readLines(f, StandardCharsets.UTF_8, start, count));
+            }
+        }
+    }
+
+    @Test
+    public void withoutIndex() throws Exception {
+        File log = tmp.newFile();
+        Files.write(log.toPath(), "a\n\nb\n".getBytes(StandardCharsets.UTF_8));
+        assertEquals(3, ConsoleLineIndex.countLines(log));
+        assertEquals(Arrays.asList("", "b"), ConsoleLineIndex.readLines(log, StandardCharsets.UTF_8, 1, 10));
+        assertEquals(Collections.emptyList(), ConsoleLineIndex.readLines(log, StandardCharsets.UTF_8, 3, 10));
+    }
+
+    @Test
+    public void mismatchedIndexIsIgnored() throws Exception {
+        File log = new File(tmp.newFolder(), "log");
+        StringBuilder b = new StringBuilder();
+        try (OutputStream out = ConsoleLineIndex.indexing(Files.newOutputStream(log.toPath()), ConsoleLineIndex.indexOf(log))) {
+            for (int i = 0; i < 2000; i++) {
+                out.write(("old " + i + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        // rewritten by something unaware of the index
+        for (int i = 0; i < 2000; i++) {
+            b.append("renewed line ").append(i).append('\n');
+        }
+        Files.write(log.toPath(), b.toString().getBytes(StandardCharsets.UTF_8));
+        assertEquals(Collections.singletonList("renewed line 1500"), ConsoleLineIndex.readLines(log, StandardCharsets.UTF_8, 1500, 1));
+    }
+}
@@ -0,0 +1,122 @@
+package hudson.console;
+
+import jenkins.util.io.IndexedGzipFile;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.*;
+
+public class ConsoleLogTailTest {
+
+    @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void wholeLog() throws Exception {
+        ConsoleLogTail tail = ConsoleLogTail.read(write("a1\r\nb2\n\nc3\n"), StandardCharsets.UTF_8, 10);
+        assertEquals(Arrays.asList("a1", "b2", "", "c3"), tail.getLines());
+        assertFalse(tail.isTruncated());
+    }
+
+    @Test
+    public void emptyLog() throws Exception {
+        assertEquals(Arrays.asList(""), ConsoleLogTail.read(write(""), StandardCharsets.UTF_8, 10).getLines());
+    }
+
+    @Test
+    public void truncated() throws Exception {
+        StringBuilder b = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            b.append("dummy").append(i).append('\n');
+        }
+        ConsoleLogTail tail = ConsoleLogTail.read(write(b.toString()), StandardCharsets.UTF_8, 10);
+        assertEquals(10, tail.getLines().size());
+        assertEquals("dummy10", tail.getLines().get(0));
+        assertEquals("dummy19", tail.getLines().get(9));
+        assertTrue(tail.isTruncated());
+        assertEquals(10 * "dummyN\n".length() - 2, tail.getTruncated());
+    }
+
+    @Test
+    public void truncatedAfterLeadingNewline() throws Exception {
+        ConsoleLogTail tail = ConsoleLogTail.read(write("\nb\nc"), StandardCharsets.UTF_8, 2);
+        assertEquals(Arrays.asList("b", "c"), tail.getLines());
+        assertTrue(tail.isTruncated());
+        assertEquals(0, tail.getTruncated());
+        assertEquals(Arrays.asList("", "b", "c"), ConsoleLogTail.read(write("\nb\nc"), StandardCharsets.UTF_8, 3).getLines());
+    }
+
+    @Test
+    public void notesAreStripped() throws Exception {
+        String note = ConsoleNote.PREAMBLE_STR + "c29tZSBub3Rl" + ConsoleNote.POSTAMBLE_STR;
+        String log = "plain\n" + note + "Started by " + note + "useré " + note + "\n" + ConsoleNote.PREAMBLE_STR + "unterminated\n";
+        for (Charset cs : new Charset[] {StandardCharsets.UTF_8, StandardCharsets.ISO_8859_1}) {
+            File f = tmp.newFile();
+            Files.write(f.toPath(), log.getBytes(cs));
+            assertEquals(cs.name(), Arrays.asList("plain", "Started by useré ", ConsoleNote.PREAMBLE_STR + "unterminated"),
+                    ConsoleLogTail.read(f, cs, 10).getLines());
+        }
+    }
+
+    @Test
+    public void longLinesAcrossBlocks() throws Exception {
+        char[] c = new char[20000];
+        Arrays.fill(c, 'x');
+        String longLine = new String(c);
+        ConsoleLogTail tail = ConsoleLogTail.read(write("first\n" + longLine + "\nlast"), StandardCharsets.UTF_8, 2);
+        assertEquals(Arrays.asList(longLine, "last"), tail.getLines());
+        assertTrue(tail.isTruncated());
+    }
+
+    @Test
+    public void compressedLogsGiveTheSameTail() throws Exception {
+        Random r = new Random(27441);
+        for (int round = 0; round < 50; round++) {
+            StringBuilder b = new StringBuilder();
+            int lines = r.nextInt(3000);
+            for (int i = 0; i < lines; i++) {
+                int len = r.nextInt(10) == 0 ? r.nextInt(20000) : r.nextInt(80);
+                for (int j = 0; j < len; j++) {
+                    b.append((char) ('a' + r.nextInt(26)));
+                }
+                b.append(r.nextInt(5) == 0 ? "\r\n" : "\n");
+            }
+            if (r.nextBoolean()) {
+                b.append("unterminated");
+            }
+            byte[] data = b.toString().getBytes(StandardCharsets.UTF_8);
+            File plain = tmp.newFile("log" + round);
+            Files.write(plain.toPath(), data);
+            File gz = tmp.newFile("log" + round + ".gz");
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(gz.toPath()))) {
+                out.write(data);
+            }
+            File indexed = new File(tmp.newFolder(), "log.gz");
+            IndexedGzipFile.compress(new ByteArrayInputStream(data), indexed, 1 + r.nextInt(10000));
+            int max = 1 + r.nextInt(lines + 10);
+            ConsoleLogTail expected = ConsoleLogTail.read(plain, StandardCharsets.UTF_8, max);
+            for (File f : new File[] {gz, indexed}) {
+                ConsoleLogTail actual = ConsoleLogTail.read(f, StandardCharsets.UTF_8, max);
+                assertEquals(expected.getLines(), actual.getLines());
+                assertEquals(expected.getTruncated(), actual.getTruncated());
+            }
+        }
+    }
+
+    private File write(String content) throws IOException {
+        File f = tmp.newFile();
+        Files.write(f.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return f;
+    }
+}
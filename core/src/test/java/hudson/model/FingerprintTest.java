@@ -251,6 +251,25 @@ public class FingerprintTest {
         TestFacet facet = (TestFacet) f2.facets.get(0);
         assertEquals(f2, facet.getFingerprint());
     }
+
+    @Test public void packedRoundTrip() throws Exception {
+        Fingerprint f = new Fingerprint(new Fingerprint.BuildPtr("foo", 13), "stuff&more.jar", SOME_MD5);
+        f.addWithoutSaving("some", 1);
+        f.addWithoutSaving("some", 2);
+        f.addWithoutSaving("some", 10);
+        f.addWithoutSaving("other", 6);
+        Fingerprint f2 = Fingerprint.fromPacked(SOME_MD5, f.toPacked());
+        assertEquals(f.toString(), f2.toString());
+        assertEquals(f.getTimestamp(), f2.getTimestamp());
+        assertEquals(f.getHashString(), f2.getHashString());
+        f.facets.setOwner(Saveable.NOOP);
+        f.facets.add(new TestFacet(f, 123, "val"));
+        f2 = Fingerprint.fromPacked(SOME_MD5, f.toPacked());
+        assertEquals(f.toString(), f2.toString());
+        assertEquals(1, f2.facets.size());
+        assertEquals(f2, f2.facets.get(0).getFingerprint());
+    }
+
     private static byte[] toByteArray(String md5sum) {
         byte[] data = new byte[16];
         for( int i=0; i<md5sum.length(); i+=2 )
@@ -26,7 +26,10 @@ package hudson.model;
 
 import java.io.IOException;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
 import java.util.Set;
@@ -35,6 +38,7 @@ import java.util.TreeSet;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
 
 import static org.junit.Assert.*;
 
@@ -216,6 +220,38 @@ public class RunTest {
         assertEquals("c3", logLines.get(3));
     }
 
+    @Test
+    public void getLogReadsCompressedLog() throws Exception {
+        Job j = Mockito.mock(Job.class);
+        File tempBuildDir = tmp.newFolder();
+        Mockito.when(j.getBuildDir()).thenReturn(tempBuildDir);
+        Run<? extends Job<?, ?>, ? extends Run<?, ?>> r = new Run(j, 0) {};
+        File f = new File(r.getRootDir(), "log.gz");
+        f.getParentFile().mkdirs();
+        PrintWriter w = new PrintWriter(new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(f)), "utf-8"));
+        w.print("a1\nb2\n\nc3");
+        w.close();
+        assertEquals(f, r.getLogFile());
+        assertEquals(Arrays.asList("[...truncated 1 B...]", "", "c3"), r.getLog(3));
+    }
+
+    @Test
+    public void getLogLines() throws Exception {
+        Job j = Mockito.mock(Job.class);
+        File tempBuildDir = tmp.newFolder();
+        Mockito.when(j.getBuildDir()).thenReturn(tempBuildDir);
+        Run<? extends Job<?, ?>, ? extends Run<?, ?>> r = new Run(j, 0) {};
+        File f = r.getLogFile();
+        f.getParentFile().mkdirs();
+        PrintWriter w = new PrintWriter(f, "utf-8");
+        w.print("a1\nb2\n\nc3");
+        w.close();
+        assertEquals(4, r.getLogLineCount());
+        assertEquals(Arrays.asList("b2", ""), r.getLogLines(1, 2));
+        assertEquals(Arrays.asList("c3"), r.getLogLines(3, 10));
+        assertTrue(r.getLogLines(4, 10).isEmpty());
+    }
+
     @Test
     public void compareRunsFromSameJobWithDifferentNumbers() throws Exception {
         final Jenkins group = Mockito.mock(Jenkins.class);
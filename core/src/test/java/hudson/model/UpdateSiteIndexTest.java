@@ -0,0 +1,74 @@
+package hudson.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+import net.sf.json.JSONObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class UpdateSiteIndexTest {
+
+    @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static final String JSON = "{\"updateCenterVersion\": 1, \"id\": \"default\",\n"
+            + "  \"core\": {\"name\": \"core\", \"url\": \"jenkins.war\", \"version\": \"2.172\"},\n"
+            + "  \"plugins\": {\n"
+            + "    \"tasks\": {\"name\": \"tasks\", \"title\": \"T\\u00e4sks {\\\"quoted\\\"}\", \"labels\": [\"report\", \"[\"]},\n"
+            + "    \"d\\u00fcmmy\": {\"name\": \"dümmy\", \"dependencies\": [{\"name\": \"tasks\", \"optional\": false}]}\n"
+            + "  },\n"
+            + "  \"connectionCheckUrl\": \"http://www.google.com/\", \"warnings\": []\n"
+            + "}\n";
+
+    @Test public void scan() throws Exception {
+        File json = write(JSON);
+        UpdateSiteIndex index = UpdateSiteIndex.of(json);
+        assertNotNull(index);
+        assertTrue(new File(json.getPath() + ".idx").isFile());
+        check(index);
+        // read back from the saved index
+        check(UpdateSiteIndex.of(json));
+    }
+
+    private static void check(UpdateSiteIndex index) throws Exception {
+        assertEquals(new HashSet<>(Arrays.asList("tasks", "dümmy")), index.getPluginNames());
+        JSONObject members = index.getMembers();
+        assertEquals(new HashSet<>(Arrays.asList("updateCenterVersion", "id", "core", "connectionCheckUrl", "warnings")), members.keySet());
+        assertEquals("2.172", members.getJSONObject("core").getString("version"));
+        assertEquals("Täsks {\"quoted\"}", index.getPlugin("TASKS").getString("title"));
+        assertEquals("tasks", index.getPlugin("DÜMMY").getJSONArray("dependencies").getJSONObject(0).getString("name"));
+        assertNull(index.getPlugin("missing"));
+    }
+
+    @Test public void notIndexable() throws Exception {
+        assertNull(UpdateSiteIndex.of(write("updateCenter.post(" + JSON + ");")));
+        assertNull(UpdateSiteIndex.of(write("{\"plugins\": {\"tasks\": {}, \"tasks\": {}}}")));
+        assertNull(UpdateSiteIndex.of(write("{\"plugins\": {\"tasks\": {}}")));
+        assertNull(UpdateSiteIndex.of(write("{\"id\": \"default\"}")));
+    }
+
+    @Test public void changed() throws Exception {
+        File json = write(JSON);
+        UpdateSiteIndex index = UpdateSiteIndex.of(json);
+        assertNotNull(index);
+        Files.write(json.toPath(), JSON.replace("tasks", "scanner").getBytes(StandardCharsets.UTF_8));
+        assertFalse(index.isCurrent());
+        assertEquals(new HashSet<>(Arrays.asList("scanner", "dümmy")), UpdateSiteIndex.of(json).getPluginNames());
+    }
+
+    private File write(String text) throws Exception {
+        File json = new File(tmp.getRoot(), "default.json");
+        Files.write(json.toPath(), text.getBytes(StandardCharsets.UTF_8));
+        return json;
+    }
+
+}
@@ -317,6 +317,23 @@ public class CronTabTest {
         assertEquals("[35, 56]", times.toString());
     }
 
+    @Test public void listCeil() throws Exception {
+        CronTabList tabs = CronTabList.create("TZ=Australia/Sydney\nH * * * *\nH 3 * * *", Hash.from("seed"));
+        GregorianCalendar calendar = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+        calendar.set(2013, Calendar.APRIL, 3, 11, 0, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        long start = calendar.getTimeInMillis();
+        long next = -1;
+        for (int i = 0; i < 60 * 24; i++) {
+            calendar.setTimeInMillis(start + i * 60000L);
+            if (next < calendar.getTimeInMillis()) {
+                next = tabs.ceil(calendar.getTimeInMillis()).getTimeInMillis();
+            }
+            assertEquals(calendar.getTime().toString(), next == calendar.getTimeInMillis(), tabs.check(calendar));
+        }
+        assertNull(CronTabList.create("0 0 30 2 *").ceil(start));
+    }
+
     @Issue("SECURITY-790")
     @Test(timeout = 1000L) public void testLongMonths() throws Exception {
         Calendar cal = Calendar.getInstance();
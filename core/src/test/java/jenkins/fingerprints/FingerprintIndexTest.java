@@ -0,0 +1,109 @@
+package jenkins.fingerprints;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class FingerprintIndexTest {
+
+    private static final String A = "0123456789abcdef0123456789abcdef";
+    private static final String B = "fedcba9876543210fedcba9876543210";
+    private static final String C = "00000000000000000000000000000001";
+    private static final String E = "ffffffffffffffff0000000000000000";
+
+    @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void markAndPoll() throws Exception {
+        FingerprintIndex index = new FingerprintIndex(new File(tmp.getRoot(), "index"));
+        index.record(A, jobs("x", "d/y"));
+        index.record(B, jobs("x"));
+        index.record(C, jobs("d/z"));
+        index.record(E, jobs("dd/z"));
+        assertEquals(5, index.getReferenceCount());
+        assertEquals(4, index.getJobCount());
+
+        index.markJobDirty("x", false);
+        assertEquals(2, index.getDirtyCount());
+        assertEquals(new HashSet<>(Arrays.asList(A, B)), new HashSet<>(index.pollDirty(10)));
+        assertEquals(0, index.getDirtyCount());
+
+        index.markJobDirty("d", true);
+        assertEquals(new HashSet<>(Arrays.asList(A, C)), new HashSet<>(index.pollDirty(10)));
+
+        // B no longer used by x, but still listed for it until the next full pass
+        index.record(B, jobs("w"));
+        index.markJobDirty("x", false);
+        assertEquals(new HashSet<>(Arrays.asList(A, B)), new HashSet<>(index.pollDirty(10)));
+
+        index.markDirty(Arrays.asList(C, A, B, "malformed"));
+        assertEquals(Arrays.asList(C, A), index.pollDirty(2));
+        index.forget(B);
+        assertEquals(0, index.getDirtyCount());
+
+        index.jobDeleted("d", true);
+        assertEquals(new HashSet<>(Arrays.asList(A, C)), new HashSet<>(index.pollDirty(10)));
+        assertEquals(3, index.getJobCount());
+        index.markJobDirty("d", true);
+        assertEquals(0, index.getDirtyCount());
+    }
+
+    @Test
+    public void saveAndLoad() throws Exception {
+        File file = new File(tmp.getRoot(), "index");
+        FingerprintIndex index = new FingerprintIndex(file);
+        index.record(A, jobs("x", "y"));
+        index.record(B, jobs("y"));
+        assertTrue(index.needsFullScan());
+        index.save();
+        assertFalse("not written before a full scan", file.exists());
+        index.endFullScan();
+        index.markDirty(Collections.singletonList(B));
+        index.save();
+
+        index = new FingerprintIndex(file);
+        assertFalse(index.needsFullScan());
+        assertFalse("deleted until the next clean shutdown", file.exists());
+        assertEquals(3, index.getReferenceCount());
+        assertEquals(Collections.singletonList(B), index.pollDirty(10));
+        index.markJobDirty("x", false);
+        assertEquals(Collections.singletonList(A), index.pollDirty(10));
+
+        // unclean shutdown
+        index = new FingerprintIndex(file);
+        assertTrue(index.needsFullScan());
+        assertEquals(0, index.getReferenceCount());
+    }
+
+    @Test
+    public void idSet() {
+        FingerprintIndex.IdSet ids = new FingerprintIndex.IdSet();
+        Set<FingerprintIndex.Id> expected = new HashSet<>();
+        assertTrue(ids.add(0, 0));
+        expected.add(new FingerprintIndex.Id(0, 0));
+        Random r = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            long hi = r.nextInt(50), lo = r.nextInt(50);
+            assertEquals(expected.add(new FingerprintIndex.Id(hi, lo)), ids.add(hi, lo));
+        }
+        assertEquals(expected.size(), ids.size());
+        Set<FingerprintIndex.Id> actual = new HashSet<>();
+        ids.forEach((hi, lo) -> assertTrue(actual.add(new FingerprintIndex.Id(hi, lo))));
+        assertEquals(expected, actual);
+        assertEquals(A, FingerprintIndex.Id.parse(A).toString());
+        assertEquals(C, FingerprintIndex.Id.parse(C).toString());
+    }
+
+    private static Set<String> jobs(String... names) {
+        return new HashSet<>(Arrays.asList(names));
+    }
+}
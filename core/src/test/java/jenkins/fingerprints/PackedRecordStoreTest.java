@@ -0,0 +1,105 @@
+package jenkins.fingerprints;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class PackedRecordStoreTest {
+
+    @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void putGetRemoveAndReopen() throws Exception {
+        File dir = tmp.newFolder();
+        Random r = new Random(12);
+        Map<Integer, String> expected = new HashMap<>();
+        try (PackedRecordStore store = PackedRecordStore.open(dir, 4096)) {
+            for (int i = 0; i < 20000; i++) {
+                int k = r.nextInt(3000);
+                if (r.nextInt(5) == 0) {
+                    assertEquals(expected.remove(k) != null, store.remove(key(k)));
+                } else {
+                    String v = "value " + i;
+                    store.put(key(k), v.getBytes(StandardCharsets.UTF_8));
+                    expected.put(k, v);
+                }
+            }
+            assertContents(expected, store);
+            assertTrue(store.needsCompaction());
+            assertTrue(store.compact() > 0);
+            assertFalse(store.needsCompaction());
+            assertContents(expected, store);
+        }
+        try (PackedRecordStore store = PackedRecordStore.open(dir, 4096)) {
+            assertContents(expected, store);
+        }
+    }
+
+    @Test
+    public void incompleteRecordIsCutOff() throws Exception {
+        File dir = tmp.newFolder();
+        try (PackedRecordStore store = PackedRecordStore.open(dir, 1 << 20)) {
+            store.put(key(1), new byte[] {1});
+            store.put(key(2), new byte[] {2, 2});
+        }
+        File segment = dir.listFiles()[0];
+        try (RandomAccessFile raf = new RandomAccessFile(segment, "rw")) {
+            raf.setLength(raf.length() - 3);
+        }
+        try (PackedRecordStore store = PackedRecordStore.open(dir, 1 << 20)) {
+            assertArrayEquals(new byte[] {1}, store.get(key(1)));
+            assertNull(store.get(key(2)));
+            store.put(key(3), new byte[] {3});
+        }
+        try (PackedRecordStore store = PackedRecordStore.open(dir, 1 << 20)) {
+            assertEquals(2, store.size());
+            assertArrayEquals(new byte[] {3}, store.get(key(3)));
+        }
+    }
+
+    @Test
+    public void obsoleteSegmentIsNotReplayed() throws Exception {
+        File dir = tmp.newFolder();
+        try (PackedRecordStore store = PackedRecordStore.open(dir, 1 << 20)) {
+            store.put(key(1), new byte[] {1});
+        }
+        // as left behind when deleting a compacted segment failed
+        File segment = dir.listFiles()[0];
+        File obsolete = new File(tmp.newFolder(), segment.getName() + ".obsolete");
+        Files.copy(segment.toPath(), obsolete.toPath());
+        try (PackedRecordStore store = PackedRecordStore.open(obsolete.getParentFile(), 1 << 20)) {
+            assertEquals(0, store.size());
+            assertNull(store.get(key(1)));
+        }
+        assertFalse(obsolete.exists());
+    }
+
+    private static void assertContents(Map<Integer, String> expected, PackedRecordStore store) throws Exception {
+        assertEquals(expected.size(), store.size());
+        for (Map.Entry<Integer, String> e : expected.entrySet()) {
+            assertEquals(e.getValue(), new String(store.get(key(e.getKey())), StandardCharsets.UTF_8));
+        }
+        Set<Integer> keys = new HashSet<>();
+        store.forEachKey(k -> keys.add(ByteBuffer.wrap(k).getInt(12)));
+        assertEquals(expected.keySet(), keys);
+        assertNull(store.get(key(-1)));
+    }
+
+    private static byte[] key(int k) {
+        // not uniformly distributed, unlike checksums
+        return ByteBuffer.allocate(16).putInt(12, k).array();
+    }
+}
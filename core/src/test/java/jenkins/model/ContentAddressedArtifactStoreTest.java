@@ -0,0 +1,79 @@
+package jenkins.model;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.Assert.*;
+
+public class ContentAddressedArtifactStoreTest {
+
+    private static final String SHA256 = "2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824"; // hello
+
+    @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void refCounting() throws Exception {
+        ContentAddressedArtifactStore store = new ContentAddressedArtifactStore(tmp.getRoot());
+        assertFalse(store.refIfPresent(SHA256, 5));
+        store.add(SHA256, stage(store));
+        assertTrue(store.refIfPresent(SHA256, 5));
+        assertFalse("wrong size", store.refIfPresent(SHA256, 6));
+        store.add(SHA256, stage(store));
+        assertEquals(3, store.getRefs(SHA256));
+        assertEquals("hello", new String(Files.readAllBytes(store.file(SHA256).toPath()), StandardCharsets.UTF_8));
+
+        store.unref(SHA256);
+        store.unref(SHA256);
+        assertTrue(store.file(SHA256).isFile());
+        store.unref(SHA256);
+        assertEquals(0, store.getRefs(SHA256));
+        assertFalse(store.file(SHA256).exists());
+        assertFalse(store.file(SHA256).getParentFile().exists());
+    }
+
+    @Test
+    public void journalReplayed() throws Exception {
+        ContentAddressedArtifactStore store = new ContentAddressedArtifactStore(tmp.getRoot());
+        store.add(SHA256, stage(store));
+        store.ref(SHA256);
+        store.unref(SHA256);
+        String other = "0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef";
+        store.ref(other);
+        store.close();
+        File journal = new File(tmp.getRoot(), "refs.log");
+        assertEquals(4, Files.readAllLines(journal.toPath()).size());
+        Files.write(journal.toPath(), (other + " -1\n" + SHA256 + " 1").getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        File leftover = new File(tmp.getRoot(), "tmp/staging123");
+        assertTrue(leftover.mkdirs());
+
+        store = new ContentAddressedArtifactStore(tmp.getRoot());
+        assertEquals(2, store.getRefs(SHA256));
+        assertEquals(0, store.getRefs(other));
+        assertEquals("rewritten", 1, Files.readAllLines(journal.toPath()).size());
+        assertFalse(leftover.exists());
+        store.close();
+
+        Files.write(journal.toPath(), (SHA256 + " -").getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        store = new ContentAddressedArtifactStore(tmp.getRoot());
+        assertEquals("torn line ignored", 2, store.getRefs(SHA256));
+        store.close();
+    }
+
+    @Test
+    public void checksum() throws Exception {
+        ContentAddressedArtifactStore store = new ContentAddressedArtifactStore(tmp.getRoot());
+        assertEquals(SHA256, ContentAddressedArtifactStore.checksum(stage(store)));
+    }
+
+    private static File stage(ContentAddressedArtifactStore store) throws Exception {
+        File f = new File(store.createStagingDir(), SHA256);
+        Files.write(f.toPath(), "hello".getBytes(StandardCharsets.UTF_8));
+        return f;
+    }
+}
@@ -52,6 +52,7 @@ import java.util.stream.Collectors;
 
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
@@ -162,6 +163,36 @@ public class ApiTokenStatsTest {
         }
     }
     
+    @Test
+    public void batchedSaves() throws Exception {
+        final String ID = UUID.randomUUID().toString();
+        long maxStaleness = ApiTokenStats.MAX_STALENESS;
+        ApiTokenStats.MAX_STALENESS = 3_600_000;
+        try {
+            ApiTokenStats tokenStats = createFromFile(tmp.getRoot());
+            Thread[] threads = new Thread[4];
+            for (int i = 0; i < threads.length; i++) {
+                threads[i] = new Thread(() -> {
+                    for (int j = 0; j < 250; j++) {
+                        tokenStats.updateUsageForId(ID);
+                    }
+                });
+                threads[i].start();
+            }
+            for (Thread t : threads) {
+                t.join();
+            }
+            assertEquals(1000, tokenStats.findTokenStatsById(ID).getUseCounter());
+            // nothing written until the scheduled save
+            assertFalse(ApiTokenStats.getConfigFile(tmp.getRoot()).exists());
+            
+            ApiTokenStats.flushAll();
+            assertEquals(1000, createFromFile(tmp.getRoot()).findTokenStatsById(ID).getUseCounter());
+        } finally {
+            ApiTokenStats.MAX_STALENESS = maxStaleness;
+        }
+    }
+    
     @Test
     public void testResilientIfFileDoesNotExist() throws Exception {
         ApiTokenStats tokenStats = createFromFile(tmp.getRoot());
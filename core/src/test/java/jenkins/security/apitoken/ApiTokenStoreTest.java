@@ -0,0 +1,40 @@
+package jenkins.security.apitoken;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class ApiTokenStoreTest {
+
+    @Test
+    public void findMatchingToken() {
+        ApiTokenStore store = new ApiTokenStore();
+        ApiTokenStore.TokenUuidAndPlainValue first = store.generateNewToken("first");
+        ApiTokenStore.TokenUuidAndPlainValue second = store.generateNewToken("second");
+
+        assertEquals(first.tokenUuid, store.findMatchingToken(first.plainValue).getUuid());
+        assertEquals(second.tokenUuid, store.findMatchingToken(second.plainValue).getUuid());
+        assertNull(store.findMatchingToken("11" + "0123456789abcdef0123456789abcdef"));
+        assertNull(store.findMatchingToken("not-a-token"));
+
+        store.revokeToken(first.tokenUuid);
+        assertNull(store.findMatchingToken(first.plainValue));
+        assertEquals(second.tokenUuid, store.findMatchingToken(second.plainValue).getUuid());
+    }
+
+    @Test
+    public void newTokenFoundAfterMisses() {
+        ApiTokenStore store = new ApiTokenStore();
+        ApiTokenStore.TokenUuidAndPlainValue revoked = store.generateNewToken("revoked");
+        store.revokeToken(revoked.tokenUuid);
+        for (int i = 0; i < 3; i++) {
+            assertNull(store.findMatchingToken(revoked.plainValue));
+        }
+
+        ApiTokenStore.TokenUuidAndPlainValue created = store.generateNewToken("created");
+        assertNotNull(store.findMatchingToken(created.plainValue));
+        assertNull(store.findMatchingToken(revoked.plainValue));
+    }
+}
@@ -0,0 +1,57 @@
+package jenkins.util;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class HistogramTest {
+
+    @Test
+    public void empty() {
+        Histogram h = new Histogram();
+        assertEquals(0, h.getCount());
+        assertEquals(0, h.getP50());
+        assertEquals(0, h.getMax());
+        assertTrue(h.getBuckets().isEmpty());
+    }
+
+    @Test
+    public void percentiles() {
+        Histogram h = new Histogram();
+        for (int i = 0; i < 90; i++) {
+            h.record(TimeUnit.MICROSECONDS.toNanos(10));
+        }
+        for (int i = 0; i < 10; i++) {
+            h.record(TimeUnit.MILLISECONDS.toNanos(100));
+        }
+        assertEquals(100, h.getCount());
+        assertEquals(100000, h.getMax());
+        assertEquals(90 * 10 + 10 * 100000, h.getTotal());
+
+        // power-of-two buckets: within a factor of two of the real value
+        assertTrue(h.getP50() >= 10 && h.getP50() <= 20);
+        assertTrue(h.getP90() >= 10 && h.getP90() <= 20);
+        assertEquals(100000, h.getP99()); // capped by the max
+
+        List<Histogram.Bucket> buckets = h.getBuckets();
+        assertEquals(2, buckets.size());
+        assertEquals(90, buckets.get(0).getCount());
+        assertEquals(10, buckets.get(1).getCount());
+        assertTrue(buckets.get(0).getUpperBound() < buckets.get(1).getUpperBound());
+    }
+
+    @Test
+    public void reset() {
+        Histogram h = new Histogram();
+        h.record(12345);
+        h.record(-1); // clock skew is counted as zero
+        assertEquals(2, h.getCount());
+        h.reset();
+        assertEquals(0, h.getCount());
+        assertEquals(0, h.getMax());
+        assertTrue(h.getBuckets().isEmpty());
+    }
+}
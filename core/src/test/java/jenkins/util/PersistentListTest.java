@@ -0,0 +1,62 @@
+package jenkins.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+public class PersistentListTest {
+
+    @Test
+    public void empty() {
+        PersistentList<String> l = PersistentList.empty();
+        assertTrue(l.isEmpty());
+        assertEquals(0, l.size());
+        assertFalse(l.iterator().hasNext());
+        assertSame(l, l.without(42));
+    }
+
+    @Test
+    public void versionsAreIndependent() {
+        PersistentList<String> v1 = PersistentList.of(Arrays.asList("a", "b", "c"));
+        PersistentList<String> v2 = v1.with(3, "d");
+        PersistentList<String> v3 = v2.without(0);
+
+        assertEquals(Arrays.asList("a", "b", "c"), v1);
+        assertEquals(Arrays.asList("a", "b", "c", "d"), v2);
+        assertEquals(Arrays.asList("b", "c", "d"), v3);
+        assertEquals("d", v3.get(2));
+    }
+
+    @Test
+    public void randomOperationsMatchSortedMap() {
+        Random r = new Random(27708);
+        TreeMap<Long, Integer> expected = new TreeMap<>();
+        PersistentList<Integer> actual = PersistentList.empty();
+        long nextKey = 0;
+        for (int i = 0; i < 10000; i++) {
+            if (expected.isEmpty() || r.nextInt(3) > 0) {
+                long key = r.nextBoolean() ? nextKey++ : r.nextInt((int) nextKey + 1);
+                expected.put(key, i);
+                actual = actual.with(key, i);
+            } else {
+                long key = r.nextInt((int) nextKey + 1);
+                expected.remove(key);
+                actual = actual.without(key);
+            }
+            if (i % 500 == 0) {
+                assertEquals(new ArrayList<>(expected.values()), actual);
+            }
+        }
+        List<Integer> values = new ArrayList<>(expected.values());
+        assertEquals(values.size(), actual.size());
+        for (int i = 0; i < values.size(); i++) {
+            assertEquals(values.get(i), actual.get(i));
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package jenkins.util.io;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+public class IndexedGzipFileTest {
+
+    @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void readableAsPlainGzip() throws Exception {
+        byte[] data = randomLog(new Random(1), 300000);
+        File gz = compress(data, 1000);
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(gz.toPath()))) {
+            assertArrayEquals(data, IOUtils.toByteArray(in));
+        }
+    }
+
+    @Test
+    public void randomAccess() throws Exception {
+        Random r = new Random(2);
+        byte[] data = randomLog(r, 200000);
+        File gz = compress(data, 4096);
+        IndexedGzipFile f = IndexedGzipFile.open(gz);
+        assertNotNull(f);
+        assertEquals(data.length, f.length());
+
+        for (int i = 0; i < 50; i++) {
+            int offset = r.nextInt(data.length + 1);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            assertEquals(data.length, f.writeTo(offset, out));
+            assertArrayEquals(Arrays.copyOfRange(data, offset, data.length), out.toByteArray());
+
+            byte[] buf = new byte[100];
+            int n = f.read(offset, buf, 0, buf.length);
+            if (offset == data.length) {
+                assertEquals(-1, n);
+            } else {
+                assertTrue(n > 0);
+                assertArrayEquals(Arrays.copyOfRange(data, offset, offset + n), Arrays.copyOf(buf, n));
+            }
+        }
+    }
+
+    @Test
+    public void lines() throws Exception {
+        Random r = new Random(3);
+        byte[] data = randomLog(r, 100000);
+        File gz = compress(data, 512);
+        IndexedGzipFile f = IndexedGzipFile.open(gz);
+        long line = 0;
+        assertEquals(0, f.offsetOfLine(0));
+        for (int i = 0; i < data.length; i++) {
+            if (data[i] == '\n') {
+                line++;
+                assertEquals(i + 1, f.offsetOfLine(line));
+            }
+        }
+        assertEquals(line, f.getLineCount());
+        assertEquals(-1, f.offsetOfLine(line + 1));
+    }
+
+    @Test
+    public void empty() throws Exception {
+        File gz = compress(new byte[0], 1000);
+        IndexedGzipFile f = IndexedGzipFile.open(gz);
+        assertEquals(0, f.length());
+        assertEquals(-1, f.read(0, new byte[10], 0, 10));
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(gz.toPath()))) {
+            assertEquals(-1, in.read());
+        }
+    }
+
+    @Test
+    public void staleIndexIsIgnored() throws Exception {
+        File gz = compress("hello\n".getBytes("UTF-8"), 1000);
+        assertNotNull(IndexedGzipFile.open(gz));
+        Files.write(gz.toPath(), new byte[] {1, 2, 3});
+        assertNull(IndexedGzipFile.open(gz));
+        assertTrue(IndexedGzipFile.indexOf(gz).delete());
+        assertNull(IndexedGzipFile.open(gz));
+    }
+
+    private File compress(byte[] data, int blockSize) throws Exception {
+        File gz = new File(tmp.newFolder(), "log.gz");
+        IndexedGzipFile.compress(new ByteArrayInputStream(data), gz, blockSize);
+        return gz;
+    }
+
+    private static byte[] randomLog(Random r, int size) {
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            // long runs without newlines too, so that some members have none
+            data[i] = r.nextInt(i % 20000 < 5000 ? 5000 : 40) == 0 ? (byte) '\n' : (byte) ('a' + r.nextInt(26));
+        }
+        return data;
+    }
+}
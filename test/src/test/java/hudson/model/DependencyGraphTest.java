@@ -24,12 +24,14 @@
 package hudson.model;
 
 import jenkins.model.DependencyDeclarer;
+import jenkins.model.Jenkins;
 import hudson.security.ACL;
 import hudson.tasks.BuildTrigger;
 import hudson.tasks.MailMessageIdAction;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
@@ -167,6 +169,48 @@ public class DependencyGraphTest extends HudsonTestCase {
 
     }
 
+    public void testIncrementalBuild() throws Exception {
+        FreeStyleProject a = createFreeStyleProject("a");
+        FreeStyleProject b = createFreeStyleProject("b");
+        FreeStyleProject c = createFreeStyleProject("c");
+        depends(a,b);
+        jenkins.rebuildDependencyGraph();
+        DependencyGraph g = jenkins.getDependencyGraph();
+        assertEquals(Collections.singletonList(b), g.getDownstream(a));
+        assertFalse(g.hasIndirectDependencies(a,c));
+
+        depends(b,c);
+        DependencyGraph g2 = new DependencyGraph();
+        g2.build(g, Collections.singleton(b));
+        assertEquals(Collections.singletonList(b), g2.getDownstream(a));
+        assertEquals(Collections.singletonList(c), g2.getDownstream(b));
+        assertEquals(new HashSet<>(Arrays.asList(b,c)), g2.getTransitiveDownstream(a));
+        assertEquals(new HashSet<>(Arrays.asList(a,b)), g2.getTransitiveUpstream(c));
+        assertTrue(g2.hasIndirectDependencies(a,c));
+        assertFalse(g2.hasIndirectDependencies(a,b));
+        assertTrue(g2.compare(a,b)<0);
+        assertTrue(g2.compare(b,c)<0);
+        // the previous graph is left alone
+        assertEquals(Collections.emptyList(), g.getDownstream(b));
+
+        c.delete();
+        FreeStyleProject d = createFreeStyleProject("d");
+        depends(d,a);
+        DependencyGraph g3 = new DependencyGraph();
+        g3.build(g2, Collections.<AbstractProject>emptySet());
+        assertEquals(Collections.emptyList(), g3.getDownstream(b));
+        assertEquals(Collections.singletonList(a), g3.getDownstream(d));
+        assertEquals(Arrays.asList(d,a,b), g3.getTopologicallySorted());
+
+        Jenkins.INCREMENTAL_DEPENDENCY_GRAPH = true;
+        try {
+            depends(b,d);
+            assertEquals(Collections.singletonList(d), jenkins.rebuildDependencyGraphAsync(b).get().getDownstream(b));
+        } finally {
+            Jenkins.INCREMENTAL_DEPENDENCY_GRAPH = false;
+        }
+    }
+
     private void depends(FreeStyleProject a, FreeStyleProject... downstreams) {
         a.getPublishersList().add(new BuildTrigger(Arrays.asList(downstreams), Result.SUCCESS));
     }
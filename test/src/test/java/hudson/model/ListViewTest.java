@@ -44,6 +44,8 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 
+import jenkins.model.Jenkins;
+
 import org.acegisecurity.Authentication;
 
 import static org.junit.Assert.*;
@@ -60,6 +62,7 @@ import org.junit.rules.TestName;
 import org.jvnet.hudson.test.Issue;
 import org.jvnet.hudson.test.JenkinsRule;
 import org.jvnet.hudson.test.JenkinsRule.WebClient;
+import org.jvnet.hudson.test.MockAuthorizationStrategy;
 import org.jvnet.hudson.test.MockFolder;
 import org.jvnet.hudson.test.recipes.LocalData;
 import org.kohsuke.stapler.StaplerRequest;
@@ -259,6 +262,63 @@ public class ListViewTest {
         assertEquals("job1", items.get(0).getName());
     }
 
+    @Test public void indexedItems() throws Exception {
+        ListView.INDEXED = true;
+        try {
+            MockFolder top = j.createFolder("top");
+            FreeStyleProject a = top.createProject(FreeStyleProject.class, "a");
+            FreeStyleProject b = j.createFreeStyleProject("b");
+            FreeStyleProject other = j.createFreeStyleProject("other");
+            ListView v = new ListView("v", j.jenkins);
+            j.jenkins.addView(v);
+            v.setRecurse(true);
+            v.setIncludeRegex(".*/[ab].*");
+            assertEquals(Collections.singletonList(a), v.getItems());
+            v.add(b);
+            assertEquals(Arrays.asList(b, a), v.getItems());
+
+            FreeStyleProject a2 = top.createProject(FreeStyleProject.class, "a2");
+            assertEquals(Arrays.asList(b, a, a2), v.getItems());
+            a2.delete();
+            other.renameTo("bb");
+            assertEquals(Arrays.asList(b, a), v.getItems());
+            v.setIncludeRegex(".*");
+            assertEquals(Arrays.asList(b, other, top, a), v.getItems());
+
+            j.jenkins.setSecurityRealm(j.createDummySecurityRealm());
+            j.jenkins.setAuthorizationStrategy(new MockAuthorizationStrategy().
+                    grant(Jenkins.READ).everywhere().to("alice").
+                    grant(Item.READ).onItems(b, a).to("alice"));
+            try (ACLContext acl = ACL.as(User.getById("alice", true))) {
+                assertEquals("a is inside a folder alice cannot see", Collections.singletonList(b), v.getItems());
+            }
+        } finally {
+            ListView.INDEXED = false;
+        }
+    }
+
+    @Test public void indexedItemsMoved() throws Exception {
+        ListView.INDEXED = true;
+        try {
+            MockFolder top = j.createFolder("top");
+            MockFolder other = j.createFolder("other");
+            FreeStyleProject a = top.createProject(FreeStyleProject.class, "a");
+            ListView inTop = new ListView("inTop", top);
+            top.addView(inTop);
+            inTop.setIncludeRegex(".*");
+            ListView inOther = new ListView("inOther", other);
+            other.addView(inOther);
+            inOther.setIncludeRegex(".*");
+            assertEquals(Collections.singletonList(a), inTop.getItems());
+            assertEquals(Collections.emptyList(), inOther.getItems());
+            a = Items.move(a, other);
+            assertEquals(Collections.emptyList(), inTop.getItems());
+            assertEquals(Collections.singletonList(a), inOther.getItems());
+        } finally {
+            ListView.INDEXED = false;
+        }
+    }
+
     @Issue("JENKINS-23411")
     @Test public void doRemoveJobFromViewNullItem() throws Exception {
         MockFolder folder = j.createFolder("folder");
@@ -0,0 +1,70 @@
+package hudson.model;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.FakeChangeLogSCM;
+import org.jvnet.hudson.test.JenkinsRule;
+
+public class PeopleIndexTest {
+
+    @Rule public JenkinsRule j = new JenkinsRule();
+
+    @Before public void enable() {
+        PeopleIndex.ENABLED = true;
+    }
+
+    @After public void disable() {
+        PeopleIndex.ENABLED = false;
+    }
+
+    @Test public void lastChanges() throws Exception {
+        FreeStyleProject p = j.createFreeStyleProject("p");
+        FakeChangeLogSCM scm = new FakeChangeLogSCM();
+        scm.addChange().withAuthor("alice");
+        p.setScm(scm);
+        FreeStyleBuild b1 = j.buildAndAssertSuccess(p);
+        assertEquals(1, lastChanges().size());
+        assertEquals(b1.getTimeInMillis(), (long) lastChanges().get("alice"));
+        assertEquals(p, people().get(0).getJob());
+
+        scm = new FakeChangeLogSCM();
+        scm.addChange().withAuthor("bob");
+        p.setScm(scm);
+        FreeStyleBuild b2 = j.buildAndAssertSuccess(p);
+        Map<String, Long> changes = lastChanges();
+        assertEquals(b1.getTimeInMillis(), (long) changes.get("alice"));
+        assertEquals(b2.getTimeInMillis(), (long) changes.get("bob"));
+        assertEquals("bob", people().get(0).getUser().getId());
+
+        b2.delete();
+        changes = lastChanges();
+        assertEquals(1, changes.size());
+        assertEquals(b1.getTimeInMillis(), (long) changes.get("alice"));
+
+        p.renameTo("q");
+        assertEquals(1, PeopleIndex.get().getJobCount());
+        assertEquals(p, people().get(0).getJob());
+        p.delete();
+        assertEquals(0, PeopleIndex.get().getJobCount());
+        assertTrue(people().isEmpty());
+    }
+
+    private java.util.List<View.UserInfo> people() {
+        return j.jenkins.getPrimaryView().getPeople().users;
+    }
+
+    private Map<String, Long> lastChanges() {
+        Map<String, Long> r = new HashMap<>();
+        for (View.UserInfo info : people()) {
+            r.put(info.getUser().getId(), info.getLastChange().getTimeInMillis());
+        }
+        return r;
+    }
+
+}
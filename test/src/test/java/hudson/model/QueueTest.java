@@ -55,6 +55,7 @@ import hudson.model.queue.QueueTaskDispatcher;
 import hudson.model.queue.QueueTaskFuture;
 import hudson.model.queue.ScheduleResult;
 import hudson.model.queue.SubTask;
+import hudson.model.queue.WorkUnit;
 import hudson.security.ACL;
 import hudson.security.AuthorizationMatrixProperty;
 import hudson.security.GlobalMatrixAuthorizationStrategy;
@@ -757,6 +758,84 @@ public class QueueTest {
         }
     }
 
+    @Test public void incrementalMaintenance() throws Exception {
+        boolean old = Queue.INCREMENTAL_MAINTENANCE;
+        Queue.INCREMENTAL_MAINTENANCE = true;
+        try {
+            r.jenkins.setNumExecutors(0);
+            DumbSlave red = r.createOnlineSlave(r.jenkins.getLabelAtom("red"));
+            DumbSlave blue = r.createOnlineSlave(r.jenkins.getLabelAtom("blue"));
+
+            FreeStyleProject p1 = r.createFreeStyleProject();
+            p1.setAssignedLabel(r.jenkins.getLabelAtom("red"));
+            FreeStyleProject p2 = r.createFreeStyleProject();
+            p2.setAssignedLabel(r.jenkins.getLabelAtom("blue"));
+
+            // offers are only made to executors on nodes matching the label
+            assertEquals(red.getNodeName(), r.buildAndAssertSuccess(p1).getBuiltOnStr());
+            assertEquals(blue.getNodeName(), r.buildAndAssertSuccess(p2).getBuiltOnStr());
+
+            // a blocked item is looked at again once the build blocking it is done
+            p1.getBuildersList().add(new SleepBuilder(1000));
+            QueueTaskFuture<FreeStyleBuild> f1 = p1.scheduleBuild2(0);
+            f1.waitForStart();
+            QueueTaskFuture<FreeStyleBuild> f2 = p1.scheduleBuild2(0, new UserIdCause());
+            r.assertBuildStatusSuccess(f1);
+            r.assertBuildStatusSuccess(f2);
+            assertEquals(red.getNodeName(), f2.get().getBuiltOnStr());
+        } finally {
+            Queue.INCREMENTAL_MAINTENANCE = old;
+        }
+    }
+
+    @Test public void parallelDispatch() throws Exception {
+        boolean old = Queue.PARALLEL_DISPATCH;
+        Queue.PARALLEL_DISPATCH = true;
+        try {
+            r.jenkins.setNumExecutors(0);
+            DumbSlave agent = r.createOnlineSlave();
+            agent.setNumExecutors(2);
+            r.jenkins.updateNode(agent);
+            r.waitOnline(agent);
+
+            FreeStyleProject p1 = r.createFreeStyleProject("throttled1");
+            p1.getBuildersList().add(new SleepBuilder(1000));
+            FreeStyleProject p2 = r.createFreeStyleProject("throttled2");
+            p2.getBuildersList().add(new SleepBuilder(1000));
+
+            // the answer given before the first build started must not be reused for the second one
+            QueueTaskFuture<FreeStyleBuild> f1 = p1.scheduleBuild2(0);
+            QueueTaskFuture<FreeStyleBuild> f2 = p2.scheduleBuild2(0);
+            FreeStyleBuild b1 = r.assertBuildStatusSuccess(f1);
+            FreeStyleBuild b2 = r.assertBuildStatusSuccess(f2);
+            FreeStyleBuild first = b1.getStartTimeInMillis() <= b2.getStartTimeInMillis() ? b1 : b2;
+            FreeStyleBuild second = first == b1 ? b2 : b1;
+            assertTrue(second.getStartTimeInMillis() >= first.getStartTimeInMillis() + first.getDuration());
+        } finally {
+            Queue.PARALLEL_DISPATCH = old;
+        }
+    }
+
+    /**
+     * Lets only one project whose name starts with {@code throttled} run at a time, as throttling plugins do.
+     */
+    @TestExtension("parallelDispatch")
+    public static class ThrottlingDispatcher extends QueueTaskDispatcher {
+        @Override
+        public CauseOfBlockage canTake(Node node, Queue.BuildableItem item) {
+            for (Computer c : Jenkins.get().getComputers()) {
+                for (Executor e : c.getExecutors()) {
+                    // set as the work is handed over, unlike the executable which the executor thread creates later
+                    WorkUnit wu = e.getCurrentWorkUnit();
+                    if (wu != null && wu.work.getOwnerTask().getName().startsWith("throttled")) {
+                        return CauseOfBlockage.fromMessage(Messages._Queue_InProgress());
+                    }
+                }
+            }
+            return null;
+        }
+    }
+
     @Test public void cancelInQueue() throws Exception {
         // parepare an offline slave.
         DumbSlave slave = r.createOnlineSlave();
@@ -26,6 +26,8 @@ package hudson.model;
 import hudson.FilePath;
 import hudson.Launcher;
 import hudson.tasks.ArtifactArchiver;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.net.HttpURLConnection;
 import java.util.Collection;
@@ -40,6 +42,7 @@ import jenkins.model.ArtifactManagerFactory;
 import jenkins.model.ArtifactManagerFactoryDescriptor;
 import jenkins.model.Jenkins;
 import jenkins.util.VirtualFile;
+import jenkins.util.io.IndexedGzipFile;
 import static org.junit.Assert.*;
 import org.junit.Rule;
 import org.junit.Test;
@@ -88,6 +91,35 @@ public class RunTest  {
         assertEquals(Run.KeepLogBuildBadge.class, badgeActions.get(0).getClass());
     }
 
+    @Test public void compressedLog() throws Exception {
+        boolean old = Run.COMPRESS_LOGS;
+        Run.COMPRESS_LOGS = true;
+        try {
+            FreeStyleProject p = j.createFreeStyleProject();
+            FreeStyleBuild b = j.buildAndAssertSuccess(p);
+            File gz = new File(b.getRootDir(), "log.gz");
+            // log.gz is written before log is deleted, and log is preferred while it exists
+            File log = new File(b.getRootDir(), "log");
+            for (int i = 0; i < 100 && log.exists(); i++) {
+                Thread.sleep(100);
+            }
+            assertFalse(log.exists());
+            assertEquals(gz, b.getLogFile());
+            assertNotNull(IndexedGzipFile.open(gz));
+            j.assertLogContains("Finished: SUCCESS", b);
+            assertEquals("Finished: SUCCESS", b.getLog(2).get(1)); // the first line is the truncation marker
+
+            // served from an offset without decompressing what comes before
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            long length = b.getLogText().length();
+            assertEquals(length, b.getLogText().writeLogTo(length - ("Finished: SUCCESS" + System.lineSeparator()).length(), out));
+            assertEquals("Finished: SUCCESS", out.toString().trim());
+            j.createWebClient().goTo(b.getUrl() + "console");
+        } finally {
+            Run.COMPRESS_LOGS = old;
+        }
+    }
+
     @Issue("JENKINS-51819")
     @Test public void deleteArtifactsCustom() throws Exception {
         ArtifactManagerConfiguration.get().getArtifactManagerFactories().add(new Mgr.Factory());
@@ -126,6 +126,50 @@ public class UpdateSiteTest {
         assertEquals("Wrong name of plugin found", "Task Scanner Plug-in", tasksPlugin.getDisplayName());
     }
 
+    @Test public void indexedData() throws Exception {
+        UpdateSite.INDEXED_DATA = true;
+        try {
+            PersistedList<UpdateSite> sites = j.jenkins.getUpdateCenter().getSites();
+            sites.clear();
+            URL url = new URL(baseUrl, "/plugins/minJavaVersion-update-center.json");
+            UpdateSite site = new UpdateSite(UpdateCenter.ID_DEFAULT, url.toString());
+            sites.add(site);
+            assertEquals(FormValidation.ok(), site.updateDirectly(false).get());
+            assertTrue(new File(j.jenkins.getRootDir(), "updates/default.json.idx").isFile());
+            for (int i = 0; i < 2; i++) {
+                Data data = site.getData();
+                assertNotNull(data);
+                assertEquals(new URL(url, "jenkins.war").toString(), data.core.url);
+                assertEquals(new HashSet<String>(Arrays.asList("tasks", "java-too-recent", "depending-on-too-recent-java")), data.plugins.keySet());
+                assertEquals(new URL(url, "tasks.jpi").toString(), site.getPlugin("TASKS").url);
+                assertEquals("Task Scanner Plug-in", data.plugins.get("tasks").getDisplayName());
+                assertTrue(site.getPlugin("java-too-recent").isForNewerJava());
+                assertEquals(3, site.getAvailables().size());
+                // read from the saved index next time
+                site.doInvalidateData();
+            }
+        } finally {
+            UpdateSite.INDEXED_DATA = false;
+        }
+    }
+
+    @Test public void indexedDataFallsBackToFullParse() throws Exception {
+        UpdateSite.INDEXED_DATA = true;
+        try {
+            PersistedList<UpdateSite> sites = j.jenkins.getUpdateCenter().getSites();
+            sites.clear();
+            // has comments, so is not strict JSON
+            URL url = new URL(baseUrl, "/plugins/tasks-update-center.json");
+            UpdateSite site = new UpdateSite(UpdateCenter.ID_DEFAULT, url.toString());
+            sites.add(site);
+            assertEquals(FormValidation.ok(), site.updateDirectly(false).get());
+            assertFalse(new File(j.jenkins.getRootDir(), "updates/default.json.idx").exists());
+            assertEquals(new HashSet<String>(Arrays.asList("tasks", "dummy")), site.getData().plugins.keySet());
+        } finally {
+            UpdateSite.INDEXED_DATA = false;
+        }
+    }
+
     @Test public void updateDirectlyWithJson() throws Exception {
         UpdateSite us = new UpdateSite("default", new URL(baseUrl, "update-center.json").toExternalForm());
         assertNull(us.getPlugin("AdaptivePlugin"));
@@ -39,6 +39,7 @@ import static hudson.tasks.LogRotatorTest.build;
 import java.io.File;
 import java.io.IOException;
 import java.net.HttpURLConnection;
+import java.nio.file.Files;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
@@ -47,6 +48,7 @@ import hudson.model.Run;
 import hudson.remoting.VirtualChannel;
 import hudson.slaves.DumbSlave;
 import jenkins.MasterToSlaveFileCallable;
+import jenkins.model.StandardArtifactManager;
 import jenkins.util.VirtualFile;
 import org.hamcrest.Matchers;
 import org.jenkinsci.plugins.structs.describable.DescribableModel;
@@ -365,6 +367,70 @@ public class ArtifactArchiverTest {
         assertEquals("8", artifact.getLength());
     }
 
+    @Test public void localArchivingLinksUnchangedArtifacts() throws Exception {
+        StandardArtifactManager.LOCAL_ARCHIVING = true;
+        try {
+            FreeStyleProject p = j.createFreeStyleProject();
+            p.getBuildersList().add(new TestBuilder() {
+                @Override public boolean perform(AbstractBuild<?,?> build, Launcher launcher, BuildListener listener) throws InterruptedException, IOException {
+                    FilePath ws = build.getWorkspace();
+                    if (ws == null) {
+                        return false;
+                    }
+                    if (!ws.child("same").exists()) {
+                        ws.child("same").write("unchanged", null);
+                    }
+                    ws.child("dir/changing").write("build #" + build.getNumber(), null);
+                    return true;
+                }
+            });
+            p.getPublishersList().add(new ArtifactArchiver("same,dir/changing"));
+            FreeStyleBuild b1 = j.buildAndAssertSuccess(p);
+            FreeStyleBuild b2 = j.buildAndAssertSuccess(p);
+            assertEquals("unchanged", new FilePath(new File(b2.getArtifactsDir(), "same")).readToString());
+            assertEquals("build #1", new FilePath(new File(b1.getArtifactsDir(), "dir/changing")).readToString());
+            assertEquals("build #2", new FilePath(new File(b2.getArtifactsDir(), "dir/changing")).readToString());
+            assertTrue(Files.isSameFile(new File(b1.getArtifactsDir(), "same").toPath(), new File(b2.getArtifactsDir(), "same").toPath()));
+            assertFalse(Files.isSameFile(new File(b1.getArtifactsDir(), "dir/changing").toPath(), new File(b2.getArtifactsDir(), "dir/changing").toPath()));
+            b1.delete();
+            assertEquals("unchanged", new FilePath(new File(b2.getArtifactsDir(), "same")).readToString());
+        } finally {
+            StandardArtifactManager.LOCAL_ARCHIVING = false;
+        }
+    }
+
+    @Test public void localArchivingTwiceKeepsPreviousBuild() throws Exception {
+        StandardArtifactManager.LOCAL_ARCHIVING = true;
+        try {
+            FilePath agentWs = j.createOnlineSlave().getRootPath().child("ws");
+            FreeStyleProject p = j.createFreeStyleProject();
+            p.getBuildersList().add(new TestBuilder() {
+                @Override public boolean perform(AbstractBuild<?,?> build, Launcher launcher, BuildListener listener) throws InterruptedException, IOException {
+                    FilePath ws = build.getWorkspace();
+                    if (ws == null) {
+                        return false;
+                    }
+                    ws.child("f").write("unchanged", null);
+                    build.pickArtifactManager().archive(ws, launcher, listener, Collections.singletonMap("f", "f"));
+                    if (build.getNumber() > 1) {
+                        // archived again locally, then from an agent
+                        ws.child("f").write("changed locally", null);
+                        build.pickArtifactManager().archive(ws, launcher, listener, Collections.singletonMap("f", "f"));
+                        agentWs.child("f").write("changed remotely", null);
+                        build.pickArtifactManager().archive(agentWs, launcher, listener, Collections.singletonMap("f", "f"));
+                    }
+                    return true;
+                }
+            });
+            FreeStyleBuild b1 = j.buildAndAssertSuccess(p);
+            FreeStyleBuild b2 = j.buildAndAssertSuccess(p);
+            assertEquals("unchanged", new FilePath(new File(b1.getArtifactsDir(), "f")).readToString());
+            assertEquals("changed remotely", new FilePath(new File(b2.getArtifactsDir(), "f")).readToString());
+        } finally {
+            StandardArtifactManager.LOCAL_ARCHIVING = false;
+        }
+    }
+
     private static class RemoveReadPermission extends MasterToSlaveFileCallable<Object> {
         @Override
         public Object invoke(File f, VirtualChannel channel) throws IOException, InterruptedException {
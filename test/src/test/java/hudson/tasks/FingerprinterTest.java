@@ -42,6 +42,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 
 import static org.hamcrest.Matchers.hasSize;
 import static org.junit.Assert.*;
@@ -370,7 +371,31 @@ public class FingerprinterTest {
         assertEquals(1,f.getUsages().size());
     }
 
-    
+    @Test public void manyFilesSomeIdentical() throws Exception {
+        String[] contents = new String[12];
+        String[] files = new String[contents.length];
+        for (int i = 0; i < contents.length; i++) {
+            contents[i] = "contents" + (i % 4);
+            files[i] = "file" + i + ".txt";
+        }
+        FreeStyleProject p = createFreeStyleProjectWithFingerprints(contents, files);
+        FreeStyleBuild b = j.assertBuildStatusSuccess(p.scheduleBuild2(0));
+
+        Map<String,String> records = b.getAction(Fingerprinter.FingerprintAction.class).getRecords();
+        assertEquals(contents.length, records.size());
+        for (int i = 0; i < contents.length; i++) {
+            assertEquals(Util.getDigestOf(contents[i] + System.lineSeparator()), records.get(files[i]));
+        }
+        assertEquals(4, new HashSet<>(records.values()).size());
+        for (String md5sum : records.values()) {
+            Fingerprint f = j.jenkins._getFingerprint(md5sum);
+            assertNotNull(f);
+            assertEquals(b, f.getOriginal().getRun());
+            assertEquals(1, f.getUsages().size());
+            assertTrue(f.getRangeSet(p).includes(b.getNumber()));
+        }
+    }
+
     private FreeStyleProject createFreeStyleProjectWithFingerprints(String[] contents, String[] files) throws IOException, Exception {
         FreeStyleProject project = j.createFreeStyleProject();
 
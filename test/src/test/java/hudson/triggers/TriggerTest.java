@@ -26,16 +26,21 @@ package hudson.triggers;
 
 import antlr.ANTLRException;
 import hudson.Extension;
+import hudson.model.FreeStyleProject;
 import hudson.model.Item;
 import org.junit.Rule;
 import org.junit.Test;
 import org.jvnet.hudson.test.Issue;
 import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.TestExtension;
 import org.kohsuke.stapler.DataBoundConstructor;
 
 import java.io.ByteArrayInputStream;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
 
 public class TriggerTest {
 
@@ -50,11 +55,65 @@ public class TriggerTest {
         Trigger.checkTriggers(cal);
     }
 
+    @Test
+    public void cronSchedule() throws Exception {
+        // only due on a day the real Cron is unlikely to check while the test runs
+        CountingTrigger every2 = new CountingTrigger("*/2 10 1 1 *");
+        FreeStyleProject p = jenkinsRule.createFreeStyleProject();
+        p.addTrigger(every2);
+        jenkinsRule.createFreeStyleProject(); // without triggers
+
+        CronSchedule schedule = new CronSchedule();
+        Calendar cal = new GregorianCalendar(2019, Calendar.JANUARY, 1, 10, 0, 0);
+        fire(schedule, cal, 10);
+        assertEquals(5, every2.count.get());
+
+        CountingTrigger at15 = new CountingTrigger("15 10 1 1 *");
+        p.addTrigger(at15); // replaces the other one
+        schedule.update(p);
+        fire(schedule, cal, 10);
+        assertEquals(5, every2.count.get());
+        assertEquals(1, at15.count.get());
+
+        p.delete();
+        schedule.removeAll(p);
+        cal.set(2020, Calendar.JANUARY, 1, 10, 0, 0); // also after a rebuild
+        fire(schedule, cal, 60);
+        assertEquals(1, at15.count.get());
+    }
+
+    private static void fire(CronSchedule schedule, Calendar cal, int minutes) {
+        for (int i = 0; i < minutes; i++) {
+            schedule.fire(cal);
+            cal.add(Calendar.MINUTE, 1);
+        }
+    }
+
     private String triggersSection() {
         String tagname = MockTrigger.class.getName().replace("$", "_-");
         return "<triggers> \n <" + tagname + ">\n </" + tagname + ">\n  </triggers>\n";
     }
 
+    public static class CountingTrigger extends Trigger<Item> {
+        final AtomicInteger count = new AtomicInteger();
+
+        public CountingTrigger(String cron) throws ANTLRException {
+            super(cron);
+        }
+
+        @Override
+        public void run() {
+            count.incrementAndGet();
+        }
+
+        @TestExtension("cronSchedule")
+        public static class DescriptorImpl extends TriggerDescriptor {
+            @Override public boolean isApplicable(Item item) {
+                return true;
+            }
+        }
+    }
+
     public static class MockTrigger extends Trigger<Item> {
         @Extension
         public static final DescriptorImpl DESCRIPTOR = new DescriptorImpl();
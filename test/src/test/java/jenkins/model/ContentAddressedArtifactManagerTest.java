@@ -0,0 +1,103 @@
+package jenkins.model;
+
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.Util;
+import hudson.model.AbstractBuild;
+import hudson.model.BuildListener;
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.tasks.ArtifactArchiver;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import jenkins.util.VirtualFile;
+import org.apache.commons.io.IOUtils;
+import static org.junit.Assert.*;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.TestBuilder;
+
+public class ContentAddressedArtifactManagerTest {
+
+    @Rule public JenkinsRule j = new JenkinsRule();
+
+    @Test public void sharedAcrossBuilds() throws Exception {
+        ArtifactManagerConfiguration.get().getArtifactManagerFactories().add(new ContentAddressedArtifactManagerFactory());
+        FreeStyleProject p = j.createFreeStyleProject();
+        p.setAssignedNode(j.createOnlineSlave());
+        p.getBuildersList().add(new TestBuilder() {
+            @Override public boolean perform(AbstractBuild<?,?> build, Launcher launcher, BuildListener listener) throws InterruptedException, IOException {
+                FilePath ws = build.getWorkspace();
+                if (ws == null) {
+                    return false;
+                }
+                ws.child("same").write("unchanged", null);
+                ws.child("dir/copy").write("unchanged", null);
+                ws.child("dir/changing").write("build #" + build.getNumber(), null);
+                return true;
+            }
+        });
+        p.getPublishersList().add(new ArtifactArchiver("same,dir/*"));
+        FreeStyleBuild b1 = j.buildAndAssertSuccess(p);
+        FreeStyleBuild b2 = j.buildAndAssertSuccess(p);
+        assertTrue(b2.getArtifactManager() instanceof ContentAddressedArtifactManager);
+        ContentAddressedArtifactStore store = ContentAddressedArtifactStore.get();
+        String same = sha256("unchanged");
+        assertEquals(4, store.getRefs(same));
+        assertEquals(1, store.getRefs(sha256("build #1")));
+
+        assertEquals(3, b2.getArtifacts().size());
+        VirtualFile root = b2.getArtifactManager().root();
+        assertTrue(root.child("dir").isDirectory());
+        assertEquals(2, root.child("dir").list().length);
+        assertEquals("unchanged", read(root.child("same")));
+        assertEquals("build #2", read(root.child("dir").child("changing")));
+        assertEquals(9, root.child("dir/copy").length());
+        assertFalse(root.child("missing").exists());
+
+        b1.delete();
+        assertEquals(2, store.getRefs(same));
+        assertEquals(0, store.getRefs(sha256("build #1")));
+        assertFalse(store.file(sha256("build #1")).exists());
+        assertEquals("unchanged", read(root.child("same")));
+        b2.delete();
+        assertFalse(store.file(same).exists());
+    }
+
+    @Test public void otherJobsTransferAgain() throws Exception {
+        ArtifactManagerConfiguration.get().getArtifactManagerFactories().add(new ContentAddressedArtifactManagerFactory());
+        FreeStyleProject p1 = j.createFreeStyleProject("p1");
+        FreeStyleProject p2 = j.createFreeStyleProject("p2");
+        for (FreeStyleProject p : new FreeStyleProject[] {p1, p2}) {
+            p.getBuildersList().add(new TestBuilder() {
+                @Override public boolean perform(AbstractBuild<?,?> build, Launcher launcher, BuildListener listener) throws InterruptedException, IOException {
+                    FilePath ws = build.getWorkspace();
+                    if (ws == null) {
+                        return false;
+                    }
+                    ws.child("f").write("shared", null);
+                    return true;
+                }
+            });
+            p.getPublishersList().add(new ArtifactArchiver("f"));
+        }
+        j.buildAndAssertSuccess(p1);
+        FreeStyleBuild b = j.buildAndAssertSuccess(p2);
+        assertEquals(2, ContentAddressedArtifactStore.get().getRefs(sha256("shared")));
+        assertEquals("shared", read(b.getArtifactManager().root().child("f")));
+    }
+
+    private static String sha256(String text) throws Exception {
+        return Util.toHexString(MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String read(VirtualFile f) throws IOException {
+        try (InputStream is = f.open()) {
+            return IOUtils.toString(is, StandardCharsets.UTF_8);
+        }
+    }
+
+}